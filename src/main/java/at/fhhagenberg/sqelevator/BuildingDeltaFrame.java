@@ -0,0 +1,275 @@
+package at.fhhagenberg.sqelevator;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Class which holds the changed fields of a whole building for the compact binary delta message of a poll cycle.
+ * A keyframe carries every field instead, so a subscriber which joined late or missed a frame can resync.
+ * <p>
+ * The frame is big-endian: the version and the keyframe flag as one byte each, the sequence number and the
+ * clock tick as eight bytes each, the number of elevators and floors as two bytes each and the number of
+ * entries as four bytes. Every entry holds the ordinal of the {@link FleetField} as one byte, the elevator
+ * number and the floor number as two bytes each, 0xFFFF if the field has none, and the value as four bytes.
+ * Flags are encoded as 1 for true and 0 for false.
+ */
+public class BuildingDeltaFrame {
+    /**< The version of the frame layout. */
+    public static final byte VERSION = 1;
+    /**< The size of the frame without the entries in bytes. */
+    public static final int HEADER_SIZE = 2 + 2 * Long.BYTES + 2 * Short.BYTES + Integer.BYTES;
+    /**< The size of an entry in bytes. */
+    public static final int ENTRY_SIZE = 1 + 2 * Short.BYTES + Integer.BYTES;
+
+    /**< The fields, cached to avoid the copy made by values(). */
+    private static final FleetField[] FIELDS = FleetField.values();
+    /**< The encoded elevator or floor number of a field which has none. */
+    private static final int NONE = 0xFFFF;
+    /**< The initial number of entries. */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**< The number of elevators. */
+    private final int mNumOfElevators;
+    /**< The number of floors. */
+    private final int mNumOfFloors;
+
+    /**< The sequence number. */
+    private long mSequence = 0;
+    /**< The clock tick of the PLC. */
+    private long mClockTick = 0;
+    /**< If the frame carries every field. */
+    private boolean mKeyframe = false;
+
+    /**< The number of entries. */
+    private int mCount = 0;
+    /**< The fields of the entries. */
+    private FleetField[] mFields = new FleetField[INITIAL_CAPACITY];
+    /**< The elevator numbers of the entries, -1 for floor fields. */
+    private int[] mElevators = new int[INITIAL_CAPACITY];
+    /**< The floor numbers of the entries, -1 for the scalar fields of an elevator. */
+    private int[] mFloors = new int[INITIAL_CAPACITY];
+    /**< The values of the entries. */
+    private int[] mValues = new int[INITIAL_CAPACITY];
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param numOfElevators The number of elevators.
+     * @param numOfFloors The number of floors.
+     */
+    public BuildingDeltaFrame(int numOfElevators, int numOfFloors) {
+        if (numOfElevators < 0 || numOfElevators >= NONE)
+            throw new IllegalArgumentException("Invalid number of elevators");
+
+        if (numOfFloors < 0 || numOfFloors >= NONE)
+            throw new IllegalArgumentException("Invalid number of floors");
+
+        mNumOfElevators = numOfElevators;
+        mNumOfFloors = numOfFloors;
+    }
+
+    /**
+     * Starts a new frame, removing all entries. The entry arrays are kept, so a reused frame does not allocate.
+     * @param sequence The sequence number.
+     * @param clockTick The clock tick of the PLC.
+     * @param keyframe True if the frame carries every field, false if it carries the changed fields.
+     */
+    public void begin(long sequence, long clockTick, boolean keyframe) {
+        mSequence = sequence;
+        mClockTick = clockTick;
+        mKeyframe = keyframe;
+        mCount = 0;
+    }
+
+    /**
+     * Appends an entry.
+     * @param field The field.
+     * @param elevatorNumber The elevator number, -1 for floor fields.
+     * @param floor The floor number, -1 for the scalar fields of an elevator.
+     * @param value The value, 1 for true and 0 for false for flags.
+     */
+    public void add(FleetField field, int elevatorNumber, int floor, int value) {
+        if (elevatorNumber < -1 || elevatorNumber >= mNumOfElevators)
+            throw new IllegalArgumentException("Invalid elevator number");
+
+        if (floor < -1 || floor >= mNumOfFloors)
+            throw new IllegalArgumentException("Invalid floor number");
+
+        if (mCount == mValues.length) {
+            int capacity = mCount * 2;
+            mFields = Arrays.copyOf(mFields, capacity);
+            mElevators = Arrays.copyOf(mElevators, capacity);
+            mFloors = Arrays.copyOf(mFloors, capacity);
+            mValues = Arrays.copyOf(mValues, capacity);
+        }
+
+        mFields[mCount] = field;
+        mElevators[mCount] = elevatorNumber;
+        mFloors[mCount] = floor;
+        mValues[mCount] = value;
+        ++mCount;
+    }
+
+    /**
+     * Returns the number of elevators.
+     * @return The number of elevators.
+     */
+    public int getNumOfElevators() {
+        return mNumOfElevators;
+    }
+
+    /**
+     * Returns the number of floors.
+     * @return The number of floors.
+     */
+    public int getNumOfFloors() {
+        return mNumOfFloors;
+    }
+
+    /**
+     * Returns the sequence number.
+     * @return The sequence number.
+     */
+    public long getSequence() {
+        return mSequence;
+    }
+
+    /**
+     * Returns the clock tick of the PLC.
+     * @return The clock tick.
+     */
+    public long getClockTick() {
+        return mClockTick;
+    }
+
+    /**
+     * Returns if the frame carries every field.
+     * @return True for a keyframe, false for a delta frame.
+     */
+    public boolean isKeyframe() {
+        return mKeyframe;
+    }
+
+    /**
+     * Returns the number of entries.
+     * @return The number of entries.
+     */
+    public int getEntryCount() {
+        return mCount;
+    }
+
+    /**
+     * Returns the field of an entry.
+     * @param entry The entry number.
+     * @return The field.
+     */
+    public FleetField getField(int entry) {
+        return mFields[checkEntry(entry)];
+    }
+
+    /**
+     * Returns the elevator number of an entry.
+     * @param entry The entry number.
+     * @return The elevator number, -1 for floor fields.
+     */
+    public int getElevator(int entry) {
+        return mElevators[checkEntry(entry)];
+    }
+
+    /**
+     * Returns the floor number of an entry.
+     * @param entry The entry number.
+     * @return The floor number, -1 for the scalar fields of an elevator.
+     */
+    public int getFloor(int entry) {
+        return mFloors[checkEntry(entry)];
+    }
+
+    /**
+     * Returns the value of an entry.
+     * @param entry The entry number.
+     * @return The value, 1 for true and 0 for false for flags.
+     */
+    public int getValue(int entry) {
+        return mValues[checkEntry(entry)];
+    }
+
+    /**
+     * Returns the size of a frame.
+     * @param entryCount The number of entries.
+     * @return The size in bytes.
+     */
+    public static int size(int entryCount) {
+        return HEADER_SIZE + entryCount * ENTRY_SIZE;
+    }
+
+    /**
+     * Encodes the frame into a new payload, as the asynchronous publish keeps referencing it.
+     * @return The payload.
+     */
+    public byte[] encode() {
+        byte[] payload = new byte[size(mCount)];
+        ByteBuffer out = ByteBuffer.wrap(payload);
+        out.put(VERSION);
+        out.put((byte) (mKeyframe ? 1 : 0));
+        out.putLong(mSequence);
+        out.putLong(mClockTick);
+        out.putShort((short) mNumOfElevators);
+        out.putShort((short) mNumOfFloors);
+        out.putInt(mCount);
+
+        for (int i = 0; i < mCount; ++i) {
+            out.put((byte) mFields[i].ordinal());
+            out.putShort((short) (mElevators[i] & NONE));
+            out.putShort((short) (mFloors[i] & NONE));
+            out.putInt(mValues[i]);
+        }
+        return payload;
+    }
+
+    /**
+     * Decodes a payload.
+     * @param payload The payload of a delta message.
+     * @return The frame.
+     */
+    public static BuildingDeltaFrame decode(byte[] payload) {
+        if (payload.length < HEADER_SIZE || payload[0] != VERSION)
+            throw new IllegalArgumentException("Invalid delta frame");
+
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        in.get();
+        boolean keyframe = in.get() != 0;
+        long sequence = in.getLong();
+        long clockTick = in.getLong();
+        int numOfElevators = in.getShort() & NONE;
+        int numOfFloors = in.getShort() & NONE;
+        int count = in.getInt();
+        if (count < 0 || payload.length != size(count))
+            throw new IllegalArgumentException("Invalid delta frame size");
+
+        BuildingDeltaFrame frame = new BuildingDeltaFrame(numOfElevators, numOfFloors);
+        frame.begin(sequence, clockTick, keyframe);
+        for (int i = 0; i < count; ++i) {
+            int ordinal = in.get() & 0xFF;
+            if (ordinal >= FIELDS.length)
+                throw new IllegalArgumentException("Invalid field in delta frame");
+
+            int elevatorNumber = in.getShort() & NONE;
+            int floor = in.getShort() & NONE;
+            frame.add(FIELDS[ordinal], elevatorNumber == NONE ? -1 : elevatorNumber, floor == NONE ? -1 : floor, in.getInt());
+        }
+        return frame;
+    }
+
+    /**
+     * Checks an entry number.
+     * @param entry The entry number.
+     * @return The entry number.
+     */
+    private int checkEntry(int entry) {
+        if (entry < 0 || entry >= mCount)
+            throw new IllegalArgumentException("Invalid entry number");
+
+        return entry;
+    }
+}
@@ -0,0 +1,255 @@
+package at.fhhagenberg.sqelevator;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Class which holds all fields of one elevator for the compact binary elevator/&lt;n&gt;/state message.
+ * <p>
+ * The frame is big-endian: the version, the direction and the door status as one byte each, then the
+ * acceleration, speed, current floor, target floor, weight and position as four bytes each, the number of
+ * floors as two bytes, and finally the elevator buttons and the serviced floors as bitmaps with one bit per
+ * floor, least significant bit first.
+ */
+public class ElevatorStateFrame {
+    /**< The version of the frame layout. */
+    public static final byte VERSION = 1;
+    /**< The size of the frame without the bitmaps in bytes. */
+    public static final int HEADER_SIZE = 3 + 6 * Integer.BYTES + Short.BYTES;
+
+    /**< The direction. */
+    private int mDirection = 0;
+    /**< The acceleration. */
+    private int mAcceleration = 0;
+    /**< The speed. */
+    private int mSpeed = 0;
+    /**< The door status. */
+    private int mDoorStatus = 0;
+    /**< The current floor. */
+    private int mCurrentFloor = 0;
+    /**< The target floor. */
+    private int mTargetFloor = 0;
+    /**< The weight. */
+    private int mWeight = 0;
+    /**< The position. */
+    private int mPosition = 0;
+    /**< The elevator buttons. */
+    private final boolean[] mButtons;
+    /**< The serviced floors. */
+    private final boolean[] mServices;
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param numOfFloors The number of floors.
+     */
+    public ElevatorStateFrame(int numOfFloors) {
+        if (numOfFloors < 0 || numOfFloors > 0xFFFF)
+            throw new IllegalArgumentException("Invalid number of floors");
+
+        mButtons = new boolean[numOfFloors];
+        mServices = new boolean[numOfFloors];
+    }
+
+    /**
+     * Sets the scalar fields.
+     * @param direction The direction.
+     * @param acceleration The acceleration.
+     * @param speed The speed.
+     * @param doorStatus The door status.
+     * @param currentFloor The current floor.
+     * @param targetFloor The target floor.
+     * @param weight The weight.
+     * @param position The position.
+     */
+    public void setScalars(int direction, int acceleration, int speed, int doorStatus, int currentFloor,
+                           int targetFloor, int weight, int position) {
+        mDirection = direction;
+        mAcceleration = acceleration;
+        mSpeed = speed;
+        mDoorStatus = doorStatus;
+        mCurrentFloor = currentFloor;
+        mTargetFloor = targetFloor;
+        mWeight = weight;
+        mPosition = position;
+    }
+
+    /**
+     * Sets an elevator button.
+     * @param floor The floor number.
+     * @param pressed The button status.
+     */
+    public void setElevatorButton(int floor, boolean pressed) {
+        mButtons[floor] = pressed;
+    }
+
+    /**
+     * Sets a serviced floor.
+     * @param floor The floor number.
+     * @param service The service status.
+     */
+    public void setServicesFloor(int floor, boolean service) {
+        mServices[floor] = service;
+    }
+
+    /**
+     * Returns the number of floors.
+     * @return The number of floors.
+     */
+    public int getNumOfFloors() {
+        return mButtons.length;
+    }
+
+    /**
+     * Returns the direction.
+     * @return The direction.
+     */
+    public int getDirection() {
+        return mDirection;
+    }
+
+    /**
+     * Returns the acceleration.
+     * @return The acceleration.
+     */
+    public int getAcceleration() {
+        return mAcceleration;
+    }
+
+    /**
+     * Returns the speed.
+     * @return The speed.
+     */
+    public int getSpeed() {
+        return mSpeed;
+    }
+
+    /**
+     * Returns the door status.
+     * @return The door status.
+     */
+    public int getDoorStatus() {
+        return mDoorStatus;
+    }
+
+    /**
+     * Returns the current floor.
+     * @return The current floor.
+     */
+    public int getCurrentFloor() {
+        return mCurrentFloor;
+    }
+
+    /**
+     * Returns the target floor.
+     * @return The target floor.
+     */
+    public int getTargetFloor() {
+        return mTargetFloor;
+    }
+
+    /**
+     * Returns the weight.
+     * @return The weight.
+     */
+    public int getWeight() {
+        return mWeight;
+    }
+
+    /**
+     * Returns the position.
+     * @return The position.
+     */
+    public int getPosition() {
+        return mPosition;
+    }
+
+    /**
+     * Returns an elevator button.
+     * @param floor The floor number.
+     * @return The button status.
+     */
+    public boolean getElevatorButton(int floor) {
+        return mButtons[floor];
+    }
+
+    /**
+     * Returns a serviced floor.
+     * @param floor The floor number.
+     * @return The service status.
+     */
+    public boolean getServicesFloor(int floor) {
+        return mServices[floor];
+    }
+
+    /**
+     * Returns the size of a frame.
+     * @param numOfFloors The number of floors.
+     * @return The size in bytes.
+     */
+    public static int size(int numOfFloors) {
+        return HEADER_SIZE + 2 * ((numOfFloors + 7) >>> 3);
+    }
+
+    /**
+     * Encodes the frame into a new payload, as the asynchronous publish keeps referencing it.
+     * @return The payload.
+     */
+    public byte[] encode() {
+        byte[] payload = new byte[size(mButtons.length)];
+        ByteBuffer out = ByteBuffer.wrap(payload);
+        out.put(VERSION);
+        out.put((byte) mDirection);
+        out.put((byte) mDoorStatus);
+        out.putInt(mAcceleration);
+        out.putInt(mSpeed);
+        out.putInt(mCurrentFloor);
+        out.putInt(mTargetFloor);
+        out.putInt(mWeight);
+        out.putInt(mPosition);
+        out.putShort((short) mButtons.length);
+
+        int bitmapSize = (mButtons.length + 7) >>> 3;
+        for (int f = 0; f < mButtons.length; ++f) {
+            if (mButtons[f]) {
+                payload[HEADER_SIZE + (f >>> 3)] |= (byte) (1 << (f & 7));
+            }
+            if (mServices[f]) {
+                payload[HEADER_SIZE + bitmapSize + (f >>> 3)] |= (byte) (1 << (f & 7));
+            }
+        }
+        return payload;
+    }
+
+    /**
+     * Decodes a payload.
+     * @param payload The payload of an elevator/&lt;n&gt;/state message.
+     * @return The frame.
+     */
+    public static ElevatorStateFrame decode(byte[] payload) {
+        if (payload.length < HEADER_SIZE || payload[0] != VERSION)
+            throw new IllegalArgumentException("Invalid state frame");
+
+        ByteBuffer in = ByteBuffer.wrap(payload);
+        in.get();
+        int direction = in.get();
+        int doorStatus = in.get();
+        int acceleration = in.getInt();
+        int speed = in.getInt();
+        int currentFloor = in.getInt();
+        int targetFloor = in.getInt();
+        int weight = in.getInt();
+        int position = in.getInt();
+        int numOfFloors = in.getShort() & 0xFFFF;
+        if (payload.length != size(numOfFloors))
+            throw new IllegalArgumentException("Invalid state frame size");
+
+        ElevatorStateFrame frame = new ElevatorStateFrame(numOfFloors);
+        frame.setScalars(direction, acceleration, speed, doorStatus, currentFloor, targetFloor, weight, position);
+        int bitmapSize = (numOfFloors + 7) >>> 3;
+        for (int f = 0; f < numOfFloors; ++f) {
+            frame.mButtons[f] = (payload[HEADER_SIZE + (f >>> 3)] & (1 << (f & 7))) != 0;
+            frame.mServices[f] = (payload[HEADER_SIZE + bitmapSize + (f >>> 3)] & (1 << (f & 7))) != 0;
+        }
+        return frame;
+    }
+}
@@ -0,0 +1,78 @@
+package at.fhhagenberg.sqelevator;
+
+/**
+ * Enum which lists the published fields of the fleet.
+ * Every field maps to one MQTT subtopic below the elevator or floor topic.
+ */
+public enum FleetField {
+    /** The committed direction of an elevator. */
+    DIRECTION(MqttTopics.DIRECTION_SUBTOPIC, false, false),
+    /** The acceleration of an elevator. */
+    ACCELERATION(MqttTopics.ACCELERATION_SUBTOPIC, false, false),
+    /** The speed of an elevator. */
+    SPEED(MqttTopics.SPEED_SUBTOPIC, false, false),
+    /** The door status of an elevator. */
+    DOOR_STATUS(MqttTopics.DOOR_STATUS_SUBTOPIC, false, false),
+    /** The current floor of an elevator. */
+    CURRENT_FLOOR(MqttTopics.CURRENT_FLOOR_SUBTOPIC, false, false),
+    /** The target floor of an elevator. */
+    TARGET_FLOOR(MqttTopics.TARGET_FLOOR_SUBTOPIC, false, false),
+    /** The weight of an elevator. */
+    WEIGHT(MqttTopics.WEIGHT_SUBTOPIC, false, false),
+    /** The position of an elevator in feet above the ground floor. */
+    POSITION(MqttTopics.POSITION_SUBTOPIC, false, false),
+    /** The button of a floor inside an elevator. */
+    FLOOR_REQUESTED(MqttTopics.FLOOR_REQUESTED_SUBTOPIC, true, false),
+    /** If a floor is serviced by an elevator. */
+    FLOOR_SERVICED(MqttTopics.FLOOR_SERVICED_SUBTOPIC, true, false),
+    /** The up button of a floor. */
+    BUTTON_UP(MqttTopics.BUTTON_UP_SUBTOPIC, true, true),
+    /** The down button of a floor. */
+    BUTTON_DOWN(MqttTopics.BUTTON_DOWN_SUBTOPIC, true, true);
+
+    /** The number of scalar fields of an elevator. */
+    public static final int ELEVATOR_SCALAR_FIELDS = 8;
+
+    /** The subtopic of the field. */
+    private final String mSubtopic;
+    /** If the field is a flag. */
+    private final boolean mFlag;
+    /** If the field belongs to a floor instead of an elevator. */
+    private final boolean mFloorField;
+
+    /**
+     * CTor which instantiates all members.
+     * @param subtopic The subtopic of the field.
+     * @param flag If the field is a flag.
+     * @param floorField If the field belongs to a floor instead of an elevator.
+     */
+    FleetField(String subtopic, boolean flag, boolean floorField) {
+        mSubtopic = subtopic;
+        mFlag = flag;
+        mFloorField = floorField;
+    }
+
+    /**
+     * Returns the subtopic of the field.
+     * @return The subtopic.
+     */
+    public String getSubtopic() {
+        return mSubtopic;
+    }
+
+    /**
+     * Returns if the field is a flag. Flags are published as true/false, all other fields as integers.
+     * @return True if the field is a flag, false otherwise.
+     */
+    public boolean isFlag() {
+        return mFlag;
+    }
+
+    /**
+     * Returns if the field belongs to a floor instead of an elevator.
+     * @return True if the field belongs to a floor, false otherwise.
+     */
+    public boolean isFloorField() {
+        return mFloorField;
+    }
+}
@@ -31,6 +31,10 @@ public class MqttTopics {
     public static final String TARGET_FLOOR_SUBTOPIC = "/target_floor";
     /** The subtopic for the weight. */
     public static final String WEIGHT_SUBTOPIC = "/weight";
+    /** The subtopic for the position. */
+    public static final String POSITION_SUBTOPIC = "/position";
+    /** The subtopic for the binary state frame of an elevator. */
+    public static final String STATE_SUBTOPIC = "/state";
     /** The subtopic for the requested floor. */
     public static final String FLOOR_REQUESTED_SUBTOPIC = "/floor_requested";
     /** The subtopic for the serviced floor. */
@@ -45,10 +49,36 @@ public class MqttTopics {
     /** The subtopic for the number of floors. */
     public static final String NUM_OF_FLOORS_SUBTOPIC = "/num_of_floors";
 
+    /** The topic for the metrics of the adapter. */
+    public static final String ADAPTER_METRICS_TOPIC = "metrics/adapter";
+    /** The subtopic for the duration of a poll cycle. */
+    public static final String CYCLE_TIME_SUBTOPIC = "/cycle_time";
+    /** The subtopic for the duration of the RMI reads of a poll cycle. */
+    public static final String RMI_TIME_SUBTOPIC = "/rmi_time";
+    /** The subtopic for the duration of the MQTT publishes of a poll cycle. */
+    public static final String PUBLISH_TIME_SUBTOPIC = "/publish_time";
+    /** The subtopic for the lateness of a poll cycle. */
+    public static final String LATENESS_SUBTOPIC = "/lateness";
+    /** The subtopic for the durations of the RMI outages. */
+    public static final String RECONNECT_DOWNTIME_SUBTOPIC = "/reconnect_downtime";
+    /** The subtopic for the current polling interval, the effective polling rate and the number of polls. */
+    public static final String POLL_INTERVAL_SUBTOPIC = "/poll_interval";
+    /** The subtopic which requests a dump of the adapter metrics. */
+    public static final String DUMP_METRICS_SUBTOPIC = "/dump_metrics";
+
+    /** The topic for the binary delta frames of a whole building. */
+    public static final String DELTA_TOPIC = "delta";
+
+    /** The topic below which every building has its namespace in multi-building mode. */
+    public static final String BUILDING_TOPIC = "building";
+
     /** The topic for the floor. */
     public static final String FLOOR_TOPIC = "floor";
     /** The subtopic for the button up. */
     public static final String BUTTON_UP_SUBTOPIC = "/button_up";
     /** The subtopic for the button down. */
     public static final String BUTTON_DOWN_SUBTOPIC = "/button_down";
+
+    /** The user property which stamps a published update with the clock tick of the PLC. */
+    public static final String CLOCK_TICK_PROPERTY = "clock_tick";
 }
@@ -0,0 +1,93 @@
+package at.fhhagenberg.sqelevator;
+
+/**
+ * Class which encodes the integer and boolean MQTT payloads as ASCII without allocating a String per message.
+ * The payloads of true, false and the integers from 0 to {@link #CACHED_INTS} - 1, which covers the floors,
+ * directions, door states and most positions and weights, are encoded once and shared. The arrays are never
+ * modified, so they can be handed to the asynchronous publish which still references them after returning.
+ * Other integers are written by the ASCII writer directly into a byte array of the exact length.
+ */
+public class PayloadEncoder {
+    /**< The number of pre-encoded integers, starting at 0. */
+    public static final int CACHED_INTS = 4096;
+
+    /**< The payload of true. */
+    private static final byte[] TRUE = {'t', 'r', 'u', 'e'};
+    /**< The payload of false. */
+    private static final byte[] FALSE = {'f', 'a', 'l', 's', 'e'};
+    /**< The payloads of the cached integers, indexed by value. */
+    private static final byte[][] INTS = new byte[CACHED_INTS][];
+
+    static {
+        for (int i = 0; i < CACHED_INTS; ++i) {
+            INTS[i] = new byte[length(i)];
+            write(i, INTS[i], 0);
+        }
+    }
+
+    private PayloadEncoder() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Returns the payload of a boolean.
+     * @param value The value.
+     * @return The shared payload, must not be modified.
+     */
+    public static byte[] encode(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    /**
+     * Returns the payload of an integer.
+     * @param value The value.
+     * @return The payload, shared for cached values and must not be modified.
+     */
+    public static byte[] encode(int value) {
+        if (value >= 0 && value < CACHED_INTS) {
+            return INTS[value];
+        }
+
+        byte[] payload = new byte[length(value)];
+        write(value, payload, 0);
+        return payload;
+    }
+
+    /**
+     * Returns the number of ASCII characters of an integer.
+     * @param value The value.
+     * @return The number of characters, including the sign.
+     */
+    public static int length(int value) {
+        // widened, as the magnitude of Integer.MIN_VALUE does not fit an int
+        long magnitude = Math.abs((long) value);
+        int length = value < 0 ? 2 : 1;
+        while (magnitude >= 10) {
+            magnitude /= 10;
+            ++length;
+        }
+        return length;
+    }
+
+    /**
+     * Writes an integer as ASCII into a buffer, the reusable writer for frames and scratch buffers.
+     * @param value The value.
+     * @param buffer The buffer, with at least {@link #length(int)} bytes left at the offset.
+     * @param offset The offset of the first character.
+     * @return The offset behind the last character.
+     */
+    public static int write(int value, byte[] buffer, int offset) {
+        int end = offset + length(value);
+        long magnitude = Math.abs((long) value);
+        int position = end;
+        do {
+            buffer[--position] = (byte) ('0' + magnitude % 10);
+            magnitude /= 10;
+        } while (magnitude != 0);
+
+        if (value < 0) {
+            buffer[offset] = '-';
+        }
+        return end;
+    }
+}
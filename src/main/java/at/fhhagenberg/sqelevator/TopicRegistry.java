@@ -0,0 +1,224 @@
+package at.fhhagenberg.sqelevator;
+
+import com.hivemq.client.mqtt.datatypes.MqttTopic;
+
+/**
+ * Class which holds the MQTT topics of all elevators and floors of a building.
+ * Every topic and its HiveMQ {@link MqttTopic} is built once at construction and handed out by
+ * (field, elevator, floor), so publishing does not concatenate or parse topic strings.
+ */
+public class TopicRegistry {
+    /**< The number of elevators. */
+    private final int mNumOfElevators;
+    /**< The number of floors. */
+    private final int mNumOfFloors;
+    /**< The prefix of all topics, e.g. building/&lt;id&gt;/, empty for a single building. */
+    private final String mPrefix;
+
+    /**< The topics of every field, indexed by field ordinal and elevator, elevator and floor or floor. */
+    private final String[][] mTopics;
+    /**< The HiveMQ topics of every field, indexed like the topics. */
+    private final MqttTopic[][] mMqttTopics;
+    /**< The control topics for the target floor, indexed by elevator. */
+    private final MqttTopic[] mTargetFloorControlTopics;
+    /**< The control topics for the committed direction, indexed by elevator. */
+    private final MqttTopic[] mDirectionControlTopics;
+    /**< The topics of the state frames, indexed by elevator. */
+    private final MqttTopic[] mStateTopics;
+    /**< The topic of the delta frames of the building. */
+    private final MqttTopic mDeltaTopic;
+    /**< The topic for the connection status of the algorithm of the building. */
+    private final MqttTopic mConnectionStatusTopic;
+
+    /**
+     * CTor which builds all topics of a single building.
+     *
+     * @param numOfElevators The number of elevators.
+     * @param numOfFloors The number of floors.
+     */
+    public TopicRegistry(int numOfElevators, int numOfFloors) {
+        this(numOfElevators, numOfFloors, "");
+    }
+
+    /**
+     * CTor which builds all topics below a prefix.
+     *
+     * @param numOfElevators The number of elevators.
+     * @param numOfFloors The number of floors.
+     * @param prefix The prefix of all topics, e.g. building/&lt;id&gt;/, empty for a single building.
+     */
+    public TopicRegistry(int numOfElevators, int numOfFloors, String prefix) {
+        if (numOfElevators < 0)
+            throw new IllegalArgumentException("Invalid number of elevators");
+
+        if (numOfFloors < 0)
+            throw new IllegalArgumentException("Invalid number of floors");
+
+        mNumOfElevators = numOfElevators;
+        mNumOfFloors = numOfFloors;
+        mPrefix = prefix;
+
+        FleetField[] fields = FleetField.values();
+        mTopics = new String[fields.length][];
+        mMqttTopics = new MqttTopic[fields.length][];
+
+        for (FleetField field : fields) {
+            String[] topics;
+            if (field.isFloorField()) {
+                topics = new String[numOfFloors];
+                for (int f = 0; f < numOfFloors; ++f) {
+                    topics[f] = prefix + MqttTopics.FLOOR_TOPIC + "/" + f + field.getSubtopic();
+                }
+            }
+            else if (field.isFlag()) {
+                topics = new String[numOfElevators * numOfFloors];
+                for (int e = 0; e < numOfElevators; ++e) {
+                    for (int f = 0; f < numOfFloors; ++f) {
+                        topics[e * numOfFloors + f] = prefix + MqttTopics.ELEVATOR_TOPIC + "/" + e + field.getSubtopic() + "/" + f;
+                    }
+                }
+            }
+            else {
+                topics = new String[numOfElevators];
+                for (int e = 0; e < numOfElevators; ++e) {
+                    topics[e] = prefix + MqttTopics.ELEVATOR_TOPIC + "/" + e + field.getSubtopic();
+                }
+            }
+
+            mTopics[field.ordinal()] = topics;
+            mMqttTopics[field.ordinal()] = toMqttTopics(topics);
+        }
+
+        mTargetFloorControlTopics = new MqttTopic[numOfElevators];
+        mDirectionControlTopics = new MqttTopic[numOfElevators];
+        mStateTopics = new MqttTopic[numOfElevators];
+        mDeltaTopic = MqttTopic.of(prefix + MqttTopics.DELTA_TOPIC);
+        mConnectionStatusTopic = MqttTopic.of(prefix + MqttTopics.ELEVATOR_CONTROL_TOPIC + MqttTopics.CONNECTION_STATUS_SUBTOPIC);
+        for (int e = 0; e < numOfElevators; ++e) {
+            mStateTopics[e] = MqttTopic.of(prefix + MqttTopics.ELEVATOR_TOPIC + "/" + e + MqttTopics.STATE_SUBTOPIC);
+            mTargetFloorControlTopics[e] = MqttTopic.of(prefix + MqttTopics.ELEVATOR_CONTROL_TOPIC + "/" + e + MqttTopics.TARGET_FLOOR_SUBTOPIC);
+            mDirectionControlTopics[e] = MqttTopic.of(prefix + MqttTopics.ELEVATOR_CONTROL_TOPIC + "/" + e + MqttTopics.DIRECTION_SUBTOPIC);
+        }
+    }
+
+    /**
+     * Returns the topic of a field.
+     * @param field The field.
+     * @param elevatorNumber The elevator number, ignored for floor fields.
+     * @param floor The floor number, ignored for the scalar fields of an elevator.
+     * @return The topic.
+     */
+    public String getTopic(FleetField field, int elevatorNumber, int floor) {
+        return mTopics[field.ordinal()][indexOf(field, elevatorNumber, floor)];
+    }
+
+    /**
+     * Returns the HiveMQ topic of a field.
+     * @param field The field.
+     * @param elevatorNumber The elevator number, ignored for floor fields.
+     * @param floor The floor number, ignored for the scalar fields of an elevator.
+     * @return The HiveMQ topic.
+     */
+    public MqttTopic getMqttTopic(FleetField field, int elevatorNumber, int floor) {
+        return mMqttTopics[field.ordinal()][indexOf(field, elevatorNumber, floor)];
+    }
+
+    /**
+     * Returns the control topic for the target floor of an elevator.
+     * @param elevatorNumber The elevator number.
+     * @return The HiveMQ topic.
+     */
+    public MqttTopic getTargetFloorControlTopic(int elevatorNumber) {
+        return mTargetFloorControlTopics[elevatorNumber];
+    }
+
+    /**
+     * Returns the control topic for the committed direction of an elevator.
+     * @param elevatorNumber The elevator number.
+     * @return The HiveMQ topic.
+     */
+    public MqttTopic getDirectionControlTopic(int elevatorNumber) {
+        return mDirectionControlTopics[elevatorNumber];
+    }
+
+    /**
+     * Returns the topic of the state frame of an elevator.
+     * @param elevatorNumber The elevator number.
+     * @return The HiveMQ topic.
+     */
+    public MqttTopic getStateTopic(int elevatorNumber) {
+        return mStateTopics[elevatorNumber];
+    }
+
+    /**
+     * Returns the topic of the delta frames of the building.
+     * @return The HiveMQ topic.
+     */
+    public MqttTopic getDeltaTopic() {
+        return mDeltaTopic;
+    }
+
+    /**
+     * Returns the topic for the connection status of the algorithm of the building.
+     * @return The HiveMQ topic.
+     */
+    public MqttTopic getConnectionStatusTopic() {
+        return mConnectionStatusTopic;
+    }
+
+    /**
+     * Returns the prefix of all topics.
+     * @return The prefix, empty for a single building.
+     */
+    public String getPrefix() {
+        return mPrefix;
+    }
+
+    /**
+     * Returns the number of elevators.
+     * @return The number of elevators.
+     */
+    public int getNumOfElevators() {
+        return mNumOfElevators;
+    }
+
+    /**
+     * Returns the number of floors.
+     * @return The number of floors.
+     */
+    public int getNumOfFloors() {
+        return mNumOfFloors;
+    }
+
+    /**
+     * Returns the index of a field within the topics of its kind.
+     * @param field The field.
+     * @param elevatorNumber The elevator number.
+     * @param floor The floor number.
+     * @return The index.
+     */
+    private int indexOf(FleetField field, int elevatorNumber, int floor) {
+        if (field.isFloorField()) {
+            return floor;
+        }
+        else if (field.isFlag()) {
+            if (floor < 0 || floor >= mNumOfFloors)
+                throw new IllegalArgumentException("Invalid floor number");
+            return elevatorNumber * mNumOfFloors + floor;
+        }
+        return elevatorNumber;
+    }
+
+    /**
+     * Converts topics to HiveMQ topics.
+     * @param topics The topics.
+     * @return The HiveMQ topics.
+     */
+    private static MqttTopic[] toMqttTopics(String[] topics) {
+        MqttTopic[] mqttTopics = new MqttTopic[topics.length];
+        for (int i = 0; i < topics.length; ++i) {
+            mqttTopics[i] = MqttTopic.of(topics[i]);
+        }
+        return mqttTopics;
+    }
+}
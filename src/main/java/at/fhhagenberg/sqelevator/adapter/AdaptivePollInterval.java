@@ -0,0 +1,126 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import java.util.Locale;
+
+/**
+ * Class which computes the polling interval from the activity of the fleet.
+ * While any elevator is active the minimum interval is used, while the fleet is idle the
+ * interval is doubled every cycle up to the maximum interval.
+ * The metrics may be read from another thread than the one polling.
+ */
+public class AdaptivePollInterval {
+    /**< The interval used while the fleet is active in milliseconds. */
+    private final long mMinInterval;
+    /**< The upper bound of the interval while the fleet is idle in milliseconds. */
+    private final long mMaxInterval;
+    /**< The current interval in milliseconds. */
+    private long mCurrentInterval;
+
+    /**< The start time of the last poll in milliseconds, -1 if there was none. */
+    private long mLastPollTimestamp = -1;
+    /**< The smoothed time between two polls in milliseconds. */
+    private double mAveragePeriod;
+    /**< The number of polls recorded. */
+    private long mPollCount = 0;
+
+    /**< The weight of a new sample in the smoothed poll period. */
+    private static final double SMOOTHING_FACTOR = 0.2;
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param minInterval The interval used while the fleet is active in milliseconds.
+     * @param maxInterval The upper bound of the interval while the fleet is idle in milliseconds.
+     */
+    public AdaptivePollInterval(long minInterval, long maxInterval) {
+        if (minInterval <= 0) {
+            throw new IllegalArgumentException("Invalid minimum interval");
+        }
+
+        if (maxInterval < minInterval) {
+            throw new IllegalArgumentException("Maximum interval must not be smaller than minimum interval");
+        }
+
+        mMinInterval = minInterval;
+        mMaxInterval = maxInterval;
+        mCurrentInterval = minInterval;
+        mAveragePeriod = minInterval;
+    }
+
+    /**
+     * Computes the interval until the next poll.
+     * @param fleetActive True if any elevator was active during the last poll, false otherwise.
+     * @return The interval until the next poll in milliseconds.
+     */
+    public synchronized long nextInterval(boolean fleetActive) {
+        if (fleetActive) {
+            mCurrentInterval = mMinInterval;
+        }
+        else {
+            mCurrentInterval = Math.min(mMaxInterval, mCurrentInterval * 2);
+        }
+        return mCurrentInterval;
+    }
+
+    /**
+     * Records the start of a poll for the rate metrics.
+     * @param timestamp The start time of the poll in milliseconds.
+     */
+    public synchronized void recordPoll(long timestamp) {
+        if (mLastPollTimestamp >= 0) {
+            long period = timestamp - mLastPollTimestamp;
+            mAveragePeriod += SMOOTHING_FACTOR * (period - mAveragePeriod);
+        }
+        mLastPollTimestamp = timestamp;
+        ++mPollCount;
+    }
+
+    /**
+     * Returns the current interval.
+     * @return The current interval in milliseconds.
+     */
+    public synchronized long getCurrentInterval() {
+        return mCurrentInterval;
+    }
+
+    /**
+     * Returns the minimum interval.
+     * @return The minimum interval in milliseconds.
+     */
+    public long getMinInterval() {
+        return mMinInterval;
+    }
+
+    /**
+     * Returns the maximum interval.
+     * @return The maximum interval in milliseconds.
+     */
+    public long getMaxInterval() {
+        return mMaxInterval;
+    }
+
+    /**
+     * Returns the effective polling rate, smoothed over the last polls.
+     * @return The effective rate in polls per second.
+     */
+    public synchronized double getEffectiveRate() {
+        return mAveragePeriod > 0 ? 1000.0 / mAveragePeriod : 0.0;
+    }
+
+    /**
+     * Returns the number of polls recorded.
+     * @return The number of polls.
+     */
+    public synchronized long getPollCount() {
+        return mPollCount;
+    }
+
+    /**
+     * Formats the current interval, the effective rate and the number of polls as a JSON object.
+     * @return The formatted metrics.
+     */
+    public synchronized String format() {
+        return "{\"interval\":" + mCurrentInterval + ",\"rate\":" + String.format(Locale.ROOT, "%.2f", getEffectiveRate())
+                + ",\"polls\":" + mPollCount + "}";
+    }
+}
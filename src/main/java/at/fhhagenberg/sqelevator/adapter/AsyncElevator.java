@@ -0,0 +1,344 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import sqelevator.IElevator;
+
+/**
+ * Asynchronous facade over an {@link IElevator}. Every call runs on a pool of RMI worker threads and
+ * returns a future, so many calls can be on the wire at once and their round trips overlap.
+ * The number of calls in flight is bounded, a caller issuing more blocks until a call completes.
+ */
+public class AsyncElevator {
+    /**
+     * Interface for a blocking call to the PLC.
+     * @param <T> The type of the result.
+     */
+    @FunctionalInterface
+    public interface RemoteCall<T> {
+        /**
+         * Runs the call.
+         * @return The result.
+         * @throws RemoteException if the PLC communication fails.
+         */
+        T call() throws RemoteException;
+    }
+
+    /**< The default maximum number of calls in flight. */
+    public static final int DEFAULT_MAX_IN_FLIGHT = 64;
+
+    /**< The PLC. */
+    private final IElevator mPLC;
+    /**< The RMI worker threads. */
+    private final ExecutorService mWorkers;
+    /**< The maximum number of calls in flight. */
+    private final int mMaxInFlight;
+    /**< The permits for the calls in flight. */
+    private final Semaphore mInFlight;
+    /**< The number of issued calls. */
+    private final AtomicLong mCalls = new AtomicLong();
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param plc The PLC.
+     * @param workers The RMI worker threads.
+     * @param maxInFlight The maximum number of calls in flight.
+     */
+    public AsyncElevator(IElevator plc, ExecutorService workers, int maxInFlight) {
+        if (plc == null || workers == null)
+            throw new IllegalArgumentException("Invalid PLC or workers");
+
+        if (maxInFlight < 1)
+            throw new IllegalArgumentException("Invalid maximum number of calls in flight");
+
+        mPLC = plc;
+        mWorkers = workers;
+        mMaxInFlight = maxInFlight;
+        mInFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Returns the PLC.
+     * @return The PLC.
+     */
+    public IElevator getPlc() {
+        return mPLC;
+    }
+
+    /**
+     * Returns the maximum number of calls in flight.
+     * @return The maximum number of calls.
+     */
+    public int getMaxInFlight() {
+        return mMaxInFlight;
+    }
+
+    /**
+     * Returns the number of calls currently in flight.
+     * @return The number of calls.
+     */
+    public int getInFlight() {
+        return mMaxInFlight - mInFlight.availablePermits();
+    }
+
+    /**
+     * Returns the number of issued calls.
+     * @return The number of calls.
+     */
+    public long getCallCount() {
+        return mCalls.get();
+    }
+
+    /**
+     * Runs a call on a worker thread. Blocks while the maximum number of calls is in flight.
+     * @param call The call.
+     * @param <T> The type of the result.
+     * @return The future of the result, completed exceptionally with the {@link RemoteException} on failure.
+     */
+    public <T> CompletableFuture<T> submit(RemoteCall<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            mInFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.completeExceptionally(new RemoteException("Interrupted while waiting for a call slot", e));
+            return future;
+        }
+
+        mCalls.incrementAndGet();
+        try {
+            mWorkers.execute(() -> {
+                T result;
+                try {
+                    result = call.call();
+                } catch (Exception e) {
+                    mInFlight.release();
+                    future.completeExceptionally(e);
+                    return;
+                }
+                // release before completing, so a dependent stage may issue the next call
+                mInFlight.release();
+                future.complete(result);
+            });
+        } catch (RejectedExecutionException e) {
+            mInFlight.release();
+            future.completeExceptionally(new RemoteException("RMI workers rejected the call", e));
+        }
+        return future;
+    }
+
+    /**
+     * Waits for a future and unwraps the cause of its failure.
+     * @param future The future.
+     * @param <T> The type of the result.
+     * @return The result.
+     * @throws RemoteException if the call failed.
+     */
+    public static <T> T join(CompletableFuture<T> future) throws RemoteException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RemoteException remoteException) {
+                throw remoteException;
+            }
+            throw new RemoteException("PLC call failed", e.getCause());
+        }
+    }
+
+    /**
+     * Asynchronous {@link IElevator#getCommittedDirection(int)}.
+     * @param elevatorNumber The elevator number.
+     * @return The future of the direction.
+     */
+    public CompletableFuture<Integer> getCommittedDirection(int elevatorNumber) {
+        return submit(() -> mPLC.getCommittedDirection(elevatorNumber));
+    }
+
+    /**
+     * Asynchronous {@link IElevator#getElevatorAccel(int)}.
+     * @param elevatorNumber The elevator number.
+     * @return The future of the acceleration.
+     */
+    public CompletableFuture<Integer> getElevatorAccel(int elevatorNumber) {
+        return submit(() -> mPLC.getElevatorAccel(elevatorNumber));
+    }
+
+    /**
+     * Asynchronous {@link IElevator#getElevatorButton(int, int)}.
+     * @param elevatorNumber The elevator number.
+     * @param floor The floor number.
+     * @return The future of the button status.
+     */
+    public CompletableFuture<Boolean> getElevatorButton(int elevatorNumber, int floor) {
+        return submit(() -> mPLC.getElevatorButton(elevatorNumber, floor));
+    }
+
+    /**
+     * Asynchronous {@link IElevator#getElevatorDoorStatus(int)}.
+     * @param elevatorNumber The elevator number.
+     * @return The future of the door status.
+     */
+    public CompletableFuture<Integer> getElevatorDoorStatus(int elevatorNumber) {
+        return submit(() -> mPLC.getElevatorDoorStatus(elevatorNumber));
+    }
+
+    /**
+     * Asynchronous {@link IElevator#getElevatorFloor(int)}.
+     * @param elevatorNumber The elevator number.
+     * @return The future of the current floor.
+     */
+    public CompletableFuture<Integer> getElevatorFloor(int elevatorNumber) {
+        return submit(() -> mPLC.getElevatorFloor(elevatorNumber));
+    }
+
+    /**
+     * Asynchronous {@link IElevator#getElevatorNum()}.
+     * @return The future of the number of elevators.
+     */
+    public CompletableFuture<Integer> getElevatorNum() {
+        return submit(mPLC::getElevatorNum);
+    }
+
+    /**
+     * Asynchronous {@link IElevator#getElevatorPosition(int)}.
+     * @param elevatorNumber The elevator number.
+     * @return The future of the position.
+     */
+    public CompletableFuture<Integer> getElevatorPosition(int elevatorNumber) {
+        return submit(() -> mPLC.getElevatorPosition(elevatorNumber));
+    }
+
+    /**
+     * Asynchronous {@link IElevator#getElevatorSpeed(int)}.
+     * @param elevatorNumber The elevator number.
+     * @return The future of the speed.
+     */
+    public CompletableFuture<Integer> getElevatorSpeed(int elevatorNumber) {
+        return submit(() -> mPLC.getElevatorSpeed(elevatorNumber));
+    }
+
+    /**
+     * Asynchronous {@link IElevator#getElevatorWeight(int)}.
+     * @param elevatorNumber The elevator number.
+     * @return The future of the weight.
+     */
+    public CompletableFuture<Integer> getElevatorWeight(int elevatorNumber) {
+        return submit(() -> mPLC.getElevatorWeight(elevatorNumber));
+    }
+
+    /**
+     * Asynchronous {@link IElevator#getElevatorCapacity(int)}.
+     * @param elevatorNumber The elevator number.
+     * @return The future of the capacity.
+     */
+    public CompletableFuture<Integer> getElevatorCapacity(int elevatorNumber) {
+        return submit(() -> mPLC.getElevatorCapacity(elevatorNumber));
+    }
+
+    /**
+     * Asynchronous {@link IElevator#getFloorButtonDown(int)}.
+     * @param floor The floor number.
+     * @return The future of the button status.
+     */
+    public CompletableFuture<Boolean> getFloorButtonDown(int floor) {
+        return submit(() -> mPLC.getFloorButtonDown(floor));
+    }
+
+    /**
+     * Asynchronous {@link IElevator#getFloorButtonUp(int)}.
+     * @param floor The floor number.
+     * @return The future of the button status.
+     */
+    public CompletableFuture<Boolean> getFloorButtonUp(int floor) {
+        return submit(() -> mPLC.getFloorButtonUp(floor));
+    }
+
+    /**
+     * Asynchronous {@link IElevator#getFloorHeight()}.
+     * @return The future of the floor height.
+     */
+    public CompletableFuture<Integer> getFloorHeight() {
+        return submit(mPLC::getFloorHeight);
+    }
+
+    /**
+     * Asynchronous {@link IElevator#getFloorNum()}.
+     * @return The future of the number of floors.
+     */
+    public CompletableFuture<Integer> getFloorNum() {
+        return submit(mPLC::getFloorNum);
+    }
+
+    /**
+     * Asynchronous {@link IElevator#getServicesFloors(int, int)}.
+     * @param elevatorNumber The elevator number.
+     * @param floor The floor number.
+     * @return The future of the service status.
+     */
+    public CompletableFuture<Boolean> getServicesFloors(int elevatorNumber, int floor) {
+        return submit(() -> mPLC.getServicesFloors(elevatorNumber, floor));
+    }
+
+    /**
+     * Asynchronous {@link IElevator#getTarget(int)}.
+     * @param elevatorNumber The elevator number.
+     * @return The future of the target floor.
+     */
+    public CompletableFuture<Integer> getTarget(int elevatorNumber) {
+        return submit(() -> mPLC.getTarget(elevatorNumber));
+    }
+
+    /**
+     * Asynchronous {@link IElevator#getClockTick()}.
+     * @return The future of the clock tick.
+     */
+    public CompletableFuture<Long> getClockTick() {
+        return submit(mPLC::getClockTick);
+    }
+
+    /**
+     * Asynchronous {@link IElevator#setCommittedDirection(int, int)}.
+     * @param elevatorNumber The elevator number.
+     * @param direction The direction.
+     * @return The future which completes once the call returned.
+     */
+    public CompletableFuture<Void> setCommittedDirection(int elevatorNumber, int direction) {
+        return submit(() -> {
+            mPLC.setCommittedDirection(elevatorNumber, direction);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous {@link IElevator#setServicesFloors(int, int, boolean)}.
+     * @param elevatorNumber The elevator number.
+     * @param floor The floor number.
+     * @param service The service status.
+     * @return The future which completes once the call returned.
+     */
+    public CompletableFuture<Void> setServicesFloors(int elevatorNumber, int floor, boolean service) {
+        return submit(() -> {
+            mPLC.setServicesFloors(elevatorNumber, floor, service);
+            return null;
+        });
+    }
+
+    /**
+     * Asynchronous {@link IElevator#setTarget(int, int)}.
+     * @param elevatorNumber The elevator number.
+     * @param target The target floor.
+     * @return The future which completes once the call returned.
+     */
+    public CompletableFuture<Void> setTarget(int elevatorNumber, int target) {
+        return submit(() -> {
+            mPLC.setTarget(elevatorNumber, target);
+            return null;
+        });
+    }
+}
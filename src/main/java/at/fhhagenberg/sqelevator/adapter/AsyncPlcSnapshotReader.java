@@ -0,0 +1,156 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Snapshot reader which issues all getter calls of a range at once via an {@link AsyncElevator}
+ * and waits for them together, so a cycle costs a few round trips instead of one per value.
+ */
+public class AsyncPlcSnapshotReader implements PlcSnapshotReader {
+    /**< The number of motion values of an elevator. */
+    private static final int MOTION_VALUES = 7;
+
+    /**< The asynchronous PLC to read from. */
+    private final AsyncElevator mPLC;
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param plc The asynchronous PLC to read from.
+     */
+    public AsyncPlcSnapshotReader(AsyncElevator plc) {
+        mPLC = plc;
+    }
+
+    @Override
+    public void readElevator(PlcSnapshot snapshot, int elevatorNumber, int fieldClasses, boolean initial) throws RemoteException {
+        readRange(snapshot, elevatorNumber, elevatorNumber + 1, 0, 0, fieldClasses, initial);
+    }
+
+    @Override
+    public void readFloors(PlcSnapshot snapshot, int fromFloor, int toFloor) throws RemoteException {
+        readRange(snapshot, 0, 0, fromFloor, toFloor, PollFieldClass.BUTTONS.mask(), false);
+    }
+
+    @Override
+    public boolean readsConcurrently() {
+        return true;
+    }
+
+    @Override
+    public void readRange(PlcSnapshot snapshot, int fromElevator, int toElevator, int fromFloor, int toFloor,
+                          int fieldClasses, boolean initial) throws RemoteException {
+        int numOfElevators = toElevator - fromElevator;
+        int numOfFloors = snapshot.getNumOfFloors();
+        boolean motion = PollFieldClass.MOTION.isIn(fieldClasses);
+        boolean position = PollFieldClass.POSITION.isIn(fieldClasses);
+        boolean buttons = PollFieldClass.BUTTONS.isIn(fieldClasses);
+        boolean configuration = PollFieldClass.CONFIGURATION.isIn(fieldClasses);
+
+        // issue all calls before waiting for the first one
+        CompletableFuture<?>[] motionValues = new CompletableFuture<?>[motion ? numOfElevators * MOTION_VALUES : 0];
+        CompletableFuture<?>[] positions = new CompletableFuture<?>[numOfElevators];
+        CompletableFuture<?>[] elevatorButtons = new CompletableFuture<?>[buttons ? numOfElevators * numOfFloors : 0];
+        CompletableFuture<?>[] servicedFloors = new CompletableFuture<?>[configuration ? numOfElevators * numOfFloors : 0];
+        CompletableFuture<?>[] floorButtons = new CompletableFuture<?>[buttons ? 2 * (toFloor - fromFloor) : 0];
+        long calls = 0;
+
+        for (int e = 0; e < numOfElevators; ++e) {
+            int elevatorNumber = fromElevator + e;
+            if (motion) {
+                int base = e * MOTION_VALUES;
+                motionValues[base] = mPLC.getCommittedDirection(elevatorNumber);
+                motionValues[base + 1] = mPLC.getElevatorAccel(elevatorNumber);
+                motionValues[base + 2] = mPLC.getElevatorSpeed(elevatorNumber);
+                motionValues[base + 3] = mPLC.getElevatorDoorStatus(elevatorNumber);
+                motionValues[base + 4] = mPLC.getElevatorFloor(elevatorNumber);
+                motionValues[base + 5] = mPLC.getTarget(elevatorNumber);
+                motionValues[base + 6] = mPLC.getElevatorWeight(elevatorNumber);
+                calls += MOTION_VALUES;
+            }
+
+            // the speed of the previous cycle is still in the snapshot, a car which just stopped is read once more
+            if (position && (initial || snapshot.getSpeed(elevatorNumber) != 0)) {
+                positions[e] = mPLC.getElevatorPosition(elevatorNumber);
+                ++calls;
+            }
+
+            for (int f = 0; f < numOfFloors; ++f) {
+                if (buttons) {
+                    elevatorButtons[e * numOfFloors + f] = mPLC.getElevatorButton(elevatorNumber, f);
+                    ++calls;
+                }
+                // the ground floor is always serviced, it is only read for the initial publish
+                if (configuration && (f > 0 || initial)) {
+                    servicedFloors[e * numOfFloors + f] = mPLC.getServicesFloors(elevatorNumber, f);
+                    ++calls;
+                }
+            }
+        }
+
+        for (int f = fromFloor; f < toFloor && buttons; ++f) {
+            floorButtons[2 * (f - fromFloor)] = mPLC.getFloorButtonUp(f);
+            floorButtons[2 * (f - fromFloor) + 1] = mPLC.getFloorButtonDown(f);
+            calls += 2;
+        }
+
+        for (int e = 0; e < numOfElevators; ++e) {
+            int elevatorNumber = fromElevator + e;
+            if (motion) {
+                int base = e * MOTION_VALUES;
+                snapshot.setElevator(elevatorNumber, intOf(motionValues[base]), intOf(motionValues[base + 1]),
+                        intOf(motionValues[base + 2]), intOf(motionValues[base + 3]), intOf(motionValues[base + 4]),
+                        intOf(motionValues[base + 5]), intOf(motionValues[base + 6]));
+            }
+
+            // a car which started moving in this cycle is only known now, its position is read in a second wave
+            if (position && positions[e] == null && snapshot.getSpeed(elevatorNumber) != 0) {
+                positions[e] = mPLC.getElevatorPosition(elevatorNumber);
+                ++calls;
+            }
+        }
+
+        for (int e = 0; e < numOfElevators; ++e) {
+            int elevatorNumber = fromElevator + e;
+            if (positions[e] != null) {
+                snapshot.setPosition(elevatorNumber, intOf(positions[e]));
+            }
+
+            for (int f = 0; f < numOfFloors; ++f) {
+                if (buttons) {
+                    snapshot.setElevatorButton(elevatorNumber, f, booleanOf(elevatorButtons[e * numOfFloors + f]));
+                }
+                if (servicedFloors.length > 0 && servicedFloors[e * numOfFloors + f] != null) {
+                    snapshot.setServicesFloor(elevatorNumber, f, booleanOf(servicedFloors[e * numOfFloors + f]));
+                }
+            }
+        }
+
+        for (int f = fromFloor; f < toFloor && buttons; ++f) {
+            snapshot.setFloor(f, booleanOf(floorButtons[2 * (f - fromFloor)]), booleanOf(floorButtons[2 * (f - fromFloor) + 1]));
+        }
+
+        snapshot.addRmiCalls(calls);
+    }
+
+    /**
+     * Waits for an integer value.
+     * @param future The future of the value.
+     * @return The value.
+     * @throws RemoteException if the call failed.
+     */
+    private static int intOf(CompletableFuture<?> future) throws RemoteException {
+        return (Integer) AsyncElevator.join(future);
+    }
+
+    /**
+     * Waits for a boolean value.
+     * @param future The future of the value.
+     * @return The value.
+     * @throws RemoteException if the call failed.
+     */
+    private static boolean booleanOf(CompletableFuture<?> future) throws RemoteException {
+        return (Boolean) AsyncElevator.join(future);
+    }
+}
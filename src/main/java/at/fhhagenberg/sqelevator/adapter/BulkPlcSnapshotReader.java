@@ -0,0 +1,91 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import java.rmi.RemoteException;
+import sqelevator.BuildingSnapshot;
+import sqelevator.ElevatorSnapshot;
+import sqelevator.IElevatorBulk;
+
+/**
+ * Snapshot reader for PLCs which support bulk reads.
+ * A whole building is fetched with a single RMI call, a single elevator with one call per elevator.
+ * As the values arrive together anyway, all field classes are always read.
+ */
+public class BulkPlcSnapshotReader implements PlcSnapshotReader {
+    /**< The PLC to read from. */
+    private final IElevatorBulk mPLC;
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param plc The PLC to read from.
+     */
+    public BulkPlcSnapshotReader(IElevatorBulk plc) {
+        mPLC = plc;
+    }
+
+    @Override
+    public void readElevator(PlcSnapshot snapshot, int elevatorNumber, int fieldClasses, boolean initial) throws RemoteException {
+        copyElevator(snapshot, elevatorNumber, mPLC.getElevatorSnapshot(elevatorNumber));
+        snapshot.addRmiCalls(1);
+    }
+
+    @Override
+    public void readFloors(PlcSnapshot snapshot, int fromFloor, int toFloor) throws RemoteException {
+        // the bulk interface has no floor range call, a range is cheaper via the single getters
+        for (int i = fromFloor; i < toFloor; ++i) {
+            snapshot.setFloor(i, mPLC.getFloorButtonUp(i), mPLC.getFloorButtonDown(i));
+        }
+        snapshot.addRmiCalls(2L * (toFloor - fromFloor));
+    }
+
+    @Override
+    public boolean readsBuildingInOneCall() {
+        return true;
+    }
+
+    @Override
+    public void readBuilding(PlcSnapshot snapshot, int fieldClasses, boolean initial) throws RemoteException {
+        BuildingSnapshot building = mPLC.getBuildingSnapshot();
+        snapshot.addRmiCalls(1);
+
+        if (building.getElevatorNum() != snapshot.getNumOfElevators() || building.getFloorNum() != snapshot.getNumOfFloors()) {
+            throw new RemoteException("PLC returned a building snapshot with unexpected dimensions");
+        }
+
+        for (int i = 0; i < building.getElevatorNum(); ++i) {
+            copyElevator(snapshot, i, building.getElevator(i));
+        }
+
+        for (int i = 0; i < building.getFloorNum(); ++i) {
+            snapshot.setFloor(i, building.getFloorButtonUp(i), building.getFloorButtonDown(i));
+        }
+    }
+
+    /**
+     * Copies the values of an elevator snapshot into the poll snapshot.
+     * @param snapshot The snapshot to fill.
+     * @param elevatorNumber The elevator number.
+     * @param elevator The elevator snapshot returned by the PLC.
+     * @throws RemoteException if the elevator snapshot does not match the building.
+     */
+    private void copyElevator(PlcSnapshot snapshot, int elevatorNumber, ElevatorSnapshot elevator) throws RemoteException {
+        if (elevator.getFloorNum() != snapshot.getNumOfFloors()) {
+            throw new RemoteException("PLC returned an elevator snapshot with unexpected number of floors");
+        }
+
+        snapshot.setElevator(elevatorNumber,
+                elevator.getCommittedDirection(),
+                elevator.getElevatorAccel(),
+                elevator.getElevatorSpeed(),
+                elevator.getElevatorDoorStatus(),
+                elevator.getElevatorFloor(),
+                elevator.getTarget(),
+                elevator.getElevatorWeight());
+        snapshot.setPosition(elevatorNumber, elevator.getElevatorPosition());
+
+        for (int i = 0; i < snapshot.getNumOfFloors(); ++i) {
+            snapshot.setElevatorButton(elevatorNumber, i, elevator.getElevatorButton(i));
+            snapshot.setServicesFloor(elevatorNumber, i, elevator.getServicesFloors(i));
+        }
+    }
+}
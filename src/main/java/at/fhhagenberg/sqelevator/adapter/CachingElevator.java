@@ -0,0 +1,400 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import sqelevator.IElevator;
+
+import java.rmi.RemoteException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * Class which caches the values read from a PLC. Every getter has its own time to live, the
+ * static configuration of the building is kept permanently while the motion values are not
+ * cached by default. The setters are forwarded and invalidate the values they change.
+ */
+public class CachingElevator implements IElevator {
+    /**< The time to live of values which never expire. */
+    public static final long PERMANENT = Long.MAX_VALUE;
+
+    /**
+     * Enum which lists the cacheable getters of the PLC.
+     */
+    public enum Method {
+        /** {@link IElevator#getCommittedDirection(int)} */
+        COMMITTED_DIRECTION(0),
+        /** {@link IElevator#getElevatorAccel(int)} */
+        ELEVATOR_ACCEL(0),
+        /** {@link IElevator#getElevatorButton(int, int)} */
+        ELEVATOR_BUTTON(0),
+        /** {@link IElevator#getElevatorDoorStatus(int)} */
+        ELEVATOR_DOOR_STATUS(0),
+        /** {@link IElevator#getElevatorFloor(int)} */
+        ELEVATOR_FLOOR(0),
+        /** {@link IElevator#getElevatorNum()} */
+        ELEVATOR_NUM(PERMANENT),
+        /** {@link IElevator#getElevatorPosition(int)} */
+        ELEVATOR_POSITION(0),
+        /** {@link IElevator#getElevatorSpeed(int)} */
+        ELEVATOR_SPEED(0),
+        /** {@link IElevator#getElevatorWeight(int)} */
+        ELEVATOR_WEIGHT(0),
+        /** {@link IElevator#getElevatorCapacity(int)} */
+        ELEVATOR_CAPACITY(PERMANENT),
+        /** {@link IElevator#getFloorButtonDown(int)} */
+        FLOOR_BUTTON_DOWN(0),
+        /** {@link IElevator#getFloorButtonUp(int)} */
+        FLOOR_BUTTON_UP(0),
+        /** {@link IElevator#getFloorHeight()} */
+        FLOOR_HEIGHT(PERMANENT),
+        /** {@link IElevator#getFloorNum()} */
+        FLOOR_NUM(PERMANENT),
+        /** {@link IElevator#getServicesFloors(int, int)} */
+        SERVICES_FLOORS(0),
+        /** {@link IElevator#getTarget(int)} */
+        TARGET(0),
+        /** {@link IElevator#getClockTick()} */
+        CLOCK_TICK(0);
+
+        /** The default time to live in milliseconds. */
+        private final long mDefaultTtl;
+
+        /**
+         * CTor which instantiates all members.
+         * @param defaultTtl The default time to live in milliseconds.
+         */
+        Method(long defaultTtl) {
+            mDefaultTtl = defaultTtl;
+        }
+
+        /**
+         * Returns the default time to live.
+         * @return The default time to live in milliseconds.
+         */
+        public long getDefaultTtl() {
+            return mDefaultTtl;
+        }
+    }
+
+    /**
+     * Class which holds a cached value and its expiry time.
+     */
+    private static final class Entry {
+        /** The value, booleans are stored as 1 and 0. */
+        private final long mValue;
+        /** The time at which the value expires in milliseconds. */
+        private final long mExpiry;
+
+        /**
+         * CTor which instantiates all members.
+         * @param value The value.
+         * @param expiry The time at which the value expires in milliseconds.
+         */
+        private Entry(long value, long expiry) {
+            mValue = value;
+            mExpiry = expiry;
+        }
+    }
+
+    /**< The PLC to read from. */
+    private volatile IElevator mDelegate;
+    /**< The clock in milliseconds. */
+    private final LongSupplier mClock;
+    /**< The time to live of every method in milliseconds, indexed by ordinal. */
+    private final long[] mTtl = new long[Method.values().length];
+    /**< The cached values of every method, keyed by the arguments. */
+    private final Map<Method, Map<Long, Entry>> mCache = new EnumMap<>(Method.class);
+    /**< The number of values served from the cache, indexed by ordinal. */
+    private final AtomicLongArray mHits = new AtomicLongArray(Method.values().length);
+    /**< The number of values read from the PLC, indexed by ordinal. */
+    private final AtomicLongArray mMisses = new AtomicLongArray(Method.values().length);
+
+    /**
+     * CTor which uses the default time to live of every method.
+     *
+     * @param delegate The PLC to read from.
+     */
+    public CachingElevator(IElevator delegate) {
+        this(delegate, System::currentTimeMillis);
+    }
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param delegate The PLC to read from.
+     * @param clock The clock in milliseconds.
+     */
+    public CachingElevator(IElevator delegate, LongSupplier clock) {
+        mDelegate = delegate;
+        mClock = clock;
+        for (Method method : Method.values()) {
+            mTtl[method.ordinal()] = method.getDefaultTtl();
+            mCache.put(method, new ConcurrentHashMap<>());
+        }
+    }
+
+    /**
+     * Sets the time to live of a method. A time to live of 0 disables the caching of the method.
+     * @param method The method.
+     * @param ttl The time to live in milliseconds.
+     */
+    public void setTtl(Method method, long ttl) {
+        if (ttl < 0) {
+            throw new IllegalArgumentException("Invalid time to live");
+        }
+
+        mTtl[method.ordinal()] = ttl;
+        mCache.get(method).clear();
+    }
+
+    /**
+     * Returns the time to live of a method.
+     * @param method The method.
+     * @return The time to live in milliseconds.
+     */
+    public long getTtl(Method method) {
+        return mTtl[method.ordinal()];
+    }
+
+    /**
+     * Replaces the PLC, e.g. after a reconnect, and drops all cached values.
+     * @param delegate The PLC to read from.
+     */
+    public void setDelegate(IElevator delegate) {
+        mDelegate = delegate;
+        invalidateAll();
+    }
+
+    /**
+     * Returns the PLC.
+     * @return The PLC to read from.
+     */
+    public IElevator getDelegate() {
+        return mDelegate;
+    }
+
+    /**
+     * Drops all cached values.
+     */
+    public void invalidateAll() {
+        for (Map<Long, Entry> cache : mCache.values()) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Returns the number of values of a method served from the cache.
+     * @param method The method.
+     * @return The number of hits.
+     */
+    public long getHitCount(Method method) {
+        return mHits.get(method.ordinal());
+    }
+
+    /**
+     * Returns the number of values of a method read from the PLC.
+     * @param method The method.
+     * @return The number of misses.
+     */
+    public long getMissCount(Method method) {
+        return mMisses.get(method.ordinal());
+    }
+
+    /**
+     * Returns the number of values served from the cache.
+     * @return The number of hits.
+     */
+    public long getHitCount() {
+        return sum(mHits);
+    }
+
+    /**
+     * Returns the number of values read from the PLC.
+     * @return The number of misses.
+     */
+    public long getMissCount() {
+        return sum(mMisses);
+    }
+
+    @Override
+    public int getCommittedDirection(int elevatorNumber) throws RemoteException {
+        return (int) read(Method.COMMITTED_DIRECTION, elevatorNumber, 0, () -> mDelegate.getCommittedDirection(elevatorNumber));
+    }
+
+    @Override
+    public int getElevatorAccel(int elevatorNumber) throws RemoteException {
+        return (int) read(Method.ELEVATOR_ACCEL, elevatorNumber, 0, () -> mDelegate.getElevatorAccel(elevatorNumber));
+    }
+
+    @Override
+    public boolean getElevatorButton(int elevatorNumber, int floor) throws RemoteException {
+        return read(Method.ELEVATOR_BUTTON, elevatorNumber, floor, () -> mDelegate.getElevatorButton(elevatorNumber, floor) ? 1 : 0) != 0;
+    }
+
+    @Override
+    public int getElevatorDoorStatus(int elevatorNumber) throws RemoteException {
+        return (int) read(Method.ELEVATOR_DOOR_STATUS, elevatorNumber, 0, () -> mDelegate.getElevatorDoorStatus(elevatorNumber));
+    }
+
+    @Override
+    public int getElevatorFloor(int elevatorNumber) throws RemoteException {
+        return (int) read(Method.ELEVATOR_FLOOR, elevatorNumber, 0, () -> mDelegate.getElevatorFloor(elevatorNumber));
+    }
+
+    @Override
+    public int getElevatorNum() throws RemoteException {
+        return (int) read(Method.ELEVATOR_NUM, 0, 0, () -> mDelegate.getElevatorNum());
+    }
+
+    @Override
+    public int getElevatorPosition(int elevatorNumber) throws RemoteException {
+        return (int) read(Method.ELEVATOR_POSITION, elevatorNumber, 0, () -> mDelegate.getElevatorPosition(elevatorNumber));
+    }
+
+    @Override
+    public int getElevatorSpeed(int elevatorNumber) throws RemoteException {
+        return (int) read(Method.ELEVATOR_SPEED, elevatorNumber, 0, () -> mDelegate.getElevatorSpeed(elevatorNumber));
+    }
+
+    @Override
+    public int getElevatorWeight(int elevatorNumber) throws RemoteException {
+        return (int) read(Method.ELEVATOR_WEIGHT, elevatorNumber, 0, () -> mDelegate.getElevatorWeight(elevatorNumber));
+    }
+
+    @Override
+    public int getElevatorCapacity(int elevatorNumber) throws RemoteException {
+        return (int) read(Method.ELEVATOR_CAPACITY, elevatorNumber, 0, () -> mDelegate.getElevatorCapacity(elevatorNumber));
+    }
+
+    @Override
+    public boolean getFloorButtonDown(int floor) throws RemoteException {
+        return read(Method.FLOOR_BUTTON_DOWN, 0, floor, () -> mDelegate.getFloorButtonDown(floor) ? 1 : 0) != 0;
+    }
+
+    @Override
+    public boolean getFloorButtonUp(int floor) throws RemoteException {
+        return read(Method.FLOOR_BUTTON_UP, 0, floor, () -> mDelegate.getFloorButtonUp(floor) ? 1 : 0) != 0;
+    }
+
+    @Override
+    public int getFloorHeight() throws RemoteException {
+        return (int) read(Method.FLOOR_HEIGHT, 0, 0, () -> mDelegate.getFloorHeight());
+    }
+
+    @Override
+    public int getFloorNum() throws RemoteException {
+        return (int) read(Method.FLOOR_NUM, 0, 0, () -> mDelegate.getFloorNum());
+    }
+
+    @Override
+    public boolean getServicesFloors(int elevatorNumber, int floor) throws RemoteException {
+        return read(Method.SERVICES_FLOORS, elevatorNumber, floor, () -> mDelegate.getServicesFloors(elevatorNumber, floor) ? 1 : 0) != 0;
+    }
+
+    @Override
+    public int getTarget(int elevatorNumber) throws RemoteException {
+        return (int) read(Method.TARGET, elevatorNumber, 0, () -> mDelegate.getTarget(elevatorNumber));
+    }
+
+    @Override
+    public void setCommittedDirection(int elevatorNumber, int direction) throws RemoteException {
+        mDelegate.setCommittedDirection(elevatorNumber, direction);
+        invalidate(Method.COMMITTED_DIRECTION, elevatorNumber, 0);
+    }
+
+    @Override
+    public void setServicesFloors(int elevatorNumber, int floor, boolean service) throws RemoteException {
+        mDelegate.setServicesFloors(elevatorNumber, floor, service);
+        invalidate(Method.SERVICES_FLOORS, elevatorNumber, floor);
+    }
+
+    @Override
+    public void setTarget(int elevatorNumber, int target) throws RemoteException {
+        mDelegate.setTarget(elevatorNumber, target);
+        invalidate(Method.TARGET, elevatorNumber, 0);
+    }
+
+    @Override
+    public long getClockTick() throws RemoteException {
+        return read(Method.CLOCK_TICK, 0, 0, () -> mDelegate.getClockTick());
+    }
+
+    /**
+     * Interface for a read from the PLC.
+     */
+    @FunctionalInterface
+    private interface PlcRead {
+        /**
+         * Reads the value from the PLC.
+         * @return The value, booleans as 1 and 0.
+         * @throws RemoteException if the PLC communication fails.
+         */
+        long read() throws RemoteException;
+    }
+
+    /**
+     * Returns a cached value or reads it from the PLC.
+     * @param method The method.
+     * @param first The first argument of the method.
+     * @param second The second argument of the method.
+     * @param plcRead The read from the PLC.
+     * @return The value.
+     * @throws RemoteException if the PLC communication fails.
+     */
+    private long read(Method method, int first, int second, PlcRead plcRead) throws RemoteException {
+        long ttl = mTtl[method.ordinal()];
+        if (ttl == 0) {
+            mMisses.incrementAndGet(method.ordinal());
+            return plcRead.read();
+        }
+
+        Map<Long, Entry> cache = mCache.get(method);
+        Long key = key(first, second);
+        long now = mClock.getAsLong();
+        Entry entry = cache.get(key);
+        if (entry != null && now < entry.mExpiry) {
+            mHits.incrementAndGet(method.ordinal());
+            return entry.mValue;
+        }
+
+        mMisses.incrementAndGet(method.ordinal());
+        long value = plcRead.read();
+        long expiry = ttl == PERMANENT ? PERMANENT : now + ttl;
+        cache.put(key, new Entry(value, expiry));
+        return value;
+    }
+
+    /**
+     * Drops a cached value.
+     * @param method The method.
+     * @param first The first argument of the method.
+     * @param second The second argument of the method.
+     */
+    private void invalidate(Method method, int first, int second) {
+        mCache.get(method).remove(key(first, second));
+    }
+
+    /**
+     * Builds the cache key from the arguments of a method.
+     * @param first The first argument.
+     * @param second The second argument.
+     * @return The cache key.
+     */
+    private static Long key(int first, int second) {
+        return ((long) first << 32) | (second & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Sums up counters.
+     * @param counters The counters.
+     * @return The sum.
+     */
+    private static long sum(AtomicLongArray counters) {
+        long sum = 0;
+        for (int i = 0; i < counters.length(); ++i) {
+            sum += counters.get(i);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,56 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+/**
+ * Class which decides if a poll cycle is needed from the clock tick of the PLC.
+ * If the clock of the PLC has not advanced since the last poll, none of the values can have changed
+ * and the cycle is skipped.
+ */
+public class ClockTickGate {
+    /**< The clock tick of the last accepted poll, -1 if there was none. */
+    private long mLastClockTick = -1;
+    /**< The number of accepted polls. */
+    private long mPolledCycles = 0;
+    /**< The number of skipped polls. */
+    private long mSkippedCycles = 0;
+
+    /**
+     * Checks if the clock has advanced since the last accepted poll.
+     * @param clockTick The clock tick read from the PLC.
+     * @param force True to accept the poll even if the clock has not advanced, e.g. for the initial poll.
+     * @return True if the cycle has to be polled, false if it can be skipped.
+     */
+    public boolean advance(long clockTick, boolean force) {
+        if (!force && clockTick == mLastClockTick) {
+            mSkippedCycles++;
+            return false;
+        }
+
+        mLastClockTick = clockTick;
+        mPolledCycles++;
+        return true;
+    }
+
+    /**
+     * Returns the clock tick of the last accepted poll.
+     * @return The clock tick, -1 if there was no poll yet.
+     */
+    public long getLastClockTick() {
+        return mLastClockTick;
+    }
+
+    /**
+     * Returns the number of accepted polls.
+     * @return The number of polls.
+     */
+    public long getPolledCycles() {
+        return mPolledCycles;
+    }
+
+    /**
+     * Returns the number of skipped polls.
+     * @return The number of skipped polls.
+     */
+    public long getSkippedCycles() {
+        return mSkippedCycles;
+    }
+}
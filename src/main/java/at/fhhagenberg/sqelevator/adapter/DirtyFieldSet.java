@@ -0,0 +1,261 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import at.fhhagenberg.sqelevator.FleetField;
+
+/**
+ * Class which holds the fields of the fleet that changed during a poll cycle as a bitset.
+ * Every field of every elevator and floor has a fixed index, so marking and iterating the changed
+ * fields does not allocate. The indices are laid out as follows:
+ * <ul>
+ *     <li>the scalar fields of all elevators, {@link FleetField#ELEVATOR_SCALAR_FIELDS} per elevator</li>
+ *     <li>the requested floors of all elevators, one per elevator and floor</li>
+ *     <li>the serviced floors of all elevators, one per elevator and floor</li>
+ *     <li>the up buttons of all floors</li>
+ *     <li>the down buttons of all floors</li>
+ * </ul>
+ */
+public class DirtyFieldSet {
+    /**< The fields, cached to avoid the copy made by values(). */
+    private static final FleetField[] FIELDS = FleetField.values();
+
+    /**< The number of elevators. */
+    private final int mNumOfElevators;
+    /**< The number of floors. */
+    private final int mNumOfFloors;
+    /**< The first index of the requested floors. */
+    private final int mRequestedBase;
+    /**< The first index of the serviced floors. */
+    private final int mServicedBase;
+    /**< The first index of the up buttons. */
+    private final int mButtonUpBase;
+    /**< The first index of the down buttons. */
+    private final int mButtonDownBase;
+    /**< The number of indices. */
+    private final int mSize;
+
+    /**< The bits of the changed fields. */
+    private final long[] mBits;
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param numOfElevators The number of elevators.
+     * @param numOfFloors The number of floors.
+     */
+    public DirtyFieldSet(int numOfElevators, int numOfFloors) {
+        if (numOfElevators < 0)
+            throw new IllegalArgumentException("Invalid number of elevators");
+
+        if (numOfFloors < 0)
+            throw new IllegalArgumentException("Invalid number of floors");
+
+        mNumOfElevators = numOfElevators;
+        mNumOfFloors = numOfFloors;
+        mRequestedBase = numOfElevators * FleetField.ELEVATOR_SCALAR_FIELDS;
+        mServicedBase = mRequestedBase + numOfElevators * numOfFloors;
+        mButtonUpBase = mServicedBase + numOfElevators * numOfFloors;
+        mButtonDownBase = mButtonUpBase + numOfFloors;
+        mSize = mButtonDownBase + numOfFloors;
+        mBits = new long[(mSize + 63) >>> 6];
+    }
+
+    /**
+     * Returns the index of a field.
+     * @param field The field.
+     * @param elevatorNumber The elevator number, ignored for floor fields.
+     * @param floor The floor number, ignored for the scalar fields of an elevator.
+     * @return The index of the field.
+     */
+    public int indexOf(FleetField field, int elevatorNumber, int floor) {
+        switch (field) {
+            case FLOOR_REQUESTED:
+                return mRequestedBase + elevatorNumber * mNumOfFloors + floor;
+            case FLOOR_SERVICED:
+                return mServicedBase + elevatorNumber * mNumOfFloors + floor;
+            case BUTTON_UP:
+                return mButtonUpBase + floor;
+            case BUTTON_DOWN:
+                return mButtonDownBase + floor;
+            default:
+                return elevatorNumber * FleetField.ELEVATOR_SCALAR_FIELDS + field.ordinal();
+        }
+    }
+
+    /**
+     * Returns the field of an index.
+     * @param index The index.
+     * @return The field.
+     */
+    public FleetField fieldOf(int index) {
+        if (index < mRequestedBase) {
+            return FIELDS[index % FleetField.ELEVATOR_SCALAR_FIELDS];
+        }
+        else if (index < mServicedBase) {
+            return FleetField.FLOOR_REQUESTED;
+        }
+        else if (index < mButtonUpBase) {
+            return FleetField.FLOOR_SERVICED;
+        }
+        else if (index < mButtonDownBase) {
+            return FleetField.BUTTON_UP;
+        }
+        return FleetField.BUTTON_DOWN;
+    }
+
+    /**
+     * Returns the elevator number of an index.
+     * @param index The index.
+     * @return The elevator number, -1 for floor fields.
+     */
+    public int elevatorOf(int index) {
+        if (index < mRequestedBase) {
+            return index / FleetField.ELEVATOR_SCALAR_FIELDS;
+        }
+        else if (index < mServicedBase) {
+            return (index - mRequestedBase) / mNumOfFloors;
+        }
+        else if (index < mButtonUpBase) {
+            return (index - mServicedBase) / mNumOfFloors;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the floor number of an index.
+     * @param index The index.
+     * @return The floor number, -1 for the scalar fields of an elevator.
+     */
+    public int floorOf(int index) {
+        if (index < mRequestedBase) {
+            return -1;
+        }
+        else if (index < mServicedBase) {
+            return (index - mRequestedBase) % mNumOfFloors;
+        }
+        else if (index < mButtonUpBase) {
+            return (index - mServicedBase) % mNumOfFloors;
+        }
+        else if (index < mButtonDownBase) {
+            return index - mButtonUpBase;
+        }
+        return index - mButtonDownBase;
+    }
+
+    /**
+     * Marks a field as changed.
+     * @param index The index of the field.
+     */
+    public void set(int index) {
+        mBits[index >>> 6] |= 1L << index;
+    }
+
+    /**
+     * Clears the mark of a field.
+     * @param index The index of the field.
+     */
+    public void clear(int index) {
+        mBits[index >>> 6] &= ~(1L << index);
+    }
+
+    /**
+     * Marks all fields as changed.
+     */
+    public void setAll() {
+        for (int i = 0; i < mBits.length; ++i) {
+            mBits[i] = -1L;
+        }
+
+        if ((mSize & 63) != 0) {
+            mBits[mBits.length - 1] = (1L << mSize) - 1;
+        }
+    }
+
+    /**
+     * Returns if a field is marked as changed.
+     * @param index The index of the field.
+     * @return True if the field changed, false otherwise.
+     */
+    public boolean get(int index) {
+        return (mBits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * Clears all marks.
+     */
+    public void clear() {
+        for (int i = 0; i < mBits.length; ++i) {
+            mBits[i] = 0;
+        }
+    }
+
+    /**
+     * Returns if no field is marked as changed.
+     * @return True if no field changed, false otherwise.
+     */
+    public boolean isEmpty() {
+        for (long word : mBits) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of changed fields.
+     * @return The number of changed fields.
+     */
+    public int cardinality() {
+        int count = 0;
+        for (long word : mBits) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the index of the next changed field. Iterate the changed fields with
+     * {@code for (int i = set.nextSetBit(0); i >= 0; i = set.nextSetBit(i + 1))}.
+     * @param fromIndex The index to start from, inclusive.
+     * @return The index of the next changed field, -1 if there is none.
+     */
+    public int nextSetBit(int fromIndex) {
+        if (fromIndex >= mSize) {
+            return -1;
+        }
+
+        int wordIndex = fromIndex >>> 6;
+        long word = mBits[wordIndex] & (-1L << fromIndex);
+        while (word == 0) {
+            if (++wordIndex == mBits.length) {
+                return -1;
+            }
+            word = mBits[wordIndex];
+        }
+        return (wordIndex << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Returns the number of indices.
+     * @return The number of indices.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Returns the number of elevators.
+     * @return The number of elevators.
+     */
+    public int getNumOfElevators() {
+        return mNumOfElevators;
+    }
+
+    /**
+     * Returns the number of floors.
+     * @return The number of floors.
+     */
+    public int getNumOfFloors() {
+        return mNumOfFloors;
+    }
+}
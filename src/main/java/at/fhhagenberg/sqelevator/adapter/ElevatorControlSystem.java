@@ -1,12 +1,23 @@
 package at.fhhagenberg.sqelevator.adapter;
 
 import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import at.fhhagenberg.sqelevator.BuildingDeltaFrame;
 import at.fhhagenberg.sqelevator.Elevator;
+import at.fhhagenberg.sqelevator.ElevatorStateFrame;
+import at.fhhagenberg.sqelevator.FleetField;
 import at.fhhagenberg.sqelevator.Floor;
 import sqelevator.IElevator;
-import at.fhhagenberg.sqelevator.MqttTopics;
+import at.fhhagenberg.sqelevator.TopicRegistry;
+import com.hivemq.client.mqtt.datatypes.MqttTopic;
 import io.vavr.control.Either;
 
 /**
@@ -14,7 +25,9 @@ import io.vavr.control.Either;
  */
 public class ElevatorControlSystem {
     /**< The PLC object to communicate with. */
-    private final IElevator mPLC;
+    private IElevator mPLC;
+    /**< The reader which fills the snapshot from the PLC. */
+    private PlcSnapshotReader mReader;
 
     /**< The elevators. */
     private Elevator[] mElevators = null;
@@ -23,8 +36,63 @@ public class ElevatorControlSystem {
     /** The height of a floor. */
     private int mFloorHeight;
 
-    /**< The set of topics which need to be updated. */
+    /**< The values read from the PLC during the current poll cycle. */
+    private PlcSnapshot mSnapshot = null;
+    /**< The values published so far, compared with the current snapshot to detect changes. */
+    private PlcSnapshot mPublished = null;
+    /**< The fields which changed during the last poll cycle. */
+    private DirtyFieldSet mDirty = null;
+    /**< The topics of all fields. */
+    private TopicRegistry mTopics = null;
+    /**< The prefix of all topics, empty for a single building. */
+    private String mTopicPrefix = "";
+    /**< The part of the building which is polled and published. */
+    private ElevatorShard mShard = ElevatorShard.ALL;
+    /**< The first polled elevator (inclusive). */
+    private int mFromElevator = 0;
+    /**< The last polled elevator (exclusive). */
+    private int mToElevator = 0;
+    /**< The first floor whose hall buttons are polled (inclusive). */
+    private int mFromFloor = 0;
+    /**< The last floor whose hall buttons are polled (exclusive). */
+    private int mToFloor = 0;
+    /**< The hall buttons read during the current poll cycle. */
+    private HallCallBitmap mHallCalls = null;
+    /**< The hall buttons published so far. */
+    private HallCallBitmap mPublishedHallCalls = null;
+    /**< The listener which publishes a flipped hall button, kept to avoid allocating it every cycle. */
+    private final HallCallBitmap.FlipListener mHallCallListener = this::hallCallFlipped;
+    /**< The number of RMI calls issued during the last poll cycle. */
+    private long mLastCycleRmiCalls = 0;
+    /**< The RMI calls issued besides the snapshot reads, e.g. for the clock tick, counted in the next poll cycle. */
+    private long mPendingRmiCalls = 0;
+
+    /**< The executor for parallel polling, null for sequential polling. */
+    private ExecutorService mPollExecutor = null;
+    /**< The number of floors read by one parallel polling task. */
+    private int mFloorBlockSize = DEFAULT_FLOOR_BLOCK_SIZE;
+
+    /**< The default number of floors read by one parallel polling task. */
+    public static final int DEFAULT_FLOOR_BLOCK_SIZE = 16;
+
+    /**< The field classes, cached to avoid the copy made by values() on every poll cycle. */
+    private static final PollFieldClass[] FIELD_CLASSES = PollFieldClass.values();
+    /**< The polling cadence of every field class in milliseconds, indexed by ordinal. */
+    private final long[] mCadence = new long[FIELD_CLASSES.length];
+    /**< The time of the last poll of every field class in milliseconds, indexed by ordinal. */
+    private final long[] mLastPolled = new long[FIELD_CLASSES.length];
+    /**< The mask of field classes which are polled at all. */
+    private int mEnabledFieldClasses = PollFieldClass.ALL & ~PollFieldClass.POSITION.mask();
+    /**< The minimum change of the position of a moving elevator which is published, in feet. */
+    private int mPositionDeadband = DEFAULT_POSITION_DEADBAND;
+
+    /**< The default minimum change of the position of a moving elevator which is published, in feet. */
+    public static final int DEFAULT_POSITION_DEADBAND = 1;
+
+    /**< The set of topics which need to be updated, built from the changed fields on request. */
     private final HashMap<String, Either<Integer, Boolean>> mUpdateTopics;
+    /**< If the set of topics matches the changed fields of the last poll cycle. */
+    private boolean mUpdateTopicsValid = false;
 
     /**
      * CTor which instantiates all members.
@@ -33,6 +101,7 @@ public class ElevatorControlSystem {
      */
     public ElevatorControlSystem(IElevator plc) {
         mPLC = plc;
+        mReader = PlcSnapshotReader.forPlc(plc);
         mUpdateTopics = new HashMap<>();
     }
 
@@ -56,6 +125,172 @@ public class ElevatorControlSystem {
         for (int i = 0; i < numOfFloors; ++i) {
             mFloors[i] = new Floor();
         }
+
+        mSnapshot = new PlcSnapshot(numOfElevators, numOfFloors);
+        mPublished = new PlcSnapshot(numOfElevators, numOfFloors);
+        mDirty = new DirtyFieldSet(numOfElevators, numOfFloors);
+        mTopics = new TopicRegistry(numOfElevators, numOfFloors, mTopicPrefix);
+        mHallCalls = new HallCallBitmap(numOfFloors);
+        mPublishedHallCalls = new HallCallBitmap(numOfFloors);
+        mUpdateTopicsValid = false;
+
+        mFromElevator = Math.min(mShard.getFromElevator(), numOfElevators);
+        mToElevator = mShard.getToElevator(numOfElevators);
+        mFromFloor = Math.min(mShard.getFromFloor(), numOfFloors);
+        mToFloor = mShard.getToFloor(numOfFloors);
+
+        // the published values start with the defaults of the elevator model
+        for (int i = 0; i < numOfElevators; ++i) {
+            mPublished.setElevator(i, IElevator.ELEVATOR_DIRECTION_UNCOMMITTED, 0, 0, IElevator.ELEVATOR_DOORS_CLOSED, 0, 0, 0);
+            for (int j = 0; j < numOfFloors; ++j) {
+                mPublished.setServicesFloor(i, j, true);
+            }
+        }
+    }
+
+    /**
+     * Attaches the system to a new PLC after a reconnect while keeping the state model, so the next poll
+     * cycle only publishes what changed during the outage. Only possible if the topology is unchanged.
+     * Pipelined polling has to be enabled again for the new PLC.
+     * @param plc The new PLC.
+     * @return True if the topology matches and the PLC was attached, false if the system has to be initialized anew.
+     * @throws RemoteException if the PLC communication fails.
+     */
+    public boolean reattach(IElevator plc) throws RemoteException {
+        if (mElevators == null || plc.getElevatorNum() != mElevators.length || plc.getFloorNum() != mFloors.length
+                || plc.getFloorHeight() != mFloorHeight) {
+            return false;
+        }
+
+        for (int i = 0; i < mElevators.length; ++i) {
+            if (plc.getElevatorCapacity(i) != mElevators[i].getCapacity()) {
+                return false;
+            }
+        }
+
+        mPLC = plc;
+        mReader = PlcSnapshotReader.forPlc(plc);
+        // every field class is due, the values may have changed during the outage
+        Arrays.fill(mLastPolled, 0);
+        return true;
+    }
+
+    /**
+     * Enables parallel polling. The reads of every elevator and of every block of floors are
+     * fanned out to the executor and joined before the change detection runs, so the
+     * update topics are the same as with sequential polling.
+     * @param executor The executor to read on, null to poll sequentially.
+     * @param floorBlockSize The number of floors read by one task.
+     */
+    public void setParallelPolling(ExecutorService executor, int floorBlockSize) {
+        if (floorBlockSize < 1) {
+            throw new IllegalArgumentException("Invalid floor block size");
+        }
+
+        mPollExecutor = executor;
+        mFloorBlockSize = floorBlockSize;
+    }
+
+    /**
+     * Sets how often a field class is polled. A cadence of 0 polls the field class every cycle.
+     * @param fieldClass The field class.
+     * @param cadence The minimum time between two polls of the field class in milliseconds.
+     */
+    public void setPollingCadence(PollFieldClass fieldClass, long cadence) {
+        if (cadence < 0) {
+            throw new IllegalArgumentException("Invalid polling cadence");
+        }
+
+        mCadence[fieldClass.ordinal()] = cadence;
+    }
+
+    /**
+     * Returns how often a field class is polled.
+     * @param fieldClass The field class.
+     * @return The minimum time between two polls of the field class in milliseconds.
+     */
+    public long getPollingCadence(PollFieldClass fieldClass) {
+        return mCadence[fieldClass.ordinal()];
+    }
+
+    /**
+     * Sets the prefix of all topics, e.g. building/&lt;id&gt;/ if several buildings share one broker.
+     * Takes effect with the next call of {@link #initializeElevatorsViaPLC()}.
+     * @param topicPrefix The prefix, empty for a single building.
+     */
+    public void setTopicPrefix(String topicPrefix) {
+        if (topicPrefix == null) {
+            throw new IllegalArgumentException("Invalid topic prefix");
+        }
+
+        mTopicPrefix = topicPrefix;
+    }
+
+    /**
+     * Enables pipelined polling. All reads of a cycle are issued at once via the asynchronous facade and
+     * their round trips overlap, bounded by its maximum number of calls in flight.
+     * PLCs which are read in bulk keep their single call per cycle.
+     * @param asyncPlc The asynchronous facade over the PLC, null to read with blocking calls.
+     */
+    public void setAsyncPolling(AsyncElevator asyncPlc) {
+        PlcSnapshotReader reader = PlcSnapshotReader.forPlc(mPLC);
+        mReader = asyncPlc == null || reader.readsBuildingInOneCall() ? reader : new AsyncPlcSnapshotReader(asyncPlc);
+    }
+
+    /**
+     * Restricts the polled and published elevators and hall buttons to a part of the building, so several
+     * instances can share the RMI load. Takes effect with the next call of {@link #initializeElevatorsViaPLC()}.
+     * @param shard The part of the building, {@link ElevatorShard#ALL} for the whole building.
+     */
+    public void setShard(ElevatorShard shard) {
+        if (shard == null) {
+            throw new IllegalArgumentException("Invalid shard");
+        }
+
+        mShard = shard;
+    }
+
+    /**
+     * Returns the part of the building which is polled and published.
+     * @return The shard.
+     */
+    public ElevatorShard getShard() {
+        return mShard;
+    }
+
+    /**
+     * Enables the position stream. The position is only read for moving elevators and for an
+     * elevator in the cycle it stops, so parked elevators cost no RMI calls.
+     * @param enabled True to poll and publish the position, false otherwise.
+     */
+    public void setPositionStreaming(boolean enabled) {
+        if (enabled) {
+            mEnabledFieldClasses |= PollFieldClass.POSITION.mask();
+        }
+        else {
+            mEnabledFieldClasses &= ~PollFieldClass.POSITION.mask();
+        }
+    }
+
+    /**
+     * Returns if the position stream is enabled.
+     * @return True if the position is polled and published, false otherwise.
+     */
+    public boolean isPositionStreaming() {
+        return PollFieldClass.POSITION.isIn(mEnabledFieldClasses);
+    }
+
+    /**
+     * Sets the deadband of the position stream. A moving elevator publishes its position only if it
+     * changed by at least the deadband, the final position of a stopped elevator is always published.
+     * @param deadband The minimum change of the position in feet.
+     */
+    public void setPositionDeadband(int deadband) {
+        if (deadband < 0) {
+            throw new IllegalArgumentException("Invalid position deadband");
+        }
+
+        mPositionDeadband = deadband;
     }
 
     /**
@@ -70,17 +305,46 @@ public class ElevatorControlSystem {
      * Updates the data via the PLC. Gets called periodically.
      */
     public void updateDataViaPLC() throws RemoteException {
+        updateDataViaPLC(System.currentTimeMillis());
+    }
+
+    /**
+     * Updates the data via the PLC. Only the field classes whose cadence has elapsed are polled.
+     * @param timestamp The current time in milliseconds.
+     * @throws RemoteException if the PLC communication fails.
+     */
+    public void updateDataViaPLC(long timestamp) throws RemoteException {
         if (mElevators == null) {
             return;
         }
 
-        for (int i = 0; i < mElevators.length; ++i) {
-            updateElevator(i);
+        int fieldClasses = mEnabledFieldClasses;
+        if (!mReader.readsBuildingInOneCall()) {
+            fieldClasses &= dueFieldClasses(timestamp);
         }
 
-        for (int i = 0; i < mFloors.length; ++i) {
-            updateFloor(i);
+        mDirty.clear();
+        mUpdateTopicsValid = false;
+        resetRmiCallCount();
+        readSnapshot(fieldClasses, false);
+
+        for (int i = mFromElevator; i < mToElevator; ++i) {
+            if (PollFieldClass.MOTION.isIn(fieldClasses)) {
+                diffElevatorMotion(i);
+            }
+            if (PollFieldClass.POSITION.isIn(fieldClasses)) {
+                diffElevatorPosition(i);
+            }
+            diffElevatorFloorSpecificData(i, fieldClasses);
         }
+
+        if (PollFieldClass.BUTTONS.isIn(fieldClasses)) {
+            mHallCalls.load(mSnapshot);
+            mHallCalls.diff(mPublishedHallCalls, mHallCallListener);
+        }
+
+        markPolled(fieldClasses, timestamp);
+        mLastCycleRmiCalls = mSnapshot.getRmiCallCount();
     }
 
     /**
@@ -92,210 +356,491 @@ public class ElevatorControlSystem {
             return;
         }
 
-        for (int i = 0; i < mElevators.length; ++i) {
-            initialUpdateElevator(i);
-        }
+        mDirty.clear();
+        mUpdateTopicsValid = false;
+        resetRmiCallCount();
+        readSnapshot(mEnabledFieldClasses, true);
+        publishAll();
 
-        for (int i = 0; i < mFloors.length; ++i) {
-            initialUpdateFloor(i);
-        }
+        markPolled(mEnabledFieldClasses, System.currentTimeMillis());
+        mLastCycleRmiCalls = mSnapshot.getRmiCallCount();
     }
 
     /**
-     * Returns the set of topics which need to be updated.
+     * Returns the set of topics which need to be updated. The set is built from the changed fields
+     * and allocates, the publish loop iterates {@link #getDirtyFields()} instead.
      * @return The set of topics.
      */
     public Map<String, Either<Integer, Boolean>> getUpdateTopics() {
+        if (!mUpdateTopicsValid) {
+            mUpdateTopics.clear();
+            for (int i = mDirty == null ? -1 : mDirty.nextSetBit(0); i >= 0; i = mDirty.nextSetBit(i + 1)) {
+                int value = getFieldValue(i);
+                mUpdateTopics.put(formatTopic(i), mDirty.fieldOf(i).isFlag() ? Either.right(value != 0) : Either.left(value));
+            }
+            mUpdateTopicsValid = true;
+        }
         return mUpdateTopics;
     }
 
     /**
-     * Updates the elevator data.
-     * @param elevatorNumber The elevator number.
+     * Returns if any field changed during the last poll cycle.
+     * @return True if any field changed, false otherwise.
+     */
+    public boolean hasUpdates() {
+        return mDirty != null && !mDirty.isEmpty();
+    }
+
+    /**
+     * Returns if any part of the fleet is active, i.e. an elevator is moving, its doors are not
+     * closed or any elevator or floor button is pressed.
+     * @return True if the fleet is active, false otherwise.
      */
-    private void updateElevator(int elevatorNumber) throws RemoteException {
-        assert (elevatorNumber < mElevators.length && elevatorNumber >= 0);
-        if (mElevators[elevatorNumber].setDirection(mPLC.getCommittedDirection(elevatorNumber))) {
-            mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.DIRECTION_SUBTOPIC), Either.left(mPLC.getCommittedDirection(elevatorNumber)));
+    public boolean isFleetActive() {
+        if (mElevators == null) {
+            return false;
         }
-        else {
-            mUpdateTopics.remove(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.DIRECTION_SUBTOPIC));
+
+        for (int e = mFromElevator; e < mToElevator; ++e) {
+            Elevator elevator = mElevators[e];
+            if (elevator.getSpeed() != 0 || elevator.getElevatorDoorStatus() != IElevator.ELEVATOR_DOORS_CLOSED) {
+                return true;
+            }
+
+            for (int i = 0; i < mFloors.length; ++i) {
+                if (elevator.getElevatorButton(i)) {
+                    return true;
+                }
+            }
         }
 
-        if (mElevators[elevatorNumber].setAcceleration(mPLC.getElevatorAccel(elevatorNumber))) {
-            mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.ACCELERATION_SUBTOPIC), Either.left(mPLC.getElevatorAccel(elevatorNumber)));
+        return mPublishedHallCalls.anyPressed();
+    }
+
+    /**
+     * Reads the clock tick of the PLC. The call is counted in the RMI calls of the next poll cycle.
+     * @return The clock tick.
+     * @throws RemoteException if the PLC communication fails.
+     */
+    public long readClockTick() throws RemoteException {
+        long clockTick = mPLC.getClockTick();
+        ++mPendingRmiCalls;
+        return clockTick;
+    }
+
+    /**
+     * Returns the number of RMI calls issued during the last poll cycle.
+     * @return The number of RMI calls.
+     */
+    public long getLastCycleRmiCalls() {
+        return mLastCycleRmiCalls;
+    }
+
+    /**
+     * Returns the field classes whose cadence has elapsed.
+     * @param timestamp The current time in milliseconds.
+     * @return The mask of due field classes.
+     */
+    private int dueFieldClasses(long timestamp) {
+        int fieldClasses = 0;
+        for (PollFieldClass fieldClass : FIELD_CLASSES) {
+            if (timestamp - mLastPolled[fieldClass.ordinal()] >= mCadence[fieldClass.ordinal()]) {
+                fieldClasses |= fieldClass.mask();
+            }
         }
-        else {
-            mUpdateTopics.remove(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.ACCELERATION_SUBTOPIC));
+        return fieldClasses;
+    }
+
+    /**
+     * Stores the time of the poll of the given field classes.
+     * @param fieldClasses The mask of polled field classes.
+     * @param timestamp The time of the poll in milliseconds.
+     */
+    private void markPolled(int fieldClasses, long timestamp) {
+        for (PollFieldClass fieldClass : FIELD_CLASSES) {
+            if (fieldClass.isIn(fieldClasses)) {
+                mLastPolled[fieldClass.ordinal()] = timestamp;
+            }
         }
+    }
 
-        if (mElevators[elevatorNumber].setSpeed(mPLC.getElevatorSpeed(elevatorNumber))) {
-            mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.SPEED_SUBTOPIC), Either.left(mPLC.getElevatorSpeed(elevatorNumber)));
+    /**
+     * Reads the snapshot of the current poll cycle, in parallel if an executor is set.
+     * @param fieldClasses The mask of field classes to read.
+     * @param initial If true, the serviced flag of the ground floor is read as well.
+     * @throws RemoteException if the PLC communication fails.
+     */
+    private void readSnapshot(int fieldClasses, boolean initial) throws RemoteException {
+        if (mReader.readsBuildingInOneCall()) {
+            mReader.readBuilding(mSnapshot, fieldClasses, initial);
+            return;
         }
-        else {
-            mUpdateTopics.remove(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.SPEED_SUBTOPIC));
+
+        if (mPollExecutor == null || mReader.readsConcurrently()) {
+            mReader.readRange(mSnapshot, mFromElevator, mToElevator, mFromFloor, mToFloor, fieldClasses, initial);
+            return;
         }
 
-        if (mElevators[elevatorNumber].setElevatorDoorStatus(mPLC.getElevatorDoorStatus(elevatorNumber))) {
-            mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.DOOR_STATUS_SUBTOPIC), Either.left(mPLC.getElevatorDoorStatus(elevatorNumber)));
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (int i = mFromElevator; i < mToElevator; ++i) {
+            final int elevatorNumber = i;
+            tasks.add(() -> {
+                mReader.readElevator(mSnapshot, elevatorNumber, fieldClasses, initial);
+                return null;
+            });
         }
-        else {
-            mUpdateTopics.remove(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.DOOR_STATUS_SUBTOPIC));
+
+        for (int i = mFromFloor; i < mToFloor && PollFieldClass.BUTTONS.isIn(fieldClasses); i += mFloorBlockSize) {
+            final int fromFloor = i;
+            final int toFloor = Math.min(i + mFloorBlockSize, mToFloor);
+            tasks.add(() -> {
+                mReader.readFloors(mSnapshot, fromFloor, toFloor);
+                return null;
+            });
         }
 
-        if (mElevators[elevatorNumber].setCurrentFloor(mPLC.getElevatorFloor(elevatorNumber))) {
-            mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.CURRENT_FLOOR_SUBTOPIC), Either.left(mPLC.getElevatorFloor(elevatorNumber)));
+        try {
+            for (Future<Void> future : mPollExecutor.invokeAll(tasks)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RemoteException("Parallel poll interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RemoteException remoteException) {
+                throw remoteException;
+            }
+            throw new RemoteException("Parallel poll failed", e.getCause());
         }
-        else {
-            mUpdateTopics.remove(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.CURRENT_FLOOR_SUBTOPIC));
+    }
+
+    /**
+     * Compares the scalar fields of an elevator with the published values.
+     * @param elevatorNumber The elevator number.
+     */
+    private void diffElevatorMotion(int elevatorNumber) {
+        Elevator elevator = mElevators[elevatorNumber];
+
+        int direction = mSnapshot.getDirection(elevatorNumber);
+        if (direction != mPublished.getDirection(elevatorNumber)) {
+            elevator.setDirection(direction);
+            markDirty(FleetField.DIRECTION, elevatorNumber);
         }
 
-        if (mElevators[elevatorNumber].setTargetFloor(mPLC.getTarget(elevatorNumber))) {
-            mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.TARGET_FLOOR_SUBTOPIC), Either.left(mPLC.getTarget(elevatorNumber)));
+        int acceleration = mSnapshot.getAcceleration(elevatorNumber);
+        if (acceleration != mPublished.getAcceleration(elevatorNumber)) {
+            elevator.setAcceleration(acceleration);
+            markDirty(FleetField.ACCELERATION, elevatorNumber);
         }
-        else {
-            mUpdateTopics.remove(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.TARGET_FLOOR_SUBTOPIC));
+
+        int speed = mSnapshot.getSpeed(elevatorNumber);
+        if (speed != mPublished.getSpeed(elevatorNumber)) {
+            elevator.setSpeed(speed);
+            markDirty(FleetField.SPEED, elevatorNumber);
         }
 
-        if (mElevators[elevatorNumber].setWeight(mPLC.getElevatorWeight(elevatorNumber))) {
-            mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.WEIGHT_SUBTOPIC), Either.left(mPLC.getElevatorWeight(elevatorNumber)));
+        int doorStatus = mSnapshot.getDoorStatus(elevatorNumber);
+        if (doorStatus != mPublished.getDoorStatus(elevatorNumber)) {
+            elevator.setElevatorDoorStatus(doorStatus);
+            markDirty(FleetField.DOOR_STATUS, elevatorNumber);
         }
-        else {
-            mUpdateTopics.remove(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.WEIGHT_SUBTOPIC));
+
+        int currentFloor = mSnapshot.getCurrentFloor(elevatorNumber);
+        if (currentFloor != mPublished.getCurrentFloor(elevatorNumber)) {
+            elevator.setCurrentFloor(currentFloor);
+            markDirty(FleetField.CURRENT_FLOOR, elevatorNumber);
+        }
+
+        int targetFloor = mSnapshot.getTargetFloor(elevatorNumber);
+        if (targetFloor != mPublished.getTargetFloor(elevatorNumber)) {
+            elevator.setTargetFloor(targetFloor);
+            markDirty(FleetField.TARGET_FLOOR, elevatorNumber);
+        }
+
+        int weight = mSnapshot.getWeight(elevatorNumber);
+        if (weight != mPublished.getWeight(elevatorNumber)) {
+            elevator.setWeight(weight);
+            markDirty(FleetField.WEIGHT, elevatorNumber);
+        }
+
+        mPublished.setElevator(elevatorNumber, direction, acceleration, speed, doorStatus, currentFloor, targetFloor, weight);
+    }
+
+    /**
+     * Compares the position of an elevator with the published value.
+     * @param elevatorNumber The elevator number.
+     */
+    private void diffElevatorPosition(int elevatorNumber) {
+        int position = mSnapshot.getPosition(elevatorNumber);
+        int published = mPublished.getPosition(elevatorNumber);
+        if (position == published) {
+            return;
         }
 
-        updateElevatorFloorSpecificData(elevatorNumber);
+        if (Math.abs(position - published) >= mPositionDeadband || mSnapshot.getSpeed(elevatorNumber) == 0) {
+            mPublished.setPosition(elevatorNumber, position);
+            markDirty(FleetField.POSITION, elevatorNumber);
+        }
     }
 
     /**
-     * Updates elevator data specific to a floor
+     * Compares the floor specific fields of an elevator with the published values.
+     * @param elevatorNumber The elevator number.
+     * @param fieldClasses The mask of field classes polled in this cycle.
      */
-    private void updateElevatorFloorSpecificData(int elevatorNumber) throws RemoteException {
+    private void diffElevatorFloorSpecificData(int elevatorNumber, int fieldClasses) {
+        boolean buttons = PollFieldClass.BUTTONS.isIn(fieldClasses);
+        boolean configuration = PollFieldClass.CONFIGURATION.isIn(fieldClasses);
+        Elevator elevator = mElevators[elevatorNumber];
+
         for (int i = 0; i < mFloors.length; ++i) {
-            if (mElevators[elevatorNumber].setElevatorButton(mPLC.getElevatorButton(elevatorNumber, i), i)) {
-                mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.FLOOR_REQUESTED_SUBTOPIC, i), Either.right(mPLC.getElevatorButton(elevatorNumber, i)));
-            }
-            else {
-                mUpdateTopics.remove(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.FLOOR_REQUESTED_SUBTOPIC, i));
+            boolean pressed = mSnapshot.getElevatorButton(elevatorNumber, i);
+            if (buttons && pressed != mPublished.getElevatorButton(elevatorNumber, i)) {
+                elevator.setElevatorButton(pressed, i);
+                mPublished.setElevatorButton(elevatorNumber, i, pressed);
+                mDirty.set(mDirty.indexOf(FleetField.FLOOR_REQUESTED, elevatorNumber, i));
             }
 
-            if(i > 0) {
-                if (mElevators[elevatorNumber].setFloorService(mPLC.getServicesFloors(elevatorNumber, i), i)) {
-                    mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.FLOOR_SERVICED_SUBTOPIC, i), Either.right(mPLC.getServicesFloors(elevatorNumber, i)));
-                } else {
-                    mUpdateTopics.remove(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.FLOOR_SERVICED_SUBTOPIC, i));
-                }
-            }
-            else {
-                mUpdateTopics.remove(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.FLOOR_SERVICED_SUBTOPIC, i));
+            boolean serviced = mSnapshot.getServicesFloor(elevatorNumber, i);
+            if (configuration && i > 0 && serviced != mPublished.getServicesFloor(elevatorNumber, i)) {
+                elevator.setFloorService(serviced, i);
+                mPublished.setServicesFloor(elevatorNumber, i, serviced);
+                mDirty.set(mDirty.indexOf(FleetField.FLOOR_SERVICED, elevatorNumber, i));
             }
         }
     }
 
     /**
-     * Initially updates the elevator data.
-     * @param elevatorNumber The elevator number.
+     * Marks a flipped hall button as changed.
+     * @param floorNumber The floor number.
+     * @param up True for the up button, false for the down button.
+     * @param pressed The new status of the button.
      */
-    private void initialUpdateElevator(int elevatorNumber) throws RemoteException {
-        assert (elevatorNumber < mElevators.length && elevatorNumber >= 0);
-        mElevators[elevatorNumber].setDirection(mPLC.getCommittedDirection(elevatorNumber));
-        mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.DIRECTION_SUBTOPIC), Either.left(mPLC.getCommittedDirection(elevatorNumber)));
+    private void hallCallFlipped(int floorNumber, boolean up, boolean pressed) {
+        // a bulk read fetches the hall buttons of other shards as well
+        if (floorNumber < mFromFloor || floorNumber >= mToFloor) {
+            return;
+        }
 
-        mElevators[elevatorNumber].setAcceleration(mPLC.getElevatorAccel(elevatorNumber));
-        mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.ACCELERATION_SUBTOPIC), Either.left(mPLC.getElevatorAccel(elevatorNumber)));
+        if (up) {
+            mFloors[floorNumber].setButtonUpPressed(pressed);
+            mDirty.set(mDirty.indexOf(FleetField.BUTTON_UP, 0, floorNumber));
+        }
+        else {
+            mFloors[floorNumber].setButtonDownPressed(pressed);
+            mDirty.set(mDirty.indexOf(FleetField.BUTTON_DOWN, 0, floorNumber));
+        }
+    }
 
-        mElevators[elevatorNumber].setSpeed(mPLC.getElevatorSpeed(elevatorNumber));
-        mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.SPEED_SUBTOPIC), Either.left(mPLC.getElevatorSpeed(elevatorNumber)));
+    /**
+     * Starts counting the RMI calls of a poll cycle with the calls issued since the last one.
+     */
+    private void resetRmiCallCount() {
+        mSnapshot.resetRmiCallCount();
+        mSnapshot.addRmiCalls(mPendingRmiCalls);
+        mPendingRmiCalls = 0;
+    }
 
-        mElevators[elevatorNumber].setElevatorDoorStatus(mPLC.getElevatorDoorStatus(elevatorNumber));
-        mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.DOOR_STATUS_SUBTOPIC), Either.left(mPLC.getElevatorDoorStatus(elevatorNumber)));
+    /**
+     * Takes over all values of the snapshot as published values.
+     */
+    private void publishAll() {
+        for (int e = mFromElevator; e < mToElevator; ++e) {
+            Elevator elevator = mElevators[e];
+            elevator.setDirection(mSnapshot.getDirection(e));
+            elevator.setAcceleration(mSnapshot.getAcceleration(e));
+            elevator.setSpeed(mSnapshot.getSpeed(e));
+            elevator.setElevatorDoorStatus(mSnapshot.getDoorStatus(e));
+            elevator.setCurrentFloor(mSnapshot.getCurrentFloor(e));
+            elevator.setTargetFloor(mSnapshot.getTargetFloor(e));
+            elevator.setWeight(mSnapshot.getWeight(e));
+            mPublished.setElevator(e, mSnapshot.getDirection(e), mSnapshot.getAcceleration(e), mSnapshot.getSpeed(e),
+                    mSnapshot.getDoorStatus(e), mSnapshot.getCurrentFloor(e), mSnapshot.getTargetFloor(e),
+                    mSnapshot.getWeight(e));
+            mPublished.setPosition(e, mSnapshot.getPosition(e));
+
+            for (int i = 0; i < mFloors.length; ++i) {
+                elevator.setElevatorButton(mSnapshot.getElevatorButton(e, i), i);
+                mPublished.setElevatorButton(e, i, mSnapshot.getElevatorButton(e, i));
+
+                if (i > 0) {
+                    elevator.setFloorService(mSnapshot.getServicesFloor(e, i), i);
+                }
+                mPublished.setServicesFloor(e, i, mSnapshot.getServicesFloor(e, i));
+            }
+        }
 
+        for (int i = mFromFloor; i < mToFloor; ++i) {
+            mFloors[i].setButtonUpPressed(mSnapshot.getFloorButtonUp(i));
+            mFloors[i].setButtonDownPressed(mSnapshot.getFloorButtonDown(i));
+        }
+        mHallCalls.load(mSnapshot);
+        mPublishedHallCalls.copyFrom(mHallCalls);
 
-        mElevators[elevatorNumber].setCurrentFloor(mPLC.getElevatorFloor(elevatorNumber));
-        mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.CURRENT_FLOOR_SUBTOPIC), Either.left(mPLC.getElevatorFloor(elevatorNumber)));
+        if (mShard.isWholeBuilding()) {
+            mDirty.setAll();
+        }
+        else {
+            markShard();
+        }
 
-        mElevators[elevatorNumber].setTargetFloor(mPLC.getTarget(elevatorNumber));
-        mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.TARGET_FLOOR_SUBTOPIC), Either.left(mPLC.getTarget(elevatorNumber)));
+        if (!isPositionStreaming()) {
+            for (int e = 0; e < mElevators.length; ++e) {
+                mDirty.clear(mDirty.indexOf(FleetField.POSITION, e, 0));
+            }
+        }
+    }
 
+    /**
+     * Marks all fields of the elevators and hall buttons of the shard as changed.
+     */
+    private void markShard() {
+        for (FleetField field : FleetField.values()) {
+            if (field.isFloorField()) {
+                for (int f = mFromFloor; f < mToFloor; ++f) {
+                    mDirty.set(mDirty.indexOf(field, 0, f));
+                }
+            }
+            else {
+                for (int e = mFromElevator; e < mToElevator; ++e) {
+                    for (int f = 0; f < (field.isFlag() ? mFloors.length : 1); ++f) {
+                        mDirty.set(mDirty.indexOf(field, e, f));
+                    }
+                }
+            }
+        }
+    }
 
-        mElevators[elevatorNumber].setWeight(mPLC.getElevatorWeight(elevatorNumber));
-        mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.WEIGHT_SUBTOPIC), Either.left(mPLC.getElevatorWeight(elevatorNumber)));
+    /**
+     * Marks a scalar field of an elevator as changed.
+     * @param field The field.
+     * @param elevatorNumber The elevator number.
+     */
+    private void markDirty(FleetField field, int elevatorNumber) {
+        mDirty.set(mDirty.indexOf(field, elevatorNumber, 0));
+    }
 
+    /**
+     * Returns the values read from the PLC during the last poll cycle.
+     * @return The snapshot, null before the initialization.
+     */
+    public PlcSnapshot getSnapshot() {
+        return mSnapshot;
+    }
 
+    /**
+     * Fills the state frame of an elevator with its published values.
+     * @param elevatorNumber The elevator number.
+     * @param frame The frame, sized for the number of floors.
+     */
+    public void fillStateFrame(int elevatorNumber, ElevatorStateFrame frame) {
+        frame.setScalars(mPublished.getDirection(elevatorNumber), mPublished.getAcceleration(elevatorNumber),
+                mPublished.getSpeed(elevatorNumber), mPublished.getDoorStatus(elevatorNumber),
+                mPublished.getCurrentFloor(elevatorNumber), mPublished.getTargetFloor(elevatorNumber),
+                mPublished.getWeight(elevatorNumber), mPublished.getPosition(elevatorNumber));
         for (int i = 0; i < mFloors.length; ++i) {
-            mElevators[elevatorNumber].setElevatorButton(mPLC.getElevatorButton(elevatorNumber, i), i);
-            mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.FLOOR_REQUESTED_SUBTOPIC, i), Either.right(mPLC.getElevatorButton(elevatorNumber, i)));
-
-            if(i > 0) {
-                mElevators[elevatorNumber].setFloorService(mPLC.getServicesFloors(elevatorNumber, i), i);
-            }
-            mUpdateTopics.put(formatElevatorUpdateTopic(elevatorNumber, MqttTopics.FLOOR_SERVICED_SUBTOPIC, i), Either.right(mPLC.getServicesFloors(elevatorNumber, i)));
+            frame.setElevatorButton(i, mPublished.getElevatorButton(elevatorNumber, i));
+            frame.setServicesFloor(i, mPublished.getServicesFloor(elevatorNumber, i));
         }
     }
 
     /**
-     * Updates the floor data.
-     * @param floorNumber The floor number.
+     * Appends the published values of the fields which changed during the last poll cycle to a delta frame,
+     * or of all fields of the shard to a keyframe.
+     * @param frame The frame, sized for the building and begun by the caller.
      */
-    private void updateFloor(int floorNumber) throws RemoteException{
-        assert (floorNumber < mFloors.length && floorNumber >= 0);
-        if (mFloors[floorNumber].setButtonUpPressed(mPLC.getFloorButtonUp(floorNumber))) {
-            mUpdateTopics.put(formatFloorUpdateTopic(floorNumber, MqttTopics.BUTTON_UP_SUBTOPIC), Either.right(mPLC.getFloorButtonUp(floorNumber)));
-        }
-        else {
-            mUpdateTopics.remove(formatFloorUpdateTopic(floorNumber, MqttTopics.BUTTON_UP_SUBTOPIC));
+    public void fillDeltaFrame(BuildingDeltaFrame frame) {
+        if (!frame.isKeyframe()) {
+            for (int i = mDirty.nextSetBit(0); i >= 0; i = mDirty.nextSetBit(i + 1)) {
+                frame.add(mDirty.fieldOf(i), mDirty.elevatorOf(i), mDirty.floorOf(i), getFieldValue(i));
+            }
+            return;
         }
 
-        if (mFloors[floorNumber].setButtonDownPressed(mPLC.getFloorButtonDown(floorNumber))) {
-            mUpdateTopics.put(formatFloorUpdateTopic(floorNumber, MqttTopics.BUTTON_DOWN_SUBTOPIC), Either.right(mPLC.getFloorButtonDown(floorNumber)));
-        }
-        else {
-            mUpdateTopics.remove(formatFloorUpdateTopic(floorNumber, MqttTopics.BUTTON_DOWN_SUBTOPIC));
+        for (int i = 0; i < mDirty.size(); ++i) {
+            FleetField field = mDirty.fieldOf(i);
+            int elevatorNumber = mDirty.elevatorOf(i);
+            int floor = mDirty.floorOf(i);
+            boolean owned = field.isFloorField()
+                    ? floor >= mFromFloor && floor < mToFloor
+                    : elevatorNumber >= mFromElevator && elevatorNumber < mToElevator;
+            // the position is not polled without streaming, see publishAll
+            if (owned && (field != FleetField.POSITION || isPositionStreaming())) {
+                frame.add(field, elevatorNumber, floor, getFieldValue(i));
+            }
         }
     }
 
     /**
-     * Initial updates the floor data.
-     * @param floorNumber The floor number.
+     * Returns the fields which changed during the last poll cycle.
+     * @return The changed fields, null before the initialization.
      */
-    private void initialUpdateFloor(int floorNumber) throws RemoteException {
-        assert (floorNumber < mFloors.length && floorNumber >= 0);
-        mFloors[floorNumber].setButtonUpPressed(mPLC.getFloorButtonUp(floorNumber));
-        mUpdateTopics.put(formatFloorUpdateTopic(floorNumber, MqttTopics.BUTTON_UP_SUBTOPIC), Either.right(mPLC.getFloorButtonUp(floorNumber)));
+    public DirtyFieldSet getDirtyFields() {
+        return mDirty;
+    }
 
-        mFloors[floorNumber].setButtonDownPressed(mPLC.getFloorButtonDown(floorNumber));
-        mUpdateTopics.put(formatFloorUpdateTopic(floorNumber, MqttTopics.BUTTON_DOWN_SUBTOPIC), Either.right(mPLC.getFloorButtonDown(floorNumber)));
+    /**
+     * Returns the published value of a field. Flags are returned as 1 for true and 0 for false.
+     * @param index The index of the field, see {@link DirtyFieldSet}.
+     * @return The value of the field.
+     */
+    public int getFieldValue(int index) {
+        FleetField field = mDirty.fieldOf(index);
+        int elevatorNumber = mDirty.elevatorOf(index);
+        int floor = mDirty.floorOf(index);
+
+        switch (field) {
+            case DIRECTION:
+                return mPublished.getDirection(elevatorNumber);
+            case ACCELERATION:
+                return mPublished.getAcceleration(elevatorNumber);
+            case SPEED:
+                return mPublished.getSpeed(elevatorNumber);
+            case DOOR_STATUS:
+                return mPublished.getDoorStatus(elevatorNumber);
+            case CURRENT_FLOOR:
+                return mPublished.getCurrentFloor(elevatorNumber);
+            case TARGET_FLOOR:
+                return mPublished.getTargetFloor(elevatorNumber);
+            case WEIGHT:
+                return mPublished.getWeight(elevatorNumber);
+            case POSITION:
+                return mPublished.getPosition(elevatorNumber);
+            case FLOOR_REQUESTED:
+                return mPublished.getElevatorButton(elevatorNumber, floor) ? 1 : 0;
+            case FLOOR_SERVICED:
+                return mPublished.getServicesFloor(elevatorNumber, floor) ? 1 : 0;
+            case BUTTON_UP:
+                return mPublishedHallCalls.isUp(floor) ? 1 : 0;
+            default:
+                return mPublishedHallCalls.isDown(floor) ? 1 : 0;
+        }
     }
 
     /**
-     * Formats the topic for an elevator update.
-     * @param elevatorNumber The elevator number.
-     * @param subtopic The subtopic.
-     * @return The formatted mqtt topic.
+     * Returns the topic of a field.
+     * @param index The index of the field, see {@link DirtyFieldSet}.
+     * @return The topic.
      */
-    private String formatElevatorUpdateTopic(int elevatorNumber, String subtopic) {
-        return MqttTopics.ELEVATOR_TOPIC + "/" + elevatorNumber + subtopic;
+    public String formatTopic(int index) {
+        return mTopics.getTopic(mDirty.fieldOf(index), mDirty.elevatorOf(index), mDirty.floorOf(index));
     }
 
     /**
-     * Formats the topic for an elevator update.
-     * @param elevatorNumber The elevator number.
-     * @param subtopic The subtopic.
-     * @param floor The floor number.
-     * @return The formatted topic.
+     * Returns the HiveMQ topic of a field.
+     * @param index The index of the field, see {@link DirtyFieldSet}.
+     * @return The HiveMQ topic.
      */
-    private String formatElevatorUpdateTopic(int elevatorNumber, String subtopic, int floor) {
-        return MqttTopics.ELEVATOR_TOPIC + "/" + elevatorNumber + subtopic + "/" + floor;
+    public MqttTopic getMqttTopic(int index) {
+        return mTopics.getMqttTopic(mDirty.fieldOf(index), mDirty.elevatorOf(index), mDirty.floorOf(index));
     }
 
     /**
-     * Formats the topic for a floor update.
-     * @param floorNumber The floor number.
-     * @param subtopic The subtopic.
-     * @return The formatted topic.
+     * Returns the topics of all fields.
+     * @return The topic registry, null before the initialization.
      */
-    private String formatFloorUpdateTopic(int floorNumber, String subtopic) {
-        return MqttTopics.FLOOR_TOPIC + "/" + floorNumber + subtopic;
+    public TopicRegistry getTopicRegistry() {
+        return mTopics;
     }
 
     /**
@@ -1,23 +1,34 @@
 package at.fhhagenberg.sqelevator.adapter;
 
 import sqelevator.IElevator;
+import at.fhhagenberg.sqelevator.BuildingDeltaFrame;
+import at.fhhagenberg.sqelevator.ElevatorStateFrame;
 import at.fhhagenberg.sqelevator.MqttTopics;
+import at.fhhagenberg.sqelevator.PayloadEncoder;
+import com.hivemq.client.mqtt.datatypes.MqttTopic;
 import com.hivemq.client.mqtt.mqtt5.Mqtt5AsyncClient;
 import com.hivemq.client.mqtt.mqtt5.Mqtt5Client;
 import com.hivemq.client.mqtt.mqtt5.message.connect.connack.Mqtt5ConnAck;
 
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperties;
+import com.hivemq.client.mqtt.mqtt5.datatypes.Mqtt5UserProperty;
 import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
-import io.vavr.control.Either;
+import com.hivemq.client.mqtt.mqtt5.message.subscribe.Mqtt5Subscribe;
+import com.hivemq.client.mqtt.mqtt5.message.unsubscribe.Mqtt5Unsubscribe;
 
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.rmi.Naming;
+import java.nio.file.Path;
 import java.rmi.RemoteException;
+import java.util.EnumMap;
+import java.util.Map;
 import java.util.Properties;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.Random;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -26,18 +37,93 @@ import java.util.logging.Logger;
  * Adapter class for the elevator system that connects to the MQTT broker
  */
 public class ElevatorMqttAdapter {
-    /** The PLC */
-    private IElevator mPLC;
+    /** The default interval of the delta keyframes in milliseconds */
+    public static final long DEFAULT_KEYFRAME_INTERVAL = 5000;
+
+    /** The PLC, replaced by the reconnect worker */
+    private volatile IElevator mPLC;
     /** The control system */
-    private ElevatorControlSystem mControlSystem;
+    private volatile ElevatorControlSystem mControlSystem;
     /** The MQTT client */
     private final Mqtt5AsyncClient mMqttClient;
+    /** The prefix of all topics, e.g. building/&lt;id&gt;/, empty for a single building */
+    private final String mTopicPrefix;
+    /** The backend of the PLC used to reconnect */
+    private PlcFactory mPlcFactory = PlcFactory.rmi(null);
     /** The connection status of the algorithm */
     private boolean mConnectionStatus = false;
-    /** The connection status of the RMI */
-    private boolean mRmiIsConnected = false;
+    /** The writer of the commands of the algorithm, null before the elevators are initialized */
+    private volatile PlcCommandWriter mCommandWriter = null;
+    /** The thread which writes the commands to the PLC */
+    private ExecutorService mCommandExecutor = null;
+    /** If commands which match the state of the PLC are dropped */
+    private boolean mCommandSuppression = false;
+    /** The state machine of the RMI connection, which runs the reconnect attempts */
+    private RmiReconnector mReconnector;
     /** The timestamp of the connection status */
     private long mConnectionStatusTimestamp = 0;
+    /** The executor for parallel polling, null for sequential polling */
+    private ExecutorService mPollExecutor = null;
+    /** The RMI worker threads of the pipelined polling, null for blocking reads */
+    private ExecutorService mAsyncWorkers = null;
+    /** The maximum number of RMI calls in flight of the pipelined polling */
+    private int mMaxInFlight = AsyncElevator.DEFAULT_MAX_IN_FLIGHT;
+    /** The number of floors read by one parallel polling task */
+    private int mFloorBlockSize = ElevatorControlSystem.DEFAULT_FLOOR_BLOCK_SIZE;
+    /** The polling cadences of the field classes in milliseconds */
+    private final Map<PollFieldClass, Long> mPollingCadences = new EnumMap<>(PollFieldClass.class);
+    /** The adaptive polling interval, null for a fixed interval */
+    private volatile AdaptivePollInterval mAdaptiveInterval = null;
+    /** The scheduler of the poll cycles */
+    private ScheduledExecutorService mScheduler = null;
+    /** If the next poll is the initial one */
+    private volatile boolean mInitialPoll = true;
+    /** The schedule of the poll cycles */
+    private PollScheduler mPollScheduler = new PollScheduler(OverrunPolicy.SKIP);
+    /** The durations of the poll cycles in microseconds */
+    private final LatencyHistogram mCycleTime = new LatencyHistogram();
+    /** The durations of the RMI reads of the poll cycles in microseconds */
+    private final LatencyHistogram mRmiTime = new LatencyHistogram();
+    /** The durations of the MQTT publishes of the poll cycles in microseconds */
+    private final LatencyHistogram mPublishTime = new LatencyHistogram();
+    /** The lateness of the poll cycles in microseconds */
+    private final LatencyHistogram mLateness = new LatencyHistogram();
+    /** The interval at which the metrics are published in milliseconds, 0 to publish them on demand only */
+    private long mMetricsInterval = 0;
+    /** The time the metrics were last published in milliseconds */
+    private long mMetricsTimestamp = 0;
+    /** The clock tick gate, null if every cycle is polled */
+    private ClockTickGate mClockTickGate = null;
+    /** If the position stream is enabled */
+    private boolean mPositionStreaming = false;
+    /** The deadband of the position stream in feet */
+    private int mPositionDeadband = ElevatorControlSystem.DEFAULT_POSITION_DEADBAND;
+    /** The journal of the raw poll values, null if nothing is recorded */
+    private SnapshotJournal mJournal = null;
+    /** If the elevator/&lt;n&gt;/state frames are published */
+    private boolean mStateFrames = false;
+    /** If the state frames replace the topics of the single elevator fields */
+    private boolean mStateFramesOnly = false;
+    /** The reused state frame, null before the first frame */
+    private ElevatorStateFrame mStateFrame = null;
+    /** The elevators which changed during the poll cycle, indexed by elevator */
+    private boolean[] mChangedElevators = new boolean[0];
+    /** If the building delta frames are published */
+    private boolean mDeltaFrames = false;
+    /** If the delta frames replace the topics of the single fields */
+    private boolean mDeltaFramesOnly = false;
+    /** The interval of the delta keyframes in milliseconds */
+    private long mKeyframeInterval = DEFAULT_KEYFRAME_INTERVAL;
+    /** The reused delta frame, null before the first frame */
+    private BuildingDeltaFrame mDeltaFrame = null;
+    /** The topic of the delta frames of this instance */
+    private MqttTopic mDeltaTopic = null;
+    /** The sequence number of the next delta frame */
+    private long mDeltaSequence = 0;
+    /** The time of the last keyframe */
+    private long mKeyframeTimestamp = 0;
+    /** The part of the building served by this instance */
+    private ElevatorShard mShard = ElevatorShard.ALL;
 
     /** The logger */
     private static final Logger logger = Logger.getLogger(ElevatorMqttAdapter.class.getName());
@@ -48,9 +134,22 @@ public class ElevatorMqttAdapter {
      * @param mqttClient The MQTT client
      */
     public ElevatorMqttAdapter(IElevator plc, Mqtt5AsyncClient mqttClient) {
+        this(plc, mqttClient, "");
+    }
+
+    /**
+     * Constructor for one of several buildings which share the MQTT client
+     * @param plc The PLC of the building
+     * @param mqttClient The shared MQTT client
+     * @param topicPrefix The prefix of all topics of the building, e.g. building/&lt;id&gt;/
+     */
+    public ElevatorMqttAdapter(IElevator plc, Mqtt5AsyncClient mqttClient, String topicPrefix) {
         mPLC = plc;
+        mTopicPrefix = topicPrefix;
         mControlSystem = new ElevatorControlSystem(plc);
+        mControlSystem.setTopicPrefix(topicPrefix);
         mMqttClient = mqttClient;
+        setReconnectPolicy(RmiReconnector.DEFAULT_INITIAL_DELAY, RmiReconnector.DEFAULT_MAX_DELAY, 0);
     }
 
     /**
@@ -64,21 +163,45 @@ public class ElevatorMqttAdapter {
             properties.load(new FileInputStream("resources/elevator.properties"));
 
             // Fetch properties
-            String plcUrl = properties.getProperty("plc.url");
             String mqttUrl = properties.getProperty("mqtt.url");
             int mqttPort = Integer.parseInt(properties.getProperty("mqtt.port"));
-            int interval = Integer.parseInt(properties.getProperty("interval"));
+            String buildings = properties.getProperty("buildings", "").trim();
+            String[] ids = buildings.isEmpty() ? new String[0] : buildings.split(",");
+            int pollThreads = Integer.parseInt(properties.getProperty("poll.threads", "0"));
+            boolean async = Boolean.parseBoolean(properties.getProperty("poll.async", "false"));
+            for (String id : ids) {
+                async |= Boolean.parseBoolean(getBuildingProperties(properties, id.trim()).getProperty("poll.async", "false"));
+            }
+            int maxInFlight = Integer.parseInt(properties.getProperty("poll.async.maxInFlight",
+                    String.valueOf(AsyncElevator.DEFAULT_MAX_IN_FLIGHT)));
 
-            // Set up RMI and MQTT client
-            IElevator plc = (IElevator) Naming.lookup(plcUrl);
+            // Set up MQTT client, shared by all buildings
             Mqtt5AsyncClient mqttClient = Mqtt5Client.builder()
                     .identifier(UUID.randomUUID().toString())
                     .serverHost(mqttUrl)
                     .serverPort(mqttPort)
                     .buildAsync();
+            ExecutorService pollExecutor = pollThreads > 0 ? PollExecutors.create(pollThreads) : null;
+            // every call in flight blocks a worker for its round trip, the workers are shared by all buildings
+            ExecutorService asyncWorkers = async ? PollExecutors.create(maxInFlight) : null;
 
-            ElevatorMqttAdapter client = new ElevatorMqttAdapter(plc, mqttClient);
-            client.run(interval);
+            if (ids.length == 0) {
+                ElevatorMqttAdapter client = createAdapter(properties, "", mqttClient, pollExecutor, asyncWorkers);
+                client.run(Integer.parseInt(properties.getProperty("interval")));
+            }
+            else {
+                // one adapter per building, all poll cycles run on one scheduler
+                int schedulerThreads = Integer.parseInt(properties.getProperty("buildings.threads", String.valueOf(ids.length)));
+                ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(schedulerThreads);
+                for (String id : ids) {
+                    Properties buildingProperties = getBuildingProperties(properties, id.trim());
+                    ElevatorMqttAdapter client = createAdapter(buildingProperties,
+                            MqttTopics.BUILDING_TOPIC + "/" + id.trim() + "/", mqttClient, pollExecutor, asyncWorkers);
+                    client.setScheduler(scheduler);
+                    client.start(Integer.parseInt(buildingProperties.getProperty("interval")));
+                    logger.log(Level.INFO, "Started building {0}", id.trim());
+                }
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
             logger.log(Level.SEVERE, "Interrupted: {0}", e.getMessage());
@@ -92,6 +215,405 @@ public class ElevatorMqttAdapter {
         }
     }
 
+    /**
+     * Returns the properties of a building. A property building.&lt;id&gt;.&lt;key&gt; overrides &lt;key&gt;,
+     * every other property is shared by all buildings.
+     * @param properties The properties of the process
+     * @param id The id of the building
+     * @return The properties of the building
+     */
+    static Properties getBuildingProperties(Properties properties, String id) {
+        Properties buildingProperties = new Properties(properties);
+        String prefix = "building." + id + ".";
+        for (String key : properties.stringPropertyNames()) {
+            if (key.startsWith(prefix)) {
+                buildingProperties.setProperty(key.substring(prefix.length()), properties.getProperty(key));
+            }
+        }
+        return buildingProperties;
+    }
+
+    /**
+     * Connects to the PLC of a building and creates its adapter
+     * @param properties The properties of the building
+     * @param topicPrefix The prefix of all topics of the building, empty for a single building
+     * @param mqttClient The MQTT client
+     * @param pollExecutor The executor for parallel polling, null to poll sequentially
+     * @param asyncWorkers The RMI worker threads for pipelined polling, shared by all buildings, null if disabled
+     * @return The adapter
+     * @throws Exception if the PLC cannot be looked up or a property is invalid
+     */
+    private static ElevatorMqttAdapter createAdapter(Properties properties, String topicPrefix, Mqtt5AsyncClient mqttClient,
+                                                     ExecutorService pollExecutor, ExecutorService asyncWorkers) throws Exception {
+        int interval = Integer.parseInt(properties.getProperty("interval"));
+        int floorBlockSize = Integer.parseInt(properties.getProperty("poll.floorBlockSize",
+                String.valueOf(ElevatorControlSystem.DEFAULT_FLOOR_BLOCK_SIZE)));
+        int minInterval = Integer.parseInt(properties.getProperty("interval.min", String.valueOf(interval)));
+        int maxInterval = Integer.parseInt(properties.getProperty("interval.max", String.valueOf(interval)));
+        boolean tickGated = Boolean.parseBoolean(properties.getProperty("poll.tickGated", "false"));
+        boolean async = Boolean.parseBoolean(properties.getProperty("poll.async", "false"));
+        int maxInFlight = Integer.parseInt(properties.getProperty("poll.async.maxInFlight",
+                String.valueOf(AsyncElevator.DEFAULT_MAX_IN_FLIGHT)));
+        OverrunPolicy overrunPolicy = OverrunPolicy.valueOf(properties.getProperty("poll.overrunPolicy", "skip").toUpperCase());
+        long metricsInterval = Long.parseLong(properties.getProperty("metrics.interval", "0"));
+        boolean plcCache = Boolean.parseBoolean(properties.getProperty("plc.cache", "false"));
+        boolean positionStream = Boolean.parseBoolean(properties.getProperty("position.stream", "false"));
+        int positionDeadband = Integer.parseInt(properties.getProperty("position.deadband",
+                String.valueOf(ElevatorControlSystem.DEFAULT_POSITION_DEADBAND)));
+        ElevatorShard shard = ElevatorShard.parse(properties.getProperty("shard.elevators"),
+                properties.getProperty("shard.floors"), Boolean.parseBoolean(properties.getProperty("shard.info", "true")));
+
+        String journalPath = properties.getProperty("journal.path", "").trim();
+        long journalSegmentSize = Long.parseLong(properties.getProperty("journal.segmentSize",
+                String.valueOf(SnapshotJournal.DEFAULT_SEGMENT_SIZE)));
+        int journalMaxSegments = Integer.parseInt(properties.getProperty("journal.maxSegments",
+                String.valueOf(SnapshotJournal.DEFAULT_MAX_SEGMENTS)));
+        long reconnectInitialDelay = Long.parseLong(properties.getProperty("reconnect.initialDelay",
+                String.valueOf(RmiReconnector.DEFAULT_INITIAL_DELAY)));
+        long reconnectMaxDelay = Long.parseLong(properties.getProperty("reconnect.maxDelay",
+                String.valueOf(RmiReconnector.DEFAULT_MAX_DELAY)));
+        int reconnectMaxAttempts = Integer.parseInt(properties.getProperty("reconnect.maxAttempts", "0"));
+        boolean suppressCommands = Boolean.parseBoolean(properties.getProperty("commands.suppress", "false"));
+        boolean stateFrames = Boolean.parseBoolean(properties.getProperty("state.frames", "false"));
+        boolean stateFramesOnly = Boolean.parseBoolean(properties.getProperty("state.frames.only", "false"));
+        boolean deltaFrames = Boolean.parseBoolean(properties.getProperty("delta.frames", "false"));
+        boolean deltaFramesOnly = Boolean.parseBoolean(properties.getProperty("delta.frames.only", "false"));
+        long keyframeInterval = Long.parseLong(properties.getProperty("delta.keyframeInterval",
+                String.valueOf(DEFAULT_KEYFRAME_INTERVAL)));
+
+        // Set up RMI, or replay a recorded journal or simulate a building in-process instead of the PLC
+        PlcFactory plcFactory = PlcFactory.fromProperties(properties);
+        IElevator plc = plcFactory.connect();
+        if (plcCache) {
+            CachingElevator cachingPlc = new CachingElevator(plc);
+            for (CachingElevator.Method method : CachingElevator.Method.values()) {
+                String ttl = properties.getProperty("plc.cache.ttl." + method.name().toLowerCase());
+                if (ttl != null) {
+                    cachingPlc.setTtl(method, Long.parseLong(ttl));
+                }
+            }
+            plc = cachingPlc;
+        }
+
+        ElevatorMqttAdapter client = new ElevatorMqttAdapter(plc, mqttClient, topicPrefix);
+        client.setPlcFactory(plcFactory);
+        if (pollExecutor != null) {
+            client.setParallelPolling(pollExecutor, floorBlockSize);
+        }
+        if (async) {
+            client.setAsyncPolling(asyncWorkers, maxInFlight);
+        }
+        if (minInterval != interval || maxInterval != interval) {
+            client.setAdaptiveInterval(new AdaptivePollInterval(minInterval, maxInterval));
+        }
+        client.setTickGated(tickGated);
+        client.setPollScheduler(new PollScheduler(overrunPolicy));
+        client.setMetricsInterval(metricsInterval);
+        client.setPositionStreaming(positionStream, positionDeadband);
+        client.setShard(shard);
+        client.setReconnectPolicy(reconnectInitialDelay, reconnectMaxDelay, reconnectMaxAttempts);
+        // without a PLC the building is dead, the process exits so that its supervisor restarts it
+        client.getReconnector().setFailureHandler(() -> {
+            logger.log(Level.SEVERE, "PLC of {0} unreachable, exiting", topicPrefix.isEmpty() ? "the building" : topicPrefix);
+            System.exit(1);
+        });
+        client.setCommandSuppression(suppressCommands);
+        client.setStateFrames(stateFrames, stateFramesOnly);
+        client.setDeltaFrames(deltaFrames, deltaFramesOnly, keyframeInterval);
+        if (!journalPath.isEmpty()) {
+            client.setJournal(new SnapshotJournal(Path.of(journalPath), journalSegmentSize, journalMaxSegments));
+        }
+        for (PollFieldClass fieldClass : PollFieldClass.values()) {
+            String cadence = properties.getProperty("poll.cadence." + fieldClass.name().toLowerCase());
+            if (cadence != null) {
+                client.setPollingCadence(fieldClass, Long.parseLong(cadence));
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Sets the URL of the PLC which is used to reconnect
+     * @param plcUrl The URL, null to read it from the property file
+     */
+    public void setPlcUrl(String plcUrl) {
+        mPlcFactory = PlcFactory.rmi(plcUrl);
+    }
+
+    /**
+     * Sets the backend of the PLC which is used to reconnect. An in-process backend is reattached, not looked up
+     * @param plcFactory The backend
+     */
+    public void setPlcFactory(PlcFactory plcFactory) {
+        mPlcFactory = plcFactory;
+    }
+
+    /**
+     * Returns the backend of the PLC which is used to reconnect
+     * @return The backend
+     */
+    public PlcFactory getPlcFactory() {
+        return mPlcFactory;
+    }
+
+    /**
+     * Sets the scheduler of the poll cycles, which may be shared by several buildings
+     * @param scheduler The scheduler, null to create a dedicated one on {@link #run(int)}
+     */
+    public void setScheduler(ScheduledExecutorService scheduler) {
+        mScheduler = scheduler;
+    }
+
+    /**
+     * Returns the prefix of all topics
+     * @return The prefix, empty for a single building
+     */
+    public String getTopicPrefix() {
+        return mTopicPrefix;
+    }
+
+    /**
+     * Enables parallel polling of the PLC
+     * @param executor The executor to read on, null to poll sequentially
+     * @param floorBlockSize The number of floors read by one task
+     */
+    public void setParallelPolling(ExecutorService executor, int floorBlockSize) {
+        mControlSystem.setParallelPolling(executor, floorBlockSize);
+        mPollExecutor = executor;
+        mFloorBlockSize = floorBlockSize;
+    }
+
+    /**
+     * Enables pipelined polling, which issues all reads of a cycle at once and overlaps their round trips
+     * @param workers The RMI worker threads, null to read with blocking calls
+     * @param maxInFlight The maximum number of RMI calls in flight
+     */
+    public void setAsyncPolling(ExecutorService workers, int maxInFlight) {
+        mControlSystem.setAsyncPolling(workers == null ? null : new AsyncElevator(mPLC, workers, maxInFlight));
+        mAsyncWorkers = workers;
+        mMaxInFlight = maxInFlight;
+    }
+
+    /**
+     * Sets how often a field class is polled
+     * @param fieldClass The field class
+     * @param cadence The minimum time between two polls of the field class in milliseconds
+     */
+    public void setPollingCadence(PollFieldClass fieldClass, long cadence) {
+        mControlSystem.setPollingCadence(fieldClass, cadence);
+        mPollingCadences.put(fieldClass, cadence);
+    }
+
+    /**
+     * Enables the adaptive polling interval, which replaces the fixed interval passed to {@link #run(int)}
+     * @param adaptiveInterval The adaptive interval, null for a fixed interval
+     */
+    public void setAdaptiveInterval(AdaptivePollInterval adaptiveInterval) {
+        mAdaptiveInterval = adaptiveInterval;
+    }
+
+    /**
+     * Returns the adaptive polling interval
+     * @return The adaptive interval, null if a fixed interval is used
+     */
+    public AdaptivePollInterval getAdaptiveInterval() {
+        return mAdaptiveInterval;
+    }
+
+    /**
+     * Sets the schedule of the poll cycles, which defines how overruns are handled
+     * @param pollScheduler The poll scheduler
+     */
+    public void setPollScheduler(PollScheduler pollScheduler) {
+        mPollScheduler = pollScheduler;
+    }
+
+    /**
+     * Returns the schedule of the poll cycles, which holds the cycle duration, lateness and overrun counters
+     * @return The poll scheduler
+     */
+    public PollScheduler getPollScheduler() {
+        return mPollScheduler;
+    }
+
+    /**
+     * Sets the interval at which the latency histograms are published to metrics/adapter/...
+     * @param metricsInterval The interval in milliseconds, 0 to publish them on demand only
+     */
+    public void setMetricsInterval(long metricsInterval) {
+        if (metricsInterval < 0) {
+            throw new IllegalArgumentException("Invalid metrics interval");
+        }
+        mMetricsInterval = metricsInterval;
+    }
+
+    /**
+     * Returns the durations of the poll cycles
+     * @return The histogram in microseconds
+     */
+    public LatencyHistogram getCycleTime() {
+        return mCycleTime;
+    }
+
+    /**
+     * Returns the durations of the RMI reads of the poll cycles
+     * @return The histogram in microseconds
+     */
+    public LatencyHistogram getRmiTime() {
+        return mRmiTime;
+    }
+
+    /**
+     * Returns the durations of the MQTT publishes of the poll cycles
+     * @return The histogram in microseconds
+     */
+    public LatencyHistogram getPublishTime() {
+        return mPublishTime;
+    }
+
+    /**
+     * Returns the lateness of the poll cycles, i.e. their jitter against the schedule
+     * @return The histogram in microseconds
+     */
+    public LatencyHistogram getLateness() {
+        return mLateness;
+    }
+
+    /**
+     * Sets the delays between the attempts to reconnect to RMI
+     * @param initialDelay The delay before the first retry in milliseconds, doubled with every failed attempt
+     * @param maxDelay The upper bound of the delay in milliseconds
+     * @param maxAttempts The maximum number of attempts per outage, 0 to retry forever
+     */
+    public void setReconnectPolicy(long initialDelay, long maxDelay, int maxAttempts) {
+        if (mReconnector != null) {
+            mReconnector.shutdown();
+        }
+        mReconnector = new RmiReconnector(this::reconnectToRMI,
+                new ReconnectBackoff(initialDelay, maxDelay, 0.5, new Random()), maxAttempts);
+    }
+
+    /**
+     * Enables the suppression of commands which match the polled state of the PLC or a write still in flight
+     * @param suppression True to drop such commands, false to write every command
+     */
+    public void setCommandSuppression(boolean suppression) {
+        mCommandSuppression = suppression;
+        if (mCommandWriter != null) {
+            mCommandWriter.setSuppression(suppression);
+        }
+    }
+
+    /**
+     * Enables the elevator/&lt;n&gt;/state frames, which carry all fields of an elevator in one binary message
+     * and are published once per cycle for every elevator which changed. The bundled algorithm decodes the
+     * frames as well, so it keeps working if they replace the field topics
+     * @param enabled True to publish the frames, false otherwise
+     * @param replaceFieldTopics True to publish the fields of the elevators in the frames only, false to
+     *                           publish them on their own topics as well
+     */
+    public void setStateFrames(boolean enabled, boolean replaceFieldTopics) {
+        mStateFrames = enabled;
+        mStateFramesOnly = enabled && replaceFieldTopics;
+    }
+
+    /**
+     * Enables the building delta frames, which carry the fields changed during a poll cycle in one binary
+     * message. A keyframe with all fields is published after the initialization and then periodically, retained,
+     * so late subscribers can resync
+     * @param enabled True to publish the frames, false otherwise
+     * @param replaceFieldTopics True to publish the fields in the frames only, false to publish them on their
+     *                           own topics as well
+     * @param keyframeInterval The interval of the keyframes in milliseconds, 0 for a keyframe every cycle
+     */
+    public void setDeltaFrames(boolean enabled, boolean replaceFieldTopics, long keyframeInterval) {
+        if (keyframeInterval < 0)
+            throw new IllegalArgumentException("Invalid keyframe interval");
+
+        mDeltaFrames = enabled;
+        mDeltaFramesOnly = enabled && replaceFieldTopics;
+        mKeyframeInterval = keyframeInterval;
+    }
+
+    /**
+     * Returns the writer of the commands of the algorithm
+     * @return The writer, null before the elevators are initialized
+     */
+    public PlcCommandWriter getCommandWriter() {
+        return mCommandWriter;
+    }
+
+    /**
+     * Returns the state machine of the RMI connection
+     * @return The state machine, with the reconnect attempts and the downtime
+     */
+    public RmiReconnector getReconnector() {
+        return mReconnector;
+    }
+
+    /**
+     * Formats the latency histograms and the polling interval for logging
+     * @return The formatted histograms in microseconds and the polling interval in milliseconds
+     */
+    public String dumpMetrics() {
+        return "cycle_time=" + mCycleTime.format() + " rmi_time=" + mRmiTime.format()
+                + " publish_time=" + mPublishTime.format() + " lateness=" + mLateness.format()
+                + " overruns=" + mPollScheduler.getOverrunCount() + " skipped_ticks=" + mPollScheduler.getSkippedTicks()
+                + " rmi_state=" + mReconnector.getState() + " reconnect_attempts=" + mReconnector.getAttemptCount()
+                + " reconnects=" + mReconnector.getReconnectCount() + " downtime=" + mReconnector.getDowntime().format()
+                + (mAdaptiveInterval == null ? "" : " poll_interval=" + mAdaptiveInterval.format())
+                + (mCommandWriter == null ? "" : " commands_submitted=" + mCommandWriter.getSubmittedCount()
+                + " commands_written=" + mCommandWriter.getWrittenCount()
+                + " commands_coalesced=" + mCommandWriter.getCoalescedCount()
+                + " commands_suppressed=" + mCommandWriter.getSuppressedCount());
+    }
+
+    /**
+     * Enables the clock tick gated polling. A cycle is skipped if the clock tick of the PLC has not advanced
+     * and every published update is stamped with the clock tick.
+     * @param tickGated True to gate the polling by the clock tick, false to poll every cycle
+     */
+    public void setTickGated(boolean tickGated) {
+        mClockTickGate = tickGated ? new ClockTickGate() : null;
+    }
+
+    /**
+     * Returns the clock tick gate
+     * @return The clock tick gate, null if every cycle is polled
+     */
+    public ClockTickGate getClockTickGate() {
+        return mClockTickGate;
+    }
+
+    /**
+     * Enables the elevator/&lt;n&gt;/position stream, which is only polled for moving elevators
+     * @param enabled True to publish the position, false otherwise
+     * @param deadband The minimum change of the position of a moving elevator which is published, in feet
+     */
+    public void setPositionStreaming(boolean enabled, int deadband) {
+        mControlSystem.setPositionStreaming(enabled);
+        mControlSystem.setPositionDeadband(deadband);
+        mPositionStreaming = enabled;
+        mPositionDeadband = deadband;
+    }
+
+    /**
+     * Records the raw values of every poll cycle to a journal, which can be replayed by {@link JournalReplayElevator}
+     * @param journal The journal, null to record nothing
+     */
+    public void setJournal(SnapshotJournal journal) {
+        mJournal = journal;
+    }
+
+    /**
+     * Restricts the instance to a part of the building, so several instances can share the RMI load
+     * @param shard The part of the building, {@link ElevatorShard#ALL} for the whole building
+     */
+    public void setShard(ElevatorShard shard) {
+        mControlSystem.setShard(shard);
+        mShard = shard;
+    }
+
     /**
      * Run method
      * @param interval The polling interval
@@ -99,11 +621,10 @@ public class ElevatorMqttAdapter {
      * @throws InterruptedException if the thread gets interrupted
      */
     public void run(int interval) throws RemoteException, InterruptedException {
-        // if run method is called -> RMI connected
-        mRmiIsConnected = true;
-
         // Initialize elevators and floors
         mControlSystem.initializeElevatorsViaPLC();
+        beginJournal();
+        createCommandWriter();
 
         // check broker connection
         while (!connectToBroker()) {
@@ -121,61 +642,272 @@ public class ElevatorMqttAdapter {
             Thread.sleep(500);
         }
 
-        Timer timer = new Timer();
-        timer.scheduleAtFixedRate(new TimerTask() {
-            boolean initial = true;
-            @Override
-            public void run() {
-                if (mRmiIsConnected && mConnectionStatus && (System.currentTimeMillis() - mConnectionStatusTimestamp < 500)) {
-                    pollPLC(initial);
-                    initial = false;
-                }
-                else {
-                    mConnectionStatus = false;
-                }
-            }
-        }, 0, interval);
+        schedulePolling(interval);
+    }
+
+    /**
+     * Starts one of several buildings which share the MQTT client and the scheduler. Unlike {@link #run(int)}
+     * it does not wait for the algorithm, the poll cycles start publishing once its connection status arrives.
+     * @param interval The polling interval
+     * @throws RemoteException if plc gets disconnected
+     * @throws InterruptedException if the thread gets interrupted
+     */
+    public void start(int interval) throws RemoteException, InterruptedException {
+        mControlSystem.initializeElevatorsViaPLC();
+        beginJournal();
+        createCommandWriter();
+
+        // the MQTT connection is established by the first building
+        while (!mMqttClient.getState().isConnected() && !connectToBroker()) {
+            logger.info("Failed to connect to broker. Retrying in 5 seconds...");
+            Thread.sleep(5000);
+        }
+
+        publishRetainedMessages();
+        subscribeToTopics();
+        schedulePolling(interval);
+    }
+
+    /**
+     * Schedules the first poll cycle
+     * @param interval The polling interval
+     */
+    private void schedulePolling(int interval) {
+        if (mAdaptiveInterval == null) {
+            mAdaptiveInterval = new AdaptivePollInterval(interval, interval);
+        }
+
+        if (mScheduler == null) {
+            mScheduler = Executors.newSingleThreadScheduledExecutor();
+        }
+        mPollScheduler.start(System.currentTimeMillis());
+        mScheduler.execute(this::pollCycle);
+    }
+
+    /**
+     * Runs one poll cycle and schedules the next one
+     */
+    private void pollCycle() {
+        long start = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+        mAdaptiveInterval.recordPoll(start);
+        mLateness.record(mPollScheduler.cycleStarted(start) * 1000);
+
+        boolean fleetActive = false;
+        if (mReconnector.isConnected() && mConnectionStatus && (start - mConnectionStatusTimestamp < 500)) {
+            boolean polled = pollPLC(mInitialPoll);
+            mInitialPoll = false;
+            fleetActive = mControlSystem.isFleetActive() || (polled && mControlSystem.hasUpdates());
+        }
+        else {
+            mConnectionStatus = false;
+            // keep checking the connection status of the algorithm at the fast rate
+            fleetActive = true;
+        }
+
+        long previousInterval = mAdaptiveInterval.getCurrentInterval();
+        long interval = mAdaptiveInterval.nextInterval(fleetActive);
+        if (interval != previousInterval) {
+            logger.log(Level.FINE, "Polling interval changed to {0} ms ({1} polls/s)",
+                    new Object[]{interval, String.format("%.2f", mAdaptiveInterval.getEffectiveRate())});
+        }
+
+        mCycleTime.record((System.nanoTime() - startNanos) / 1000);
+        if (mMetricsInterval > 0 && start - mMetricsTimestamp >= mMetricsInterval) {
+            publishMetrics(true);
+            mMetricsTimestamp = start;
+        }
+
+        long skippedTicks = mPollScheduler.getSkippedTicks();
+        long delay = mPollScheduler.cycleFinished(System.currentTimeMillis(), interval);
+        if (mPollScheduler.getSkippedTicks() != skippedTicks) {
+            logger.log(Level.FINE, "Poll cycle overran by {0} ms, skipped {1} ticks",
+                    new Object[]{mPollScheduler.getLastCycleDuration() - interval, mPollScheduler.getSkippedTicks() - skippedTicks});
+        }
+        mScheduler.schedule(this::pollCycle, delay, TimeUnit.MILLISECONDS);
     }
 
     /**
      * Poll the PLC
      * @param initial If the poll is initial
+     * @return False if the cycle was skipped because the clock tick has not advanced, true otherwise
      */
-    private void pollPLC(boolean initial) {
+    private boolean pollPLC(boolean initial) {
         try {
+            Mqtt5UserProperties userProperties = Mqtt5UserProperties.of();
+            long clockTick = -1;
+            if (mClockTickGate != null || mJournal != null || mDeltaFrames) {
+                clockTick = mControlSystem.readClockTick();
+            }
+            if (mClockTickGate != null) {
+                if (!mClockTickGate.advance(clockTick, initial)) {
+                    return false;
+                }
+                userProperties = Mqtt5UserProperties.of(
+                        Mqtt5UserProperty.of(MqttTopics.CLOCK_TICK_PROPERTY, String.valueOf(clockTick)));
+            }
+
+            long rmiStart = System.nanoTime();
             if(initial){
                 mControlSystem.initialUpdateDataViaPLC();
             }
             else {
                 mControlSystem.updateDataViaPLC();
             }
+            if (mJournal != null) {
+                recordJournal(clockTick);
+            }
+            observeCommands();
+            long publishStart = System.nanoTime();
+            mRmiTime.record((publishStart - rmiStart) / 1000);
 
-            var topicsToPublish = mControlSystem.getUpdateTopics();
+            DirtyFieldSet dirtyFields = mControlSystem.getDirtyFields();
 
-            // Publish to MQTT
-            for (var entry : topicsToPublish.entrySet()) {
-                String topic = entry.getKey();
-                Either<Integer, Boolean> value = entry.getValue();
+            if (mStateFrames && mChangedElevators.length != dirtyFields.getNumOfElevators()) {
+                mChangedElevators = new boolean[dirtyFields.getNumOfElevators()];
+            }
+
+            // Publish the changed fields to MQTT
+            for (int i = dirtyFields.nextSetBit(0); i >= 0; i = dirtyFields.nextSetBit(i + 1)) {
+                if (mStateFrames && !dirtyFields.fieldOf(i).isFloorField()) {
+                    mChangedElevators[dirtyFields.elevatorOf(i)] = true;
+                    if (mStateFramesOnly) {
+                        continue;
+                    }
+                }
+                if (mDeltaFramesOnly) {
+                    continue;
+                }
+
+                MqttTopic topic = mControlSystem.getMqttTopic(i);
+                int value = mControlSystem.getFieldValue(i);
 
-                if (value.isLeft()) {
-                    int intValue = value.getLeft();
-                    mMqttClient.publishWith().topic(topic).payload(String.valueOf(intValue).getBytes()).send();
+                if (!dirtyFields.fieldOf(i).isFlag()) {
+                    publish(topic, PayloadEncoder.encode(value), false, userProperties);
                 } else {
-                    boolean boolValue = value.get();
-                    mMqttClient.publishWith().topic(topic).payload(String.valueOf(boolValue).getBytes()).send();
+                    publish(topic, PayloadEncoder.encode(value != 0), false, userProperties);
                 }
             }
+            if (mStateFrames) {
+                publishStateFrames(userProperties);
+            }
+            if (mDeltaFrames) {
+                publishDeltaFrame(initial, clockTick, userProperties);
+            }
+            mPublishTime.record((System.nanoTime() - publishStart) / 1000);
         }
         catch (Exception e) {
-            // check if mqtt callback already caught rmi exception
-            // prevent duplicate reconnect
-            if (mRmiIsConnected) {
-                mRmiIsConnected = false;
-                reconnectToRMI();
+            // only the first of the poll thread and the mqtt callback starts the reconnect worker
+            mReconnector.connectionLost();
+        }
+
+        return true;
+    }
+
+    /**
+     * Publishes the state frame of every elevator which changed during the poll cycle
+     * @param userProperties The user properties of the poll cycle, e.g. the clock tick
+     */
+    private void publishStateFrames(Mqtt5UserProperties userProperties) {
+        int numOfFloors = mControlSystem.getFloors().length;
+        if (mStateFrame == null || mStateFrame.getNumOfFloors() != numOfFloors) {
+            mStateFrame = new ElevatorStateFrame(numOfFloors);
+        }
+
+        for (int i = 0; i < mChangedElevators.length; i++) {
+            if (mChangedElevators[i]) {
+                mChangedElevators[i] = false;
+                mControlSystem.fillStateFrame(i, mStateFrame);
+                publish(mControlSystem.getTopicRegistry().getStateTopic(i), mStateFrame.encode(), false, userProperties);
+            }
+        }
+    }
+
+    /**
+     * Publishes the delta frame of the poll cycle, or a keyframe if it is the initial one or the interval elapsed
+     * @param initial If the poll is initial
+     * @param clockTick The clock tick of the PLC
+     * @param userProperties The user properties of the poll cycle, e.g. the clock tick
+     */
+    private void publishDeltaFrame(boolean initial, long clockTick, Mqtt5UserProperties userProperties) {
+        int numOfElevators = mControlSystem.getElevators().length;
+        int numOfFloors = mControlSystem.getFloors().length;
+        if (mDeltaFrame == null || mDeltaFrame.getNumOfElevators() != numOfElevators
+                || mDeltaFrame.getNumOfFloors() != numOfFloors) {
+            mDeltaFrame = new BuildingDeltaFrame(numOfElevators, numOfFloors);
+            // every instance of a sharded building numbers its own stream
+            MqttTopic topic = mControlSystem.getTopicRegistry().getDeltaTopic();
+            mDeltaTopic = mShard.isWholeBuilding() ? topic
+                    : MqttTopic.of(topic + "/" + mShard.getFromElevator() + "_" + mShard.getFromFloor());
+        }
+
+        long now = System.currentTimeMillis();
+        boolean keyframe = initial || now - mKeyframeTimestamp >= mKeyframeInterval;
+        if (!keyframe && !mControlSystem.hasUpdates()) {
+            return;
+        }
+
+        mDeltaFrame.begin(mDeltaSequence++, clockTick, keyframe);
+        mControlSystem.fillDeltaFrame(mDeltaFrame);
+        if (keyframe) {
+            mKeyframeTimestamp = now;
+        }
+        // only the keyframes are retained, a subscriber drops the deltas until it has one
+        publish(mDeltaTopic, mDeltaFrame.encode(), keyframe, userProperties);
+    }
+
+    /**
+     * Hands the polled targets and directions to the command writer, which drops commands matching them
+     */
+    private void observeCommands() {
+        PlcCommandWriter commandWriter = mCommandWriter;
+        if (commandWriter == null || !commandWriter.isSuppression()) {
+            return;
+        }
+
+        PlcSnapshot snapshot = mControlSystem.getSnapshot();
+        for (int i = 0; i < commandWriter.getNumOfElevators(); i++) {
+            if (mShard.ownsElevator(i)) {
+                commandWriter.observe(i, snapshot.getTargetFloor(i), snapshot.getDirection(i));
             }
         }
     }
 
+    /**
+     * Starts a new journal segment for the building, called after every initialization of the elevators
+     */
+    private void beginJournal() {
+        if (mJournal == null) {
+            return;
+        }
+
+        int[] capacities = new int[mControlSystem.getElevators().length];
+        for (int i = 0; i < capacities.length; i++) {
+            capacities[i] = mControlSystem.getElevators()[i].getCapacity();
+        }
+
+        try {
+            mJournal.begin(mControlSystem.getFloors().length, mControlSystem.getFloorHeight(), capacities);
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not start the journal, recording disabled: {0}", e.getMessage());
+            mJournal = null;
+        }
+    }
+
+    /**
+     * Appends the values of the poll cycle to the journal
+     * @param clockTick The clock tick of the PLC
+     */
+    private void recordJournal(long clockTick) {
+        try {
+            mJournal.append(mControlSystem.getSnapshot(), clockTick, System.currentTimeMillis());
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Could not append to the journal, recording disabled: {0}", e.getMessage());
+            mJournal.close();
+            mJournal = null;
+        }
+    }
+
     /**
      * Connect to the mqtt broker
      * @return True if the connection was successful, false otherwise
@@ -201,40 +933,85 @@ public class ElevatorMqttAdapter {
      * Publish retained messages
      */
     private void publishRetainedMessages() {
-        mMqttClient.publishWith()
-                .topic(MqttTopics.INFO_TOPIC + MqttTopics.NUM_OF_ELEVATORS_SUBTOPIC).retain(true)
-                .payload(String.valueOf(mControlSystem.getElevators().length).getBytes()).send();
-        mMqttClient.publishWith()
-                .topic(MqttTopics.INFO_TOPIC + MqttTopics.NUM_OF_FLOORS_SUBTOPIC).retain(true)
-                .payload(String.valueOf(mControlSystem.getFloors().length).getBytes()).send();
-        mMqttClient.publishWith()
-                .topic(MqttTopics.INFO_TOPIC + MqttTopics.FLOOR_HEIGHT_SUBTOPIC).retain(true)
-                .payload(String.valueOf(mControlSystem.getFloorHeight()).getBytes()).send();
-
         for (int i = 0; i < mControlSystem.getElevators().length; i++) {
-            mMqttClient.publishWith()
-                    .topic(MqttTopics.ELEVATOR_TOPIC + "/" + i + MqttTopics.CAPACITY_SUBTOPIC).retain(true)
-                    .payload(String.valueOf(mControlSystem.getElevators()[i].getCapacity()).getBytes()).send();
+            if (mShard.ownsElevator(i)) {
+                publish(MqttTopic.of(mTopicPrefix + MqttTopics.ELEVATOR_TOPIC + "/" + i + MqttTopics.CAPACITY_SUBTOPIC),
+                        PayloadEncoder.encode(mControlSystem.getElevators()[i].getCapacity()), true, Mqtt5UserProperties.of());
+            }
         }
+
+        // only one instance of a sharded building publishes the info topics
+        if (!mShard.publishesInfo()) {
+            return;
+        }
+
+        publish(MqttTopic.of(mTopicPrefix + MqttTopics.INFO_TOPIC + MqttTopics.NUM_OF_ELEVATORS_SUBTOPIC),
+                PayloadEncoder.encode(mControlSystem.getElevators().length), true, Mqtt5UserProperties.of());
+        publish(MqttTopic.of(mTopicPrefix + MqttTopics.INFO_TOPIC + MqttTopics.NUM_OF_FLOORS_SUBTOPIC),
+                PayloadEncoder.encode(mControlSystem.getFloors().length), true, Mqtt5UserProperties.of());
+        publish(MqttTopic.of(mTopicPrefix + MqttTopics.INFO_TOPIC + MqttTopics.FLOOR_HEIGHT_SUBTOPIC),
+                PayloadEncoder.encode(mControlSystem.getFloorHeight()), true, Mqtt5UserProperties.of());
+    }
+
+    /**
+     * Publish the latency histograms and the polling interval
+     * @param reset True to start a new measurement window after publishing
+     */
+    private void publishMetrics(boolean reset) {
+        publishHistogram(MqttTopics.CYCLE_TIME_SUBTOPIC, mCycleTime, reset);
+        publishHistogram(MqttTopics.RMI_TIME_SUBTOPIC, mRmiTime, reset);
+        publishHistogram(MqttTopics.PUBLISH_TIME_SUBTOPIC, mPublishTime, reset);
+        publishHistogram(MqttTopics.LATENESS_SUBTOPIC, mLateness, reset);
+        publishHistogram(MqttTopics.RECONNECT_DOWNTIME_SUBTOPIC, mReconnector.getDowntime(), reset);
+        AdaptivePollInterval adaptiveInterval = mAdaptiveInterval;
+        if (adaptiveInterval != null) {
+            publish(MqttTopic.of(mTopicPrefix + MqttTopics.ADAPTER_METRICS_TOPIC + MqttTopics.POLL_INTERVAL_SUBTOPIC),
+                    adaptiveInterval.format().getBytes(), false, Mqtt5UserProperties.of());
+        }
+    }
+
+    /**
+     * Publish a latency histogram
+     * @param subtopic The subtopic below the adapter metrics topic
+     * @param histogram The histogram
+     * @param reset True to reset the histogram after publishing
+     */
+    private void publishHistogram(String subtopic, LatencyHistogram histogram, boolean reset) {
+        publish(MqttTopic.of(mTopicPrefix + MqttTopics.ADAPTER_METRICS_TOPIC + subtopic),
+                histogram.format().getBytes(), false, Mqtt5UserProperties.of());
+        if (reset) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Publish a message, every message of the adapter is published via this method
+     * @param topic The topic
+     * @param payload The payload
+     * @param retain True to retain the message
+     * @param userProperties The user properties, e.g. the clock tick
+     */
+    private void publish(MqttTopic topic, byte[] payload, boolean retain, Mqtt5UserProperties userProperties) {
+        mMqttClient.publish(Mqtt5Publish.builder().topic(topic).userProperties(userProperties).retain(retain)
+                .payload(payload).build());
     }
 
     /**
      * Subscribe to elevator control topics
      */
     private void subscribeToTopics() {
-        mMqttClient.subscribeWith()
-                .topicFilter(MqttTopics.ELEVATOR_CONTROL_TOPIC + "/#")
-                .callback(this::mqttCallback)
-                .send();
+        mMqttClient.subscribe(Mqtt5Subscribe.builder()
+                .topicFilter(mTopicPrefix + MqttTopics.ELEVATOR_CONTROL_TOPIC + "/#")
+                .build(), this::mqttCallback);
     }
 
     /**
      * Unsubscribe from elevator control topics
      */
     private void unsubscribeFromTopics() {
-        mMqttClient.unsubscribeWith()
-                .topicFilter(MqttTopics.ELEVATOR_CONTROL_TOPIC + "/#")
-                .send();
+        mMqttClient.unsubscribe(Mqtt5Unsubscribe.builder()
+                .topicFilter(mTopicPrefix + MqttTopics.ELEVATOR_CONTROL_TOPIC + "/#")
+                .build());
     }
 
     /**
@@ -242,7 +1019,7 @@ public class ElevatorMqttAdapter {
      * @param publish the mqtt message (topic + payload)
      */
     private void mqttCallback(Mqtt5Publish publish) {
-        String topic = publish.getTopic().toString();
+        String topic = publish.getTopic().toString().substring(mTopicPrefix.length());
         String[] parts = topic.split("/");
 
         if (parts.length == 2) {
@@ -250,6 +1027,10 @@ public class ElevatorMqttAdapter {
                 mConnectionStatus = (Boolean.parseBoolean(new String(publish.getPayloadAsBytes())));
                 mConnectionStatusTimestamp = System.currentTimeMillis();
             }
+            else if(("/" + parts[1]).equals(MqttTopics.DUMP_METRICS_SUBTOPIC)) {
+                logger.log(Level.INFO, "Adapter metrics: {0}", dumpMetrics());
+                publishMetrics(false);
+            }
             else {
                 logger.log(Level.WARNING, "Unknown subtopic in subscribeToTopics: {0}", topic);
             }
@@ -265,73 +1046,101 @@ public class ElevatorMqttAdapter {
         int elevatorNumber = Integer.parseInt(parts[1]);
         String subtopic = "/" + parts[2];
 
+        // the elevator is controlled via the instance which serves it
+        if (!mShard.ownsElevator(elevatorNumber)) {
+            return;
+        }
+
+        // the commands are coalesced and written on the writer thread, the mqtt callback thread must not block
+        PlcCommandWriter commandWriter = mCommandWriter;
+        if (commandWriter == null) {
+            return;
+        }
+
         try {
             switch (subtopic) {
                 case MqttTopics.TARGET_FLOOR_SUBTOPIC:
-                    mPLC.setTarget(elevatorNumber, Integer.parseInt(new String(publish.getPayloadAsBytes())));
+                    commandWriter.setTarget(elevatorNumber, Integer.parseInt(new String(publish.getPayloadAsBytes())));
                     break;
                 case MqttTopics.DIRECTION_SUBTOPIC:
-                    mPLC.setCommittedDirection(elevatorNumber, Integer.parseInt(new String(publish.getPayloadAsBytes())));
+                    commandWriter.setCommittedDirection(elevatorNumber, Integer.parseInt(new String(publish.getPayloadAsBytes())));
                     break;
                 default:
                     logger.log(Level.WARNING, "Unknown subtopic in subscribeToTopics: {0}", topic);
                     break;
             }
-        } catch (RemoteException e) {
-            // check if timer task already caught remote exception
-            // prevent duplicate reconnect
-            if (mRmiIsConnected) {
-                mRmiIsConnected = false;
-                reconnectToRMI();
-            }
+        } catch (IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Invalid command on {0}: {1}", new Object[]{topic, e.getMessage()});
         }
     }
 
     /**
-     * Reconnect to RMI
+     * Creates the command slots for the initialized elevators, called after every initialization of the elevators
      */
-    private void reconnectToRMI() {
+    private void createCommandWriter() {
+        if (mCommandExecutor == null) {
+            mCommandExecutor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "plc-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        mCommandWriter = new PlcCommandWriter(mControlSystem.getElevators().length, () -> mPLC, mCommandExecutor,
+                e -> mReconnector.connectionLost());
+        mCommandWriter.setSuppression(mCommandSuppression);
+    }
+
+    /**
+     * Rebuilds the control system for a changed topology and publishes the whole building
+     * @throws RemoteException if plc gets disconnected
+     */
+    private void reinitialize() throws RemoteException {
+        mControlSystem = new ElevatorControlSystem(mPLC);
+        mControlSystem.setTopicPrefix(mTopicPrefix);
+        mControlSystem.setShard(mShard);
+        mControlSystem.setParallelPolling(mPollExecutor, mFloorBlockSize);
+        mControlSystem.setAsyncPolling(mAsyncWorkers == null ? null : new AsyncElevator(mPLC, mAsyncWorkers, mMaxInFlight));
+        mPollingCadences.forEach(mControlSystem::setPollingCadence);
+        mControlSystem.setPositionStreaming(mPositionStreaming);
+        mControlSystem.setPositionDeadband(mPositionDeadband);
+        mControlSystem.initializeElevatorsViaPLC();
+        beginJournal();
+        createCommandWriter();
+        publishRetainedMessages();
+        subscribeToTopics();
+        // the next poll cycle publishes the whole building
+        mInitialPoll = true;
+    }
+
+    /**
+     * One attempt to reconnect to RMI, run by the reconnect worker. If the topology of the building is
+     * unchanged, the state model is kept and the next poll cycle only publishes the differences.
+     * @throws Exception if the PLC cannot be reached
+     */
+    private void reconnectToRMI() throws Exception {
         // unsubscribe from incoming mqtt messages
         unsubscribeFromTopics();
-        String plcUrl = "";
-        logger.info("Trying to reconnect to RMI...");
-        try {
-            // Read from property file
-            Properties properties = new Properties();
-            properties.load(new FileInputStream("resources/elevator.properties"));
 
-            plcUrl = properties.getProperty("plc.url");
+        // an in-process backend returns the same instance, a caching PLC keeps its configuration
+        IElevator plc = mPlcFactory.connect();
+        if (mPLC instanceof CachingElevator cachingPlc) {
+            cachingPlc.setDelegate(plc);
         }
-        catch (IOException e) {
-            logger.log(Level.SEVERE, "Could not load elevator.properties: {0}", e.getMessage());
-            System.exit(1);
+        else {
+            mPLC = plc;
         }
 
-        boolean shouldReconnect = true;
-
-        while (shouldReconnect) {
-            try {
-                // Attempt to reconnect to RMI
-                mPLC = (IElevator) Naming.lookup(plcUrl);
-                mRmiIsConnected = true;
-                mControlSystem = new ElevatorControlSystem(mPLC);
-                mControlSystem.initializeElevatorsViaPLC();
-                publishRetainedMessages();
-                subscribeToTopics();
-                pollPLC(true);
-                logger.info("Reconnected to RMI successfully.");
-                shouldReconnect = false; // Exit the loop once reconnected
-            } catch (Exception e) {
-                logger.warning("Failed to reconnect to RMI!");
-                try {
-                    // Wait before retrying
-                    Thread.sleep(5000);
-                } catch (InterruptedException interruptedException) {
-                    Thread.currentThread().interrupt();
-                    logger.severe("Reconnection wait interrupted.");
-                    shouldReconnect = false; // Exit loop on interruption
-                }
-            }
+        if (mControlSystem.reattach(mPLC)) {
+            // warm reconnect, the retained messages and the published state are still valid
+            mControlSystem.setAsyncPolling(mAsyncWorkers == null ? null : new AsyncElevator(mPLC, mAsyncWorkers, mMaxInFlight));
+            // the PLC may have lost the commands written before the outage
+            mCommandWriter.clearLedger();
+            subscribeToTopics();
+            logger.info("Topology unchanged, publishing the differences only.");
+        }
+        else {
+            reinitialize();
+            logger.info("Topology changed, publishing the whole building.");
         }
     }
 }
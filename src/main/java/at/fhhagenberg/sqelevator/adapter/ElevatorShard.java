@@ -0,0 +1,145 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+/**
+ * Class which describes the part of a building served by one of several adapter instances.
+ * Every instance polls and publishes the elevators and hall buttons of its ranges only, so the RMI
+ * calls per cycle are split across the instances. Exactly one instance publishes the info topics.
+ */
+public class ElevatorShard {
+    /**< The shard which serves the whole building. */
+    public static final ElevatorShard ALL = new ElevatorShard(0, Integer.MAX_VALUE, 0, Integer.MAX_VALUE, true);
+
+    /**< The first elevator (inclusive). */
+    private final int mFromElevator;
+    /**< The last elevator (exclusive), clamped to the number of elevators. */
+    private final int mToElevator;
+    /**< The first floor whose hall buttons are served (inclusive). */
+    private final int mFromFloor;
+    /**< The last floor whose hall buttons are served (exclusive), clamped to the number of floors. */
+    private final int mToFloor;
+    /**< If the shard publishes the info topics. */
+    private final boolean mPublishesInfo;
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param fromElevator The first elevator (inclusive).
+     * @param toElevator The last elevator (exclusive), {@link Integer#MAX_VALUE} for all remaining ones.
+     * @param fromFloor The first floor whose hall buttons are served (inclusive).
+     * @param toFloor The last floor whose hall buttons are served (exclusive), equal to fromFloor for none.
+     * @param publishesInfo True if the shard publishes the info topics.
+     */
+    public ElevatorShard(int fromElevator, int toElevator, int fromFloor, int toFloor, boolean publishesInfo) {
+        if (fromElevator < 0 || toElevator < fromElevator)
+            throw new IllegalArgumentException("Invalid elevator range");
+
+        if (fromFloor < 0 || toFloor < fromFloor)
+            throw new IllegalArgumentException("Invalid floor range");
+
+        mFromElevator = fromElevator;
+        mToElevator = toElevator;
+        mFromFloor = fromFloor;
+        mToFloor = toFloor;
+        mPublishesInfo = publishesInfo;
+    }
+
+    /**
+     * Creates a shard from its configuration.
+     * @param elevators The elevator range as "from-to" (both inclusive), a single number, or empty for all.
+     * @param floors The floor range of the hall buttons as "from-to" (both inclusive), "none", or empty for all.
+     * @param publishesInfo True if the shard publishes the info topics.
+     * @return The shard.
+     */
+    public static ElevatorShard parse(String elevators, String floors, boolean publishesInfo) {
+        int[] elevatorRange = parseRange(elevators);
+        int[] floorRange = floors != null && floors.trim().equalsIgnoreCase("none") ? new int[]{0, 0} : parseRange(floors);
+        return new ElevatorShard(elevatorRange[0], elevatorRange[1], floorRange[0], floorRange[1], publishesInfo);
+    }
+
+    /**
+     * Returns the first elevator.
+     * @return The first elevator (inclusive).
+     */
+    public int getFromElevator() {
+        return mFromElevator;
+    }
+
+    /**
+     * Returns the last elevator within a building.
+     * @param numOfElevators The number of elevators of the building.
+     * @return The last elevator (exclusive).
+     */
+    public int getToElevator(int numOfElevators) {
+        return Math.max(Math.min(mToElevator, numOfElevators), Math.min(mFromElevator, numOfElevators));
+    }
+
+    /**
+     * Returns the first floor whose hall buttons are served.
+     * @return The first floor (inclusive).
+     */
+    public int getFromFloor() {
+        return mFromFloor;
+    }
+
+    /**
+     * Returns the last floor whose hall buttons are served within a building.
+     * @param numOfFloors The number of floors of the building.
+     * @return The last floor (exclusive).
+     */
+    public int getToFloor(int numOfFloors) {
+        return Math.max(Math.min(mToFloor, numOfFloors), Math.min(mFromFloor, numOfFloors));
+    }
+
+    /**
+     * Returns if the shard serves an elevator.
+     * @param elevatorNumber The elevator number.
+     * @return True if the elevator is served, false otherwise.
+     */
+    public boolean ownsElevator(int elevatorNumber) {
+        return elevatorNumber >= mFromElevator && elevatorNumber < mToElevator;
+    }
+
+    /**
+     * Returns if the shard serves the hall buttons of a floor.
+     * @param floorNumber The floor number.
+     * @return True if the hall buttons are served, false otherwise.
+     */
+    public boolean ownsFloor(int floorNumber) {
+        return floorNumber >= mFromFloor && floorNumber < mToFloor;
+    }
+
+    /**
+     * Returns if the shard serves the whole building.
+     * @return True if all elevators and floors are served, false otherwise.
+     */
+    public boolean isWholeBuilding() {
+        return mFromElevator == 0 && mToElevator == Integer.MAX_VALUE && mFromFloor == 0 && mToFloor == Integer.MAX_VALUE;
+    }
+
+    /**
+     * Returns if the shard publishes the info topics.
+     * @return True if the info topics are published, false otherwise.
+     */
+    public boolean publishesInfo() {
+        return mPublishesInfo;
+    }
+
+    /**
+     * Parses a range.
+     * @param range The range as "from-to" (both inclusive), a single number, or empty for all.
+     * @return The first (inclusive) and last (exclusive) number.
+     */
+    private static int[] parseRange(String range) {
+        if (range == null || range.isBlank()) {
+            return new int[]{0, Integer.MAX_VALUE};
+        }
+
+        String[] bounds = range.trim().split("-");
+        if (bounds.length > 2)
+            throw new IllegalArgumentException("Invalid range: " + range);
+
+        int from = Integer.parseInt(bounds[0].trim());
+        int to = Integer.parseInt(bounds[bounds.length - 1].trim());
+        return new int[]{from, to + 1};
+    }
+}
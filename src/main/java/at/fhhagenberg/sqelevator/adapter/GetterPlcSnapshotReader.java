@@ -0,0 +1,74 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import java.rmi.RemoteException;
+import sqelevator.IElevator;
+
+/**
+ * Snapshot reader which reads every value via its own {@link IElevator} getter.
+ * Used for PLCs which do not support bulk reads.
+ */
+public class GetterPlcSnapshotReader implements PlcSnapshotReader {
+    /**< The PLC to read from. */
+    private final IElevator mPLC;
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param plc The PLC to read from.
+     */
+    public GetterPlcSnapshotReader(IElevator plc) {
+        mPLC = plc;
+    }
+
+    @Override
+    public void readElevator(PlcSnapshot snapshot, int elevatorNumber, int fieldClasses, boolean initial) throws RemoteException {
+        long calls = 0;
+
+        // the speed of the previous cycle is still in the snapshot, a car which just stopped is read once more
+        boolean wasMoving = snapshot.getSpeed(elevatorNumber) != 0;
+
+        if (PollFieldClass.MOTION.isIn(fieldClasses)) {
+            snapshot.setElevator(elevatorNumber,
+                    mPLC.getCommittedDirection(elevatorNumber),
+                    mPLC.getElevatorAccel(elevatorNumber),
+                    mPLC.getElevatorSpeed(elevatorNumber),
+                    mPLC.getElevatorDoorStatus(elevatorNumber),
+                    mPLC.getElevatorFloor(elevatorNumber),
+                    mPLC.getTarget(elevatorNumber),
+                    mPLC.getElevatorWeight(elevatorNumber));
+            calls += 7;
+        }
+
+        if (PollFieldClass.POSITION.isIn(fieldClasses)
+                && (initial || wasMoving || snapshot.getSpeed(elevatorNumber) != 0)) {
+            snapshot.setPosition(elevatorNumber, mPLC.getElevatorPosition(elevatorNumber));
+            ++calls;
+        }
+
+        boolean buttons = PollFieldClass.BUTTONS.isIn(fieldClasses);
+        boolean configuration = PollFieldClass.CONFIGURATION.isIn(fieldClasses);
+
+        for (int i = 0; i < snapshot.getNumOfFloors() && (buttons || configuration); ++i) {
+            if (buttons) {
+                snapshot.setElevatorButton(elevatorNumber, i, mPLC.getElevatorButton(elevatorNumber, i));
+                ++calls;
+            }
+
+            // the ground floor is always serviced, it is only read for the initial publish
+            if (configuration && (i > 0 || initial)) {
+                snapshot.setServicesFloor(elevatorNumber, i, mPLC.getServicesFloors(elevatorNumber, i));
+                ++calls;
+            }
+        }
+
+        snapshot.addRmiCalls(calls);
+    }
+
+    @Override
+    public void readFloors(PlcSnapshot snapshot, int fromFloor, int toFloor) throws RemoteException {
+        for (int i = fromFloor; i < toFloor; ++i) {
+            snapshot.setFloor(i, mPLC.getFloorButtonUp(i), mPLC.getFloorButtonDown(i));
+        }
+        snapshot.addRmiCalls(2L * (toFloor - fromFloor));
+    }
+}
@@ -0,0 +1,185 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+/**
+ * Class which holds the up and down hall buttons of all floors as two bitmaps.
+ * Hall calls are pending on a handful of floors at most, so the diff compares 64 floors per word
+ * and only visits the flipped bits instead of comparing every floor.
+ */
+public class HallCallBitmap {
+    /**
+     * Interface which is notified about a flipped hall button.
+     */
+    @FunctionalInterface
+    public interface FlipListener {
+        /**
+         * Called for every flipped hall button.
+         * @param floorNumber The floor number.
+         * @param up True for the up button, false for the down button.
+         * @param pressed The new status of the button.
+         */
+        void flipped(int floorNumber, boolean up, boolean pressed);
+    }
+
+    /**< The number of floors. */
+    private final int mNumOfFloors;
+    /**< The up buttons, one bit per floor. */
+    private final long[] mUp;
+    /**< The down buttons, one bit per floor. */
+    private final long[] mDown;
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param numOfFloors The number of floors.
+     */
+    public HallCallBitmap(int numOfFloors) {
+        if (numOfFloors < 0)
+            throw new IllegalArgumentException("Invalid number of floors");
+
+        mNumOfFloors = numOfFloors;
+        mUp = new long[(numOfFloors + 63) >>> 6];
+        mDown = new long[mUp.length];
+    }
+
+    /**
+     * Returns the number of floors.
+     * @return The number of floors.
+     */
+    public int getNumOfFloors() {
+        return mNumOfFloors;
+    }
+
+    /**
+     * Sets the buttons of a floor.
+     * @param floorNumber The floor number.
+     * @param up The status of the up button.
+     * @param down The status of the down button.
+     */
+    public void set(int floorNumber, boolean up, boolean down) {
+        checkFloor(floorNumber);
+
+        long bit = 1L << floorNumber;
+        int word = floorNumber >>> 6;
+        mUp[word] = up ? mUp[word] | bit : mUp[word] & ~bit;
+        mDown[word] = down ? mDown[word] | bit : mDown[word] & ~bit;
+    }
+
+    /**
+     * Returns the status of the up button of a floor.
+     * @param floorNumber The floor number.
+     * @return The status of the up button.
+     */
+    public boolean isUp(int floorNumber) {
+        checkFloor(floorNumber);
+        return (mUp[floorNumber >>> 6] & (1L << floorNumber)) != 0;
+    }
+
+    /**
+     * Returns the status of the down button of a floor.
+     * @param floorNumber The floor number.
+     * @return The status of the down button.
+     */
+    public boolean isDown(int floorNumber) {
+        checkFloor(floorNumber);
+        return (mDown[floorNumber >>> 6] & (1L << floorNumber)) != 0;
+    }
+
+    /**
+     * Loads the buttons of all floors from a snapshot.
+     * @param snapshot The snapshot.
+     */
+    public void load(PlcSnapshot snapshot) {
+        if (snapshot.getNumOfFloors() != mNumOfFloors)
+            throw new IllegalArgumentException("Snapshot does not match the number of floors");
+
+        for (int word = 0; word < mUp.length; ++word) {
+            long up = 0;
+            long down = 0;
+            int end = Math.min(mNumOfFloors, (word + 1) << 6);
+            for (int floor = word << 6; floor < end; ++floor) {
+                up |= (snapshot.getFloorButtonUp(floor) ? 1L : 0L) << floor;
+                down |= (snapshot.getFloorButtonDown(floor) ? 1L : 0L) << floor;
+            }
+            mUp[word] = up;
+            mDown[word] = down;
+        }
+    }
+
+    /**
+     * Copies the buttons of all floors from another bitmap.
+     * @param other The bitmap to copy from.
+     */
+    public void copyFrom(HallCallBitmap other) {
+        checkSize(other);
+        System.arraycopy(other.mUp, 0, mUp, 0, mUp.length);
+        System.arraycopy(other.mDown, 0, mDown, 0, mDown.length);
+    }
+
+    /**
+     * Compares the bitmap with the published one, reports every flipped button and takes the
+     * new status over into the published bitmap.
+     * @param published The published bitmap, updated in place.
+     * @param listener The listener which is notified about every flipped button.
+     * @return The number of flipped buttons.
+     */
+    public int diff(HallCallBitmap published, FlipListener listener) {
+        checkSize(published);
+
+        int flips = 0;
+        for (int word = 0; word < mUp.length; ++word) {
+            long flippedUp = mUp[word] ^ published.mUp[word];
+            long flippedDown = mDown[word] ^ published.mDown[word];
+            if ((flippedUp | flippedDown) == 0) {
+                continue;
+            }
+
+            flips += Long.bitCount(flippedUp) + Long.bitCount(flippedDown);
+            published.mUp[word] = mUp[word];
+            published.mDown[word] = mDown[word];
+
+            while (flippedUp != 0) {
+                int bit = Long.numberOfTrailingZeros(flippedUp);
+                listener.flipped((word << 6) + bit, true, (mUp[word] & (1L << bit)) != 0);
+                flippedUp &= flippedUp - 1;
+            }
+
+            while (flippedDown != 0) {
+                int bit = Long.numberOfTrailingZeros(flippedDown);
+                listener.flipped((word << 6) + bit, false, (mDown[word] & (1L << bit)) != 0);
+                flippedDown &= flippedDown - 1;
+            }
+        }
+        return flips;
+    }
+
+    /**
+     * Returns if any hall button is pressed.
+     * @return True if any button is pressed, false otherwise.
+     */
+    public boolean anyPressed() {
+        for (int word = 0; word < mUp.length; ++word) {
+            if ((mUp[word] | mDown[word]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks a floor number.
+     * @param floorNumber The floor number.
+     */
+    private void checkFloor(int floorNumber) {
+        if (floorNumber < 0 || floorNumber >= mNumOfFloors)
+            throw new IllegalArgumentException("Invalid floor number");
+    }
+
+    /**
+     * Checks that another bitmap covers the same floors.
+     * @param other The other bitmap.
+     */
+    private void checkSize(HallCallBitmap other) {
+        if (other.mNumOfFloors != mNumOfFloors)
+            throw new IllegalArgumentException("Bitmaps do not match the number of floors");
+    }
+}
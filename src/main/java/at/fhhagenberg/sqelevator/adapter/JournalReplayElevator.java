@@ -0,0 +1,325 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+import sqelevator.IElevator;
+
+/**
+ * PLC which serves the values recorded by a {@link SnapshotJournal}.
+ * The records are replayed along their wall time, at the original speed or accelerated by a factor.
+ * After the last record the replay holds its values. The setters are accepted and ignored, as the
+ * recorded building does not react to them.
+ */
+public class JournalReplayElevator implements IElevator {
+    /**< The clock in milliseconds. */
+    private final LongSupplier mClock;
+    /**< The factor by which the replay is faster than the recording. */
+    private final double mSpeed;
+
+    /**< The number of elevators. */
+    private final int mNumOfElevators;
+    /**< The number of floors. */
+    private final int mNumOfFloors;
+    /**< The floor height. */
+    private final int mFloorHeight;
+    /**< The capacities of the elevators. */
+    private final int[] mCapacities;
+
+    /**< The mapped segments. */
+    private final List<ByteBuffer> mSegments = new ArrayList<>();
+    /**< The segment of every record. */
+    private final int[] mRecordSegments;
+    /**< The offset of every record within its segment. */
+    private final int[] mRecordOffsets;
+    /**< The wall time of every record in milliseconds. */
+    private final long[] mWallTimes;
+
+    /**< The time the replay started in milliseconds. */
+    private final long mStart;
+    /**< The record whose values are served, -1 before the first one was decoded. */
+    private int mCurrentRecord = -1;
+    /**< The clock tick of the served record. */
+    private long mClockTick = 0;
+    /**< The values of the served record. */
+    private final PlcSnapshot mValues;
+
+    /**
+     * CTor which replays the segments of a journal at the given speed.
+     *
+     * @param segments The segments, oldest first, see {@link SnapshotJournal#listSegments(Path)}.
+     * @param speed The factor by which the replay is faster than the recording, 1 for the original speed.
+     * @throws IOException if a segment cannot be read or the segments do not match.
+     */
+    public JournalReplayElevator(List<Path> segments, double speed) throws IOException {
+        this(segments, speed, System::currentTimeMillis);
+    }
+
+    /**
+     * CTor which replays the segments of a journal along a clock.
+     *
+     * @param segments The segments, oldest first, see {@link SnapshotJournal#listSegments(Path)}.
+     * @param speed The factor by which the replay is faster than the recording, 1 for the original speed.
+     * @param clock The clock in milliseconds.
+     * @throws IOException if a segment cannot be read or the segments do not match.
+     */
+    public JournalReplayElevator(List<Path> segments, double speed, LongSupplier clock) throws IOException {
+        if (speed <= 0)
+            throw new IllegalArgumentException("Invalid replay speed");
+
+        if (segments.isEmpty())
+            throw new IllegalArgumentException("No journal segments");
+
+        mClock = clock;
+        mSpeed = speed;
+
+        int numOfElevators = -1;
+        int numOfFloors = -1;
+        int floorHeight = 0;
+        int[] capacities = null;
+        List<int[]> records = new ArrayList<>();
+        List<Long> wallTimes = new ArrayList<>();
+
+        for (Path path : segments) {
+            ByteBuffer segment;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+
+            if (segment.remaining() < SnapshotJournal.headerSize(0) || segment.getInt(0) != SnapshotJournal.MAGIC)
+                throw new IOException("Not a journal segment: " + path);
+
+            int elevators = segment.getInt(4);
+            int floors = segment.getInt(8);
+            if (numOfElevators >= 0 && (elevators != numOfElevators || floors != numOfFloors))
+                throw new IOException("Journal segment does not match the building: " + path);
+
+            numOfElevators = elevators;
+            numOfFloors = floors;
+            floorHeight = segment.getInt(12);
+            capacities = new int[elevators];
+            for (int e = 0; e < elevators; ++e) {
+                capacities[e] = segment.getInt(16 + e * Integer.BYTES);
+            }
+
+            int recordSize = SnapshotJournal.recordSize(elevators, floors);
+            int segmentIndex = mSegments.size();
+            mSegments.add(segment);
+            for (int offset = SnapshotJournal.headerSize(elevators); offset + recordSize <= segment.limit()
+                    && segment.getInt(offset) == SnapshotJournal.RECORD_MARKER; offset += recordSize) {
+                records.add(new int[]{segmentIndex, offset});
+                wallTimes.add(segment.getLong(offset + Integer.BYTES));
+            }
+        }
+
+        if (records.isEmpty())
+            throw new IOException("Journal contains no records");
+
+        mNumOfElevators = numOfElevators;
+        mNumOfFloors = numOfFloors;
+        mFloorHeight = floorHeight;
+        mCapacities = capacities;
+        mRecordSegments = new int[records.size()];
+        mRecordOffsets = new int[records.size()];
+        mWallTimes = new long[records.size()];
+        for (int i = 0; i < records.size(); ++i) {
+            mRecordSegments[i] = records.get(i)[0];
+            mRecordOffsets[i] = records.get(i)[1];
+            mWallTimes[i] = wallTimes.get(i);
+        }
+
+        mValues = new PlcSnapshot(numOfElevators, numOfFloors);
+        mStart = clock.getAsLong();
+    }
+
+    /**
+     * Returns the number of records of the journal.
+     * @return The number of records.
+     */
+    public int getRecordCount() {
+        return mWallTimes.length;
+    }
+
+    /**
+     * Returns the record which is served at the current time.
+     * @return The index of the record.
+     */
+    public synchronized int getCurrentRecord() {
+        current();
+        return mCurrentRecord;
+    }
+
+    /**
+     * Returns if the replay has reached the last record.
+     * @return True if the last record is served, false otherwise.
+     */
+    public boolean isFinished() {
+        return getCurrentRecord() == mWallTimes.length - 1;
+    }
+
+    @Override
+    public int getCommittedDirection(int elevatorNumber) throws RemoteException {
+        return current().getDirection(elevatorNumber);
+    }
+
+    @Override
+    public int getElevatorAccel(int elevatorNumber) throws RemoteException {
+        return current().getAcceleration(elevatorNumber);
+    }
+
+    @Override
+    public boolean getElevatorButton(int elevatorNumber, int floor) throws RemoteException {
+        return current().getElevatorButton(elevatorNumber, floor);
+    }
+
+    @Override
+    public int getElevatorDoorStatus(int elevatorNumber) throws RemoteException {
+        return current().getDoorStatus(elevatorNumber);
+    }
+
+    @Override
+    public int getElevatorFloor(int elevatorNumber) throws RemoteException {
+        return current().getCurrentFloor(elevatorNumber);
+    }
+
+    @Override
+    public int getElevatorNum() throws RemoteException {
+        return mNumOfElevators;
+    }
+
+    @Override
+    public int getElevatorPosition(int elevatorNumber) throws RemoteException {
+        return current().getPosition(elevatorNumber);
+    }
+
+    @Override
+    public int getElevatorSpeed(int elevatorNumber) throws RemoteException {
+        return current().getSpeed(elevatorNumber);
+    }
+
+    @Override
+    public int getElevatorWeight(int elevatorNumber) throws RemoteException {
+        return current().getWeight(elevatorNumber);
+    }
+
+    @Override
+    public int getElevatorCapacity(int elevatorNumber) throws RemoteException {
+        return mCapacities[elevatorNumber];
+    }
+
+    @Override
+    public boolean getFloorButtonDown(int floor) throws RemoteException {
+        return current().getFloorButtonDown(floor);
+    }
+
+    @Override
+    public boolean getFloorButtonUp(int floor) throws RemoteException {
+        return current().getFloorButtonUp(floor);
+    }
+
+    @Override
+    public int getFloorHeight() throws RemoteException {
+        return mFloorHeight;
+    }
+
+    @Override
+    public int getFloorNum() throws RemoteException {
+        return mNumOfFloors;
+    }
+
+    @Override
+    public boolean getServicesFloors(int elevatorNumber, int floor) throws RemoteException {
+        return current().getServicesFloor(elevatorNumber, floor);
+    }
+
+    @Override
+    public int getTarget(int elevatorNumber) throws RemoteException {
+        return current().getTargetFloor(elevatorNumber);
+    }
+
+    @Override
+    public void setCommittedDirection(int elevatorNumber, int direction) throws RemoteException {
+        // the recorded building does not react to commands
+    }
+
+    @Override
+    public void setServicesFloors(int elevatorNumber, int floor, boolean service) throws RemoteException {
+        // the recorded building does not react to commands
+    }
+
+    @Override
+    public void setTarget(int elevatorNumber, int target) throws RemoteException {
+        // the recorded building does not react to commands
+    }
+
+    @Override
+    public synchronized long getClockTick() throws RemoteException {
+        current();
+        return mClockTick;
+    }
+
+    /**
+     * Decodes the record which is due at the current time, if it is not served already.
+     * @return The values of the record.
+     */
+    private synchronized PlcSnapshot current() {
+        long replayed = (long) ((mClock.getAsLong() - mStart) * mSpeed);
+        int index = Arrays.binarySearch(mWallTimes, mWallTimes[0] + replayed);
+        if (index < 0) {
+            // the last record before the insertion point, but at least the first one
+            index = Math.max(0, -index - 2);
+        }
+        else {
+            // several records may share a wall time, serve the last of them
+            while (index + 1 < mWallTimes.length && mWallTimes[index + 1] == mWallTimes[index]) {
+                ++index;
+            }
+        }
+
+        if (index != mCurrentRecord) {
+            decode(index);
+        }
+        return mValues;
+    }
+
+    /**
+     * Decodes a record into the served values.
+     * @param index The index of the record.
+     */
+    private void decode(int index) {
+        ByteBuffer segment = mSegments.get(mRecordSegments[index]);
+        int offset = mRecordOffsets[index] + Integer.BYTES + Long.BYTES;
+        mClockTick = segment.getLong(offset);
+        offset += Long.BYTES;
+
+        for (int e = 0; e < mNumOfElevators; ++e) {
+            mValues.setElevator(e, segment.getInt(offset), segment.getInt(offset + 4), segment.getInt(offset + 8),
+                    segment.getInt(offset + 12), segment.getInt(offset + 16), segment.getInt(offset + 20),
+                    segment.getInt(offset + 24));
+            mValues.setPosition(e, segment.getInt(offset + 28));
+            offset += SnapshotJournal.ELEVATOR_VALUES * Integer.BYTES;
+        }
+
+        int bitmapSize = SnapshotJournal.bitmapSize(mNumOfFloors);
+        for (int e = 0; e < mNumOfElevators; ++e) {
+            for (int f = 0; f < mNumOfFloors; ++f) {
+                mValues.setElevatorButton(e, f, SnapshotJournal.getBit(segment, offset, f));
+                mValues.setServicesFloor(e, f, SnapshotJournal.getBit(segment, offset + bitmapSize, f));
+            }
+            offset += 2 * bitmapSize;
+        }
+
+        for (int f = 0; f < mNumOfFloors; ++f) {
+            mValues.setFloor(f, SnapshotJournal.getBit(segment, offset, f), SnapshotJournal.getBit(segment, offset + bitmapSize, f));
+        }
+
+        mCurrentRecord = index;
+    }
+}
@@ -0,0 +1,137 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import java.util.Arrays;
+
+/**
+ * Class which records latencies in a log-linear histogram.
+ * Every power of two is split into {@value #SUB_BUCKETS} linear buckets, so a percentile is
+ * reported with a relative error below 7% while recording is a few shifts and one increment.
+ */
+public class LatencyHistogram {
+    /**< The number of linear buckets per power of two. */
+    public static final int SUB_BUCKETS = 16;
+    /**< The number of bits of the linear buckets. */
+    private static final int SUB_BUCKET_BITS = 4;
+    /**< The number of buckets, covering all non-negative long values. */
+    private static final int BUCKETS = SUB_BUCKETS + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    /**< The number of recorded values per bucket. */
+    private final long[] mCounts = new long[BUCKETS];
+    /**< The number of recorded values. */
+    private long mCount = 0;
+    /**< The largest recorded value. */
+    private long mMax = 0;
+    /**< The sum of the recorded values. */
+    private long mSum = 0;
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     * @param value The value, e.g. a latency in microseconds.
+     */
+    public synchronized void record(long value) {
+        long v = Math.max(0, value);
+        mCounts[bucketOf(v)]++;
+        mCount++;
+        mSum += v;
+        mMax = Math.max(mMax, v);
+    }
+
+    /**
+     * Returns the value below which the given share of the recorded values lies.
+     * @param percentile The percentile between 0 and 100.
+     * @return The upper bound of the bucket containing the percentile, 0 if nothing was recorded.
+     */
+    public synchronized long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Invalid percentile");
+        }
+
+        if (mCount == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * mCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; ++i) {
+            seen += mCounts[i];
+            if (seen >= rank) {
+                return Math.min(mMax, upperBoundOf(i));
+            }
+        }
+        return mMax;
+    }
+
+    /**
+     * Returns the number of recorded values.
+     * @return The number of values.
+     */
+    public synchronized long getCount() {
+        return mCount;
+    }
+
+    /**
+     * Returns the largest recorded value.
+     * @return The largest value, 0 if nothing was recorded.
+     */
+    public synchronized long getMax() {
+        return mMax;
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     * @return The mean, 0 if nothing was recorded.
+     */
+    public synchronized double getMean() {
+        return mCount == 0 ? 0 : (double) mSum / mCount;
+    }
+
+    /**
+     * Drops all recorded values.
+     */
+    public synchronized void reset() {
+        Arrays.fill(mCounts, 0);
+        mCount = 0;
+        mMax = 0;
+        mSum = 0;
+    }
+
+    /**
+     * Formats the count, p50, p99 and max as a JSON object.
+     * @return The formatted histogram.
+     */
+    public synchronized String format() {
+        return "{\"count\":" + mCount + ",\"p50\":" + getPercentile(50) + ",\"p99\":" + getPercentile(99)
+                + ",\"max\":" + mMax + "}";
+    }
+
+    /**
+     * Returns the bucket of a value.
+     * @param value The non-negative value.
+     * @return The bucket index.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * Returns the largest value of a bucket.
+     * @param bucket The bucket index.
+     * @return The largest value of the bucket.
+     */
+    static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,14 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+/**
+ * Enum which defines how the {@link PollScheduler} handles a poll cycle which ran past the
+ * deadline of the next cycle.
+ */
+public enum OverrunPolicy {
+    /** The missed ticks are dropped and the next cycle starts at the next tick of the schedule. */
+    SKIP,
+    /** The missed ticks are run back to back until the schedule is caught up, a larger backlog is dropped. */
+    CATCH_UP,
+    /** The next cycle starts right away and the schedule is shifted by the overrun. */
+    STRETCH
+}
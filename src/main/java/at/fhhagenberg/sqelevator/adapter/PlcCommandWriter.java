@@ -0,0 +1,404 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import java.rmi.RemoteException;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import sqelevator.IElevator;
+
+/**
+ * Class which coalesces the target and direction commands for the PLC and writes them on a dedicated writer.
+ * <p>
+ * Every elevator has a command slot holding its pending target and direction. A new command overwrites the
+ * pending one, so only the latest value is written, however often the algorithm repeats itself while a write
+ * is on the wire. Submitting a command never blocks on RMI, so the MQTT callback thread stays responsive.
+ * <p>
+ * With suppression enabled, a command which matches the state of the PLC is dropped. The state is the value
+ * written last while it is in flight, i.e. taken by the writer but not yet confirmed by a poll, and the polled
+ * value otherwise. A value enters the ledger when the writer takes it, so a repeated command is dropped while
+ * the write is still on the wire, and leaves it again if the write fails.
+ * A written value which the polls do not confirm within {@link #LEDGER_CYCLES} cycles leaves the ledger.
+ */
+public class PlcCommandWriter {
+    /**< The number of poll cycles a written value stays in the ledger without being confirmed. */
+    public static final int LEDGER_CYCLES = 2;
+
+    /**< The value of an empty command slot or an unknown state. */
+    private static final int NONE = -1;
+
+    /**< The PLC, looked up for every write as it is replaced on a reconnect. */
+    private final Supplier<IElevator> mPLC;
+    /**< The writer which drains the command slots. */
+    private final Executor mWriter;
+    /**< The handler of a failed write. */
+    private final Consumer<Exception> mFailureHandler;
+    /**< The number of elevators. */
+    private final int mNumOfElevators;
+
+    /**< The pending target of every elevator, {@link #NONE} if there is none. */
+    private final int[] mPendingTargets;
+    /**< The pending direction of every elevator, {@link #NONE} if there is none. */
+    private final int[] mPendingDirections;
+    /**< If the slot of an elevator is queued for the writer. */
+    private final boolean[] mQueued;
+
+    /**< If commands matching the state of the PLC are dropped. */
+    private boolean mSuppression = false;
+    /**< The polled target of every elevator, {@link #NONE} if unknown. */
+    private final int[] mPolledTargets;
+    /**< The polled direction of every elevator, {@link #NONE} if unknown. */
+    private final int[] mPolledDirections;
+    /**< The written target of every elevator not yet confirmed by a poll, {@link #NONE} if there is none. */
+    private final int[] mInFlightTargets;
+    /**< The written direction of every elevator not yet confirmed by a poll, {@link #NONE} if there is none. */
+    private final int[] mInFlightDirections;
+    /**< The number of polls since the target of every elevator was written. */
+    private final int[] mTargetAges;
+    /**< The number of polls since the direction of every elevator was written. */
+    private final int[] mDirectionAges;
+
+    /**< The number of submitted commands. */
+    private long mSubmitted = 0;
+    /**< The number of commands written to the PLC. */
+    private long mWritten = 0;
+    /**< The number of commands dropped by a failed write. */
+    private long mDropped = 0;
+    /**< The number of commands dropped as they match the state of the PLC. */
+    private long mSuppressed = 0;
+
+    /**< The logger. */
+    private static final Logger logger = Logger.getLogger(PlcCommandWriter.class.getName());
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param numOfElevators The number of elevators.
+     * @param plc The PLC, looked up for every write.
+     * @param writer The writer which drains the command slots, a single thread keeps the writes in order.
+     * @param failureHandler The handler of a failed write, e.g. to reconnect.
+     */
+    public PlcCommandWriter(int numOfElevators, Supplier<IElevator> plc, Executor writer,
+                            Consumer<Exception> failureHandler) {
+        if (numOfElevators < 0)
+            throw new IllegalArgumentException("Invalid number of elevators");
+
+        mPLC = plc;
+        mWriter = writer;
+        mFailureHandler = failureHandler;
+        mNumOfElevators = numOfElevators;
+        mPendingTargets = newSlots(numOfElevators);
+        mPendingDirections = newSlots(numOfElevators);
+        mQueued = new boolean[numOfElevators];
+        mPolledTargets = newSlots(numOfElevators);
+        mPolledDirections = newSlots(numOfElevators);
+        mInFlightTargets = newSlots(numOfElevators);
+        mInFlightDirections = newSlots(numOfElevators);
+        mTargetAges = new int[numOfElevators];
+        mDirectionAges = new int[numOfElevators];
+    }
+
+    /**
+     * Enables the suppression of commands which match the state of the PLC.
+     * @param suppression True to drop such commands, false to write every command.
+     */
+    public synchronized void setSuppression(boolean suppression) {
+        mSuppression = suppression;
+    }
+
+    /**
+     * Returns if commands which match the state of the PLC are dropped.
+     * @return True if such commands are dropped, false otherwise.
+     */
+    public synchronized boolean isSuppression() {
+        return mSuppression;
+    }
+
+    /**
+     * Submits a target, replacing the pending target of the elevator.
+     * @param elevatorNumber The elevator number.
+     * @param target The target floor.
+     */
+    public void setTarget(int elevatorNumber, int target) {
+        checkElevator(elevatorNumber);
+        if (target < 0)
+            throw new IllegalArgumentException("Invalid target floor");
+
+        if (submit(mPendingTargets, mInFlightTargets, mPolledTargets, elevatorNumber, target)) {
+            schedule(elevatorNumber);
+        }
+    }
+
+    /**
+     * Submits a committed direction, replacing the pending direction of the elevator.
+     * @param elevatorNumber The elevator number.
+     * @param direction The direction.
+     */
+    public void setCommittedDirection(int elevatorNumber, int direction) {
+        checkElevator(elevatorNumber);
+        if (direction < 0)
+            throw new IllegalArgumentException("Invalid direction");
+
+        if (submit(mPendingDirections, mInFlightDirections, mPolledDirections, elevatorNumber, direction)) {
+            schedule(elevatorNumber);
+        }
+    }
+
+    /**
+     * Records the target and direction of an elevator read by a poll cycle. Confirms the values in flight.
+     * @param elevatorNumber The elevator number.
+     * @param target The polled target floor.
+     * @param direction The polled direction.
+     */
+    public synchronized void observe(int elevatorNumber, int target, int direction) {
+        checkElevator(elevatorNumber);
+        mPolledTargets[elevatorNumber] = target;
+        mPolledDirections[elevatorNumber] = direction;
+        confirm(mInFlightTargets, mTargetAges, elevatorNumber, target);
+        confirm(mInFlightDirections, mDirectionAges, elevatorNumber, direction);
+    }
+
+    /**
+     * Forgets the polled and written values, e.g. after a reconnect, so the next commands are written.
+     */
+    public synchronized void clearLedger() {
+        Arrays.fill(mPolledTargets, NONE);
+        Arrays.fill(mPolledDirections, NONE);
+        Arrays.fill(mInFlightTargets, NONE);
+        Arrays.fill(mInFlightDirections, NONE);
+    }
+
+    /**
+     * Returns the number of elevators.
+     * @return The number of elevators.
+     */
+    public int getNumOfElevators() {
+        return mNumOfElevators;
+    }
+
+    /**
+     * Returns the number of submitted commands.
+     * @return The number of commands.
+     */
+    public synchronized long getSubmittedCount() {
+        return mSubmitted;
+    }
+
+    /**
+     * Returns the number of commands written to the PLC.
+     * @return The number of forwarded commands.
+     */
+    public synchronized long getWrittenCount() {
+        return mWritten;
+    }
+
+    /**
+     * Returns the number of commands dropped by a failed write.
+     * @return The number of commands.
+     */
+    public synchronized long getDroppedCount() {
+        return mDropped;
+    }
+
+    /**
+     * Returns the number of commands dropped as they match the state of the PLC.
+     * @return The number of commands.
+     */
+    public synchronized long getSuppressedCount() {
+        return mSuppressed;
+    }
+
+    /**
+     * Returns the number of commands replaced by a later one before they were written.
+     * @return The number of commands.
+     */
+    public synchronized long getCoalescedCount() {
+        int pending = 0;
+        for (int i = 0; i < mNumOfElevators; ++i) {
+            pending += (mPendingTargets[i] != NONE ? 1 : 0) + (mPendingDirections[i] != NONE ? 1 : 0);
+        }
+        return mSubmitted - mWritten - mDropped - mSuppressed - pending;
+    }
+
+    /**
+     * Stores a command in the slot of an elevator, unless it matches the state of the PLC.
+     * @param pending The pending values.
+     * @param inFlight The written values not yet confirmed.
+     * @param polled The polled values.
+     * @param elevatorNumber The elevator number.
+     * @param value The value of the command.
+     * @return True if the slot has to be queued for the writer, false otherwise.
+     */
+    private synchronized boolean submit(int[] pending, int[] inFlight, int[] polled, int elevatorNumber, int value) {
+        ++mSubmitted;
+        int state = inFlight[elevatorNumber] != NONE ? inFlight[elevatorNumber] : polled[elevatorNumber];
+        if (mSuppression && value == state) {
+            // the latest command wins, a pending different value is obsolete as well
+            pending[elevatorNumber] = NONE;
+            ++mSuppressed;
+            return false;
+        }
+
+        pending[elevatorNumber] = value;
+        if (mQueued[elevatorNumber]) {
+            return false;
+        }
+        mQueued[elevatorNumber] = true;
+        return true;
+    }
+
+    /**
+     * Queues the slot of an elevator for the writer.
+     * @param elevatorNumber The elevator number.
+     */
+    private void schedule(int elevatorNumber) {
+        try {
+            mWriter.execute(() -> drain(elevatorNumber));
+        } catch (RejectedExecutionException e) {
+            int dropped;
+            synchronized (this) {
+                mQueued[elevatorNumber] = false;
+                dropped = (mPendingDirections[elevatorNumber] != NONE ? 1 : 0)
+                        + (mPendingTargets[elevatorNumber] != NONE ? 1 : 0);
+                mPendingDirections[elevatorNumber] = NONE;
+                mPendingTargets[elevatorNumber] = NONE;
+                mDropped += dropped;
+            }
+            logger.log(Level.WARNING, "Writer rejected the commands of elevator {0}, dropped {1}",
+                    new Object[]{elevatorNumber, dropped});
+        }
+    }
+
+    /**
+     * Writes the pending commands of an elevator.
+     * @param elevatorNumber The elevator number.
+     */
+    private void drain(int elevatorNumber) {
+        int direction;
+        int target;
+        int previousDirection;
+        int previousTarget;
+        int previousDirectionAge;
+        int previousTargetAge;
+        synchronized (this) {
+            // commands submitted from now on queue the slot again
+            mQueued[elevatorNumber] = false;
+            direction = mPendingDirections[elevatorNumber];
+            target = mPendingTargets[elevatorNumber];
+            mPendingDirections[elevatorNumber] = NONE;
+            mPendingTargets[elevatorNumber] = NONE;
+
+            // commands submitted during the write already see the taken values
+            previousDirection = mInFlightDirections[elevatorNumber];
+            previousDirectionAge = mDirectionAges[elevatorNumber];
+            previousTarget = mInFlightTargets[elevatorNumber];
+            previousTargetAge = mTargetAges[elevatorNumber];
+            claim(mInFlightDirections, mDirectionAges, elevatorNumber, direction);
+            claim(mInFlightTargets, mTargetAges, elevatorNumber, target);
+        }
+
+        try {
+            IElevator plc = mPLC.get();
+            if (direction != NONE) {
+                plc.setCommittedDirection(elevatorNumber, direction);
+                written();
+                direction = NONE;
+            }
+            if (target != NONE) {
+                plc.setTarget(elevatorNumber, target);
+                written();
+            }
+        } catch (RemoteException | RuntimeException e) {
+            // the algorithm repeats its commands, so the dropped ones are sent again after the reconnect
+            synchronized (this) {
+                mDropped += (direction != NONE ? 1 : 0) + (target != NONE ? 1 : 0);
+                rollback(mInFlightDirections, mDirectionAges, elevatorNumber, direction,
+                        previousDirection, previousDirectionAge);
+                rollback(mInFlightTargets, mTargetAges, elevatorNumber, target, previousTarget, previousTargetAge);
+            }
+            mFailureHandler.accept(e);
+        }
+    }
+
+    /**
+     * Counts a command written to the PLC.
+     */
+    private synchronized void written() {
+        ++mWritten;
+    }
+
+    /**
+     * Records a value taken by the writer in the ledger.
+     * @param inFlight The written values not yet confirmed.
+     * @param ages The number of polls since the values were written.
+     * @param elevatorNumber The elevator number.
+     * @param value The taken value, {@link #NONE} if there is none.
+     */
+    private void claim(int[] inFlight, int[] ages, int elevatorNumber, int value) {
+        if (value == NONE) {
+            return;
+        }
+
+        inFlight[elevatorNumber] = value;
+        ages[elevatorNumber] = 0;
+    }
+
+    /**
+     * Restores the ledger entry a failed write replaced, unless a poll or a reset changed it meanwhile.
+     * @param inFlight The written values not yet confirmed.
+     * @param ages The number of polls since the values were written.
+     * @param elevatorNumber The elevator number.
+     * @param value The value which was not written, {@link #NONE} if there is none.
+     * @param previous The entry before the value was taken.
+     * @param previousAge The age of the entry before the value was taken.
+     */
+    private void rollback(int[] inFlight, int[] ages, int elevatorNumber, int value, int previous, int previousAge) {
+        if (value == NONE || inFlight[elevatorNumber] != value) {
+            return;
+        }
+
+        inFlight[elevatorNumber] = previous;
+        ages[elevatorNumber] = previousAge;
+    }
+
+    /**
+     * Removes a written value from the ledger once a poll confirmed it or it expired.
+     * @param inFlight The written values not yet confirmed.
+     * @param ages The number of polls since the values were written.
+     * @param elevatorNumber The elevator number.
+     * @param polled The polled value.
+     */
+    private void confirm(int[] inFlight, int[] ages, int elevatorNumber, int polled) {
+        if (inFlight[elevatorNumber] == NONE) {
+            return;
+        }
+
+        // a poll which started before the write may still read the old value
+        if (inFlight[elevatorNumber] == polled || ++ages[elevatorNumber] >= LEDGER_CYCLES) {
+            inFlight[elevatorNumber] = NONE;
+        }
+    }
+
+    /**
+     * Checks an elevator number.
+     * @param elevatorNumber The elevator number.
+     */
+    private void checkElevator(int elevatorNumber) {
+        if (elevatorNumber < 0 || elevatorNumber >= mNumOfElevators)
+            throw new IllegalArgumentException("Invalid elevator number");
+    }
+
+    /**
+     * Creates empty slots.
+     * @param numOfElevators The number of elevators.
+     * @return The slots, all {@link #NONE}.
+     */
+    private static int[] newSlots(int numOfElevators) {
+        int[] slots = new int[numOfElevators];
+        Arrays.fill(slots, NONE);
+        return slots;
+    }
+}
@@ -0,0 +1,154 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import at.fhhagenberg.sqelevator.simulator.PassengerGenerator;
+import at.fhhagenberg.sqelevator.simulator.SimulatedElevator;
+import sqelevator.IElevator;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.rmi.Naming;
+import java.util.Properties;
+
+/**
+ * Class which selects the backend of the PLC and connects to it, initially and on every reconnect.
+ * An RMI PLC is looked up again on every connect. An in-process backend, a replayed journal or a simulated
+ * building, is created once and every connect returns the same instance, so a reconnect reattaches it
+ * instead of replacing it by an RMI lookup.
+ */
+public class PlcFactory {
+    /**
+     * Enum which lists the backends of the PLC.
+     */
+    public enum Backend {
+        /** A PLC looked up via RMI. */
+        RMI,
+        /** A journal replayed in-process. */
+        REPLAY,
+        /** A building simulated in-process. */
+        SIMULATION
+    }
+
+    /**< The backend. */
+    private final Backend mBackend;
+    /**< The URL of the RMI PLC, null to read it from the property file on every connect. */
+    private final String mPlcUrl;
+    /**< The in-process PLC, null for RMI. */
+    private final IElevator mInstance;
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param backend The backend.
+     * @param plcUrl The URL of the RMI PLC.
+     * @param instance The in-process PLC.
+     */
+    private PlcFactory(Backend backend, String plcUrl, IElevator instance) {
+        mBackend = backend;
+        mPlcUrl = plcUrl;
+        mInstance = instance;
+    }
+
+    /**
+     * Creates a factory which looks up a PLC via RMI.
+     * @param plcUrl The URL of the PLC, null to read it from the property file on every connect.
+     * @return The factory.
+     */
+    public static PlcFactory rmi(String plcUrl) {
+        return new PlcFactory(Backend.RMI, plcUrl, null);
+    }
+
+    /**
+     * Creates a factory for a PLC which runs in-process.
+     * @param backend The backend, must not be {@link Backend#RMI}.
+     * @param plc The PLC, returned by every connect.
+     * @return The factory.
+     */
+    public static PlcFactory inProcess(Backend backend, IElevator plc) {
+        if (backend == Backend.RMI || plc == null)
+            throw new IllegalArgumentException("Invalid in-process PLC");
+
+        return new PlcFactory(backend, null, plc);
+    }
+
+    /**
+     * Selects the backend from the properties: plc.replay replays a recorded journal,
+     * plc.simulate=&lt;elevators&gt;x&lt;floors&gt; simulates a building, otherwise the PLC at plc.url is
+     * looked up via RMI. An in-process backend is created right away. The simulated cars are shaped by
+     * plc.simulate.floorHeight, .capacity, .maxSpeed and .acceleration, defaulting to the simulator defaults.
+     * @param properties The properties of the building.
+     * @return The factory.
+     * @throws IOException if the journal cannot be read.
+     */
+    public static PlcFactory fromProperties(Properties properties) throws IOException {
+        String replayPath = properties.getProperty("plc.replay", "").trim();
+        if (!replayPath.isEmpty()) {
+            double replaySpeed = Double.parseDouble(properties.getProperty("plc.replay.speed", "1"));
+            return inProcess(Backend.REPLAY,
+                    new JournalReplayElevator(SnapshotJournal.listSegments(Path.of(replayPath)), replaySpeed));
+        }
+
+        String simulate = properties.getProperty("plc.simulate", "").trim();
+        if (!simulate.isEmpty()) {
+            String[] dimensions = simulate.split("x");
+            if (dimensions.length != 2)
+                throw new IllegalArgumentException("Invalid simulated building, expected <elevators>x<floors>");
+
+            int numOfFloors = Integer.parseInt(dimensions[1].trim());
+            double passengers = Double.parseDouble(properties.getProperty("plc.simulate.passengers", "2"));
+            int floorHeight = Integer.parseInt(properties.getProperty("plc.simulate.floorHeight",
+                    String.valueOf(SimulatedElevator.DEFAULT_FLOOR_HEIGHT)));
+            int capacity = Integer.parseInt(properties.getProperty("plc.simulate.capacity",
+                    String.valueOf(SimulatedElevator.DEFAULT_CAPACITY)));
+            double maxSpeed = Double.parseDouble(properties.getProperty("plc.simulate.maxSpeed",
+                    String.valueOf(SimulatedElevator.DEFAULT_MAX_SPEED)));
+            double acceleration = Double.parseDouble(properties.getProperty("plc.simulate.acceleration",
+                    String.valueOf(SimulatedElevator.DEFAULT_ACCELERATION)));
+            SimulatedElevator simulator = new SimulatedElevator(Integer.parseInt(dimensions[0].trim()), numOfFloors,
+                    floorHeight, capacity);
+            simulator.setKinematics(maxSpeed, acceleration);
+            simulator.setPassengerGenerator(new PassengerGenerator(numOfFloors, passengers, 0.5, 1));
+            return inProcess(Backend.SIMULATION, simulator);
+        }
+
+        return rmi(properties.getProperty("plc.url"));
+    }
+
+    /**
+     * Connects to the PLC.
+     * @return A new RMI stub, or the in-process PLC.
+     * @throws Exception if the PLC cannot be looked up.
+     */
+    public IElevator connect() throws Exception {
+        if (mInstance != null) {
+            return mInstance;
+        }
+
+        String plcUrl = mPlcUrl;
+        if (plcUrl == null) {
+            // Read from property file
+            Properties properties = new Properties();
+            try (FileInputStream input = new FileInputStream("resources/elevator.properties")) {
+                properties.load(input);
+            }
+            plcUrl = properties.getProperty("plc.url");
+        }
+        return (IElevator) Naming.lookup(plcUrl);
+    }
+
+    /**
+     * Returns the backend.
+     * @return The backend.
+     */
+    public Backend getBackend() {
+        return mBackend;
+    }
+
+    /**
+     * Returns the URL of the RMI PLC.
+     * @return The URL, null for an in-process backend or if it is read from the property file.
+     */
+    public String getPlcUrl() {
+        return mPlcUrl;
+    }
+}
@@ -0,0 +1,276 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Class which holds the values read from the PLC during one poll cycle.
+ * Every value is read exactly once per cycle by a {@link PlcSnapshotReader}, so the change detection
+ * and the published payload are fed from the same read.
+ */
+public class PlcSnapshot {
+    /**< The committed directions of the elevators. */
+    private final int[] mDirection;
+    /**< The accelerations of the elevators. */
+    private final int[] mAcceleration;
+    /**< The speeds of the elevators. */
+    private final int[] mSpeed;
+    /**< The door states of the elevators. */
+    private final int[] mDoorStatus;
+    /**< The current floors of the elevators. */
+    private final int[] mCurrentFloor;
+    /**< The target floors of the elevators. */
+    private final int[] mTargetFloor;
+    /**< The weights of the elevators. */
+    private final int[] mWeight;
+    /**< The positions of the elevators in feet. */
+    private final int[] mPosition;
+    /**< The elevator buttons, indexed by elevator and floor. */
+    private final boolean[][] mElevatorButton;
+    /**< The serviced floors, indexed by elevator and floor. */
+    private final boolean[][] mServicesFloor;
+    /**< The up buttons of the floors. */
+    private final boolean[] mFloorButtonUp;
+    /**< The down buttons of the floors. */
+    private final boolean[] mFloorButtonDown;
+
+    /**< The number of RMI calls issued since the last reset. Readers may fill the snapshot in parallel. */
+    private final AtomicLong mRmiCalls = new AtomicLong();
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param numOfElevators The number of elevators.
+     * @param numOfFloors The number of floors.
+     */
+    public PlcSnapshot(int numOfElevators, int numOfFloors) {
+        if (numOfElevators < 0)
+            throw new IllegalArgumentException("Invalid number of elevators");
+
+        if (numOfFloors < 0)
+            throw new IllegalArgumentException("Invalid number of floors");
+
+        mDirection = new int[numOfElevators];
+        mAcceleration = new int[numOfElevators];
+        mSpeed = new int[numOfElevators];
+        mDoorStatus = new int[numOfElevators];
+        mCurrentFloor = new int[numOfElevators];
+        mTargetFloor = new int[numOfElevators];
+        mWeight = new int[numOfElevators];
+        mPosition = new int[numOfElevators];
+        mElevatorButton = new boolean[numOfElevators][numOfFloors];
+        mServicesFloor = new boolean[numOfElevators][numOfFloors];
+        mFloorButtonUp = new boolean[numOfFloors];
+        mFloorButtonDown = new boolean[numOfFloors];
+    }
+
+    /**
+     * Returns the number of elevators covered by the snapshot.
+     * @return The number of elevators.
+     */
+    public int getNumOfElevators() {
+        return mDirection.length;
+    }
+
+    /**
+     * Returns the number of floors covered by the snapshot.
+     * @return The number of floors.
+     */
+    public int getNumOfFloors() {
+        return mFloorButtonUp.length;
+    }
+
+    /**
+     * Sets the scalar values of an elevator.
+     * @param elevatorNumber The elevator number.
+     * @param direction The committed direction.
+     * @param acceleration The acceleration.
+     * @param speed The speed.
+     * @param doorStatus The door status.
+     * @param currentFloor The current floor.
+     * @param targetFloor The target floor.
+     * @param weight The weight.
+     */
+    public void setElevator(int elevatorNumber, int direction, int acceleration, int speed, int doorStatus,
+                            int currentFloor, int targetFloor, int weight) {
+        mDirection[elevatorNumber] = direction;
+        mAcceleration[elevatorNumber] = acceleration;
+        mSpeed[elevatorNumber] = speed;
+        mDoorStatus[elevatorNumber] = doorStatus;
+        mCurrentFloor[elevatorNumber] = currentFloor;
+        mTargetFloor[elevatorNumber] = targetFloor;
+        mWeight[elevatorNumber] = weight;
+    }
+
+    /**
+     * Sets the position of an elevator.
+     * @param elevatorNumber The elevator number.
+     * @param position The position in feet.
+     */
+    public void setPosition(int elevatorNumber, int position) {
+        mPosition[elevatorNumber] = position;
+    }
+
+    /**
+     * Sets the status of an elevator button.
+     * @param elevatorNumber The elevator number.
+     * @param floor The floor number.
+     * @param pressed The status of the button.
+     */
+    public void setElevatorButton(int elevatorNumber, int floor, boolean pressed) {
+        mElevatorButton[elevatorNumber][floor] = pressed;
+    }
+
+    /**
+     * Sets if a floor is serviced by an elevator.
+     * @param elevatorNumber The elevator number.
+     * @param floor The floor number.
+     * @param serviced True if the floor is serviced, false otherwise.
+     */
+    public void setServicesFloor(int elevatorNumber, int floor, boolean serviced) {
+        mServicesFloor[elevatorNumber][floor] = serviced;
+    }
+
+    /**
+     * Sets the buttons of a floor.
+     * @param floorNumber The floor number.
+     * @param up The status of the up button.
+     * @param down The status of the down button.
+     */
+    public void setFloor(int floorNumber, boolean up, boolean down) {
+        mFloorButtonUp[floorNumber] = up;
+        mFloorButtonDown[floorNumber] = down;
+    }
+
+    /**
+     * Returns the committed direction of an elevator.
+     * @param elevatorNumber The elevator number.
+     * @return The committed direction.
+     */
+    public int getDirection(int elevatorNumber) {
+        return mDirection[elevatorNumber];
+    }
+
+    /**
+     * Returns the acceleration of an elevator.
+     * @param elevatorNumber The elevator number.
+     * @return The acceleration.
+     */
+    public int getAcceleration(int elevatorNumber) {
+        return mAcceleration[elevatorNumber];
+    }
+
+    /**
+     * Returns the speed of an elevator.
+     * @param elevatorNumber The elevator number.
+     * @return The speed.
+     */
+    public int getSpeed(int elevatorNumber) {
+        return mSpeed[elevatorNumber];
+    }
+
+    /**
+     * Returns the door status of an elevator.
+     * @param elevatorNumber The elevator number.
+     * @return The door status.
+     */
+    public int getDoorStatus(int elevatorNumber) {
+        return mDoorStatus[elevatorNumber];
+    }
+
+    /**
+     * Returns the current floor of an elevator.
+     * @param elevatorNumber The elevator number.
+     * @return The current floor.
+     */
+    public int getCurrentFloor(int elevatorNumber) {
+        return mCurrentFloor[elevatorNumber];
+    }
+
+    /**
+     * Returns the target floor of an elevator.
+     * @param elevatorNumber The elevator number.
+     * @return The target floor.
+     */
+    public int getTargetFloor(int elevatorNumber) {
+        return mTargetFloor[elevatorNumber];
+    }
+
+    /**
+     * Returns the weight of an elevator.
+     * @param elevatorNumber The elevator number.
+     * @return The weight.
+     */
+    public int getWeight(int elevatorNumber) {
+        return mWeight[elevatorNumber];
+    }
+
+    /**
+     * Returns the position of an elevator.
+     * @param elevatorNumber The elevator number.
+     * @return The position in feet.
+     */
+    public int getPosition(int elevatorNumber) {
+        return mPosition[elevatorNumber];
+    }
+
+    /**
+     * Returns the status of an elevator button.
+     * @param elevatorNumber The elevator number.
+     * @param floor The floor number.
+     * @return The status of the button.
+     */
+    public boolean getElevatorButton(int elevatorNumber, int floor) {
+        return mElevatorButton[elevatorNumber][floor];
+    }
+
+    /**
+     * Returns if a floor is serviced by an elevator.
+     * @param elevatorNumber The elevator number.
+     * @param floor The floor number.
+     * @return True if the floor is serviced, false otherwise.
+     */
+    public boolean getServicesFloor(int elevatorNumber, int floor) {
+        return mServicesFloor[elevatorNumber][floor];
+    }
+
+    /**
+     * Returns the status of the up button of a floor.
+     * @param floorNumber The floor number.
+     * @return The status of the up button.
+     */
+    public boolean getFloorButtonUp(int floorNumber) {
+        return mFloorButtonUp[floorNumber];
+    }
+
+    /**
+     * Returns the status of the down button of a floor.
+     * @param floorNumber The floor number.
+     * @return The status of the down button.
+     */
+    public boolean getFloorButtonDown(int floorNumber) {
+        return mFloorButtonDown[floorNumber];
+    }
+
+    /**
+     * Returns the number of RMI calls issued since the last reset.
+     * @return The number of RMI calls.
+     */
+    public long getRmiCallCount() {
+        return mRmiCalls.get();
+    }
+
+    /**
+     * Adds to the RMI call counter. Called by the readers which fill the snapshot.
+     * @param calls The number of RMI calls issued.
+     */
+    public void addRmiCalls(long calls) {
+        mRmiCalls.addAndGet(calls);
+    }
+
+    /**
+     * Resets the RMI call counter.
+     */
+    public void resetRmiCallCount() {
+        mRmiCalls.set(0);
+    }
+}
@@ -0,0 +1,94 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import java.rmi.RemoteException;
+import sqelevator.IElevator;
+import sqelevator.IElevatorBulk;
+
+/**
+ * Interface for the backends which fill a {@link PlcSnapshot} from the PLC.
+ */
+public interface PlcSnapshotReader {
+    /**
+     * Reads the values of an elevator into the snapshot.
+     * @param snapshot The snapshot to fill.
+     * @param elevatorNumber The elevator number.
+     * @param fieldClasses The mask of {@link PollFieldClass}es to read.
+     * @param initial If true, the serviced flag of the ground floor is read as well.
+     * @throws RemoteException if the PLC communication fails.
+     */
+    void readElevator(PlcSnapshot snapshot, int elevatorNumber, int fieldClasses, boolean initial) throws RemoteException;
+
+    /**
+     * Reads the buttons of a range of floors into the snapshot.
+     * @param snapshot The snapshot to fill.
+     * @param fromFloor The first floor (inclusive).
+     * @param toFloor The last floor (exclusive).
+     * @throws RemoteException if the PLC communication fails.
+     */
+    void readFloors(PlcSnapshot snapshot, int fromFloor, int toFloor) throws RemoteException;
+
+    /**
+     * Reads the values of all elevators and floors into the snapshot.
+     * @param snapshot The snapshot to fill.
+     * @param fieldClasses The mask of {@link PollFieldClass}es to read.
+     * @param initial If true, the serviced flag of the ground floor is read as well.
+     * @throws RemoteException if the PLC communication fails.
+     */
+    default void readBuilding(PlcSnapshot snapshot, int fieldClasses, boolean initial) throws RemoteException {
+        readRange(snapshot, 0, snapshot.getNumOfElevators(), 0, snapshot.getNumOfFloors(), fieldClasses, initial);
+    }
+
+    /**
+     * Reads the values of a range of elevators and the buttons of a range of floors into the snapshot.
+     * @param snapshot The snapshot to fill.
+     * @param fromElevator The first elevator (inclusive).
+     * @param toElevator The last elevator (exclusive).
+     * @param fromFloor The first floor (inclusive).
+     * @param toFloor The last floor (exclusive).
+     * @param fieldClasses The mask of {@link PollFieldClass}es to read.
+     * @param initial If true, the serviced flag of the ground floor is read as well.
+     * @throws RemoteException if the PLC communication fails.
+     */
+    default void readRange(PlcSnapshot snapshot, int fromElevator, int toElevator, int fromFloor, int toFloor,
+                           int fieldClasses, boolean initial) throws RemoteException {
+        for (int i = fromElevator; i < toElevator; ++i) {
+            readElevator(snapshot, i, fieldClasses, initial);
+        }
+
+        if (PollFieldClass.BUTTONS.isIn(fieldClasses) && fromFloor < toFloor) {
+            readFloors(snapshot, fromFloor, toFloor);
+        }
+    }
+
+    /**
+     * Returns if the reader fetches a whole building with a single call.
+     * Such readers always read all field classes, and fanning out the reads to several
+     * threads does not pay off for them.
+     * @return True if the building is read in one call, false otherwise.
+     */
+    default boolean readsBuildingInOneCall() {
+        return false;
+    }
+
+    /**
+     * Returns if the reader overlaps the round trips of its calls itself.
+     * Fanning out the reads to several threads does not pay off for such readers.
+     * @return True if the calls are issued concurrently, false otherwise.
+     */
+    default boolean readsConcurrently() {
+        return false;
+    }
+
+    /**
+     * Creates the reader which fits the given PLC best.
+     * PLCs implementing {@link IElevatorBulk} are read in bulk, all others via the single getters.
+     * @param plc The PLC to read from.
+     * @return The reader.
+     */
+    static PlcSnapshotReader forPlc(IElevator plc) {
+        if (plc instanceof IElevatorBulk bulk) {
+            return new BulkPlcSnapshotReader(bulk);
+        }
+        return new GetterPlcSnapshotReader(plc);
+    }
+}
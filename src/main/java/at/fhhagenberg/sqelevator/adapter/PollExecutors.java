@@ -0,0 +1,70 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory for the bounded executors used for parallel PLC polling.
+ */
+public class PollExecutors {
+
+    private PollExecutors() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Creates a bounded executor for parallel polling.
+     * On Java 21+ the pool runs on virtual threads, otherwise on daemon platform threads.
+     * @param threads The maximum number of concurrent reads.
+     * @return The executor.
+     */
+    public static ExecutorService create(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Invalid number of threads");
+        }
+
+        ThreadFactory factory = virtualThreadFactory();
+        if (factory == null) {
+            factory = platformThreadFactory();
+        }
+        return Executors.newFixedThreadPool(threads, factory);
+    }
+
+    /**
+     * Returns if virtual threads are available on the running JVM.
+     * @return True if virtual threads are available, false otherwise.
+     */
+    public static boolean virtualThreadsAvailable() {
+        return virtualThreadFactory() != null;
+    }
+
+    /**
+     * Creates a factory for virtual threads. Looked up reflectively, as the project targets Java 17.
+     * @return The factory, or null if virtual threads are not available.
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "plc-poll-", 0L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a factory for daemon platform threads.
+     * @return The factory.
+     */
+    private static ThreadFactory platformThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "plc-poll-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,36 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+/**
+ * Enum which groups the polled PLC values by how often they change.
+ * Every class can be polled with its own cadence, see {@link ElevatorControlSystem#setPollingCadence(PollFieldClass, long)}.
+ */
+public enum PollFieldClass {
+    /** Direction, acceleration, speed, door status, current floor, target floor and weight. */
+    MOTION,
+    /** The elevator buttons and the up/down buttons of the floors. */
+    BUTTONS,
+    /** The serviced floors. The capacity is only read once at startup. */
+    CONFIGURATION,
+    /** The position of the elevators. Only read for moving elevators and disabled by default. */
+    POSITION;
+
+    /** The mask containing all field classes. */
+    public static final int ALL = (1 << values().length) - 1;
+
+    /**
+     * Returns the bit of the field class within a mask of field classes.
+     * @return The bit of the field class.
+     */
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    /**
+     * Returns if the field class is contained in a mask of field classes.
+     * @param fieldClasses The mask of field classes.
+     * @return True if the field class is contained, false otherwise.
+     */
+    public boolean isIn(int fieldClasses) {
+        return (fieldClasses & mask()) != 0;
+    }
+}
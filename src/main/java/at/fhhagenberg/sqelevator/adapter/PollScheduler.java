@@ -0,0 +1,220 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+/**
+ * Class which computes the start times of the poll cycles from a schedule of deadlines.
+ * Every cycle is due one interval after the deadline of the previous cycle. A cycle which ends
+ * after the deadline of the next one is an overrun and is handled by the {@link OverrunPolicy},
+ * so a slow RMI cycle never silently queues a burst of cycles.
+ */
+public class PollScheduler {
+    /**< The maximum number of missed ticks run back to back by {@link OverrunPolicy#CATCH_UP}. */
+    public static final int DEFAULT_MAX_BACKLOG = 3;
+
+    /**< The policy for overruns. */
+    private final OverrunPolicy mPolicy;
+    /**< The maximum number of missed ticks which are caught up. */
+    private final int mMaxBacklog;
+
+    /**< The deadline of the current cycle in milliseconds. */
+    private long mDeadline = 0;
+    /**< The start time of the current cycle in milliseconds. */
+    private long mCycleStart = 0;
+
+    /**< The number of started cycles. */
+    private long mCycleCount = 0;
+    /**< The number of cycles which ran past the deadline of the next cycle. */
+    private long mOverrunCount = 0;
+    /**< The number of ticks which were dropped. */
+    private long mSkippedTicks = 0;
+    /**< The duration of the last cycle in milliseconds. */
+    private long mLastCycleDuration = 0;
+    /**< The longest cycle in milliseconds. */
+    private long mMaxCycleDuration = 0;
+    /**< The sum of all cycle durations in milliseconds. */
+    private long mTotalCycleDuration = 0;
+    /**< The lateness of the last cycle in milliseconds. */
+    private long mLastLateness = 0;
+    /**< The largest lateness in milliseconds. */
+    private long mMaxLateness = 0;
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param policy The policy for overruns.
+     */
+    public PollScheduler(OverrunPolicy policy) {
+        this(policy, DEFAULT_MAX_BACKLOG);
+    }
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param policy The policy for overruns.
+     * @param maxBacklog The maximum number of missed ticks run back to back by {@link OverrunPolicy#CATCH_UP}.
+     */
+    public PollScheduler(OverrunPolicy policy, int maxBacklog) {
+        if (policy == null) {
+            throw new IllegalArgumentException("Invalid overrun policy");
+        }
+
+        if (maxBacklog < 0) {
+            throw new IllegalArgumentException("Invalid maximum backlog");
+        }
+
+        mPolicy = policy;
+        mMaxBacklog = maxBacklog;
+    }
+
+    /**
+     * Starts the schedule, the first cycle is due right away.
+     * @param now The current time in milliseconds.
+     */
+    public void start(long now) {
+        mDeadline = now;
+    }
+
+    /**
+     * Records the start of a cycle.
+     * @param now The current time in milliseconds.
+     * @return The lateness of the cycle, i.e. how long after its deadline it started, in milliseconds.
+     */
+    public long cycleStarted(long now) {
+        mCycleStart = now;
+        mCycleCount++;
+        mLastLateness = Math.max(0, now - mDeadline);
+        mMaxLateness = Math.max(mMaxLateness, mLastLateness);
+        return mLastLateness;
+    }
+
+    /**
+     * Records the end of a cycle and computes when the next cycle starts.
+     * @param now The current time in milliseconds.
+     * @param interval The interval until the next cycle in milliseconds.
+     * @return The delay until the next cycle in milliseconds.
+     */
+    public long cycleFinished(long now, long interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Invalid interval");
+        }
+
+        mLastCycleDuration = now - mCycleStart;
+        mMaxCycleDuration = Math.max(mMaxCycleDuration, mLastCycleDuration);
+        mTotalCycleDuration += mLastCycleDuration;
+
+        mDeadline += interval;
+        if (now <= mDeadline) {
+            return mDeadline - now;
+        }
+
+        // the cycle ran past the deadline of the next one
+        mOverrunCount++;
+        long missed = (now - mDeadline) / interval;
+
+        switch (mPolicy) {
+            case SKIP:
+                skip(missed + 1, interval);
+                break;
+            case CATCH_UP:
+                if (missed > mMaxBacklog) {
+                    skip(missed - mMaxBacklog, interval);
+                }
+                break;
+            case STRETCH:
+            default:
+                mDeadline = now;
+                break;
+        }
+
+        return Math.max(0, mDeadline - now);
+    }
+
+    /**
+     * Drops ticks of the schedule.
+     * @param ticks The number of ticks to drop.
+     * @param interval The interval between two ticks in milliseconds.
+     */
+    private void skip(long ticks, long interval) {
+        mDeadline += ticks * interval;
+        mSkippedTicks += ticks;
+    }
+
+    /**
+     * Returns the policy for overruns.
+     * @return The policy.
+     */
+    public OverrunPolicy getPolicy() {
+        return mPolicy;
+    }
+
+    /**
+     * Returns the deadline of the next cycle.
+     * @return The deadline in milliseconds.
+     */
+    public long getNextDeadline() {
+        return mDeadline;
+    }
+
+    /**
+     * Returns the number of started cycles.
+     * @return The number of cycles.
+     */
+    public long getCycleCount() {
+        return mCycleCount;
+    }
+
+    /**
+     * Returns the number of cycles which ran past the deadline of the next cycle.
+     * @return The number of overruns.
+     */
+    public long getOverrunCount() {
+        return mOverrunCount;
+    }
+
+    /**
+     * Returns the number of ticks which were dropped.
+     * @return The number of skipped ticks.
+     */
+    public long getSkippedTicks() {
+        return mSkippedTicks;
+    }
+
+    /**
+     * Returns the duration of the last cycle.
+     * @return The duration in milliseconds.
+     */
+    public long getLastCycleDuration() {
+        return mLastCycleDuration;
+    }
+
+    /**
+     * Returns the duration of the longest cycle.
+     * @return The duration in milliseconds.
+     */
+    public long getMaxCycleDuration() {
+        return mMaxCycleDuration;
+    }
+
+    /**
+     * Returns the average duration of the finished cycles.
+     * @return The average duration in milliseconds, 0 if no cycle has run.
+     */
+    public double getAverageCycleDuration() {
+        return mCycleCount == 0 ? 0 : (double) mTotalCycleDuration / mCycleCount;
+    }
+
+    /**
+     * Returns the lateness of the last cycle.
+     * @return The lateness in milliseconds.
+     */
+    public long getLastLateness() {
+        return mLastLateness;
+    }
+
+    /**
+     * Returns the largest lateness of a cycle.
+     * @return The lateness in milliseconds.
+     */
+    public long getMaxLateness() {
+        return mMaxLateness;
+    }
+}
@@ -0,0 +1,77 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import java.util.Random;
+
+/**
+ * Class which computes the delays between reconnect attempts.
+ * The delay doubles with every failed attempt up to a maximum. A random share of it is subtracted,
+ * so several adapters which lost the same PLC do not retry in lockstep.
+ */
+public class ReconnectBackoff {
+    /**< The delay before the first retry in milliseconds. */
+    private final long mInitialDelay;
+    /**< The upper bound of the delay in milliseconds. */
+    private final long mMaxDelay;
+    /**< The share of the delay which is randomized, between 0 and 1. */
+    private final double mJitter;
+    /**< The random generator of the jitter. */
+    private final Random mRandom;
+    /**< The number of delays handed out since the last reset. */
+    private int mAttempts = 0;
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param initialDelay The delay before the first retry in milliseconds.
+     * @param maxDelay The upper bound of the delay in milliseconds.
+     * @param jitter The share of the delay which is randomized, between 0 and 1.
+     * @param random The random generator of the jitter.
+     */
+    public ReconnectBackoff(long initialDelay, long maxDelay, double jitter, Random random) {
+        if (initialDelay <= 0) {
+            throw new IllegalArgumentException("Invalid initial delay");
+        }
+
+        if (maxDelay < initialDelay) {
+            throw new IllegalArgumentException("Maximum delay must not be smaller than initial delay");
+        }
+
+        if (jitter < 0 || jitter > 1) {
+            throw new IllegalArgumentException("Invalid jitter");
+        }
+
+        mInitialDelay = initialDelay;
+        mMaxDelay = maxDelay;
+        mJitter = jitter;
+        mRandom = random;
+    }
+
+    /**
+     * Computes the delay before the next attempt.
+     * @return The delay in milliseconds.
+     */
+    public long nextDelay() {
+        // the shift is bounded, the delay reaches the maximum long before it could overflow
+        long delay = mInitialDelay << Math.min(mAttempts, 30);
+        if (delay <= 0 || delay > mMaxDelay) {
+            delay = mMaxDelay;
+        }
+        ++mAttempts;
+        return delay - (long) (delay * mJitter * mRandom.nextDouble());
+    }
+
+    /**
+     * Returns the number of delays handed out since the last reset.
+     * @return The number of failed attempts.
+     */
+    public int getAttempts() {
+        return mAttempts;
+    }
+
+    /**
+     * Starts over with the initial delay, called after a successful reconnect.
+     */
+    public void reset() {
+        mAttempts = 0;
+    }
+}
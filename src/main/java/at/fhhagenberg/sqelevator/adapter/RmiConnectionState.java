@@ -0,0 +1,13 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+/**
+ * Enum which represents the state of the RMI connection to the PLC.
+ */
+public enum RmiConnectionState {
+    /**< The PLC is reachable and polled. */
+    CONNECTED,
+    /**< The connection was lost and the reconnect worker is retrying. */
+    RECONNECTING,
+    /**< The reconnect attempts are exhausted, the PLC is not polled anymore. */
+    FAILED
+}
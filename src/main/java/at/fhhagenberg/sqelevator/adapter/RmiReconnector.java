@@ -0,0 +1,224 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Class which guards the RMI connection with an explicit state machine.
+ * <p>
+ * A lost connection moves the state from {@link RmiConnectionState#CONNECTED} to
+ * {@link RmiConnectionState#RECONNECTING} atomically, so only the first of several threads which observe
+ * the failure starts reconnecting. The attempts run on a dedicated worker with a jittered exponential
+ * backoff, so neither the poll thread nor the MQTT callback thread is blocked. Once the maximum number
+ * of attempts has failed, the state moves to {@link RmiConnectionState#FAILED}, which is final, and the
+ * failure handler is run, so the owner can surface the failure instead of running on without a PLC.
+ */
+public class RmiReconnector {
+    /**
+     * Interface for one reconnect attempt.
+     */
+    @FunctionalInterface
+    public interface Attempt {
+        /**
+         * Connects to the PLC and restores the adapter state.
+         * @throws Exception if the attempt failed.
+         */
+        void reconnect() throws Exception;
+    }
+
+    /**< The default delay before the first retry in milliseconds. */
+    public static final long DEFAULT_INITIAL_DELAY = 500;
+    /**< The default upper bound of the delay in milliseconds. */
+    public static final long DEFAULT_MAX_DELAY = 30000;
+
+    /**< The logger. */
+    private static final Logger logger = Logger.getLogger(RmiReconnector.class.getName());
+
+    /**< The reconnect attempt. */
+    private final Attempt mAttempt;
+    /**< The worker which runs the attempts. */
+    private final ScheduledExecutorService mWorker;
+    /**< The delays between the attempts. */
+    private final ReconnectBackoff mBackoff;
+    /**< The maximum number of attempts per outage, 0 for no limit. */
+    private final int mMaxAttempts;
+    /**< The clock in milliseconds. */
+    private final LongSupplier mClock;
+
+    /**< The state of the connection. */
+    private final AtomicReference<RmiConnectionState> mState = new AtomicReference<>(RmiConnectionState.CONNECTED);
+    /**< The time the connection was lost in milliseconds. */
+    private volatile long mLostTimestamp = 0;
+    /**< The number of reconnect attempts. */
+    private final AtomicLong mAttempts = new AtomicLong();
+    /**< The number of successful reconnects. */
+    private final AtomicLong mReconnects = new AtomicLong();
+    /**< The durations of the outages in microseconds, like the other histograms of the adapter. */
+    private final LatencyHistogram mDowntime = new LatencyHistogram();
+    /**< The handler run once the attempts are exhausted, null for none. */
+    private volatile Runnable mFailureHandler = null;
+
+    /**
+     * CTor which runs the attempts on a dedicated daemon thread.
+     *
+     * @param attempt The reconnect attempt.
+     * @param backoff The delays between the attempts.
+     * @param maxAttempts The maximum number of attempts per outage, 0 for no limit.
+     */
+    public RmiReconnector(Attempt attempt, ReconnectBackoff backoff, int maxAttempts) {
+        this(attempt, Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "rmi-reconnect");
+            thread.setDaemon(true);
+            return thread;
+        }), backoff, maxAttempts, System::currentTimeMillis);
+    }
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param attempt The reconnect attempt.
+     * @param worker The worker which runs the attempts.
+     * @param backoff The delays between the attempts.
+     * @param maxAttempts The maximum number of attempts per outage, 0 for no limit.
+     * @param clock The clock in milliseconds.
+     */
+    public RmiReconnector(Attempt attempt, ScheduledExecutorService worker, ReconnectBackoff backoff,
+                          int maxAttempts, LongSupplier clock) {
+        if (maxAttempts < 0) {
+            throw new IllegalArgumentException("Invalid maximum number of attempts");
+        }
+
+        mAttempt = attempt;
+        mWorker = worker;
+        mBackoff = backoff;
+        mMaxAttempts = maxAttempts;
+        mClock = clock;
+    }
+
+    /**
+     * Reports a lost connection. Only the first report of an outage starts the reconnect worker.
+     * @return True if this report started reconnecting, false if the connection was already lost.
+     */
+    public boolean connectionLost() {
+        if (!mState.compareAndSet(RmiConnectionState.CONNECTED, RmiConnectionState.RECONNECTING)) {
+            return false;
+        }
+
+        mLostTimestamp = mClock.getAsLong();
+        logger.info("Trying to reconnect to RMI...");
+        schedule(0);
+        return true;
+    }
+
+    /**
+     * Sets the handler which is run on the worker once the attempts of an outage are exhausted.
+     * @param failureHandler The handler, null for none.
+     */
+    public void setFailureHandler(Runnable failureHandler) {
+        mFailureHandler = failureHandler;
+    }
+
+    /**
+     * Returns the state of the connection.
+     * @return The state.
+     */
+    public RmiConnectionState getState() {
+        return mState.get();
+    }
+
+    /**
+     * Returns if the connection is established.
+     * @return True if connected, false while reconnecting or after the attempts failed.
+     */
+    public boolean isConnected() {
+        return mState.get() == RmiConnectionState.CONNECTED;
+    }
+
+    /**
+     * Returns the number of reconnect attempts.
+     * @return The number of attempts.
+     */
+    public long getAttemptCount() {
+        return mAttempts.get();
+    }
+
+    /**
+     * Returns the number of successful reconnects.
+     * @return The number of reconnects.
+     */
+    public long getReconnectCount() {
+        return mReconnects.get();
+    }
+
+    /**
+     * Returns the durations of the outages.
+     * @return The histogram in microseconds.
+     */
+    public LatencyHistogram getDowntime() {
+        return mDowntime;
+    }
+
+    /**
+     * Returns the duration of the current outage.
+     * @return The duration in milliseconds, 0 while connected.
+     */
+    public long getCurrentDowntime() {
+        return mState.get() == RmiConnectionState.CONNECTED ? 0 : mClock.getAsLong() - mLostTimestamp;
+    }
+
+    /**
+     * Stops the worker, pending attempts are dropped.
+     */
+    public void shutdown() {
+        mWorker.shutdownNow();
+    }
+
+    /**
+     * Schedules the next attempt.
+     * @param delay The delay in milliseconds.
+     */
+    private void schedule(long delay) {
+        try {
+            mWorker.schedule(this::attempt, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            logger.severe("Reconnect worker stopped, giving up.");
+            mState.set(RmiConnectionState.FAILED);
+        }
+    }
+
+    /**
+     * Runs one attempt and schedules the next one if it failed.
+     */
+    private void attempt() {
+        mAttempts.incrementAndGet();
+        try {
+            mAttempt.reconnect();
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to reconnect to RMI! {0}", e.getMessage());
+            if (mMaxAttempts > 0 && mBackoff.getAttempts() + 1 >= mMaxAttempts) {
+                logger.severe("Giving up reconnecting to RMI.");
+                mState.set(RmiConnectionState.FAILED);
+                Runnable failureHandler = mFailureHandler;
+                if (failureHandler != null) {
+                    failureHandler.run();
+                }
+                return;
+            }
+            schedule(mBackoff.nextDelay());
+            return;
+        }
+
+        mBackoff.reset();
+        mDowntime.record(TimeUnit.MILLISECONDS.toMicros(mClock.getAsLong() - mLostTimestamp));
+        mReconnects.incrementAndGet();
+        mState.set(RmiConnectionState.CONNECTED);
+        logger.info("Reconnected to RMI successfully.");
+    }
+}
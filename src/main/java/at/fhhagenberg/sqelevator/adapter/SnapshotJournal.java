@@ -0,0 +1,310 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Class which appends the raw values of every poll cycle to a memory-mapped binary journal.
+ * The journal is split into segments of a fixed size. A full segment is closed and the next one
+ * is started, and only the newest segments are kept.
+ * <p>
+ * Every segment starts with a header holding the dimensions, the floor height and the capacities.
+ * The header is followed by records of a fixed size: a marker, the wall time and the clock tick,
+ * then the scalar values of every elevator. After those come the elevator buttons and serviced
+ * floors as bitmaps per elevator, and finally the up and down hall button bitmaps. The unused
+ * tail of a segment is zero, so a reader stops at the first missing marker.
+ * See {@link JournalReplayElevator} for the reader.
+ */
+public class SnapshotJournal implements Closeable {
+    /**< The magic number at the start of every segment. */
+    static final int MAGIC = 0x53514A31;
+    /**< The marker at the start of every record. */
+    static final int RECORD_MARKER = 0x52454331;
+    /**< The number of scalar values of an elevator in a record. */
+    static final int ELEVATOR_VALUES = 8;
+    /**< The file extension of the segments. */
+    static final String EXTENSION = ".journal";
+
+    /**< The default size of a segment in bytes. */
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    /**< The default number of kept segments. */
+    public static final int DEFAULT_MAX_SEGMENTS = 8;
+
+    /**< The directory of the segments. */
+    private final Path mDirectory;
+    /**< The prefix of the file names of the segments. */
+    private final String mName;
+    /**< The size of a segment in bytes. */
+    private final long mSegmentSize;
+    /**< The number of kept segments. */
+    private final int mMaxSegments;
+
+    /**< The number of elevators, 0 before {@link #begin(int, int, int[])}. */
+    private int mNumOfElevators = 0;
+    /**< The number of floors. */
+    private int mNumOfFloors = 0;
+    /**< The floor height. */
+    private int mFloorHeight = 0;
+    /**< The capacities of the elevators. */
+    private int[] mCapacities = new int[0];
+    /**< The size of a record in bytes. */
+    private int mRecordSize = 0;
+
+    /**< The number of the current segment. */
+    private long mSegmentNumber = 0;
+    /**< The mapped current segment, null if none is open. */
+    private MappedByteBuffer mSegment = null;
+    /**< The number of written records. */
+    private long mRecordCount = 0;
+    /**< The scratch bitmap of a flag row. */
+    private byte[] mBits = new byte[0];
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param basePath The path of the segments without number and extension, e.g. journal/plc.
+     * @param segmentSize The size of a segment in bytes.
+     * @param maxSegments The number of kept segments.
+     */
+    public SnapshotJournal(Path basePath, long segmentSize, int maxSegments) {
+        if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Invalid segment size");
+
+        if (maxSegments < 1)
+            throw new IllegalArgumentException("Invalid number of segments");
+
+        mDirectory = basePath.toAbsolutePath().getParent();
+        mName = basePath.getFileName().toString();
+        mSegmentSize = segmentSize;
+        mMaxSegments = maxSegments;
+    }
+
+    /**
+     * Starts a new segment for a building. Called after every (re)initialization of the elevators.
+     * @param numOfFloors The number of floors.
+     * @param floorHeight The floor height.
+     * @param capacities The capacities of the elevators.
+     * @throws IOException if the segment cannot be created.
+     */
+    public synchronized void begin(int numOfFloors, int floorHeight, int[] capacities) throws IOException {
+        mNumOfElevators = capacities.length;
+        mNumOfFloors = numOfFloors;
+        mFloorHeight = floorHeight;
+        mCapacities = capacities.clone();
+        mRecordSize = recordSize(mNumOfElevators, numOfFloors);
+        mBits = new byte[bitmapSize(numOfFloors)];
+
+        if (headerSize(mNumOfElevators) + mRecordSize > mSegmentSize)
+            throw new IllegalArgumentException("Segment size too small for one record");
+
+        startSegment();
+    }
+
+    /**
+     * Appends the values of a poll cycle.
+     * @param snapshot The values read from the PLC.
+     * @param clockTick The clock tick of the PLC.
+     * @param wallTime The wall time in milliseconds.
+     * @throws IOException if the next segment cannot be created.
+     */
+    public synchronized void append(PlcSnapshot snapshot, long clockTick, long wallTime) throws IOException {
+        if (mSegment == null)
+            throw new IllegalStateException("Journal not started");
+
+        if (snapshot.getNumOfElevators() != mNumOfElevators || snapshot.getNumOfFloors() != mNumOfFloors)
+            throw new IllegalArgumentException("Snapshot does not match the journal");
+
+        if (mSegment.remaining() < mRecordSize) {
+            startSegment();
+        }
+
+        MappedByteBuffer out = mSegment;
+        out.putInt(RECORD_MARKER);
+        out.putLong(wallTime);
+        out.putLong(clockTick);
+        for (int e = 0; e < mNumOfElevators; ++e) {
+            out.putInt(snapshot.getDirection(e));
+            out.putInt(snapshot.getAcceleration(e));
+            out.putInt(snapshot.getSpeed(e));
+            out.putInt(snapshot.getDoorStatus(e));
+            out.putInt(snapshot.getCurrentFloor(e));
+            out.putInt(snapshot.getTargetFloor(e));
+            out.putInt(snapshot.getWeight(e));
+            out.putInt(snapshot.getPosition(e));
+        }
+
+        for (int e = 0; e < mNumOfElevators; ++e) {
+            for (int f = 0; f < mNumOfFloors; ++f) {
+                setBit(f, snapshot.getElevatorButton(e, f));
+            }
+            out.put(mBits);
+            for (int f = 0; f < mNumOfFloors; ++f) {
+                setBit(f, snapshot.getServicesFloor(e, f));
+            }
+            out.put(mBits);
+        }
+
+        for (int f = 0; f < mNumOfFloors; ++f) {
+            setBit(f, snapshot.getFloorButtonUp(f));
+        }
+        out.put(mBits);
+        for (int f = 0; f < mNumOfFloors; ++f) {
+            setBit(f, snapshot.getFloorButtonDown(f));
+        }
+        out.put(mBits);
+
+        ++mRecordCount;
+    }
+
+    /**
+     * Returns the number of written records.
+     * @return The number of records.
+     */
+    public synchronized long getRecordCount() {
+        return mRecordCount;
+    }
+
+    /**
+     * Returns the path of the current segment.
+     * @return The path, null if no segment is open.
+     */
+    public synchronized Path getCurrentSegment() {
+        return mSegment == null ? null : segmentPath(mSegmentNumber);
+    }
+
+    /**
+     * Flushes the current segment to the disk.
+     */
+    @Override
+    public synchronized void close() {
+        if (mSegment != null) {
+            mSegment.force();
+            mSegment = null;
+        }
+    }
+
+    /**
+     * Returns the segments of a journal, oldest first.
+     * @param basePath The path of the segments without number and extension.
+     * @return The paths of the segments.
+     * @throws IOException if the directory cannot be listed.
+     */
+    public static List<Path> listSegments(Path basePath) throws IOException {
+        Path directory = basePath.toAbsolutePath().getParent();
+        String prefix = basePath.getFileName().toString() + "-";
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(prefix) && name.endsWith(EXTENSION);
+            }).sorted().forEach(segments::add);
+        }
+        return segments;
+    }
+
+    /**
+     * Returns the size of the header of a segment.
+     * @param numOfElevators The number of elevators.
+     * @return The size in bytes.
+     */
+    static int headerSize(int numOfElevators) {
+        return 4 * Integer.BYTES + numOfElevators * Integer.BYTES;
+    }
+
+    /**
+     * Returns the size of a record.
+     * @param numOfElevators The number of elevators.
+     * @param numOfFloors The number of floors.
+     * @return The size in bytes.
+     */
+    static int recordSize(int numOfElevators, int numOfFloors) {
+        return Integer.BYTES + 2 * Long.BYTES + numOfElevators * ELEVATOR_VALUES * Integer.BYTES
+                + (2 * numOfElevators + 2) * bitmapSize(numOfFloors);
+    }
+
+    /**
+     * Returns the size of a bitmap with one bit per floor.
+     * @param numOfFloors The number of floors.
+     * @return The size in bytes.
+     */
+    static int bitmapSize(int numOfFloors) {
+        return (numOfFloors + 7) >>> 3;
+    }
+
+    /**
+     * Closes the current segment, starts the next one and deletes the oldest ones beyond the limit.
+     * @throws IOException if the segment cannot be created.
+     */
+    private void startSegment() throws IOException {
+        close();
+        Files.createDirectories(mDirectory);
+
+        List<Path> segments = listSegments(mDirectory.resolve(mName));
+        if (mSegmentNumber == 0 && !segments.isEmpty()) {
+            // continue the numbering of a previous run
+            String last = segments.get(segments.size() - 1).getFileName().toString();
+            mSegmentNumber = Long.parseLong(last.substring(mName.length() + 1, last.length() - EXTENSION.length()));
+        }
+        ++mSegmentNumber;
+
+        for (int i = 0; i <= segments.size() - mMaxSegments; ++i) {
+            Files.deleteIfExists(segments.get(i));
+        }
+
+        try (FileChannel channel = FileChannel.open(segmentPath(mSegmentNumber), StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            mSegment = channel.map(FileChannel.MapMode.READ_WRITE, 0, mSegmentSize);
+        }
+
+        mSegment.putInt(MAGIC);
+        mSegment.putInt(mNumOfElevators);
+        mSegment.putInt(mNumOfFloors);
+        mSegment.putInt(mFloorHeight);
+        for (int capacity : mCapacities) {
+            mSegment.putInt(capacity);
+        }
+    }
+
+    /**
+     * Returns the path of a segment.
+     * @param segmentNumber The number of the segment.
+     * @return The path.
+     */
+    private Path segmentPath(long segmentNumber) {
+        return mDirectory.resolve(String.format("%s-%06d%s", mName, segmentNumber, EXTENSION));
+    }
+
+    /**
+     * Sets a bit of the scratch bitmap.
+     * @param floor The floor number.
+     * @param value The value of the bit.
+     */
+    private void setBit(int floor, boolean value) {
+        int mask = 1 << (floor & 7);
+        mBits[floor >>> 3] = (byte) (value ? mBits[floor >>> 3] | mask : mBits[floor >>> 3] & ~mask);
+    }
+
+    /**
+     * Reads a bit of a bitmap.
+     * @param buffer The buffer.
+     * @param offset The offset of the bitmap.
+     * @param floor The floor number.
+     * @return The value of the bit.
+     */
+    static boolean getBit(ByteBuffer buffer, int offset, int floor) {
+        return (buffer.get(offset + (floor >>> 3)) & (1 << (floor & 7))) != 0;
+    }
+}
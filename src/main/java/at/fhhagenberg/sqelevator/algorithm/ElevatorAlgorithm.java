@@ -1,13 +1,19 @@
 package at.fhhagenberg.sqelevator.algorithm;
 
+import at.fhhagenberg.sqelevator.BuildingDeltaFrame;
 import at.fhhagenberg.sqelevator.Elevator;
+import at.fhhagenberg.sqelevator.ElevatorStateFrame;
+import at.fhhagenberg.sqelevator.FleetField;
 import at.fhhagenberg.sqelevator.Floor;
 import sqelevator.IElevator;
 import at.fhhagenberg.sqelevator.MqttTopics;
+import at.fhhagenberg.sqelevator.PayloadEncoder;
 import com.hivemq.client.mqtt.mqtt5.Mqtt5AsyncClient;
 import com.hivemq.client.mqtt.mqtt5.Mqtt5Client;
 import com.hivemq.client.mqtt.mqtt5.message.connect.connack.Mqtt5ConnAck;
+import com.hivemq.client.mqtt.datatypes.MqttTopic;
 import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import com.hivemq.client.mqtt.mqtt5.message.subscribe.Mqtt5Subscribe;
 
 import java.io.FileInputStream;
 import java.util.*;
@@ -22,6 +28,8 @@ import java.util.logging.Logger;
 public class ElevatorAlgorithm {
     /** The MQTT client */
     private final Mqtt5AsyncClient mMqttClient;
+    /** The prefix of all topics of the building, e.g. building/&lt;id&gt;/, empty for a single building */
+    private final String mTopicPrefix;
 
     /** The number of elevators */
     private int mNrOfElevators = 0;
@@ -34,6 +42,10 @@ public class ElevatorAlgorithm {
 
     /** The elevator state */
     private ElevatorState mElevatorState;
+    /** If the fields are received in the building delta frames instead of their own topics */
+    private boolean mDeltaFrames = false;
+    /** The sequence number of the last applied delta frame, by topic as every shard numbers its own stream */
+    private final Map<String, Long> mDeltaSequences = new HashMap<>();
     /** The floor requests to be serviced */
     private final TreeSet<Integer> mFloorRequestsToBeServiced = new TreeSet<>();
     /** The logger */
@@ -44,7 +56,17 @@ public class ElevatorAlgorithm {
      * @param mqttClient The MQTT client
      */
     public ElevatorAlgorithm(Mqtt5AsyncClient mqttClient) {
+        this(mqttClient, "");
+    }
+
+    /**
+     * Constructor for the algorithm of one of several buildings
+     * @param mqttClient The MQTT client
+     * @param topicPrefix The prefix of all topics of the building, e.g. building/&lt;id&gt;/, empty for a single building
+     */
+    public ElevatorAlgorithm(Mqtt5AsyncClient mqttClient, String topicPrefix) {
         mMqttClient = mqttClient;
+        mTopicPrefix = topicPrefix;
     }
 
     /**
@@ -59,6 +81,7 @@ public class ElevatorAlgorithm {
             // Fetch properties
             String mqttUrl = properties.getProperty("mqtt.url");
             int mqttPort = Integer.parseInt(properties.getProperty("mqtt.port"));
+            String building = properties.getProperty("algorithm.building", "").trim();
 
             Mqtt5AsyncClient mqttClient = Mqtt5Client.builder()
                     .identifier(UUID.randomUUID().toString())
@@ -66,7 +89,10 @@ public class ElevatorAlgorithm {
                     .serverPort(mqttPort)
                     .buildAsync();
 
-            ElevatorAlgorithm algorithm = new ElevatorAlgorithm(mqttClient);
+            // the algorithm of one of several buildings served by one adapter controls the topics of its building
+            ElevatorAlgorithm algorithm = new ElevatorAlgorithm(mqttClient,
+                    building.isEmpty() ? "" : MqttTopics.BUILDING_TOPIC + "/" + building + "/");
+            algorithm.setDeltaFrames(Boolean.parseBoolean(properties.getProperty("delta.frames", "false")));
             algorithm.run();
         }
         catch (InterruptedException e) {
@@ -79,6 +105,14 @@ public class ElevatorAlgorithm {
         }
     }
 
+    /**
+     * Receives the fields in the building delta frames instead of their own topics
+     * @param deltaFrames True to subscribe to the delta frames, false to subscribe to the topics of the fields
+     */
+    public void setDeltaFrames(boolean deltaFrames) {
+        mDeltaFrames = deltaFrames;
+    }
+
     /**
      * Run the algorithm
      * @throws InterruptedException if thread gets interrupted during sleep
@@ -100,7 +134,7 @@ public class ElevatorAlgorithm {
 
         // initialize elevator state
         mElevatorState = new ElevatorState(mNrOfElevators, mNrOfFloors, mFloorHeight,
-                mMaxPassengers.values().stream().mapToInt(Integer::intValue).toArray());
+                mMaxPassengers.values().stream().mapToInt(Integer::intValue).toArray(), mTopicPrefix);
 
         // subscribe to topics
         subscribeToTopics();
@@ -144,31 +178,36 @@ public class ElevatorAlgorithm {
      */
     private void subscribeToRetainedTopics() {
         // Subscribe to info topic
-        mMqttClient.subscribeWith()
+        mMqttClient.subscribe(Mqtt5Subscribe.builder()
                 .addSubscription()
-                .topicFilter(MqttTopics.INFO_TOPIC + "/#")
+                .topicFilter(mTopicPrefix + MqttTopics.INFO_TOPIC + "/#")
                 .applySubscription()
                 .addSubscription()
-                .topicFilter(MqttTopics.ELEVATOR_TOPIC + "/+" + MqttTopics.CAPACITY_SUBTOPIC)
+                .topicFilter(mTopicPrefix + MqttTopics.ELEVATOR_TOPIC + "/+" + MqttTopics.CAPACITY_SUBTOPIC)
                 .applySubscription()
-                .callback(this::retainedMessagesMqttCallback)
-                .send();
+                .build(), this::retainedMessagesMqttCallback);
     }
 
     /**
      * Subscribe to elevator and floor topics
      */
     private void subscribeToTopics() {
+        if (mDeltaFrames) {
+            mMqttClient.subscribe(Mqtt5Subscribe.builder()
+                    .topicFilter(mTopicPrefix + MqttTopics.DELTA_TOPIC + "/#")
+                    .build(), this::deltaFrameMqttCallback);
+            return;
+        }
+
         // Subscribe to elevator and floor topics
-        mMqttClient.subscribeWith()
+        mMqttClient.subscribe(Mqtt5Subscribe.builder()
                 .addSubscription()
-                    .topicFilter(MqttTopics.ELEVATOR_TOPIC + "/#")
+                    .topicFilter(mTopicPrefix + MqttTopics.ELEVATOR_TOPIC + "/#")
                     .applySubscription()
                 .addSubscription()
-                    .topicFilter(MqttTopics.FLOOR_TOPIC + "/#")
+                    .topicFilter(mTopicPrefix + MqttTopics.FLOOR_TOPIC + "/#")
                     .applySubscription()
-                .callback(this::mqttCallback)
-                .send();
+                .build(), this::mqttCallback);
     }
 
     /**
@@ -176,7 +215,7 @@ public class ElevatorAlgorithm {
      * @param publish The publishing message (topic + payload)
      */
     private void retainedMessagesMqttCallback(Mqtt5Publish publish) {
-        String topic = publish.getTopic().toString();
+        String topic = publish.getTopic().toString().substring(mTopicPrefix.length());
         String[] parts = topic.split("/");
 
         if (parts.length == 2) {
@@ -205,7 +244,7 @@ public class ElevatorAlgorithm {
      * @param publish The publishing message (topic + payload)
      */
     private void mqttCallback(Mqtt5Publish publish) {
-        String topic = publish.getTopic().toString();
+        String topic = publish.getTopic().toString().substring(mTopicPrefix.length());
         String[] parts = topic.split("/");
 
         switch (parts[0]) {
@@ -245,7 +284,9 @@ public class ElevatorAlgorithm {
                         }
                     }
 
-                    case MqttTopics.CAPACITY_SUBTOPIC -> {
+                    case MqttTopics.STATE_SUBTOPIC -> stateFrameMqttCallback(topic, elevatorNumber, publish);
+
+                    case MqttTopics.CAPACITY_SUBTOPIC, MqttTopics.POSITION_SUBTOPIC -> {
                         // no-op
                     }
 
@@ -270,14 +311,115 @@ public class ElevatorAlgorithm {
         }
     }
 
+    /**
+     * Applies an elevator state frame, which carries all fields of the elevator
+     * @param topic The topic of the frame
+     * @param elevatorNumber The elevator number
+     * @param publish The publishing message (topic + payload)
+     */
+    private void stateFrameMqttCallback(String topic, int elevatorNumber, Mqtt5Publish publish) {
+        ElevatorStateFrame frame;
+        try {
+            frame = ElevatorStateFrame.decode(publish.getPayloadAsBytes());
+        }
+        catch (IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Invalid state frame on {0}: {1}", new Object[]{topic, e.getMessage()});
+            return;
+        }
+
+        if (frame.getNumOfFloors() != mNrOfFloors) {
+            logger.log(Level.WARNING, "State frame for another building on {0}", topic);
+            return;
+        }
+
+        Elevator elevator = mElevatorState.getElevators()[elevatorNumber];
+        elevator.setDirection(frame.getDirection());
+        elevator.setAcceleration(frame.getAcceleration());
+        elevator.setSpeed(frame.getSpeed());
+        elevator.setElevatorDoorStatus(frame.getDoorStatus());
+        elevator.setCurrentFloor(frame.getCurrentFloor());
+        elevator.setTargetFloor(frame.getTargetFloor());
+        elevator.setWeight(frame.getWeight());
+        for (int floor = 0; floor < mNrOfFloors; floor++) {
+            elevator.setElevatorButton(frame.getElevatorButton(floor), floor);
+            if (floor != 0) {
+                elevator.setFloorService(frame.getServicesFloor(floor), floor);
+            }
+        }
+    }
+
+    /**
+     * Callback for delta frames. The deltas are applied in sequence only, after a gap they are dropped
+     * until the next keyframe
+     * @param publish The publishing message (topic + payload)
+     */
+    private void deltaFrameMqttCallback(Mqtt5Publish publish) {
+        String topic = publish.getTopic().toString();
+        BuildingDeltaFrame frame;
+        try {
+            frame = BuildingDeltaFrame.decode(publish.getPayloadAsBytes());
+        }
+        catch (IllegalArgumentException e) {
+            logger.log(Level.WARNING, "Invalid delta frame on {0}: {1}", new Object[]{topic, e.getMessage()});
+            return;
+        }
+
+        if (frame.getNumOfElevators() != mNrOfElevators || frame.getNumOfFloors() != mNrOfFloors) {
+            logger.log(Level.WARNING, "Delta frame for another building on {0}", topic);
+            return;
+        }
+
+        Long lastSequence = mDeltaSequences.get(topic);
+        if (!frame.isKeyframe() && (lastSequence == null || frame.getSequence() != lastSequence + 1)) {
+            if (lastSequence != null) {
+                logger.log(Level.WARNING, "Missed delta frames on {0}, waiting for the next keyframe", topic);
+                mDeltaSequences.remove(topic);
+            }
+            return;
+        }
+
+        for (int i = 0; i < frame.getEntryCount(); i++) {
+            applyField(frame.getField(i), frame.getElevator(i), frame.getFloor(i), frame.getValue(i));
+        }
+        mDeltaSequences.put(topic, frame.getSequence());
+    }
+
+    /**
+     * Applies a field received in a delta frame
+     * @param field The field
+     * @param elevatorNumber The elevator number, -1 for floor fields
+     * @param floorNumber The floor number, -1 for the scalar fields of an elevator
+     * @param value The value, 1 for true and 0 for false for flags
+     */
+    private void applyField(FleetField field, int elevatorNumber, int floorNumber, int value) {
+        switch (field) {
+            case DIRECTION -> mElevatorState.getElevators()[elevatorNumber].setDirection(value);
+            case ACCELERATION -> mElevatorState.getElevators()[elevatorNumber].setAcceleration(value);
+            case SPEED -> mElevatorState.getElevators()[elevatorNumber].setSpeed(value);
+            case DOOR_STATUS -> mElevatorState.getElevators()[elevatorNumber].setElevatorDoorStatus(value);
+            case CURRENT_FLOOR -> mElevatorState.getElevators()[elevatorNumber].setCurrentFloor(value);
+            case TARGET_FLOOR -> mElevatorState.getElevators()[elevatorNumber].setTargetFloor(value);
+            case WEIGHT -> mElevatorState.getElevators()[elevatorNumber].setWeight(value);
+            case FLOOR_REQUESTED ->
+                mElevatorState.getElevators()[elevatorNumber].setElevatorButton(value != 0, floorNumber);
+            case FLOOR_SERVICED -> {
+                if (floorNumber != 0) {
+                    mElevatorState.getElevators()[elevatorNumber].setFloorService(value != 0, floorNumber);
+                }
+            }
+            case BUTTON_UP -> mElevatorState.getFloors()[floorNumber].setButtonUpPressed(value != 0);
+            case BUTTON_DOWN -> mElevatorState.getFloors()[floorNumber].setButtonDownPressed(value != 0);
+            case POSITION -> {
+                // no-op
+            }
+        }
+    }
+
     /**
      * Publish the connection status via mqtt
      */
     private void publishConnectionStatus() {
-        mMqttClient.publishWith()
-                .topic(MqttTopics.ELEVATOR_CONTROL_TOPIC + MqttTopics.CONNECTION_STATUS_SUBTOPIC)
-                .payload(String.valueOf(true).getBytes())
-                .send();
+        publish(mElevatorState.getTopicRegistry().getConnectionStatusTopic(), PayloadEncoder.encode(true));
     }
 
     /**
@@ -493,9 +635,7 @@ public class ElevatorAlgorithm {
      * @param targetFloor The target floor
      */
     private void sendElevatorTargetFloor(int elevatorNumber, int targetFloor) {
-        mMqttClient.publishWith()
-                .topic(MqttTopics.ELEVATOR_CONTROL_TOPIC + "/" + elevatorNumber + MqttTopics.TARGET_FLOOR_SUBTOPIC)
-                .payload(String.valueOf(targetFloor).getBytes()).send();
+        publish(mElevatorState.getTopicRegistry().getTargetFloorControlTopic(elevatorNumber), PayloadEncoder.encode(targetFloor));
     }
 
     /**
@@ -504,8 +644,15 @@ public class ElevatorAlgorithm {
      * @param direction The direction
      */
     private void sendElevatorDirection(int elevatorNumber, int direction) {
-        mMqttClient.publishWith()
-                .topic(MqttTopics.ELEVATOR_CONTROL_TOPIC + "/" + elevatorNumber + MqttTopics.DIRECTION_SUBTOPIC)
-                .payload(String.valueOf(direction).getBytes()).send();
+        publish(mElevatorState.getTopicRegistry().getDirectionControlTopic(elevatorNumber), PayloadEncoder.encode(direction));
+    }
+
+    /**
+     * Publish a message, every message of the algorithm is published via this method
+     * @param topic The topic
+     * @param payload The payload
+     */
+    private void publish(MqttTopic topic, byte[] payload) {
+        mMqttClient.publish(Mqtt5Publish.builder().topic(topic).payload(payload).build());
     }
 }
@@ -2,6 +2,7 @@ package at.fhhagenberg.sqelevator.algorithm;
 
 import at.fhhagenberg.sqelevator.Elevator;
 import at.fhhagenberg.sqelevator.Floor;
+import at.fhhagenberg.sqelevator.TopicRegistry;
 
 /**
  * Class which represents the state of the elevators and floors.
@@ -14,6 +15,8 @@ public class ElevatorState {
     private Floor[] mFloors = null;
     /**< The height of all floors. */
     private final int mFloorHeight;
+    /**< The topics of all elevators and floors. */
+    private final TopicRegistry mTopics;
 
     /**
      * CTor which instantiates all members.
@@ -24,6 +27,20 @@ public class ElevatorState {
      * @throws IllegalArgumentException If the number of elevators does not match the number of elevator capacities.
      */
     public ElevatorState(int nrOfElevators, int nrOfFloors, int floorHeight, int[] elevatorCapacities) throws IllegalArgumentException {
+        this(nrOfElevators, nrOfFloors, floorHeight, elevatorCapacities, "");
+    }
+
+    /**
+     * CTor which instantiates all members of a building whose topics are below a prefix.
+     * @param nrOfElevators The number of elevators.
+     * @param nrOfFloors The number of floors.
+     * @param floorHeight The height of all floors.
+     * @param elevatorCapacities The capacities of the elevators.
+     * @param topicPrefix The prefix of all topics, e.g. building/&lt;id&gt;/, empty for a single building.
+     * @throws IllegalArgumentException If the number of elevators does not match the number of elevator capacities.
+     */
+    public ElevatorState(int nrOfElevators, int nrOfFloors, int floorHeight, int[] elevatorCapacities,
+                         String topicPrefix) throws IllegalArgumentException {
         if (elevatorCapacities.length != nrOfElevators) {
             throw new IllegalArgumentException("The number of elevators must be equal to the amount of elevator capacities");
         }
@@ -41,6 +58,8 @@ public class ElevatorState {
         for (int i = 0; i < nrOfFloors; ++i) {
             mFloors[i] = new Floor();
         }
+
+        mTopics = new TopicRegistry(nrOfElevators, nrOfFloors, topicPrefix);
     }
 
     /**
@@ -58,4 +77,12 @@ public class ElevatorState {
     public Floor[] getFloors() {
         return mFloors;
     }
+
+    /**
+     * Returns the topics of all elevators and floors.
+     * @return The topic registry.
+     */
+    public TopicRegistry getTopicRegistry() {
+        return mTopics;
+    }
 }
@@ -0,0 +1,76 @@
+package at.fhhagenberg.sqelevator.simulator;
+
+import java.util.Random;
+
+/**
+ * Class which generates passengers for the {@link SimulatedElevator}.
+ * Passengers arrive at a constant mean rate. A share of them starts at the ground floor, like the
+ * up-peak traffic of an office building, and the others travel between random floors.
+ */
+public class PassengerGenerator {
+    /**< The number of floors. */
+    private final int mNumOfFloors;
+    /**< The mean number of arriving passengers per second. */
+    private final double mRate;
+    /**< The share of passengers which start at the ground floor. */
+    private final double mLobbyShare;
+    /**< The random generator, seeded for reproducible runs. */
+    private final Random mRandom;
+    /**< The fractional passengers carried over to the next step. */
+    private double mPending = 0;
+
+    /**
+     * CTor which instantiates all members.
+     *
+     * @param numOfFloors The number of floors.
+     * @param rate The mean number of arriving passengers per second.
+     * @param lobbyShare The share of passengers which start at the ground floor, between 0 and 1.
+     * @param seed The seed of the random generator.
+     */
+    public PassengerGenerator(int numOfFloors, double rate, double lobbyShare, long seed) {
+        if (numOfFloors < 2)
+            throw new IllegalArgumentException("Invalid number of floors");
+
+        if (rate < 0)
+            throw new IllegalArgumentException("Invalid passenger rate");
+
+        if (lobbyShare < 0 || lobbyShare > 1)
+            throw new IllegalArgumentException("Invalid lobby share");
+
+        mNumOfFloors = numOfFloors;
+        mRate = rate;
+        mLobbyShare = lobbyShare;
+        mRandom = new Random(seed);
+    }
+
+    /**
+     * Returns the number of passengers arriving within a time step.
+     * @param stepMillis The length of the step in milliseconds.
+     * @return The number of passengers.
+     */
+    public int arrivals(long stepMillis) {
+        // jitter the expected arrivals, so the passengers do not arrive in lockstep
+        mPending += mRate * stepMillis / 1000.0 * 2 * mRandom.nextDouble();
+        int arrivals = (int) mPending;
+        mPending -= arrivals;
+        return arrivals;
+    }
+
+    /**
+     * Returns the floor a new passenger starts at.
+     * @return The floor number.
+     */
+    public int nextOrigin() {
+        return mRandom.nextDouble() < mLobbyShare ? 0 : mRandom.nextInt(mNumOfFloors);
+    }
+
+    /**
+     * Returns the floor a new passenger travels to.
+     * @param origin The floor the passenger starts at.
+     * @return The floor number, different from the origin.
+     */
+    public int nextDestination(int origin) {
+        int destination = mRandom.nextInt(mNumOfFloors - 1);
+        return destination >= origin ? destination + 1 : destination;
+    }
+}
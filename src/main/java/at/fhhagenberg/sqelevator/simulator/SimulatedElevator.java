@@ -0,0 +1,557 @@
+package at.fhhagenberg.sqelevator.simulator;
+
+import java.rmi.RemoteException;
+import java.rmi.registry.LocateRegistry;
+import java.rmi.registry.Registry;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.LongSupplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import sqelevator.IElevator;
+
+/**
+ * In-process stand-in for the elevator simulator, for load tests with many elevators and floors.
+ * The cars move with a limited speed and acceleration, their doors take one second to open and close,
+ * and passengers from a {@link PassengerGenerator} press the hall buttons, board, press the elevator
+ * buttons and add their weight.
+ * <p>
+ * The simulation advances in fixed steps whenever it is accessed, up to the time of its clock, so it
+ * needs no thread of its own and runs deterministically with a test clock.
+ */
+public class SimulatedElevator implements IElevator {
+    /**< The default length of a simulation step in milliseconds. */
+    public static final long DEFAULT_STEP = 10;
+    /**< The default floor height in feet. */
+    public static final int DEFAULT_FLOOR_HEIGHT = 10;
+    /**< The default capacity of a car in passengers. */
+    public static final int DEFAULT_CAPACITY = 20;
+    /**< The default maximum speed in feet per second. */
+    public static final double DEFAULT_MAX_SPEED = 20;
+    /**< The default acceleration in feet per second squared. */
+    public static final double DEFAULT_ACCELERATION = 5;
+    /**< The time the doors take to open or close in milliseconds. */
+    public static final long DOOR_TIME = 1000;
+    /**< The time the doors stay open in milliseconds. */
+    public static final long DWELL_TIME = 1000;
+    /**< The weight of a passenger in pounds. */
+    public static final int PASSENGER_WEIGHT = 170;
+
+    /**< The logger. */
+    private static final Logger logger = Logger.getLogger(SimulatedElevator.class.getName());
+
+    /**
+     * Class which holds the state of one car.
+     */
+    private static class Car {
+        /**< The position in feet above the ground floor. */
+        double mPosition = 0;
+        /**< The speed in feet per second, positive when heading up. */
+        double mSpeed = 0;
+        /**< The current acceleration in feet per second squared. */
+        double mAcceleration = 0;
+        /**< The target floor. */
+        int mTarget = 0;
+        /**< The committed direction. */
+        int mCommittedDirection = ELEVATOR_DIRECTION_UNCOMMITTED;
+        /**< The door status. */
+        int mDoorStatus = ELEVATOR_DOORS_CLOSED;
+        /**< The remaining time of the current door phase in milliseconds. */
+        long mDoorTimer = 0;
+        /**< If the car has served its target since it was set. */
+        boolean mArrived = true;
+        /**< The number of passengers per destination floor. */
+        final int[] mRiders;
+        /**< The number of passengers on board. */
+        int mLoad = 0;
+        /**< The elevator buttons. */
+        final boolean[] mButtons;
+        /**< The serviced floors. */
+        final boolean[] mServices;
+
+        /**
+         * CTor which instantiates all members.
+         *
+         * @param numOfFloors The number of floors.
+         */
+        Car(int numOfFloors) {
+            mRiders = new int[numOfFloors];
+            mButtons = new boolean[numOfFloors];
+            mServices = new boolean[numOfFloors];
+            Arrays.fill(mServices, true);
+        }
+    }
+
+    /**< The number of floors. */
+    private final int mNumOfFloors;
+    /**< The floor height in feet. */
+    private final int mFloorHeight;
+    /**< The capacity of every car in passengers. */
+    private final int mCapacity;
+    /**< The cars. */
+    private final Car[] mCars;
+    /**< The destinations of the passengers waiting to go up, per floor. */
+    private final List<ArrayDeque<Integer>> mWaitingUp;
+    /**< The destinations of the passengers waiting to go down, per floor. */
+    private final List<ArrayDeque<Integer>> mWaitingDown;
+
+    /**< The clock in milliseconds. */
+    private final LongSupplier mClock;
+    /**< The length of a simulation step in milliseconds. */
+    private long mStep = DEFAULT_STEP;
+    /**< The maximum speed in feet per second. */
+    private double mMaxSpeed = DEFAULT_MAX_SPEED;
+    /**< The acceleration in feet per second squared. */
+    private double mMaxAcceleration = DEFAULT_ACCELERATION;
+    /**< The passenger generator, null if no passengers arrive. */
+    private PassengerGenerator mPassengers = null;
+
+    /**< The time up to which the simulation has advanced in milliseconds. */
+    private long mTime;
+    /**< The number of simulated steps. */
+    private long mClockTick = 0;
+    /**< The number of passengers which reached their destination. */
+    private long mDelivered = 0;
+
+    /**
+     * CTor which simulates along the system clock.
+     *
+     * @param numOfElevators The number of elevators.
+     * @param numOfFloors The number of floors.
+     * @param floorHeight The floor height in feet.
+     * @param capacity The capacity of every car in passengers.
+     */
+    public SimulatedElevator(int numOfElevators, int numOfFloors, int floorHeight, int capacity) {
+        this(numOfElevators, numOfFloors, floorHeight, capacity, System::currentTimeMillis);
+    }
+
+    /**
+     * CTor which simulates along a clock.
+     *
+     * @param numOfElevators The number of elevators.
+     * @param numOfFloors The number of floors.
+     * @param floorHeight The floor height in feet.
+     * @param capacity The capacity of every car in passengers.
+     * @param clock The clock in milliseconds.
+     */
+    @SuppressWarnings("unchecked")
+    public SimulatedElevator(int numOfElevators, int numOfFloors, int floorHeight, int capacity, LongSupplier clock) {
+        if (numOfElevators < 1)
+            throw new IllegalArgumentException("Invalid number of elevators");
+
+        if (numOfFloors < 2)
+            throw new IllegalArgumentException("Invalid number of floors");
+
+        if (floorHeight < 1 || capacity < 1)
+            throw new IllegalArgumentException("Invalid floor height or capacity");
+
+        mNumOfFloors = numOfFloors;
+        mFloorHeight = floorHeight;
+        mCapacity = capacity;
+        mCars = new Car[numOfElevators];
+        for (int i = 0; i < numOfElevators; ++i) {
+            mCars[i] = new Car(numOfFloors);
+        }
+
+        mWaitingUp = new ArrayList<>(numOfFloors);
+        mWaitingDown = new ArrayList<>(numOfFloors);
+        for (int i = 0; i < numOfFloors; ++i) {
+            mWaitingUp.add(new ArrayDeque<>());
+            mWaitingDown.add(new ArrayDeque<>());
+        }
+
+        mClock = clock;
+        mTime = clock.getAsLong();
+    }
+
+    /**
+     * Serves a simulated building via RMI, so the adapter can connect to it like to the real simulator.
+     * @param args The number of elevators, the number of floors, the passengers per second and the RMI name.
+     * @throws RemoteException if the RMI registry cannot be created
+     */
+    public static void main(String[] args) throws RemoteException {
+        int numOfElevators = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        int numOfFloors = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        double rate = args.length > 2 ? Double.parseDouble(args[2]) : 2;
+        String name = args.length > 3 ? args[3] : "ElevatorSim";
+
+        SimulatedElevator simulator = new SimulatedElevator(numOfElevators, numOfFloors, DEFAULT_FLOOR_HEIGHT,
+                DEFAULT_CAPACITY);
+        simulator.setPassengerGenerator(new PassengerGenerator(numOfFloors, rate, 0.5, 1));
+
+        Registry registry = LocateRegistry.createRegistry(Registry.REGISTRY_PORT);
+        registry.rebind(name, UnicastRemoteObject.exportObject(simulator, 0));
+        logger.log(Level.INFO, "Simulating {0} elevators and {1} floors as rmi://localhost/{2}",
+                new Object[]{numOfElevators, numOfFloors, name});
+    }
+
+    /**
+     * Sets the kinematics of the cars.
+     * @param maxSpeed The maximum speed in feet per second.
+     * @param acceleration The acceleration in feet per second squared.
+     */
+    public synchronized void setKinematics(double maxSpeed, double acceleration) {
+        if (maxSpeed <= 0 || acceleration <= 0)
+            throw new IllegalArgumentException("Invalid kinematics");
+
+        mMaxSpeed = maxSpeed;
+        mMaxAcceleration = acceleration;
+    }
+
+    /**
+     * Sets the length of a simulation step.
+     * @param step The length in milliseconds.
+     */
+    public synchronized void setStep(long step) {
+        if (step < 1)
+            throw new IllegalArgumentException("Invalid step");
+
+        mStep = step;
+    }
+
+    /**
+     * Sets the passenger generator.
+     * @param passengers The generator, null if no passengers arrive.
+     */
+    public synchronized void setPassengerGenerator(PassengerGenerator passengers) {
+        mPassengers = passengers;
+    }
+
+    /**
+     * Adds a waiting passenger and presses the hall button of its floor.
+     * @param origin The floor the passenger waits at.
+     * @param destination The floor the passenger travels to.
+     */
+    public synchronized void addPassenger(int origin, int destination) {
+        checkFloor(origin);
+        checkFloor(destination);
+        if (origin == destination)
+            throw new IllegalArgumentException("Passenger already at its destination");
+
+        (destination > origin ? mWaitingUp.get(origin) : mWaitingDown.get(origin)).add(destination);
+    }
+
+    /**
+     * Returns the number of passengers which reached their destination.
+     * @return The number of passengers.
+     */
+    public synchronized long getDeliveredPassengers() {
+        advance();
+        return mDelivered;
+    }
+
+    /**
+     * Returns the number of waiting passengers.
+     * @return The number of passengers.
+     */
+    public synchronized int getWaitingPassengers() {
+        advance();
+        int waiting = 0;
+        for (int i = 0; i < mNumOfFloors; ++i) {
+            waiting += mWaitingUp.get(i).size() + mWaitingDown.get(i).size();
+        }
+        return waiting;
+    }
+
+    @Override
+    public synchronized int getCommittedDirection(int elevatorNumber) throws RemoteException {
+        return car(elevatorNumber).mCommittedDirection;
+    }
+
+    @Override
+    public synchronized int getElevatorAccel(int elevatorNumber) throws RemoteException {
+        return (int) Math.round(car(elevatorNumber).mAcceleration);
+    }
+
+    @Override
+    public synchronized boolean getElevatorButton(int elevatorNumber, int floor) throws RemoteException {
+        checkFloor(floor);
+        return car(elevatorNumber).mButtons[floor];
+    }
+
+    @Override
+    public synchronized int getElevatorDoorStatus(int elevatorNumber) throws RemoteException {
+        return car(elevatorNumber).mDoorStatus;
+    }
+
+    @Override
+    public synchronized int getElevatorFloor(int elevatorNumber) throws RemoteException {
+        return nearestFloor(car(elevatorNumber));
+    }
+
+    @Override
+    public int getElevatorNum() throws RemoteException {
+        return mCars.length;
+    }
+
+    @Override
+    public synchronized int getElevatorPosition(int elevatorNumber) throws RemoteException {
+        return (int) Math.round(car(elevatorNumber).mPosition);
+    }
+
+    @Override
+    public synchronized int getElevatorSpeed(int elevatorNumber) throws RemoteException {
+        return (int) Math.round(car(elevatorNumber).mSpeed);
+    }
+
+    @Override
+    public synchronized int getElevatorWeight(int elevatorNumber) throws RemoteException {
+        return car(elevatorNumber).mLoad * PASSENGER_WEIGHT;
+    }
+
+    @Override
+    public int getElevatorCapacity(int elevatorNumber) throws RemoteException {
+        return mCapacity;
+    }
+
+    @Override
+    public synchronized boolean getFloorButtonDown(int floor) throws RemoteException {
+        checkFloor(floor);
+        advance();
+        return !mWaitingDown.get(floor).isEmpty();
+    }
+
+    @Override
+    public synchronized boolean getFloorButtonUp(int floor) throws RemoteException {
+        checkFloor(floor);
+        advance();
+        return !mWaitingUp.get(floor).isEmpty();
+    }
+
+    @Override
+    public int getFloorHeight() throws RemoteException {
+        return mFloorHeight;
+    }
+
+    @Override
+    public int getFloorNum() throws RemoteException {
+        return mNumOfFloors;
+    }
+
+    @Override
+    public synchronized boolean getServicesFloors(int elevatorNumber, int floor) throws RemoteException {
+        checkFloor(floor);
+        return car(elevatorNumber).mServices[floor];
+    }
+
+    @Override
+    public synchronized int getTarget(int elevatorNumber) throws RemoteException {
+        return car(elevatorNumber).mTarget;
+    }
+
+    @Override
+    public synchronized void setCommittedDirection(int elevatorNumber, int direction) throws RemoteException {
+        if (direction < ELEVATOR_DIRECTION_UP || direction > ELEVATOR_DIRECTION_UNCOMMITTED)
+            throw new IllegalArgumentException("Invalid direction");
+
+        car(elevatorNumber).mCommittedDirection = direction;
+    }
+
+    @Override
+    public synchronized void setServicesFloors(int elevatorNumber, int floor, boolean service) throws RemoteException {
+        checkFloor(floor);
+        // the ground floor is always serviced
+        car(elevatorNumber).mServices[floor] = service || floor == 0;
+    }
+
+    @Override
+    public synchronized void setTarget(int elevatorNumber, int target) throws RemoteException {
+        checkFloor(target);
+        Car car = car(elevatorNumber);
+        if (car.mTarget != target || !car.mArrived) {
+            car.mTarget = target;
+            car.mArrived = false;
+        }
+        else if (car.mDoorStatus == ELEVATOR_DOORS_CLOSED) {
+            // targeting the floor the car stands at opens the doors again
+            car.mArrived = false;
+        }
+    }
+
+    @Override
+    public synchronized long getClockTick() throws RemoteException {
+        advance();
+        return mClockTick;
+    }
+
+    /**
+     * Returns a car after advancing the simulation to the current time.
+     * @param elevatorNumber The elevator number.
+     * @return The car.
+     */
+    private Car car(int elevatorNumber) {
+        if (elevatorNumber < 0 || elevatorNumber >= mCars.length)
+            throw new IllegalArgumentException("Invalid elevator number");
+
+        advance();
+        return mCars[elevatorNumber];
+    }
+
+    /**
+     * Advances the simulation in steps up to the time of the clock.
+     */
+    private void advance() {
+        long now = mClock.getAsLong();
+        while (mTime + mStep <= now) {
+            step();
+            mTime += mStep;
+            ++mClockTick;
+        }
+    }
+
+    /**
+     * Simulates one step.
+     */
+    private void step() {
+        if (mPassengers != null) {
+            for (int i = mPassengers.arrivals(mStep); i > 0; --i) {
+                int origin = mPassengers.nextOrigin();
+                addPassenger(origin, mPassengers.nextDestination(origin));
+            }
+        }
+
+        double dt = mStep / 1000.0;
+        for (Car car : mCars) {
+            if (car.mDoorStatus != ELEVATOR_DOORS_CLOSED) {
+                stepDoors(car);
+            }
+            else if (!car.mArrived) {
+                stepMotion(car, dt);
+            }
+        }
+    }
+
+    /**
+     * Advances the doors of a car standing at a floor.
+     * @param car The car.
+     */
+    private void stepDoors(Car car) {
+        car.mDoorTimer -= mStep;
+        if (car.mDoorTimer > 0) {
+            return;
+        }
+
+        switch (car.mDoorStatus) {
+            case ELEVATOR_DOORS_OPENING -> {
+                car.mDoorStatus = ELEVATOR_DOORS_OPEN;
+                car.mDoorTimer = DWELL_TIME;
+                exchangePassengers(car, nearestFloor(car));
+            }
+            case ELEVATOR_DOORS_OPEN -> {
+                car.mDoorStatus = ELEVATOR_DOORS_CLOSING;
+                car.mDoorTimer = DOOR_TIME;
+            }
+            default -> car.mDoorStatus = ELEVATOR_DOORS_CLOSED;
+        }
+    }
+
+    /**
+     * Moves a car towards its target, braking in time to stop at the target floor.
+     * @param car The car.
+     * @param dt The length of the step in seconds.
+     */
+    private void stepMotion(Car car, double dt) {
+        double target = (double) car.mTarget * mFloorHeight;
+        double distance = target - car.mPosition;
+        double direction = Math.signum(distance);
+
+        if (direction == 0 && car.mSpeed == 0) {
+            arrive(car);
+            return;
+        }
+
+        double brakingDistance = car.mSpeed * car.mSpeed / (2 * mMaxAcceleration);
+        if (car.mSpeed * direction < 0 || brakingDistance >= Math.abs(distance)) {
+            // moving away from the target or close enough to brake
+            car.mAcceleration = -Math.signum(car.mSpeed) * mMaxAcceleration;
+        }
+        else if (Math.abs(car.mSpeed) < mMaxSpeed) {
+            car.mAcceleration = direction * mMaxAcceleration;
+        }
+        else {
+            car.mAcceleration = 0;
+        }
+
+        double speed = car.mSpeed + car.mAcceleration * dt;
+        if (speed * car.mSpeed < 0) {
+            // braking stops the car instead of reversing it within one step
+            speed = 0;
+        }
+        car.mSpeed = Math.max(-mMaxSpeed, Math.min(mMaxSpeed, speed));
+
+        double position = car.mPosition + car.mSpeed * dt;
+        if ((target - position) * direction <= 0) {
+            car.mPosition = target;
+            arrive(car);
+            return;
+        }
+        car.mPosition = position;
+    }
+
+    /**
+     * Stops a car at its target floor and opens the doors.
+     * @param car The car.
+     */
+    private void arrive(Car car) {
+        car.mPosition = (double) car.mTarget * mFloorHeight;
+        car.mSpeed = 0;
+        car.mAcceleration = 0;
+        car.mArrived = true;
+        car.mDoorStatus = ELEVATOR_DOORS_OPENING;
+        car.mDoorTimer = DOOR_TIME;
+    }
+
+    /**
+     * Lets the passengers of a car alight and the waiting passengers board.
+     * @param car The car with open doors.
+     * @param floor The floor the car stands at.
+     */
+    private void exchangePassengers(Car car, int floor) {
+        mDelivered += car.mRiders[floor];
+        car.mLoad -= car.mRiders[floor];
+        car.mRiders[floor] = 0;
+        car.mButtons[floor] = false;
+
+        if (car.mCommittedDirection != ELEVATOR_DIRECTION_DOWN) {
+            board(car, mWaitingUp.get(floor));
+        }
+        if (car.mCommittedDirection != ELEVATOR_DIRECTION_UP) {
+            board(car, mWaitingDown.get(floor));
+        }
+    }
+
+    /**
+     * Lets waiting passengers board a car up to its capacity.
+     * @param car The car.
+     * @param waiting The destinations of the waiting passengers.
+     */
+    private void board(Car car, ArrayDeque<Integer> waiting) {
+        while (car.mLoad < mCapacity && !waiting.isEmpty()) {
+            int destination = waiting.poll();
+            car.mRiders[destination]++;
+            car.mButtons[destination] = true;
+            car.mLoad++;
+        }
+    }
+
+    /**
+     * Returns the floor closest to a car.
+     * @param car The car.
+     * @return The floor number.
+     */
+    private int nearestFloor(Car car) {
+        return (int) Math.max(0, Math.min(mNumOfFloors - 1, Math.round(car.mPosition / mFloorHeight)));
+    }
+
+    /**
+     * Checks a floor number.
+     * @param floor The floor number.
+     */
+    private void checkFloor(int floor) {
+        if (floor < 0 || floor >= mNumOfFloors)
+            throw new IllegalArgumentException("Invalid floor number");
+    }
+}
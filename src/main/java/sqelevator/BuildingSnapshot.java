@@ -0,0 +1,90 @@
+package sqelevator;
+
+/**
+ * Snapshot of all elevators and floors of a building, fetched from the elevator control system in one remote call.
+ *
+ * @see IElevatorBulk#getBuildingSnapshot()
+ * @version 1.0
+ */
+public class BuildingSnapshot implements java.io.Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The snapshots of all elevators. */
+	private final ElevatorSnapshot[] elevators;
+	/** The status of the up buttons, indexed by floor. */
+	private final boolean[] floorButtonUp;
+	/** The status of the down buttons, indexed by floor. */
+	private final boolean[] floorButtonDown;
+	/** The clock tick at which the snapshot was taken. */
+	private final long clockTick;
+
+	/**
+	 * Creates a new building snapshot.
+	 * @param elevators the snapshots of all elevators
+	 * @param floorButtonUp the status of the up buttons, indexed by floor
+	 * @param floorButtonDown the status of the down buttons, indexed by floor
+	 * @param clockTick the clock tick at which the snapshot was taken
+	 */
+	public BuildingSnapshot(ElevatorSnapshot[] elevators, boolean[] floorButtonUp, boolean[] floorButtonDown, long clockTick) {
+		if (floorButtonUp.length != floorButtonDown.length) {
+			throw new IllegalArgumentException("Up and down button arrays must have the same length");
+		}
+
+		this.elevators = elevators.clone();
+		this.floorButtonUp = floorButtonUp.clone();
+		this.floorButtonDown = floorButtonDown.clone();
+		this.clockTick = clockTick;
+	}
+
+	/**
+	 * Retrieves the number of elevators covered by this snapshot.
+	 * @return the number of elevators
+	 */
+	public int getElevatorNum() {
+		return elevators.length;
+	}
+
+	/**
+	 * Retrieves the number of floors covered by this snapshot.
+	 * @return the number of floors
+	 */
+	public int getFloorNum() {
+		return floorButtonUp.length;
+	}
+
+	/**
+	 * Retrieves the snapshot of an elevator.
+	 * @param elevatorNumber the elevator number
+	 * @return the snapshot of the elevator
+	 */
+	public ElevatorSnapshot getElevator(int elevatorNumber) {
+		return elevators[elevatorNumber];
+	}
+
+	/**
+	 * Retrieves the status of the up button of a floor.
+	 * @param floor the floor number
+	 * @return true if the button is active, false otherwise
+	 */
+	public boolean getFloorButtonUp(int floor) {
+		return floorButtonUp[floor];
+	}
+
+	/**
+	 * Retrieves the status of the down button of a floor.
+	 * @param floor the floor number
+	 * @return true if the button is active, false otherwise
+	 */
+	public boolean getFloorButtonDown(int floor) {
+		return floorButtonDown[floor];
+	}
+
+	/**
+	 * Retrieves the clock tick at which the snapshot was taken.
+	 * @return the clock tick
+	 */
+	public long getClockTick() {
+		return clockTick;
+	}
+}
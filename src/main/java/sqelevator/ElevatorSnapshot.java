@@ -0,0 +1,154 @@
+package sqelevator;
+
+/**
+ * Snapshot of all values of a single elevator, fetched from the elevator control system in one remote call.
+ *
+ * @see IElevatorBulk#getElevatorSnapshot(int)
+ * @version 1.0
+ */
+public class ElevatorSnapshot implements java.io.Serializable {
+
+	private static final long serialVersionUID = 2L;
+
+	/** The committed direction of the elevator. */
+	private final int committedDirection;
+	/** The acceleration of the elevator. */
+	private final int accel;
+	/** The speed of the elevator. */
+	private final int speed;
+	/** The door status of the elevator. */
+	private final int doorStatus;
+	/** The nearest floor of the elevator. */
+	private final int floor;
+	/** The position of the elevator in feet above the ground floor. */
+	private final int position;
+	/** The target floor of the elevator. */
+	private final int target;
+	/** The weight of the passengers in the elevator. */
+	private final int weight;
+	/** The status of the elevator buttons, indexed by floor. */
+	private final boolean[] buttons;
+	/** The serviced floors of the elevator, indexed by floor. */
+	private final boolean[] servicesFloors;
+
+	/**
+	 * Creates a new elevator snapshot.
+	 * @param committedDirection the committed direction of the elevator
+	 * @param accel the acceleration of the elevator
+	 * @param speed the speed of the elevator
+	 * @param doorStatus the door status of the elevator
+	 * @param floor the nearest floor of the elevator
+	 * @param position the position of the elevator in feet above the ground floor
+	 * @param target the target floor of the elevator
+	 * @param weight the weight of the passengers in the elevator
+	 * @param buttons the status of the elevator buttons, indexed by floor
+	 * @param servicesFloors the serviced floors of the elevator, indexed by floor
+	 */
+	public ElevatorSnapshot(int committedDirection, int accel, int speed, int doorStatus, int floor, int position,
+			int target, int weight, boolean[] buttons, boolean[] servicesFloors) {
+		if (buttons.length != servicesFloors.length) {
+			throw new IllegalArgumentException("Button and service arrays must have the same length");
+		}
+
+		this.committedDirection = committedDirection;
+		this.accel = accel;
+		this.speed = speed;
+		this.doorStatus = doorStatus;
+		this.floor = floor;
+		this.position = position;
+		this.target = target;
+		this.weight = weight;
+		this.buttons = buttons.clone();
+		this.servicesFloors = servicesFloors.clone();
+	}
+
+	/**
+	 * Retrieves the committed direction of the elevator.
+	 * @return the committed direction
+	 */
+	public int getCommittedDirection() {
+		return committedDirection;
+	}
+
+	/**
+	 * Retrieves the acceleration of the elevator.
+	 * @return the acceleration
+	 */
+	public int getElevatorAccel() {
+		return accel;
+	}
+
+	/**
+	 * Retrieves the speed of the elevator.
+	 * @return the speed
+	 */
+	public int getElevatorSpeed() {
+		return speed;
+	}
+
+	/**
+	 * Retrieves the door status of the elevator.
+	 * @return the door status
+	 */
+	public int getElevatorDoorStatus() {
+		return doorStatus;
+	}
+
+	/**
+	 * Retrieves the nearest floor of the elevator.
+	 * @return the nearest floor
+	 */
+	public int getElevatorFloor() {
+		return floor;
+	}
+
+	/**
+	 * Retrieves the position of the elevator.
+	 * @return the position in feet above the ground floor
+	 */
+	public int getElevatorPosition() {
+		return position;
+	}
+
+	/**
+	 * Retrieves the target floor of the elevator.
+	 * @return the target floor
+	 */
+	public int getTarget() {
+		return target;
+	}
+
+	/**
+	 * Retrieves the weight of the passengers in the elevator.
+	 * @return the weight
+	 */
+	public int getElevatorWeight() {
+		return weight;
+	}
+
+	/**
+	 * Retrieves the number of floors covered by this snapshot.
+	 * @return the number of floors
+	 */
+	public int getFloorNum() {
+		return buttons.length;
+	}
+
+	/**
+	 * Retrieves the status of an elevator button.
+	 * @param floor the floor of the button
+	 * @return true if the button is active, false otherwise
+	 */
+	public boolean getElevatorButton(int floor) {
+		return buttons[floor];
+	}
+
+	/**
+	 * Retrieves whether the elevator services a floor.
+	 * @param floor the floor to check
+	 * @return true if the floor is serviced, false otherwise
+	 */
+	public boolean getServicesFloors(int floor) {
+		return servicesFloors[floor];
+	}
+}
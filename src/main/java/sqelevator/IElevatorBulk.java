@@ -0,0 +1,29 @@
+package sqelevator;
+
+/**
+ * Extension of {@link IElevator} for elevator control systems which are able to deliver the state
+ * of a whole elevator or building in a single remote call.
+ *
+ * <p>Control systems which only implement {@link IElevator} are still supported by the adapter,
+ * which then falls back to calling the individual getters.</p>
+ *
+ * @version 1.0
+ */
+public interface IElevatorBulk extends IElevator {
+
+	/**
+	 * Retrieves all values of the specified elevator in one call.
+	 * @param elevatorNumber elevator number whose values are being retrieved
+	 * @return snapshot of the elevator
+	 * @throws java.rmi.RemoteException if the remote invocation fails
+	 */
+	public ElevatorSnapshot getElevatorSnapshot(int elevatorNumber) throws java.rmi.RemoteException;
+
+	/**
+	 * Retrieves all values of all elevators and floors in one call.
+	 * @return snapshot of the building
+	 * @throws java.rmi.RemoteException if the remote invocation fails
+	 */
+	public BuildingSnapshot getBuildingSnapshot() throws java.rmi.RemoteException;
+
+}
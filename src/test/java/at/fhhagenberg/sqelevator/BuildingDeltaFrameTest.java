@@ -0,0 +1,89 @@
+package at.fhhagenberg.sqelevator;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the building delta frame
+ */
+public class BuildingDeltaFrameTest {
+    /**
+     * Test encoding and decoding a frame.
+     */
+    @Test
+    public void testRoundTrip() {
+        BuildingDeltaFrame frame = new BuildingDeltaFrame(3, 10);
+        frame.begin(42, 1234567890123L, false);
+        frame.add(FleetField.SPEED, 2, -1, -15);
+        frame.add(FleetField.FLOOR_REQUESTED, 1, 9, 1);
+        frame.add(FleetField.BUTTON_DOWN, -1, 4, 0);
+
+        byte[] payload = frame.encode();
+        assertEquals(BuildingDeltaFrame.size(3), payload.length);
+        assertEquals(BuildingDeltaFrame.HEADER_SIZE + 3 * BuildingDeltaFrame.ENTRY_SIZE, payload.length);
+
+        BuildingDeltaFrame decoded = BuildingDeltaFrame.decode(payload);
+        assertEquals(3, decoded.getNumOfElevators());
+        assertEquals(10, decoded.getNumOfFloors());
+        assertEquals(42, decoded.getSequence());
+        assertEquals(1234567890123L, decoded.getClockTick());
+        assertFalse(decoded.isKeyframe());
+        assertEquals(3, decoded.getEntryCount());
+
+        assertEquals(FleetField.SPEED, decoded.getField(0));
+        assertEquals(2, decoded.getElevator(0));
+        assertEquals(-1, decoded.getFloor(0));
+        assertEquals(-15, decoded.getValue(0));
+        assertEquals(FleetField.FLOOR_REQUESTED, decoded.getField(1));
+        assertEquals(1, decoded.getElevator(1));
+        assertEquals(9, decoded.getFloor(1));
+        assertEquals(1, decoded.getValue(1));
+        assertEquals(FleetField.BUTTON_DOWN, decoded.getField(2));
+        assertEquals(-1, decoded.getElevator(2));
+        assertEquals(4, decoded.getFloor(2));
+        assertEquals(0, decoded.getValue(2));
+    }
+
+    /**
+     * Test that a reused frame starts empty and grows beyond its initial capacity.
+     */
+    @Test
+    public void testReuse() {
+        BuildingDeltaFrame frame = new BuildingDeltaFrame(100, 50);
+        frame.begin(0, -1, true);
+        for (int e = 0; e < 100; ++e) {
+            frame.add(FleetField.WEIGHT, e, -1, e * 10);
+        }
+        assertEquals(100, frame.getEntryCount());
+        assertEquals(990, BuildingDeltaFrame.decode(frame.encode()).getValue(99));
+        assertTrue(BuildingDeltaFrame.decode(frame.encode()).isKeyframe());
+
+        frame.begin(1, -1, false);
+        assertEquals(0, frame.getEntryCount());
+        assertEquals(BuildingDeltaFrame.HEADER_SIZE, frame.encode().length);
+        assertThrows(IllegalArgumentException.class, () -> frame.getValue(0));
+    }
+
+    /**
+     * Test that invalid entries and payloads are rejected.
+     */
+    @Test
+    public void testInvalidPayload() {
+        BuildingDeltaFrame frame = new BuildingDeltaFrame(2, 3);
+        assertThrows(IllegalArgumentException.class, () -> frame.add(FleetField.SPEED, 2, -1, 0));
+        assertThrows(IllegalArgumentException.class, () -> frame.add(FleetField.BUTTON_UP, -1, 3, 0));
+        assertThrows(IllegalArgumentException.class, () -> new BuildingDeltaFrame(-1, 3));
+
+        frame.add(FleetField.DIRECTION, 0, -1, 1);
+        byte[] payload = frame.encode();
+        assertThrows(IllegalArgumentException.class, () -> BuildingDeltaFrame.decode(new byte[2]));
+        assertThrows(IllegalArgumentException.class, () -> BuildingDeltaFrame.decode(java.util.Arrays.copyOf(payload, payload.length - 1)));
+
+        payload[BuildingDeltaFrame.HEADER_SIZE] = (byte) FleetField.values().length;
+        assertThrows(IllegalArgumentException.class, () -> BuildingDeltaFrame.decode(payload));
+
+        payload[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> BuildingDeltaFrame.decode(payload));
+    }
+}
@@ -0,0 +1,67 @@
+package at.fhhagenberg.sqelevator;
+
+import org.junit.jupiter.api.Test;
+import sqelevator.IElevator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the elevator state frame
+ */
+public class ElevatorStateFrameTest {
+    /**
+     * Test encoding and decoding a frame.
+     */
+    @Test
+    public void testRoundTrip() {
+        ElevatorStateFrame frame = new ElevatorStateFrame(12);
+        frame.setScalars(IElevator.ELEVATOR_DIRECTION_DOWN, -3, -15, IElevator.ELEVATOR_DOORS_CLOSING, 7, 2, 850, 71);
+        frame.setElevatorButton(0, true);
+        frame.setElevatorButton(11, true);
+        for (int f = 0; f < 12; ++f) {
+            frame.setServicesFloor(f, f != 5);
+        }
+
+        byte[] payload = frame.encode();
+        assertEquals(ElevatorStateFrame.size(12), payload.length);
+        assertEquals(ElevatorStateFrame.HEADER_SIZE + 4, payload.length);
+
+        ElevatorStateFrame decoded = ElevatorStateFrame.decode(payload);
+        assertEquals(12, decoded.getNumOfFloors());
+        assertEquals(IElevator.ELEVATOR_DIRECTION_DOWN, decoded.getDirection());
+        assertEquals(-3, decoded.getAcceleration());
+        assertEquals(-15, decoded.getSpeed());
+        assertEquals(IElevator.ELEVATOR_DOORS_CLOSING, decoded.getDoorStatus());
+        assertEquals(7, decoded.getCurrentFloor());
+        assertEquals(2, decoded.getTargetFloor());
+        assertEquals(850, decoded.getWeight());
+        assertEquals(71, decoded.getPosition());
+        for (int f = 0; f < 12; ++f) {
+            assertEquals(f == 0 || f == 11, decoded.getElevatorButton(f));
+            assertEquals(f != 5, decoded.getServicesFloor(f));
+        }
+    }
+
+    /**
+     * Test the size of a frame of a large building.
+     */
+    @Test
+    public void testSize() {
+        // one message instead of 8 scalar and 400 flag topics
+        assertEquals(ElevatorStateFrame.HEADER_SIZE + 50, new ElevatorStateFrame(200).encode().length);
+    }
+
+    /**
+     * Test that invalid payloads are rejected.
+     */
+    @Test
+    public void testInvalidPayload() {
+        byte[] payload = new ElevatorStateFrame(3).encode();
+        assertThrows(IllegalArgumentException.class, () -> ElevatorStateFrame.decode(new byte[2]));
+        assertThrows(IllegalArgumentException.class, () -> ElevatorStateFrame.decode(java.util.Arrays.copyOf(payload, payload.length + 1)));
+
+        payload[0] = 2;
+        assertThrows(IllegalArgumentException.class, () -> ElevatorStateFrame.decode(payload));
+        assertThrows(IllegalArgumentException.class, () -> new ElevatorStateFrame(-1));
+    }
+}
@@ -2,6 +2,7 @@ package at.fhhagenberg.sqelevator;
 
 import at.fhhagenberg.sqelevator.adapter.*;
 import at.fhhagenberg.sqelevator.algorithm.*;
+import at.fhhagenberg.sqelevator.simulator.*;
 
 import org.junit.platform.suite.api.SelectClasses;
 import org.junit.platform.suite.api.Suite;
@@ -14,5 +15,16 @@ import org.junit.platform.suite.api.Suite;
     ElevatorControlSystemTest.class, ElevatorMqttAdapterTest.class,
     ElevatorStateTest.class, ElevatorAlgorithmTest.class,
     FaultyBrokerElevatorAlgorithmTest.class, FaultyBrokerElevatorMqttAdapterTest.class,
-    RMIDisconnectElevatorMqttAdapterTest.class})
-public class ElevatorTestSuite {}
\ No newline at end of file
+    RMIDisconnectElevatorMqttAdapterTest.class, PlcSnapshotTest.class,
+    PlcSnapshotReaderTest.class, PollExecutorsTest.class,
+    AdaptivePollIntervalTest.class, ClockTickGateTest.class,
+    DirtyFieldSetTest.class, TopicRegistryTest.class,
+    CachingElevatorTest.class, HallCallBitmapTest.class,
+    PollSchedulerTest.class, LatencyHistogramTest.class,
+    ElevatorShardTest.class, AsyncElevatorTest.class,
+    SnapshotJournalTest.class, SimulatedElevatorTest.class,
+    ReconnectBackoffTest.class, RmiReconnectorTest.class, PlcCommandWriterTest.class,
+    PayloadEncoderTest.class, ElevatorStateFrameTest.class, BuildingDeltaFrameTest.class,
+    PlcFactoryTest.class,
+    MultiBuildingElevatorMqttAdapterTest.class})
+public class ElevatorTestSuite {}
\ No newline at end of file
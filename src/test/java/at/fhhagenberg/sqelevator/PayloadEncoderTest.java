@@ -0,0 +1,63 @@
+package at.fhhagenberg.sqelevator;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the payload encoder
+ */
+public class PayloadEncoderTest {
+    /**
+     * Test that the payloads match the former String encoding.
+     */
+    @Test
+    public void testEncode() {
+        assertEquals("true", new String(PayloadEncoder.encode(true), StandardCharsets.US_ASCII));
+        assertEquals("false", new String(PayloadEncoder.encode(false), StandardCharsets.US_ASCII));
+
+        int[] values = {0, 1, 9, 10, 99, 100, 4095, 4096, 123456, -1, -42, Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (int value : values) {
+            assertEquals(String.valueOf(value), new String(PayloadEncoder.encode(value), StandardCharsets.US_ASCII));
+            assertEquals(String.valueOf(value).length(), PayloadEncoder.length(value));
+        }
+    }
+
+    /**
+     * Test that the cached payloads are shared.
+     */
+    @Test
+    public void testCached() {
+        assertSame(PayloadEncoder.encode(true), PayloadEncoder.encode(true));
+        assertSame(PayloadEncoder.encode(17), PayloadEncoder.encode(17));
+        assertSame(PayloadEncoder.encode(PayloadEncoder.CACHED_INTS - 1), PayloadEncoder.encode(PayloadEncoder.CACHED_INTS - 1));
+        assertNotSame(PayloadEncoder.encode(PayloadEncoder.CACHED_INTS), PayloadEncoder.encode(PayloadEncoder.CACHED_INTS));
+    }
+
+    /**
+     * Test writing several integers into one buffer.
+     */
+    @Test
+    public void testWrite() {
+        byte[] buffer = new byte[16];
+        int offset = PayloadEncoder.write(-305, buffer, 0);
+        buffer[offset++] = ',';
+        offset = PayloadEncoder.write(7, buffer, offset);
+        assertEquals("-305,7", new String(buffer, 0, offset, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Test case which tests if instantiating class is illegal.
+     */
+    @Test
+    public void testIllegalInstantiation() throws NoSuchMethodException {
+        Constructor<PayloadEncoder> constructor = PayloadEncoder.class.getDeclaredConstructor();
+        constructor.setAccessible(true);
+        InvocationTargetException thrown = assertThrows(InvocationTargetException.class, constructor::newInstance);
+        assertEquals(IllegalStateException.class, thrown.getCause().getClass());
+    }
+}
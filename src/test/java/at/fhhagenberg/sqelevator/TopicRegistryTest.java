@@ -0,0 +1,68 @@
+package at.fhhagenberg.sqelevator;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for the topic registry class
+ */
+public class TopicRegistryTest {
+    /**
+     * Test case which tests the constructor with invalid parameters.
+     */
+    @Test
+    public void ctorInvalidTest() {
+        assertThrows(IllegalArgumentException.class, () -> new TopicRegistry(-1, 2));
+        assertThrows(IllegalArgumentException.class, () -> new TopicRegistry(2, -1));
+    }
+
+    /**
+     * Test case which tests the topics of the elevator and floor fields.
+     */
+    @Test
+    public void topicsTest() {
+        TopicRegistry registry = new TopicRegistry(2, 3);
+
+        assertEquals("elevator/1/speed", registry.getTopic(FleetField.SPEED, 1, 0));
+        assertEquals("elevator/0/target_floor", registry.getTopic(FleetField.TARGET_FLOOR, 0, 2));
+        assertEquals("elevator/1/floor_requested/2", registry.getTopic(FleetField.FLOOR_REQUESTED, 1, 2));
+        assertEquals("elevator/0/floor_serviced/0", registry.getTopic(FleetField.FLOOR_SERVICED, 0, 0));
+        assertEquals("floor/2/button_up", registry.getTopic(FleetField.BUTTON_UP, 0, 2));
+        assertEquals("floor/0/button_down", registry.getTopic(FleetField.BUTTON_DOWN, 1, 0));
+
+        assertEquals("elevator/1/floor_requested/2", registry.getMqttTopic(FleetField.FLOOR_REQUESTED, 1, 2).toString());
+        assertSame(registry.getMqttTopic(FleetField.WEIGHT, 1, 0), registry.getMqttTopic(FleetField.WEIGHT, 1, 0));
+
+        assertThrows(IllegalArgumentException.class, () -> registry.getTopic(FleetField.FLOOR_REQUESTED, 0, 3));
+    }
+
+    /**
+     * Test case which tests the control topics.
+     */
+    @Test
+    public void controlTopicsTest() {
+        TopicRegistry registry = new TopicRegistry(2, 3);
+
+        assertEquals("elevator_control/1/target_floor", registry.getTargetFloorControlTopic(1).toString());
+        assertEquals("elevator_control/0/direction", registry.getDirectionControlTopic(0).toString());
+        assertEquals("elevator_control/connection_status", registry.getConnectionStatusTopic().toString());
+    }
+
+    /**
+     * Test case which tests the topics of a building below a prefix.
+     */
+    @Test
+    public void prefixTest() {
+        TopicRegistry registry = new TopicRegistry(2, 3, "building/b1/");
+
+        assertEquals("building/b1/", registry.getPrefix());
+        assertEquals("", new TopicRegistry(2, 3).getPrefix());
+        assertEquals("building/b1/elevator/1/speed", registry.getTopic(FleetField.SPEED, 1, 0));
+        assertEquals("building/b1/elevator/1/floor_requested/2", registry.getMqttTopic(FleetField.FLOOR_REQUESTED, 1, 2).toString());
+        assertEquals("building/b1/floor/2/button_up", registry.getTopic(FleetField.BUTTON_UP, 0, 2));
+        assertEquals("building/b1/elevator_control/connection_status", registry.getConnectionStatusTopic().toString());
+        assertEquals("building/b1/elevator_control/1/target_floor", registry.getTargetFloorControlTopic(1).toString());
+        assertEquals("building/b1/elevator/1/state", registry.getStateTopic(1).toString());
+        assertEquals("building/b1/delta", registry.getDeltaTopic().toString());
+    }
+}
@@ -0,0 +1,95 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for testing the AdaptivePollInterval.
+ */
+public class AdaptivePollIntervalTest {
+    /** The AdaptivePollInterval to test. */
+    AdaptivePollInterval interval;
+
+    /**
+     * Set up the test environment.
+     */
+    @BeforeEach
+    public void setUp() {
+        interval = new AdaptivePollInterval(100, 1000);
+    }
+
+    /**
+     * Test the construction with invalid bounds.
+     */
+    @Test
+    public void testInvalidBounds() {
+        assertThrows(IllegalArgumentException.class, () -> new AdaptivePollInterval(0, 100));
+        assertThrows(IllegalArgumentException.class, () -> new AdaptivePollInterval(200, 100));
+    }
+
+    /**
+     * Test that the interval backs off exponentially while idle and is capped at the maximum.
+     */
+    @Test
+    public void testIdleBackoff() {
+        assertEquals(100, interval.getCurrentInterval());
+        assertEquals(200, interval.nextInterval(false));
+        assertEquals(400, interval.nextInterval(false));
+        assertEquals(800, interval.nextInterval(false));
+        assertEquals(1000, interval.nextInterval(false));
+        assertEquals(1000, interval.nextInterval(false));
+    }
+
+    /**
+     * Test that activity resets the interval to the minimum.
+     */
+    @Test
+    public void testActivityTightens() {
+        interval.nextInterval(false);
+        interval.nextInterval(false);
+        assertEquals(100, interval.nextInterval(true));
+        assertEquals(100, interval.nextInterval(true));
+    }
+
+    /**
+     * Test that a fixed interval never changes.
+     */
+    @Test
+    public void testFixedInterval() {
+        AdaptivePollInterval fixed = new AdaptivePollInterval(250, 250);
+        assertEquals(250, fixed.nextInterval(false));
+        assertEquals(250, fixed.nextInterval(true));
+        assertEquals(250, fixed.getMinInterval());
+        assertEquals(250, fixed.getMaxInterval());
+    }
+
+    /**
+     * Test the effective rate metrics.
+     */
+    @Test
+    public void testEffectiveRate() {
+        assertEquals(10.0, interval.getEffectiveRate(), 0.001);
+
+        for (int i = 0; i < 50; ++i) {
+            interval.recordPoll(i * 500L);
+        }
+
+        assertEquals(50, interval.getPollCount());
+        assertEquals(2.0, interval.getEffectiveRate(), 0.01);
+    }
+
+    /**
+     * Test the formatting of the metrics.
+     */
+    @Test
+    public void testFormat() {
+        assertEquals("{\"interval\":100,\"rate\":10.00,\"polls\":0}", interval.format());
+
+        interval.recordPoll(0);
+        interval.recordPoll(100);
+        interval.nextInterval(false);
+        assertEquals("{\"interval\":200,\"rate\":10.00,\"polls\":2}", interval.format());
+    }
+}
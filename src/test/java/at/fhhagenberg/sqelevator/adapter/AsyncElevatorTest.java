@@ -0,0 +1,139 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for testing the AsyncElevator.
+ */
+public class AsyncElevatorTest {
+    /** The RMI worker threads. */
+    ExecutorService workers;
+
+    /** The stand-in for the PLC. */
+    InMemoryBulkElevator plc;
+
+    /**
+     * Set up the test environment.
+     */
+    @BeforeEach
+    public void setUp() {
+        workers = Executors.newFixedThreadPool(8);
+        plc = new InMemoryBulkElevator(2, 3);
+    }
+
+    /**
+     * Tear down the test environment.
+     */
+    @AfterEach
+    public void tearDown() {
+        workers.shutdownNow();
+    }
+
+    /**
+     * Test the constructor with invalid parameters.
+     */
+    @Test
+    public void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new AsyncElevator(null, workers, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AsyncElevator(plc, null, 1));
+        assertThrows(IllegalArgumentException.class, () -> new AsyncElevator(plc, workers, 0));
+    }
+
+    /**
+     * Test that the futures complete with the values of the PLC.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testCalls() throws Exception {
+        plc.speed[1] = 12;
+        plc.floorButtonUp[2] = true;
+        AsyncElevator async = new AsyncElevator(plc, workers, 4);
+
+        assertEquals(12, AsyncElevator.join(async.getElevatorSpeed(1)));
+        assertTrue(AsyncElevator.join(async.getFloorButtonUp(2)));
+        assertEquals(2, AsyncElevator.join(async.getElevatorNum()));
+
+        AsyncElevator.join(async.setTarget(0, 2));
+        assertEquals(2, plc.target[0]);
+        assertEquals(4, async.getCallCount());
+        assertEquals(0, async.getInFlight());
+    }
+
+    /**
+     * Test that the number of calls in flight is bounded.
+     * @throws Exception if the test is interrupted
+     */
+    @Test
+    public void testBoundedInFlight() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        AsyncElevator async = new AsyncElevator(plc, workers, 2);
+
+        Thread caller = new Thread(() -> {
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; ++i) {
+                futures.add(async.submit(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    return 1;
+                }));
+            }
+            futures.forEach(CompletableFuture::join);
+        });
+        caller.start();
+
+        // the caller blocks on the third call
+        long deadline = System.currentTimeMillis() + 2000;
+        while (async.getInFlight() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(2, async.getInFlight());
+        assertEquals(2, async.getCallCount());
+
+        release.countDown();
+        caller.join(TimeUnit.SECONDS.toMillis(2));
+        assertFalse(caller.isAlive());
+        assertEquals(5, async.getCallCount());
+        assertTrue(maxRunning.get() <= 2);
+        assertEquals(0, async.getInFlight());
+    }
+
+    /**
+     * Test that a failed call is reported as RemoteException.
+     */
+    @Test
+    public void testFailure() {
+        AsyncElevator async = new AsyncElevator(plc, workers, 1);
+
+        RemoteException e = assertThrows(RemoteException.class,
+                () -> AsyncElevator.join(async.submit(() -> { throw new RemoteException("lost"); })));
+        assertEquals("lost", e.getMessage());
+        assertThrows(RemoteException.class,
+                () -> AsyncElevator.join(async.submit(() -> { throw new IllegalStateException(); })));
+        assertEquals(0, async.getInFlight());
+
+        workers.shutdown();
+        assertThrows(RemoteException.class, () -> AsyncElevator.join(async.getFloorNum()));
+        assertEquals(0, async.getInFlight());
+    }
+}
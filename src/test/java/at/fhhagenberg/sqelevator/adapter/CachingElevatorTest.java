@@ -0,0 +1,174 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import sqelevator.IElevator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.rmi.RemoteException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for testing the CachingElevator.
+ */
+@ExtendWith(MockitoExtension.class)
+public class CachingElevatorTest {
+    /** The mock for the PLC. */
+    @Mock
+    IElevator plcMock;
+
+    /** The current time of the test clock in milliseconds. */
+    long now;
+
+    /** The CachingElevator to test. */
+    CachingElevator cache;
+
+    /**
+     * Set up the test environment.
+     */
+    @BeforeEach
+    public void setUp() {
+        now = 1000;
+        cache = new CachingElevator(plcMock, () -> now);
+    }
+
+    /**
+     * Test that the static configuration is read once.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testPermanentValues() throws Exception {
+        when(plcMock.getElevatorNum()).thenReturn(3);
+        when(plcMock.getFloorNum()).thenReturn(10);
+        when(plcMock.getElevatorCapacity(1)).thenReturn(8);
+
+        for (int i = 0; i < 3; ++i) {
+            now += 100000;
+            assertEquals(3, cache.getElevatorNum());
+            assertEquals(10, cache.getFloorNum());
+            assertEquals(8, cache.getElevatorCapacity(1));
+        }
+
+        verify(plcMock, times(1)).getElevatorNum();
+        verify(plcMock, times(1)).getFloorNum();
+        verify(plcMock, times(1)).getElevatorCapacity(1);
+        assertEquals(6, cache.getHitCount());
+        assertEquals(3, cache.getMissCount());
+        assertEquals(2, cache.getHitCount(CachingElevator.Method.ELEVATOR_NUM));
+    }
+
+    /**
+     * Test that the motion values are not cached by default.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testUncachedValues() throws Exception {
+        when(plcMock.getElevatorSpeed(0)).thenReturn(5, 6);
+
+        assertEquals(5, cache.getElevatorSpeed(0));
+        assertEquals(6, cache.getElevatorSpeed(0));
+
+        verify(plcMock, times(2)).getElevatorSpeed(0);
+        assertEquals(0, cache.getHitCount(CachingElevator.Method.ELEVATOR_SPEED));
+        assertEquals(2, cache.getMissCount(CachingElevator.Method.ELEVATOR_SPEED));
+    }
+
+    /**
+     * Test that a value expires after its time to live.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testTtl() throws Exception {
+        cache.setTtl(CachingElevator.Method.SERVICES_FLOORS, 500);
+        assertEquals(500, cache.getTtl(CachingElevator.Method.SERVICES_FLOORS));
+        assertThrows(IllegalArgumentException.class, () -> cache.setTtl(CachingElevator.Method.TARGET, -1));
+
+        when(plcMock.getServicesFloors(0, 2)).thenReturn(true, false);
+        when(plcMock.getServicesFloors(1, 2)).thenReturn(true);
+
+        assertTrue(cache.getServicesFloors(0, 2));
+        now += 499;
+        assertTrue(cache.getServicesFloors(0, 2));
+        assertTrue(cache.getServicesFloors(1, 2));
+        now += 1;
+        assertFalse(cache.getServicesFloors(0, 2));
+
+        verify(plcMock, times(2)).getServicesFloors(0, 2);
+        verify(plcMock, times(1)).getServicesFloors(1, 2);
+    }
+
+    /**
+     * Test that the setters invalidate the values they change.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testInvalidation() throws Exception {
+        cache.setTtl(CachingElevator.Method.TARGET, CachingElevator.PERMANENT);
+        cache.setTtl(CachingElevator.Method.COMMITTED_DIRECTION, CachingElevator.PERMANENT);
+        cache.setTtl(CachingElevator.Method.SERVICES_FLOORS, CachingElevator.PERMANENT);
+
+        when(plcMock.getTarget(0)).thenReturn(1, 4);
+        when(plcMock.getCommittedDirection(0)).thenReturn(IElevator.ELEVATOR_DIRECTION_UNCOMMITTED, IElevator.ELEVATOR_DIRECTION_UP);
+        when(plcMock.getServicesFloors(0, 1)).thenReturn(true, false);
+
+        assertEquals(1, cache.getTarget(0));
+        assertEquals(IElevator.ELEVATOR_DIRECTION_UNCOMMITTED, cache.getCommittedDirection(0));
+        assertTrue(cache.getServicesFloors(0, 1));
+
+        cache.setTarget(0, 4);
+        cache.setCommittedDirection(0, IElevator.ELEVATOR_DIRECTION_UP);
+        cache.setServicesFloors(0, 1, false);
+
+        assertEquals(4, cache.getTarget(0));
+        assertEquals(IElevator.ELEVATOR_DIRECTION_UP, cache.getCommittedDirection(0));
+        assertFalse(cache.getServicesFloors(0, 1));
+
+        verify(plcMock).setTarget(0, 4);
+        verify(plcMock).setCommittedDirection(0, IElevator.ELEVATOR_DIRECTION_UP);
+        verify(plcMock).setServicesFloors(0, 1, false);
+    }
+
+    /**
+     * Test that replacing the PLC drops the cached values and that failed reads are not cached.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testSetDelegate() throws Exception {
+        IElevator otherPlc = mock(IElevator.class);
+        when(plcMock.getFloorHeight()).thenThrow(new RemoteException()).thenReturn(3);
+        when(otherPlc.getFloorHeight()).thenReturn(4);
+
+        assertThrows(RemoteException.class, () -> cache.getFloorHeight());
+        assertEquals(3, cache.getFloorHeight());
+        assertEquals(3, cache.getFloorHeight());
+
+        cache.setDelegate(otherPlc);
+        assertSame(otherPlc, cache.getDelegate());
+        assertEquals(4, cache.getFloorHeight());
+    }
+
+    /**
+     * Test the control system on top of the cache.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testControlSystem() throws Exception {
+        when(plcMock.getElevatorNum()).thenReturn(1);
+        when(plcMock.getFloorNum()).thenReturn(2);
+        when(plcMock.getFloorHeight()).thenReturn(3);
+        when(plcMock.getElevatorCapacity(0)).thenReturn(4);
+
+        new ElevatorControlSystem(cache).initializeElevatorsViaPLC();
+        ElevatorControlSystem ecs = new ElevatorControlSystem(cache);
+        ecs.initializeElevatorsViaPLC();
+
+        assertEquals(3, ecs.getFloorHeight());
+        assertEquals(4, ecs.getElevators()[0].getCapacity());
+        verify(plcMock, times(1)).getElevatorNum();
+        verify(plcMock, times(1)).getElevatorCapacity(0);
+    }
+}
@@ -0,0 +1,55 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for testing the ClockTickGate.
+ */
+public class ClockTickGateTest {
+    /**
+     * Test that a poll is skipped while the clock tick is unchanged.
+     */
+    @Test
+    public void testSkipUnchangedTick() {
+        ClockTickGate gate = new ClockTickGate();
+        assertEquals(-1, gate.getLastClockTick());
+
+        assertTrue(gate.advance(10, false));
+        assertFalse(gate.advance(10, false));
+        assertFalse(gate.advance(10, false));
+        assertTrue(gate.advance(11, false));
+
+        assertEquals(11, gate.getLastClockTick());
+        assertEquals(2, gate.getPolledCycles());
+        assertEquals(2, gate.getSkippedCycles());
+    }
+
+    /**
+     * Test that a forced poll is accepted even if the clock tick is unchanged.
+     */
+    @Test
+    public void testForcedPoll() {
+        ClockTickGate gate = new ClockTickGate();
+
+        assertTrue(gate.advance(5, false));
+        assertTrue(gate.advance(5, true));
+
+        assertEquals(5, gate.getLastClockTick());
+        assertEquals(2, gate.getPolledCycles());
+        assertEquals(0, gate.getSkippedCycles());
+    }
+
+    /**
+     * Test that a clock which went backwards, e.g. after a restart of the PLC, is accepted.
+     */
+    @Test
+    public void testTickReset() {
+        ClockTickGate gate = new ClockTickGate();
+
+        assertTrue(gate.advance(100, false));
+        assertTrue(gate.advance(0, false));
+        assertEquals(0, gate.getLastClockTick());
+    }
+}
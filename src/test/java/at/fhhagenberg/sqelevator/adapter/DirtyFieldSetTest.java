@@ -0,0 +1,79 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import at.fhhagenberg.sqelevator.FleetField;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for testing the DirtyFieldSet.
+ */
+public class DirtyFieldSetTest {
+    /**
+     * Test the construction with invalid dimensions.
+     */
+    @Test
+    public void testInvalidDimensions() {
+        assertThrows(IllegalArgumentException.class, () -> new DirtyFieldSet(-1, 3));
+        assertThrows(IllegalArgumentException.class, () -> new DirtyFieldSet(2, -1));
+    }
+
+    /**
+     * Test that every index maps back to its field, elevator and floor.
+     */
+    @Test
+    public void testIndexLayout() {
+        DirtyFieldSet set = new DirtyFieldSet(3, 5);
+        assertEquals(3 * FleetField.ELEVATOR_SCALAR_FIELDS + 2 * 3 * 5 + 2 * 5, set.size());
+
+        boolean[] used = new boolean[set.size()];
+        for (FleetField field : FleetField.values()) {
+            int elevators = field.isFloorField() ? 1 : 3;
+            int floors = field.isFlag() ? 5 : 1;
+            for (int e = 0; e < elevators; ++e) {
+                for (int f = 0; f < floors; ++f) {
+                    int index = set.indexOf(field, e, f);
+                    assertFalse(used[index]);
+                    used[index] = true;
+
+                    assertEquals(field, set.fieldOf(index));
+                    assertEquals(field.isFloorField() ? -1 : e, set.elevatorOf(index));
+                    assertEquals(field.isFlag() ? f : -1, set.floorOf(index));
+                }
+            }
+        }
+    }
+
+    /**
+     * Test marking and iterating the changed fields across word boundaries.
+     */
+    @Test
+    public void testSetAndIterate() {
+        DirtyFieldSet set = new DirtyFieldSet(10, 20);
+        assertTrue(set.isEmpty());
+        assertEquals(-1, set.nextSetBit(0));
+
+        set.set(0);
+        set.set(63);
+        set.set(64);
+        set.set(set.size() - 1);
+
+        assertFalse(set.isEmpty());
+        assertEquals(4, set.cardinality());
+        assertTrue(set.get(63));
+        assertFalse(set.get(62));
+
+        assertEquals(0, set.nextSetBit(0));
+        assertEquals(63, set.nextSetBit(1));
+        assertEquals(64, set.nextSetBit(64));
+        assertEquals(set.size() - 1, set.nextSetBit(65));
+        assertEquals(-1, set.nextSetBit(set.size()));
+
+        set.clear();
+        assertTrue(set.isEmpty());
+
+        set.setAll();
+        assertEquals(set.size(), set.cardinality());
+    }
+}
@@ -1,6 +1,9 @@
 package at.fhhagenberg.sqelevator.adapter;
 
+import at.fhhagenberg.sqelevator.BuildingDeltaFrame;
 import at.fhhagenberg.sqelevator.Elevator;
+import at.fhhagenberg.sqelevator.ElevatorStateFrame;
+import at.fhhagenberg.sqelevator.FleetField;
 import at.fhhagenberg.sqelevator.Floor;
 import sqelevator.IElevator;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,7 +14,10 @@ import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 
+import java.rmi.RemoteException;
 import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import io.vavr.control.Either;
 
 import static sqelevator.IElevator.*;
@@ -122,31 +128,34 @@ public class ElevatorControlSystemTest {
         assertFalse(floors[2].getButtonUpPressed());
         assertFalse(floors[3].getButtonUpPressed());
 
-        verify(plcMock, times(2)).getCommittedDirection(0);
-        verify(plcMock, times(2)).getElevatorAccel(0);
-        verify(plcMock, times(2)).getElevatorButton(0, 0);
+        verify(plcMock, times(1)).getCommittedDirection(0);
+        verify(plcMock, times(1)).getElevatorAccel(0);
+        verify(plcMock, times(1)).getElevatorButton(0, 0);
         verify(plcMock, times(1)).getElevatorButton(0, 1);
         verify(plcMock, times(1)).getElevatorButton(0, 2);
         verify(plcMock, times(1)).getElevatorButton(0, 3);
-        verify(plcMock, times(2)).getElevatorDoorStatus(0);
+        verify(plcMock, times(1)).getElevatorDoorStatus(0);
         verify(plcMock, times(1)).getElevatorFloor(0);
-        verify(plcMock, times(2)).getElevatorSpeed(0);
-        verify(plcMock, times(2)).getElevatorWeight(0);
+        verify(plcMock, times(1)).getElevatorSpeed(0);
+        verify(plcMock, times(1)).getElevatorWeight(0);
         verify(plcMock, times(1)).getElevatorCapacity(0);
         verify(plcMock, times(1)).getElevatorNum();
         verify(plcMock, times(1)).getFloorButtonDown(0);
         verify(plcMock, times(1)).getFloorButtonDown(1);
         verify(plcMock, times(1)).getFloorButtonDown(2);
-        verify(plcMock, times(2)).getFloorButtonDown(3);
+        verify(plcMock, times(1)).getFloorButtonDown(3);
         verify(plcMock, times(1)).getFloorButtonUp(0);
         verify(plcMock, times(1)).getFloorButtonUp(1);
         verify(plcMock, times(1)).getFloorButtonUp(2);
         verify(plcMock, times(1)).getFloorButtonUp(3);
         verify(plcMock, times(1)).getFloorNum();
-        verify(plcMock, times(2)).getServicesFloors(0, 1);
-        verify(plcMock, times(2)).getServicesFloors(0, 2);
+        verify(plcMock, times(1)).getServicesFloors(0, 1);
+        verify(plcMock, times(1)).getServicesFloors(0, 2);
         verify(plcMock, times(1)).getServicesFloors(0, 3);
-        verify(plcMock, times(2)).getTarget(0);
+        verify(plcMock, times(1)).getTarget(0);
+
+        // 7 elevator values + 4 buttons + 3 serviced floors + 2 buttons per floor
+        assertEquals(22, ecs.getLastCycleRmiCalls());
     }
 
     /**
@@ -182,13 +191,13 @@ public class ElevatorControlSystemTest {
         assertEquals(Either.right(true),s.get("elevator/0/floor_requested/0"));
         assertEquals(6, s.size());
 
-        verify(plcMock, times(2)).getCommittedDirection(0);
-        verify(plcMock, times(2)).getElevatorAccel(0);
-        verify(plcMock, times(2)).getElevatorButton(0, 0);
-        verify(plcMock, times(2)).getElevatorDoorStatus(0);
+        verify(plcMock, times(1)).getCommittedDirection(0);
+        verify(plcMock, times(1)).getElevatorAccel(0);
+        verify(plcMock, times(1)).getElevatorButton(0, 0);
+        verify(plcMock, times(1)).getElevatorDoorStatus(0);
         verify(plcMock, times(1)).getElevatorFloor(0);
-        verify(plcMock, times(2)).getElevatorSpeed(0);
-        verify(plcMock, times(2)).getElevatorWeight(0);
+        verify(plcMock, times(1)).getElevatorSpeed(0);
+        verify(plcMock, times(1)).getElevatorWeight(0);
         verify(plcMock, times(1)).getElevatorCapacity(0);
         verify(plcMock, times(1)).getElevatorNum();
         verify(plcMock, times(1)).getFloorNum();
@@ -284,31 +293,31 @@ public class ElevatorControlSystemTest {
         assertFalse(floors[2].getButtonUpPressed());
         assertFalse(floors[3].getButtonUpPressed());
 
-        verify(plcMock, times(3)).getCommittedDirection(0);
-        verify(plcMock, times(3)).getElevatorAccel(0);
-        verify(plcMock, times(3)).getElevatorButton(0, 0);
+        verify(plcMock, times(2)).getCommittedDirection(0);
+        verify(plcMock, times(2)).getElevatorAccel(0);
+        verify(plcMock, times(2)).getElevatorButton(0, 0);
         verify(plcMock, times(2)).getElevatorButton(0, 1);
         verify(plcMock, times(2)).getElevatorButton(0, 2);
         verify(plcMock, times(2)).getElevatorButton(0, 3);
-        verify(plcMock, times(3)).getElevatorDoorStatus(0);
+        verify(plcMock, times(2)).getElevatorDoorStatus(0);
         verify(plcMock, times(2)).getElevatorFloor(0);
-        verify(plcMock, times(3)).getElevatorSpeed(0);
-        verify(plcMock, times(3)).getElevatorWeight(0);
+        verify(plcMock, times(2)).getElevatorSpeed(0);
+        verify(plcMock, times(2)).getElevatorWeight(0);
         verify(plcMock, times(1)).getElevatorCapacity(0);
         verify(plcMock, times(1)).getElevatorNum();
         verify(plcMock, times(2)).getFloorButtonDown(0);
         verify(plcMock, times(2)).getFloorButtonDown(1);
-        verify(plcMock, times(3)).getFloorButtonDown(2);
-        verify(plcMock, times(4)).getFloorButtonDown(3);
-        verify(plcMock, times(3)).getFloorButtonUp(0);
+        verify(plcMock, times(2)).getFloorButtonDown(2);
+        verify(plcMock, times(2)).getFloorButtonDown(3);
+        verify(plcMock, times(2)).getFloorButtonUp(0);
         verify(plcMock, times(2)).getFloorButtonUp(1);
         verify(plcMock, times(2)).getFloorButtonUp(2);
         verify(plcMock, times(2)).getFloorButtonUp(3);
         verify(plcMock, times(1)).getFloorNum();
-        verify(plcMock, times(3)).getServicesFloors(0, 1);
-        verify(plcMock, times(4)).getServicesFloors(0, 2);
-        verify(plcMock, times(3)).getServicesFloors(0, 3);
-        verify(plcMock, times(3)).getTarget(0);
+        verify(plcMock, times(2)).getServicesFloors(0, 1);
+        verify(plcMock, times(2)).getServicesFloors(0, 2);
+        verify(plcMock, times(2)).getServicesFloors(0, 3);
+        verify(plcMock, times(2)).getTarget(0);
     }
 
     /**
@@ -394,30 +403,427 @@ public class ElevatorControlSystemTest {
         assertFalse(floors[2].getButtonUpPressed());
         assertFalse(floors[3].getButtonUpPressed());
 
-        verify(plcMock, times(2)).getCommittedDirection(0);
-        verify(plcMock, times(2)).getElevatorAccel(0);
-        verify(plcMock, times(2)).getElevatorButton(0, 0);
-        verify(plcMock, times(2)).getElevatorButton(0, 1);
-        verify(plcMock, times(2)).getElevatorButton(0, 2);
-        verify(plcMock, times(2)).getElevatorButton(0, 3);
-        verify(plcMock, times(2)).getElevatorDoorStatus(0);
-        verify(plcMock, times(2)).getElevatorFloor(0);
-        verify(plcMock, times(2)).getElevatorSpeed(0);
-        verify(plcMock, times(2)).getElevatorWeight(0);
+        verify(plcMock, times(1)).getCommittedDirection(0);
+        verify(plcMock, times(1)).getElevatorAccel(0);
+        verify(plcMock, times(1)).getElevatorButton(0, 0);
+        verify(plcMock, times(1)).getElevatorButton(0, 1);
+        verify(plcMock, times(1)).getElevatorButton(0, 2);
+        verify(plcMock, times(1)).getElevatorButton(0, 3);
+        verify(plcMock, times(1)).getElevatorDoorStatus(0);
+        verify(plcMock, times(1)).getElevatorFloor(0);
+        verify(plcMock, times(1)).getElevatorSpeed(0);
+        verify(plcMock, times(1)).getElevatorWeight(0);
         verify(plcMock, times(1)).getElevatorCapacity(0);
         verify(plcMock, times(1)).getElevatorNum();
-        verify(plcMock, times(2)).getFloorButtonDown(0);
-        verify(plcMock, times(2)).getFloorButtonDown(1);
-        verify(plcMock, times(2)).getFloorButtonDown(2);
-        verify(plcMock, times(2)).getFloorButtonDown(3);
-        verify(plcMock, times(2)).getFloorButtonUp(0);
-        verify(plcMock, times(2)).getFloorButtonUp(1);
-        verify(plcMock, times(2)).getFloorButtonUp(2);
-        verify(plcMock, times(2)).getFloorButtonUp(3);
+        verify(plcMock, times(1)).getFloorButtonDown(0);
+        verify(plcMock, times(1)).getFloorButtonDown(1);
+        verify(plcMock, times(1)).getFloorButtonDown(2);
+        verify(plcMock, times(1)).getFloorButtonDown(3);
+        verify(plcMock, times(1)).getFloorButtonUp(0);
+        verify(plcMock, times(1)).getFloorButtonUp(1);
+        verify(plcMock, times(1)).getFloorButtonUp(2);
+        verify(plcMock, times(1)).getFloorButtonUp(3);
         verify(plcMock, times(1)).getFloorNum();
-        verify(plcMock, times(2)).getServicesFloors(0, 1);
-        verify(plcMock, times(2)).getServicesFloors(0, 2);
-        verify(plcMock, times(2)).getServicesFloors(0, 3);
-        verify(plcMock, times(2)).getTarget(0);
+        verify(plcMock, times(1)).getServicesFloors(0, 1);
+        verify(plcMock, times(1)).getServicesFloors(0, 2);
+        verify(plcMock, times(1)).getServicesFloors(0, 3);
+        verify(plcMock, times(1)).getTarget(0);
+
+        // 7 elevator values + 4 buttons + 4 serviced floors + 2 buttons per floor
+        assertEquals(23, ecs.getLastCycleRmiCalls());
+    }
+
+    /**
+     * Test that parallel polling produces the same update topics as sequential polling.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testParallelUpdateDataViaPLC() throws Exception {
+        when(plcMock.getElevatorNum()).thenReturn(3);
+        when(plcMock.getFloorNum()).thenReturn(5);
+        when(plcMock.getCommittedDirection(anyInt())).thenReturn(ELEVATOR_DIRECTION_UP);
+        when(plcMock.getElevatorDoorStatus(anyInt())).thenReturn(ELEVATOR_DOORS_CLOSED);
+        lenient().when(plcMock.getElevatorSpeed(1)).thenReturn(12);
+        lenient().when(plcMock.getElevatorFloor(2)).thenReturn(4);
+        lenient().when(plcMock.getTarget(2)).thenReturn(4);
+        lenient().when(plcMock.getElevatorButton(0, 3)).thenReturn(true);
+        when(plcMock.getServicesFloors(anyInt(), anyInt())).thenReturn(true);
+        lenient().when(plcMock.getFloorButtonUp(2)).thenReturn(true);
+        lenient().when(plcMock.getFloorButtonDown(4)).thenReturn(true);
+
+        ElevatorControlSystem sequential = new ElevatorControlSystem(plcMock);
+        sequential.initializeElevatorsViaPLC();
+        ecs.initializeElevatorsViaPLC();
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ecs.setParallelPolling(executor, 2);
+
+            ecs.initialUpdateDataViaPLC();
+            sequential.initialUpdateDataViaPLC();
+            assertEquals(sequential.getUpdateTopics(), ecs.getUpdateTopics());
+            assertEquals(sequential.getLastCycleRmiCalls(), ecs.getLastCycleRmiCalls());
+
+            ecs.updateDataViaPLC();
+            sequential.updateDataViaPLC();
+            assertEquals(sequential.getUpdateTopics(), ecs.getUpdateTopics());
+            assertEquals(sequential.getLastCycleRmiCalls(), ecs.getLastCycleRmiCalls());
+            assertEquals(12, ecs.getElevators()[1].getSpeed());
+            assertEquals(4, ecs.getElevators()[2].getCurrentFloor());
+            assertTrue(ecs.getFloors()[2].getButtonUpPressed());
+            assertTrue(ecs.getFloors()[4].getButtonDownPressed());
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test that a failing read during parallel polling is reported as RemoteException.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testParallelUpdateDataViaPLCFailure() throws Exception {
+        when(plcMock.getElevatorNum()).thenReturn(2);
+        when(plcMock.getFloorNum()).thenReturn(2);
+        when(plcMock.getCommittedDirection(anyInt())).thenReturn(ELEVATOR_DIRECTION_UP);
+        when(plcMock.getElevatorDoorStatus(anyInt())).thenReturn(ELEVATOR_DOORS_CLOSED);
+        lenient().when(plcMock.getElevatorSpeed(1)).thenThrow(new RemoteException("disconnected"));
+
+        ecs.initializeElevatorsViaPLC();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ecs.setParallelPolling(executor, 1);
+            assertThrows(RemoteException.class, () -> ecs.updateDataViaPLC());
+            assertThrows(IllegalArgumentException.class, () -> ecs.setParallelPolling(executor, 0));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test the detection of fleet activity.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testIsFleetActive() throws Exception {
+        assertFalse(ecs.isFleetActive());
+
+        lenient().when(plcMock.getElevatorNum()).thenReturn(1);
+        lenient().when(plcMock.getFloorNum()).thenReturn(2);
+        lenient().when(plcMock.getCommittedDirection(0)).thenReturn(ELEVATOR_DIRECTION_UNCOMMITTED);
+        lenient().when(plcMock.getElevatorDoorStatus(0)).thenReturn(ELEVATOR_DOORS_CLOSED);
+        ecs.initializeElevatorsViaPLC();
+
+        ecs.updateDataViaPLC();
+        assertFalse(ecs.isFleetActive());
+
+        lenient().when(plcMock.getElevatorSpeed(0)).thenReturn(5);
+        ecs.updateDataViaPLC();
+        assertTrue(ecs.isFleetActive());
+
+        lenient().when(plcMock.getElevatorSpeed(0)).thenReturn(0);
+        lenient().when(plcMock.getElevatorDoorStatus(0)).thenReturn(ELEVATOR_DOORS_OPEN);
+        ecs.updateDataViaPLC();
+        assertTrue(ecs.isFleetActive());
+
+        lenient().when(plcMock.getElevatorDoorStatus(0)).thenReturn(ELEVATOR_DOORS_CLOSED);
+        lenient().when(plcMock.getFloorButtonDown(1)).thenReturn(true);
+        ecs.updateDataViaPLC();
+        assertTrue(ecs.isFleetActive());
+
+        lenient().when(plcMock.getFloorButtonDown(1)).thenReturn(false);
+        lenient().when(plcMock.getElevatorButton(0, 1)).thenReturn(true);
+        ecs.updateDataViaPLC();
+        assertTrue(ecs.isFleetActive());
+    }
+
+    /**
+     * Test that field classes are only polled when their cadence has elapsed.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testTieredPolling() throws Exception {
+        lenient().when(plcMock.getElevatorNum()).thenReturn(1);
+        lenient().when(plcMock.getFloorNum()).thenReturn(3);
+        lenient().when(plcMock.getCommittedDirection(0)).thenReturn(ELEVATOR_DIRECTION_UNCOMMITTED);
+        lenient().when(plcMock.getElevatorDoorStatus(0)).thenReturn(ELEVATOR_DOORS_CLOSED);
+        lenient().when(plcMock.getServicesFloors(0, 2)).thenReturn(false);
+
+        ecs.initializeElevatorsViaPLC();
+        ecs.setPollingCadence(PollFieldClass.CONFIGURATION, 10000);
+        assertEquals(10000, ecs.getPollingCadence(PollFieldClass.CONFIGURATION));
+        assertEquals(0, ecs.getPollingCadence(PollFieldClass.MOTION));
+        assertThrows(IllegalArgumentException.class, () -> ecs.setPollingCadence(PollFieldClass.MOTION, -1));
+
+        // first cycle polls everything
+        ecs.updateDataViaPLC(20000);
+        assertEquals(7 + 3 + 2 + 2 * 3, ecs.getLastCycleRmiCalls());
+        assertFalse(ecs.getElevators()[0].getFloorService(2));
+        assertEquals(Either.right(false), ecs.getUpdateTopics().get("elevator/0/floor_serviced/2"));
+
+        // configuration is skipped, a changed service flag is not noticed yet
+        lenient().when(plcMock.getServicesFloors(0, 2)).thenReturn(true);
+        lenient().when(plcMock.getElevatorSpeed(0)).thenReturn(4);
+        ecs.updateDataViaPLC(25000);
+        assertEquals(7 + 3 + 2 * 3, ecs.getLastCycleRmiCalls());
+        assertFalse(ecs.getElevators()[0].getFloorService(2));
+        assertEquals(1, ecs.getUpdateTopics().size());
+        assertEquals(Either.left(4), ecs.getUpdateTopics().get("elevator/0/speed"));
+
+        // cadence elapsed
+        ecs.updateDataViaPLC(30000);
+        assertEquals(7 + 3 + 2 + 2 * 3, ecs.getLastCycleRmiCalls());
+        assertTrue(ecs.getElevators()[0].getFloorService(2));
+        assertEquals(1, ecs.getUpdateTopics().size());
+        assertEquals(Either.right(true), ecs.getUpdateTopics().get("elevator/0/floor_serviced/2"));
+    }
+
+    /**
+     * Test the changed fields of a poll cycle.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testDirtyFields() throws Exception {
+        lenient().when(plcMock.getElevatorNum()).thenReturn(2);
+        lenient().when(plcMock.getFloorNum()).thenReturn(3);
+        lenient().when(plcMock.getCommittedDirection(anyInt())).thenReturn(ELEVATOR_DIRECTION_UNCOMMITTED);
+        lenient().when(plcMock.getElevatorDoorStatus(anyInt())).thenReturn(ELEVATOR_DOORS_CLOSED);
+        lenient().when(plcMock.getServicesFloors(anyInt(), anyInt())).thenReturn(true);
+
+        ecs.initializeElevatorsViaPLC();
+        assertFalse(ecs.hasUpdates());
+
+        // initial cycle marks every field except the disabled position
+        ecs.initialUpdateDataViaPLC();
+        DirtyFieldSet dirty = ecs.getDirtyFields();
+        assertEquals(dirty.size() - 2, dirty.cardinality());
+        assertEquals(dirty.size() - 2, ecs.getUpdateTopics().size());
+        assertFalse(ecs.getUpdateTopics().containsKey("elevator/0/position"));
+
+        // steady state without changes
+        ecs.updateDataViaPLC();
+        assertFalse(ecs.hasUpdates());
+        assertEquals(-1, dirty.nextSetBit(0));
+        assertTrue(ecs.getUpdateTopics().isEmpty());
+
+        lenient().when(plcMock.getTarget(1)).thenReturn(2);
+        lenient().when(plcMock.getFloorButtonDown(1)).thenReturn(true);
+        ecs.updateDataViaPLC();
+        assertTrue(ecs.hasUpdates());
+        assertEquals(2, dirty.cardinality());
+
+        int index = dirty.nextSetBit(0);
+        assertEquals(FleetField.TARGET_FLOOR, dirty.fieldOf(index));
+        assertEquals("elevator/1/target_floor", ecs.formatTopic(index));
+        assertEquals(2, ecs.getFieldValue(index));
+
+        index = dirty.nextSetBit(index + 1);
+        assertEquals(FleetField.BUTTON_DOWN, dirty.fieldOf(index));
+        assertEquals("floor/1/button_down", ecs.formatTopic(index));
+        assertEquals(1, ecs.getFieldValue(index));
+        assertEquals(-1, dirty.nextSetBit(index + 1));
+
+        assertEquals(Either.left(2), ecs.getUpdateTopics().get("elevator/1/target_floor"));
+        assertEquals(Either.right(true), ecs.getUpdateTopics().get("floor/1/button_down"));
+    }
+
+    /**
+     * Test the position stream with its deadband.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testPositionStreaming() throws Exception {
+        lenient().when(plcMock.getElevatorNum()).thenReturn(1);
+        lenient().when(plcMock.getFloorNum()).thenReturn(3);
+        lenient().when(plcMock.getCommittedDirection(0)).thenReturn(ELEVATOR_DIRECTION_UP);
+        lenient().when(plcMock.getElevatorDoorStatus(0)).thenReturn(ELEVATOR_DOORS_CLOSED);
+        lenient().when(plcMock.getServicesFloors(anyInt(), anyInt())).thenReturn(true);
+
+        ecs.initializeElevatorsViaPLC();
+        assertFalse(ecs.isPositionStreaming());
+        ecs.setPositionStreaming(true);
+        ecs.setPositionDeadband(3);
+        assertTrue(ecs.isPositionStreaming());
+        assertThrows(IllegalArgumentException.class, () -> ecs.setPositionDeadband(-1));
+
+        ecs.initialUpdateDataViaPLC();
+        assertEquals(Either.left(0), ecs.getUpdateTopics().get("elevator/0/position"));
+
+        // parked, the position is not read
+        ecs.updateDataViaPLC();
+        verify(plcMock, times(1)).getElevatorPosition(0);
+
+        // moving, changes below the deadband are suppressed
+        lenient().when(plcMock.getElevatorSpeed(0)).thenReturn(4);
+        lenient().when(plcMock.getElevatorPosition(0)).thenReturn(2);
+        ecs.updateDataViaPLC();
+        assertFalse(ecs.getUpdateTopics().containsKey("elevator/0/position"));
+
+        lenient().when(plcMock.getElevatorPosition(0)).thenReturn(5);
+        ecs.updateDataViaPLC();
+        assertEquals(Either.left(5), ecs.getUpdateTopics().get("elevator/0/position"));
+
+        // stopped, the final position is published regardless of the deadband
+        lenient().when(plcMock.getElevatorSpeed(0)).thenReturn(0);
+        lenient().when(plcMock.getElevatorPosition(0)).thenReturn(6);
+        ecs.updateDataViaPLC();
+        assertEquals(Either.left(6), ecs.getUpdateTopics().get("elevator/0/position"));
+
+        ecs.updateDataViaPLC();
+        verify(plcMock, times(4)).getElevatorPosition(0);
+    }
+
+    /**
+     * Test that a shard only polls and publishes its elevators and hall buttons.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testShard() throws Exception {
+        lenient().when(plcMock.getElevatorNum()).thenReturn(3);
+        lenient().when(plcMock.getFloorNum()).thenReturn(4);
+        lenient().when(plcMock.getCommittedDirection(anyInt())).thenReturn(ELEVATOR_DIRECTION_UNCOMMITTED);
+        lenient().when(plcMock.getElevatorDoorStatus(anyInt())).thenReturn(ELEVATOR_DOORS_CLOSED);
+        lenient().when(plcMock.getServicesFloors(anyInt(), anyInt())).thenReturn(true);
+
+        ecs.setShard(new ElevatorShard(1, 2, 2, 4, false));
+        ecs.initializeElevatorsViaPLC();
+
+        ecs.initialUpdateDataViaPLC();
+        verify(plcMock, never()).getTarget(0);
+        verify(plcMock, never()).getTarget(2);
+        verify(plcMock, never()).getFloorButtonUp(1);
+        verify(plcMock).getFloorButtonUp(3);
+
+        DirtyFieldSet dirty = ecs.getDirtyFields();
+        assertEquals(FleetField.ELEVATOR_SCALAR_FIELDS - 1 + 2 * 4 + 2 * 2, dirty.cardinality());
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            assertTrue(dirty.fieldOf(i).isFloorField() ? dirty.floorOf(i) >= 2 : dirty.elevatorOf(i) == 1);
+        }
+
+        lenient().when(plcMock.getTarget(1)).thenReturn(3);
+        lenient().when(plcMock.getFloorButtonDown(2)).thenReturn(true);
+        ecs.updateDataViaPLC();
+        assertEquals(2, ecs.getUpdateTopics().size());
+        assertEquals(Either.left(3), ecs.getUpdateTopics().get("elevator/1/target_floor"));
+        assertEquals(Either.right(true), ecs.getUpdateTopics().get("floor/2/button_down"));
+
+        assertThrows(IllegalArgumentException.class, () -> ecs.setShard(null));
+    }
+
+    /**
+     * Test reattaching the system to a new PLC after a reconnect.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testReattach() throws Exception {
+        InMemoryBulkElevator plc = new InMemoryBulkElevator(2, 4);
+        ecs = new ElevatorControlSystem(plc);
+        ecs.initializeElevatorsViaPLC();
+        ecs.initialUpdateDataViaPLC();
+        Elevator[] elevators = ecs.getElevators();
+        int calls = plc.calls;
+
+        // the same building after the reconnect, one car moved during the outage
+        InMemoryBulkElevator reconnected = new InMemoryBulkElevator(2, 4);
+        reconnected.target[1] = 3;
+        reconnected.floorButtonUp[2] = true;
+        assertTrue(ecs.reattach(reconnected));
+        assertSame(elevators, ecs.getElevators());
+
+        ecs.updateDataViaPLC();
+        assertEquals(2, ecs.getUpdateTopics().size());
+        assertEquals(Either.left(3), ecs.getUpdateTopics().get("elevator/1/target_floor"));
+        assertEquals(Either.right(true), ecs.getUpdateTopics().get("floor/2/button_up"));
+        // the old PLC is not read anymore
+        assertEquals(calls, plc.calls);
+
+        InMemoryBulkElevator otherCapacity = new InMemoryBulkElevator(2, 4);
+        otherCapacity.capacity[1] = 12;
+        assertFalse(ecs.reattach(otherCapacity));
+        assertFalse(ecs.reattach(new InMemoryBulkElevator(2, 5)));
+        assertFalse(ecs.reattach(new InMemoryBulkElevator(3, 4)));
+        assertFalse(new ElevatorControlSystem(plc).reattach(plc));
+    }
+
+    /**
+     * Test filling the state frame of an elevator with the published values.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testFillStateFrame() throws Exception {
+        InMemoryBulkElevator plc = new InMemoryBulkElevator(2, 4);
+        plc.target[1] = 3;
+        plc.weight[1] = 400;
+        plc.buttons[1][3] = true;
+        plc.servicesFloors[1][2] = false;
+        ecs = new ElevatorControlSystem(plc);
+        ecs.initializeElevatorsViaPLC();
+        ecs.initialUpdateDataViaPLC();
+
+        ElevatorStateFrame frame = new ElevatorStateFrame(4);
+        ecs.fillStateFrame(1, frame);
+        assertEquals(3, frame.getTargetFloor());
+        assertEquals(400, frame.getWeight());
+        assertEquals(ELEVATOR_DOORS_CLOSED, frame.getDoorStatus());
+        assertTrue(frame.getElevatorButton(3));
+        assertFalse(frame.getElevatorButton(2));
+        assertFalse(frame.getServicesFloor(2));
+        assertTrue(frame.getServicesFloor(3));
+    }
+
+    /**
+     * Test that the clock tick read by the adapter is counted in the RMI calls of the next poll cycle.
+     */
+    @Test
+    public void testReadClockTickCounted() throws Exception {
+        InMemoryBulkElevator plc = new InMemoryBulkElevator(2, 4);
+        plc.clockTick = 7;
+        ecs = new ElevatorControlSystem(plc);
+        ecs.initializeElevatorsViaPLC();
+        ecs.initialUpdateDataViaPLC();
+        ecs.updateDataViaPLC();
+        long calls = ecs.getLastCycleRmiCalls();
+
+        assertEquals(7, ecs.readClockTick());
+        ecs.updateDataViaPLC();
+        assertEquals(calls + 1, ecs.getLastCycleRmiCalls());
+
+        ecs.updateDataViaPLC();
+        assertEquals(calls, ecs.getLastCycleRmiCalls());
+    }
+
+    /**
+     * Test filling a keyframe with all fields and a delta frame with the changed fields.
+     */
+    @Test
+    public void testFillDeltaFrame() throws Exception {
+        InMemoryBulkElevator plc = new InMemoryBulkElevator(2, 4);
+        plc.weight[1] = 400;
+        ecs = new ElevatorControlSystem(plc);
+        ecs.initializeElevatorsViaPLC();
+        ecs.initialUpdateDataViaPLC();
+
+        BuildingDeltaFrame frame = new BuildingDeltaFrame(2, 4);
+        frame.begin(0, 0, true);
+        ecs.fillDeltaFrame(frame);
+        // 7 scalars without the position and 4 requested and 4 serviced floors per elevator, 4 up and 4 down buttons
+        assertEquals(2 * (7 + 4 + 4) + 4 + 4, frame.getEntryCount());
+
+        plc.weight[1] = 500;
+        plc.floorButtonUp[2] = true;
+        ecs.updateDataViaPLC();
+        frame.begin(1, 0, false);
+        ecs.fillDeltaFrame(frame);
+        assertEquals(2, frame.getEntryCount());
+        assertEquals(FleetField.WEIGHT, frame.getField(0));
+        assertEquals(1, frame.getElevator(0));
+        assertEquals(500, frame.getValue(0));
+        assertEquals(FleetField.BUTTON_UP, frame.getField(1));
+        assertEquals(-1, frame.getElevator(1));
+        assertEquals(2, frame.getFloor(1));
+        assertEquals(1, frame.getValue(1));
     }
-}
\ No newline at end of file
+}
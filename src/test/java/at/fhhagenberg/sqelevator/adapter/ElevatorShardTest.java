@@ -0,0 +1,58 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for testing the ElevatorShard.
+ */
+public class ElevatorShardTest {
+    /**
+     * Test the shard of the whole building.
+     */
+    @Test
+    public void testAll() {
+        assertTrue(ElevatorShard.ALL.isWholeBuilding());
+        assertTrue(ElevatorShard.ALL.publishesInfo());
+        assertTrue(ElevatorShard.ALL.ownsElevator(49));
+        assertEquals(50, ElevatorShard.ALL.getToElevator(50));
+        assertEquals(200, ElevatorShard.ALL.getToFloor(200));
+    }
+
+    /**
+     * Test parsing a shard from its configuration.
+     */
+    @Test
+    public void testParse() {
+        ElevatorShard shard = ElevatorShard.parse("10-19", "none", false);
+        assertFalse(shard.isWholeBuilding());
+        assertFalse(shard.publishesInfo());
+        assertFalse(shard.ownsElevator(9));
+        assertTrue(shard.ownsElevator(10));
+        assertTrue(shard.ownsElevator(19));
+        assertFalse(shard.ownsElevator(20));
+        assertFalse(shard.ownsFloor(0));
+        assertEquals(15, shard.getToElevator(15));
+        assertEquals(5, shard.getToElevator(5));
+
+        shard = ElevatorShard.parse("3", "", true);
+        assertTrue(shard.ownsElevator(3));
+        assertFalse(shard.ownsElevator(4));
+        assertTrue(shard.ownsFloor(199));
+
+        assertEquals(ElevatorShard.ALL.isWholeBuilding(), ElevatorShard.parse(null, null, true).isWholeBuilding());
+    }
+
+    /**
+     * Test invalid shards.
+     */
+    @Test
+    public void testInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> new ElevatorShard(-1, 2, 0, 1, true));
+        assertThrows(IllegalArgumentException.class, () -> new ElevatorShard(0, 1, 3, 2, true));
+        assertThrows(IllegalArgumentException.class, () -> ElevatorShard.parse("5-3", "", true));
+        assertThrows(IllegalArgumentException.class, () -> ElevatorShard.parse("1-2-3", "", true));
+        assertThrows(IllegalArgumentException.class, () -> ElevatorShard.parse("a", "", true));
+    }
+}
@@ -0,0 +1,122 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import at.fhhagenberg.sqelevator.Floor;
+
+import java.util.Random;
+
+/**
+ * Micro benchmark which compares the change detection of the hall buttons with a Floor[] model
+ * and with the HallCallBitmap. Not part of the test suite, run the main method manually.
+ */
+public class HallCallBenchmark {
+    /** The number of measured cycles. */
+    private static final int CYCLES = 200_000;
+    /** The number of warm up cycles. */
+    private static final int WARMUP_CYCLES = 50_000;
+    /** The number of floors whose buttons change per cycle. */
+    private static final int CHANGES_PER_CYCLE = 2;
+
+    /** Sink which keeps the JIT from removing the measured work. */
+    private static long sink = 0;
+
+    private HallCallBenchmark() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Main method
+     * @param args The arguments, optionally the numbers of floors to measure
+     */
+    public static void main(String[] args) {
+        int[] floorCounts = {100, 200, 500};
+        if (args.length > 0) {
+            floorCounts = new int[args.length];
+            for (int i = 0; i < args.length; ++i) {
+                floorCounts[i] = Integer.parseInt(args[i]);
+            }
+        }
+
+        for (int numOfFloors : floorCounts) {
+            PlcSnapshot[] snapshots = buildSnapshots(numOfFloors);
+
+            runFloorModel(numOfFloors, snapshots, WARMUP_CYCLES);
+            long floorModel = runFloorModel(numOfFloors, snapshots, CYCLES);
+            runBitmap(numOfFloors, snapshots, WARMUP_CYCLES);
+            long bitmap = runBitmap(numOfFloors, snapshots, CYCLES);
+
+            System.out.printf("%d floors: Floor[] %.1f ns/cycle, bitmap %.1f ns/cycle%n",
+                    numOfFloors, (double) floorModel / CYCLES, (double) bitmap / CYCLES);
+        }
+        System.out.println("(sink " + sink + ")");
+    }
+
+    /**
+     * Builds a ring of snapshots in which a few hall buttons change from one to the next.
+     * @param numOfFloors The number of floors.
+     * @return The snapshots.
+     */
+    private static PlcSnapshot[] buildSnapshots(int numOfFloors) {
+        Random random = new Random(1);
+        PlcSnapshot[] snapshots = new PlcSnapshot[64];
+        for (int i = 0; i < snapshots.length; ++i) {
+            snapshots[i] = new PlcSnapshot(0, numOfFloors);
+            if (i > 0) {
+                for (int floor = 0; floor < numOfFloors; ++floor) {
+                    snapshots[i].setFloor(floor, snapshots[i - 1].getFloorButtonUp(floor), snapshots[i - 1].getFloorButtonDown(floor));
+                }
+            }
+            for (int j = 0; j < CHANGES_PER_CYCLE; ++j) {
+                snapshots[i].setFloor(random.nextInt(numOfFloors), random.nextBoolean(), random.nextBoolean());
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Runs the change detection with a Floor[] model.
+     * @param numOfFloors The number of floors.
+     * @param snapshots The snapshots to cycle through.
+     * @param cycles The number of cycles.
+     * @return The elapsed time in nanoseconds.
+     */
+    private static long runFloorModel(int numOfFloors, PlcSnapshot[] snapshots, int cycles) {
+        Floor[] floors = new Floor[numOfFloors];
+        for (int i = 0; i < numOfFloors; ++i) {
+            floors[i] = new Floor();
+        }
+
+        long start = System.nanoTime();
+        for (int cycle = 0; cycle < cycles; ++cycle) {
+            PlcSnapshot snapshot = snapshots[cycle & (snapshots.length - 1)];
+            for (int i = 0; i < numOfFloors; ++i) {
+                if (floors[i].setButtonUpPressed(snapshot.getFloorButtonUp(i))) {
+                    sink += i;
+                }
+                if (floors[i].setButtonDownPressed(snapshot.getFloorButtonDown(i))) {
+                    sink -= i;
+                }
+            }
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * Runs the change detection with the HallCallBitmap.
+     * @param numOfFloors The number of floors.
+     * @param snapshots The snapshots to cycle through.
+     * @param cycles The number of cycles.
+     * @return The elapsed time in nanoseconds.
+     */
+    private static long runBitmap(int numOfFloors, PlcSnapshot[] snapshots, int cycles) {
+        HallCallBitmap current = new HallCallBitmap(numOfFloors);
+        HallCallBitmap published = new HallCallBitmap(numOfFloors);
+        HallCallBitmap.FlipListener listener = (floor, up, pressed) -> sink += up ? floor : -floor;
+
+        long start = System.nanoTime();
+        for (int cycle = 0; cycle < cycles; ++cycle) {
+            current.load(snapshots[cycle & (snapshots.length - 1)]);
+            current.diff(published, listener);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,125 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import at.fhhagenberg.sqelevator.Floor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for testing the HallCallBitmap.
+ */
+public class HallCallBitmapTest {
+    /**
+     * Test the construction and the access with invalid floors.
+     */
+    @Test
+    public void testInvalidFloors() {
+        assertThrows(IllegalArgumentException.class, () -> new HallCallBitmap(-1));
+
+        HallCallBitmap bitmap = new HallCallBitmap(3);
+        assertThrows(IllegalArgumentException.class, () -> bitmap.set(3, true, false));
+        assertThrows(IllegalArgumentException.class, () -> bitmap.isUp(-1));
+        assertThrows(IllegalArgumentException.class, () -> bitmap.diff(new HallCallBitmap(4), (f, u, p) -> { }));
+        assertThrows(IllegalArgumentException.class, () -> bitmap.load(new PlcSnapshot(1, 4)));
+    }
+
+    /**
+     * Test setting the buttons across word boundaries.
+     */
+    @Test
+    public void testSetAndGet() {
+        HallCallBitmap bitmap = new HallCallBitmap(130);
+        assertFalse(bitmap.anyPressed());
+
+        bitmap.set(63, true, false);
+        bitmap.set(64, false, true);
+        bitmap.set(129, true, true);
+
+        assertTrue(bitmap.isUp(63));
+        assertFalse(bitmap.isDown(63));
+        assertFalse(bitmap.isUp(64));
+        assertTrue(bitmap.isDown(64));
+        assertTrue(bitmap.isUp(129));
+        assertTrue(bitmap.isDown(129));
+        assertTrue(bitmap.anyPressed());
+
+        bitmap.set(63, false, false);
+        bitmap.set(64, false, false);
+        bitmap.set(129, false, false);
+        assertFalse(bitmap.anyPressed());
+    }
+
+    /**
+     * Test that the diff reports only the flipped buttons and updates the published bitmap.
+     */
+    @Test
+    public void testDiff() {
+        PlcSnapshot snapshot = new PlcSnapshot(0, 200);
+        snapshot.setFloor(5, true, false);
+        snapshot.setFloor(150, false, true);
+
+        HallCallBitmap current = new HallCallBitmap(200);
+        HallCallBitmap published = new HallCallBitmap(200);
+        current.load(snapshot);
+
+        List<String> flips = new ArrayList<>();
+        assertEquals(2, current.diff(published, (f, up, pressed) -> flips.add(f + ":" + up + ":" + pressed)));
+        assertEquals(List.of("5:true:true", "150:false:true"), flips);
+        assertTrue(published.isUp(5));
+        assertTrue(published.isDown(150));
+
+        flips.clear();
+        assertEquals(0, current.diff(published, (f, up, pressed) -> flips.add(f + ":" + up + ":" + pressed)));
+        assertTrue(flips.isEmpty());
+
+        snapshot.setFloor(5, false, false);
+        current.load(snapshot);
+        assertEquals(1, current.diff(published, (f, up, pressed) -> flips.add(f + ":" + up + ":" + pressed)));
+        assertEquals(List.of("5:true:false"), flips);
+    }
+
+    /**
+     * Test that the bitmap path reports the same changes as the Floor[] path for a tall building.
+     */
+    @Test
+    public void testMatchesFloorModel() {
+        final int numOfFloors = 160;
+        Random random = new Random(42);
+
+        Floor[] floors = new Floor[numOfFloors];
+        for (int i = 0; i < numOfFloors; ++i) {
+            floors[i] = new Floor();
+        }
+        PlcSnapshot snapshot = new PlcSnapshot(0, numOfFloors);
+        HallCallBitmap current = new HallCallBitmap(numOfFloors);
+        HallCallBitmap published = new HallCallBitmap(numOfFloors);
+
+        for (int cycle = 0; cycle < 100; ++cycle) {
+            for (int i = 0; i < 4; ++i) {
+                snapshot.setFloor(random.nextInt(numOfFloors), random.nextBoolean(), random.nextBoolean());
+            }
+
+            List<String> expected = new ArrayList<>();
+            for (int i = 0; i < numOfFloors; ++i) {
+                if (floors[i].setButtonUpPressed(snapshot.getFloorButtonUp(i))) {
+                    expected.add(i + ":true");
+                }
+                if (floors[i].setButtonDownPressed(snapshot.getFloorButtonDown(i))) {
+                    expected.add(i + ":false");
+                }
+            }
+
+            List<String> actual = new ArrayList<>();
+            current.load(snapshot);
+            current.diff(published, (f, up, pressed) -> actual.add(f + ":" + up));
+
+            expected.sort(null);
+            actual.sort(null);
+            assertEquals(expected, actual);
+        }
+    }
+}
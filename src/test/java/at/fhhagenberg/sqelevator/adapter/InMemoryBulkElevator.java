@@ -0,0 +1,163 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import sqelevator.BuildingSnapshot;
+import sqelevator.ElevatorSnapshot;
+import sqelevator.IElevator;
+import sqelevator.IElevatorBulk;
+
+import java.util.Arrays;
+
+/**
+ * In-process stand-in for a PLC which supports bulk reads. For testing purposes only.
+ * All values are plain fields which can be set directly by the tests, every call is counted.
+ */
+public class InMemoryBulkElevator implements IElevatorBulk {
+    /** The committed directions. */
+    final int[] direction;
+    /** The accelerations. */
+    final int[] accel;
+    /** The speeds. */
+    final int[] speed;
+    /** The door states. */
+    final int[] doorStatus;
+    /** The current floors. */
+    final int[] floor;
+    /** The positions. */
+    final int[] position;
+    /** The targets. */
+    final int[] target;
+    /** The weights. */
+    final int[] weight;
+    /** The capacities. */
+    final int[] capacity;
+    /** The elevator buttons, indexed by elevator and floor. */
+    final boolean[][] buttons;
+    /** The serviced floors, indexed by elevator and floor. */
+    final boolean[][] servicesFloors;
+    /** The up buttons. */
+    final boolean[] floorButtonUp;
+    /** The down buttons. */
+    final boolean[] floorButtonDown;
+    /** The floor height. */
+    int floorHeight = 10;
+    /** The clock tick. */
+    long clockTick = 0;
+
+    /** The number of calls issued. */
+    int calls = 0;
+
+    /**
+     * Creates a building with all elevators parked at the ground floor.
+     * @param numOfElevators The number of elevators.
+     * @param numOfFloors The number of floors.
+     */
+    public InMemoryBulkElevator(int numOfElevators, int numOfFloors) {
+        direction = new int[numOfElevators];
+        accel = new int[numOfElevators];
+        speed = new int[numOfElevators];
+        doorStatus = new int[numOfElevators];
+        floor = new int[numOfElevators];
+        position = new int[numOfElevators];
+        target = new int[numOfElevators];
+        weight = new int[numOfElevators];
+        capacity = new int[numOfElevators];
+        buttons = new boolean[numOfElevators][numOfFloors];
+        servicesFloors = new boolean[numOfElevators][numOfFloors];
+        floorButtonUp = new boolean[numOfFloors];
+        floorButtonDown = new boolean[numOfFloors];
+
+        Arrays.fill(direction, IElevator.ELEVATOR_DIRECTION_UNCOMMITTED);
+        Arrays.fill(doorStatus, IElevator.ELEVATOR_DOORS_CLOSED);
+        Arrays.fill(capacity, 10);
+        for (boolean[] services : servicesFloors) {
+            Arrays.fill(services, true);
+        }
+    }
+
+    @Override
+    public ElevatorSnapshot getElevatorSnapshot(int elevatorNumber) {
+        ++calls;
+        return snapshotOf(elevatorNumber);
+    }
+
+    @Override
+    public BuildingSnapshot getBuildingSnapshot() {
+        ++calls;
+        ElevatorSnapshot[] elevators = new ElevatorSnapshot[direction.length];
+        for (int i = 0; i < elevators.length; ++i) {
+            elevators[i] = snapshotOf(i);
+        }
+        return new BuildingSnapshot(elevators, floorButtonUp, floorButtonDown, clockTick);
+    }
+
+    @Override
+    public int getCommittedDirection(int elevatorNumber) { ++calls; return direction[elevatorNumber]; }
+
+    @Override
+    public int getElevatorAccel(int elevatorNumber) { ++calls; return accel[elevatorNumber]; }
+
+    @Override
+    public boolean getElevatorButton(int elevatorNumber, int floor) { ++calls; return buttons[elevatorNumber][floor]; }
+
+    @Override
+    public int getElevatorDoorStatus(int elevatorNumber) { ++calls; return doorStatus[elevatorNumber]; }
+
+    @Override
+    public int getElevatorFloor(int elevatorNumber) { ++calls; return floor[elevatorNumber]; }
+
+    @Override
+    public int getElevatorNum() { ++calls; return direction.length; }
+
+    @Override
+    public int getElevatorPosition(int elevatorNumber) { ++calls; return position[elevatorNumber]; }
+
+    @Override
+    public int getElevatorSpeed(int elevatorNumber) { ++calls; return speed[elevatorNumber]; }
+
+    @Override
+    public int getElevatorWeight(int elevatorNumber) { ++calls; return weight[elevatorNumber]; }
+
+    @Override
+    public int getElevatorCapacity(int elevatorNumber) { ++calls; return capacity[elevatorNumber]; }
+
+    @Override
+    public boolean getFloorButtonDown(int floor) { ++calls; return floorButtonDown[floor]; }
+
+    @Override
+    public boolean getFloorButtonUp(int floor) { ++calls; return floorButtonUp[floor]; }
+
+    @Override
+    public int getFloorHeight() { ++calls; return floorHeight; }
+
+    @Override
+    public int getFloorNum() { ++calls; return floorButtonUp.length; }
+
+    @Override
+    public boolean getServicesFloors(int elevatorNumber, int floor) { ++calls; return servicesFloors[elevatorNumber][floor]; }
+
+    @Override
+    public int getTarget(int elevatorNumber) { ++calls; return target[elevatorNumber]; }
+
+    @Override
+    public void setCommittedDirection(int elevatorNumber, int direction) { ++calls; this.direction[elevatorNumber] = direction; }
+
+    @Override
+    public void setServicesFloors(int elevatorNumber, int floor, boolean service) { ++calls; servicesFloors[elevatorNumber][floor] = service; }
+
+    @Override
+    public void setTarget(int elevatorNumber, int target) { ++calls; this.target[elevatorNumber] = target; }
+
+    @Override
+    public long getClockTick() { ++calls; return clockTick; }
+
+    /**
+     * Creates the snapshot of an elevator without counting a call.
+     * @param elevatorNumber The elevator number.
+     * @return The snapshot.
+     */
+    private ElevatorSnapshot snapshotOf(int elevatorNumber) {
+        return new ElevatorSnapshot(direction[elevatorNumber], accel[elevatorNumber], speed[elevatorNumber],
+                doorStatus[elevatorNumber], floor[elevatorNumber], position[elevatorNumber], target[elevatorNumber], weight[elevatorNumber],
+                buttons[elevatorNumber], servicesFloors[elevatorNumber]);
+    }
+}
@@ -0,0 +1,74 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for testing the LatencyHistogram.
+ */
+public class LatencyHistogramTest {
+    /**
+     * Test the empty histogram.
+     */
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getMean());
+        assertThrows(IllegalArgumentException.class, () -> histogram.getPercentile(101));
+    }
+
+    /**
+     * Test the percentiles of a uniform distribution.
+     */
+    @Test
+    public void testPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10000; ++i) {
+            histogram.record(i);
+        }
+
+        assertEquals(10000, histogram.getCount());
+        assertEquals(10000, histogram.getMax());
+        assertEquals(5000.5, histogram.getMean());
+        assertEquals(5000, histogram.getPercentile(50), 5000 / LatencyHistogram.SUB_BUCKETS);
+        assertEquals(9900, histogram.getPercentile(99), 9900 / LatencyHistogram.SUB_BUCKETS);
+        assertTrue(histogram.getPercentile(50) >= 5000);
+        assertEquals(10000, histogram.getPercentile(100));
+        assertEquals(1, histogram.getPercentile(0));
+    }
+
+    /**
+     * Test that a bucket covers its values across the whole range.
+     */
+    @Test
+    public void testBuckets() {
+        long[] values = {0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            assertTrue(LatencyHistogram.upperBoundOf(bucket) >= value);
+            if (bucket > 0) {
+                assertTrue(LatencyHistogram.upperBoundOf(bucket - 1) < value);
+            }
+        }
+    }
+
+    /**
+     * Test the formatting and the reset.
+     */
+    @Test
+    public void testFormatAndReset() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(7);
+
+        assertEquals("{\"count\":2,\"p50\":0,\"p99\":7,\"max\":7}", histogram.format());
+
+        histogram.reset();
+        assertEquals("{\"count\":0,\"p50\":0,\"p99\":0,\"max\":0}", histogram.format());
+    }
+}
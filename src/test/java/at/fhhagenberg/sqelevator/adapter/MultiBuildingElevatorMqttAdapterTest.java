@@ -0,0 +1,317 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import at.fhhagenberg.sqelevator.algorithm.ElevatorAlgorithm;
+import com.hivemq.client.mqtt.MqttClientState;
+import com.hivemq.client.mqtt.datatypes.MqttTopic;
+import com.hivemq.client.mqtt.datatypes.MqttTopicFilter;
+import com.hivemq.client.mqtt.mqtt5.Mqtt5AsyncClient;
+import com.hivemq.client.mqtt.mqtt5.message.publish.Mqtt5Publish;
+import com.hivemq.client.mqtt.mqtt5.message.subscribe.Mqtt5Subscribe;
+import com.hivemq.client.mqtt.mqtt5.message.subscribe.Mqtt5Subscription;
+import com.hivemq.client.mqtt.mqtt5.message.unsubscribe.Mqtt5Unsubscribe;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import sqelevator.IElevator;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for several buildings served by one adapter process, which share the MQTT client
+ */
+@MockitoSettings(strictness = Strictness.LENIENT)
+@ExtendWith(MockitoExtension.class)
+public class MultiBuildingElevatorMqttAdapterTest {
+    /** The PLC mock of building b1 */
+    @Mock
+    private IElevator plc;
+
+    /** The PLC mock of building b2 */
+    @Mock
+    private IElevator plc2;
+
+    /** The broker which routes the messages of the clients */
+    private LoopbackBroker broker;
+
+    /** The scheduler shared by the buildings */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Set up the test environment for each test
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        for (IElevator mock : List.of(plc, plc2)) {
+            when(mock.getElevatorNum()).thenReturn(1);
+            when(mock.getElevatorDoorStatus(0)).thenReturn(2);
+            when(mock.getFloorNum()).thenReturn(5);
+            when(mock.getFloorHeight()).thenReturn(3);
+            when(mock.getElevatorCapacity(0)).thenReturn(5);
+        }
+        when(plc.getElevatorFloor(0)).thenReturn(1);
+        when(plc.getFloorButtonDown(1)).thenReturn(true);
+        when(plc.getTarget(0)).thenReturn(4);
+        when(plc.getCommittedDirection(0)).thenReturn(1);
+
+        broker = new LoopbackBroker();
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    /**
+     * Reset the test environment for each test
+     */
+    @AfterEach
+    void tearDown() {
+        broker.close();
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Test case which tests the properties of a building in multi-building mode
+     */
+    @Test
+    void testBuildingProperties() {
+        Properties properties = new Properties();
+        properties.setProperty("interval", "100");
+        properties.setProperty("plc.url", "rmi://localhost/ElevatorSim");
+        properties.setProperty("building.b1.plc.url", "rmi://b1/ElevatorSim");
+        properties.setProperty("building.b2.interval", "250");
+
+        Properties b1 = ElevatorMqttAdapter.getBuildingProperties(properties, "b1");
+        assertEquals("rmi://b1/ElevatorSim", b1.getProperty("plc.url"));
+        assertEquals("100", b1.getProperty("interval"));
+        assertNull(b1.getProperty("b2.interval"));
+
+        Properties b2 = ElevatorMqttAdapter.getBuildingProperties(properties, "b2");
+        assertEquals("rmi://localhost/ElevatorSim", b2.getProperty("plc.url"));
+        assertEquals("250", b2.getProperty("interval"));
+
+        assertEquals("", new ElevatorMqttAdapter(plc, mock(Mqtt5AsyncClient.class)).getTopicPrefix());
+        assertEquals("building/b1/", new ElevatorMqttAdapter(plc, mock(Mqtt5AsyncClient.class), "building/b1/").getTopicPrefix());
+    }
+
+    /**
+     * Test case which tests that two buildings on one MQTT client publish under their own topic prefix only
+     * @throws Exception if adapter encounters an error
+     */
+    @Test
+    void testBuildingsPublishUnderOwnPrefix() throws Exception {
+        Mqtt5AsyncClient sharedClient = broker.createClient();
+        startBuilding(plc, sharedClient, "building/b1/");
+        startBuilding(plc2, sharedClient, "building/b2/");
+        assertEquals(List.of("building/b1/elevator_control/#", "building/b2/elevator_control/#"), broker.getTopicFilters());
+
+        // only building b1 gets the connection status of its algorithm
+        broker.publish("building/b1/elevator_control/connection_status", "true");
+        await().atMost(5, TimeUnit.SECONDS).until(() -> broker.getTopics().contains("building/b1/elevator/0/current_floor"));
+
+        List<String> topics = broker.getTopics();
+        assertTrue(topics.contains("building/b1/info/num_of_floors"));
+        assertTrue(topics.contains("building/b2/info/num_of_floors"));
+        assertTrue(topics.contains("building/b1/floor/1/button_down"));
+        assertFalse(topics.contains("building/b2/elevator/0/current_floor"));
+        for (String topic : topics) {
+            assertTrue(topic.startsWith("building/b1/") || topic.startsWith("building/b2/"), topic);
+        }
+    }
+
+    /**
+     * Test case which tests that two buildings on one MQTT client write the commands of their own control topics only
+     * @throws Exception if adapter encounters an error
+     */
+    @Test
+    void testBuildingsIgnoreOtherControlTopics() throws Exception {
+        Mqtt5AsyncClient sharedClient = broker.createClient();
+        startBuilding(plc, sharedClient, "building/b1/");
+        startBuilding(plc2, sharedClient, "building/b2/");
+
+        broker.publish("building/b1/elevator_control/0/target_floor", "3");
+        broker.publish("building/b2/elevator_control/0/direction", "2");
+
+        verify(plc, timeout(1000)).setTarget(0, 3);
+        verify(plc2, timeout(1000)).setCommittedDirection(0, 2);
+        verify(plc, never()).setCommittedDirection(anyInt(), anyInt());
+        verify(plc2, never()).setTarget(anyInt(), anyInt());
+    }
+
+    /**
+     * Test case which tests that the algorithm of a building controls the elevators of its building via its prefix
+     * @throws Exception if adapter or algorithm encounter an error
+     */
+    @Test
+    void testPrefixedAlgorithm() throws Exception {
+        // the elevator of building b1 waits with open doors, a passenger requested floor 1
+        when(plc.getElevatorFloor(0)).thenReturn(0);
+        when(plc.getTarget(0)).thenReturn(0);
+        when(plc.getElevatorDoorStatus(0)).thenReturn(IElevator.ELEVATOR_DOORS_OPEN);
+        when(plc.getCommittedDirection(0)).thenReturn(IElevator.ELEVATOR_DIRECTION_UNCOMMITTED);
+        when(plc.getElevatorButton(0, 1)).thenReturn(true);
+        when(plc.getFloorButtonDown(1)).thenReturn(false);
+        for (int floor = 0; floor < 5; floor++) {
+            when(plc.getServicesFloors(0, floor)).thenReturn(true);
+        }
+
+        Mqtt5AsyncClient sharedClient = broker.createClient();
+        startBuilding(plc, sharedClient, "building/b1/");
+        startBuilding(plc2, sharedClient, "building/b2/");
+        new ElevatorAlgorithm(broker.createClient(), "building/b1/").run();
+
+        verify(plc, timeout(5000)).setCommittedDirection(0, IElevator.ELEVATOR_DIRECTION_UP);
+        verify(plc, timeout(5000)).setTarget(0, 1);
+        verify(plc2, never()).setCommittedDirection(anyInt(), anyInt());
+        verify(plc2, never()).setTarget(anyInt(), anyInt());
+
+        List<String> topics = broker.getTopics();
+        assertTrue(topics.contains("building/b1/elevator_control/connection_status"));
+        assertFalse(topics.contains("elevator_control/connection_status"));
+        assertFalse(topics.contains("building/b2/elevator_control/connection_status"));
+    }
+
+    /**
+     * Starts a building on the shared scheduler
+     * @param buildingPlc The PLC of the building
+     * @param mqttClient The MQTT client
+     * @param topicPrefix The prefix of all topics of the building
+     * @throws Exception if adapter encounters an error
+     */
+    private void startBuilding(IElevator buildingPlc, Mqtt5AsyncClient mqttClient, String topicPrefix) throws Exception {
+        ElevatorMqttAdapter adapter = new ElevatorMqttAdapter(buildingPlc, mqttClient, topicPrefix);
+        adapter.setScheduler(scheduler);
+        adapter.start(100);
+    }
+
+    /**
+     * In-memory broker, which routes the messages published by its mocked MQTT clients to the matching subscriptions
+     * and keeps the retained messages for later subscriptions
+     */
+    static class LoopbackBroker {
+        /** The topics of the published messages, in order */
+        private final List<String> mTopics = new CopyOnWriteArrayList<>();
+        /** The retained messages by topic */
+        private final Map<MqttTopic, Mqtt5Publish> mRetained = new ConcurrentHashMap<>();
+        /** The topic filters of the subscriptions, in order */
+        private final List<MqttTopicFilter> mTopicFilters = new CopyOnWriteArrayList<>();
+        /** The callbacks of the subscriptions, indexed like the topic filters */
+        private final List<Consumer<Mqtt5Publish>> mCallbacks = new CopyOnWriteArrayList<>();
+        /** If the broker still routes messages */
+        private volatile boolean mOpen = true;
+
+        /**
+         * Creates a connected MQTT client of the broker
+         * @return The client
+         */
+        Mqtt5AsyncClient createClient() {
+            Mqtt5AsyncClient client = mock(Mqtt5AsyncClient.class);
+            when(client.connect()).thenReturn(CompletableFuture.completedFuture(null));
+            when(client.getState()).thenReturn(MqttClientState.CONNECTED);
+            when(client.publish(any(Mqtt5Publish.class))).thenAnswer(invocation -> {
+                publish(invocation.<Mqtt5Publish>getArgument(0));
+                return CompletableFuture.completedFuture(null);
+            });
+            when(client.subscribe(any(Mqtt5Subscribe.class), ArgumentMatchers.<Consumer<Mqtt5Publish>>any())).thenAnswer(invocation -> {
+                Consumer<Mqtt5Publish> callback = invocation.getArgument(1);
+                for (Mqtt5Subscription subscription : invocation.<Mqtt5Subscribe>getArgument(0).getSubscriptions()) {
+                    subscribe(subscription.getTopicFilter(), callback);
+                }
+                return CompletableFuture.completedFuture(null);
+            });
+            when(client.unsubscribe(any(Mqtt5Unsubscribe.class))).thenAnswer(invocation -> {
+                for (MqttTopicFilter topicFilter : invocation.<Mqtt5Unsubscribe>getArgument(0).getTopicFilters()) {
+                    int index = mTopicFilters.indexOf(topicFilter);
+                    if (index >= 0) {
+                        mTopicFilters.remove(index);
+                        mCallbacks.remove(index);
+                    }
+                }
+                return CompletableFuture.completedFuture(null);
+            });
+            return client;
+        }
+
+        /**
+         * Publishes a message as a client of the broker would
+         * @param topic The topic
+         * @param payload The payload
+         */
+        void publish(String topic, String payload) {
+            publish(Mqtt5Publish.builder().topic(topic).payload(payload.getBytes()).build());
+        }
+
+        /**
+         * Routes a message to the matching subscriptions
+         * @param publish The message
+         */
+        private void publish(Mqtt5Publish publish) {
+            if (!mOpen) {
+                return;
+            }
+
+            mTopics.add(publish.getTopic().toString());
+            if (publish.isRetain()) {
+                mRetained.put(publish.getTopic(), publish);
+            }
+            for (int i = 0; i < mTopicFilters.size(); i++) {
+                if (mTopicFilters.get(i).matches(publish.getTopic())) {
+                    mCallbacks.get(i).accept(publish);
+                }
+            }
+        }
+
+        /**
+         * Adds a subscription and hands it the matching retained messages
+         * @param topicFilter The topic filter
+         * @param callback The callback
+         */
+        private void subscribe(MqttTopicFilter topicFilter, Consumer<Mqtt5Publish> callback) {
+            mTopicFilters.add(topicFilter);
+            mCallbacks.add(callback);
+            for (Mqtt5Publish retained : mRetained.values()) {
+                if (topicFilter.matches(retained.getTopic())) {
+                    callback.accept(retained);
+                }
+            }
+        }
+
+        /**
+         * Returns the topics of the published messages
+         * @return The topics, in order
+         */
+        List<String> getTopics() {
+            return mTopics;
+        }
+
+        /**
+         * Returns the topic filters of the subscriptions
+         * @return The topic filters, in order
+         */
+        List<String> getTopicFilters() {
+            return mTopicFilters.stream().map(MqttTopicFilter::toString).toList();
+        }
+
+        /**
+         * Stops routing messages, e.g. of the poll cycles still scheduled
+         */
+        void close() {
+            mOpen = false;
+        }
+    }
+}
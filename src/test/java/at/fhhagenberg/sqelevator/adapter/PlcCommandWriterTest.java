@@ -0,0 +1,288 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import sqelevator.IElevator;
+
+import java.rmi.RemoteException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for testing the PlcCommandWriter.
+ */
+@ExtendWith(MockitoExtension.class)
+public class PlcCommandWriterTest {
+    /** The mock for the PLC. */
+    @Mock
+    IElevator plcMock;
+
+    /** The tasks queued for the writer, run by the tests. */
+    private ArrayDeque<Runnable> tasks;
+    /** The failures reported by the writer. */
+    private List<Exception> failures;
+    /** The writer to test. */
+    private PlcCommandWriter writer;
+
+    /**
+     * Set up a writer for three elevators whose tasks run on demand.
+     */
+    @BeforeEach
+    public void setUp() {
+        tasks = new ArrayDeque<>();
+        failures = new ArrayList<>();
+        writer = new PlcCommandWriter(3, () -> plcMock, tasks::add, failures::add);
+    }
+
+    /**
+     * Runs the queued writer tasks.
+     */
+    private void drain() {
+        while (!tasks.isEmpty()) {
+            tasks.poll().run();
+        }
+    }
+
+    /**
+     * Test that repeated commands of an elevator are coalesced to the latest one.
+     */
+    @Test
+    public void testCoalescing() throws RemoteException {
+        writer.setTarget(0, 1);
+        writer.setTarget(0, 2);
+        writer.setCommittedDirection(0, IElevator.ELEVATOR_DIRECTION_DOWN);
+        writer.setTarget(0, 3);
+        writer.setCommittedDirection(0, IElevator.ELEVATOR_DIRECTION_UP);
+        writer.setTarget(2, 4);
+
+        // one task per elevator, however many commands arrived
+        assertEquals(2, tasks.size());
+        assertEquals(6, writer.getSubmittedCount());
+        assertEquals(3, writer.getCoalescedCount());
+
+        drain();
+        InOrder inOrder = inOrder(plcMock);
+        inOrder.verify(plcMock).setCommittedDirection(0, IElevator.ELEVATOR_DIRECTION_UP);
+        inOrder.verify(plcMock).setTarget(0, 3);
+        verify(plcMock).setTarget(2, 4);
+        verifyNoMoreInteractions(plcMock);
+
+        assertEquals(3, writer.getWrittenCount());
+        assertEquals(3, writer.getCoalescedCount());
+    }
+
+    /**
+     * Test that a command submitted after the slot was drained is written again.
+     */
+    @Test
+    public void testRequeue() throws RemoteException {
+        writer.setTarget(1, 5);
+        drain();
+        writer.setTarget(1, 6);
+        assertEquals(1, tasks.size());
+        drain();
+
+        verify(plcMock).setTarget(1, 5);
+        verify(plcMock).setTarget(1, 6);
+        assertEquals(0, writer.getCoalescedCount());
+    }
+
+    /**
+     * Test that a failed write is reported and its commands are dropped.
+     */
+    @Test
+    public void testFailure() throws RemoteException {
+        RemoteException exception = new RemoteException("PLC unreachable");
+        doThrow(exception).when(plcMock).setCommittedDirection(0, IElevator.ELEVATOR_DIRECTION_UP);
+        writer.setCommittedDirection(0, IElevator.ELEVATOR_DIRECTION_UP);
+        writer.setTarget(0, 2);
+        drain();
+
+        assertEquals(List.of(exception), failures);
+        verify(plcMock, never()).setTarget(anyInt(), anyInt());
+        assertEquals(2, writer.getDroppedCount());
+        assertEquals(0, writer.getCoalescedCount());
+    }
+
+    /**
+     * Test that a runtime exception of the PLC is reported like a failed write.
+     */
+    @Test
+    public void testRuntimeFailure() throws RemoteException {
+        IllegalStateException exception = new IllegalStateException("PLC stopped");
+        doThrow(exception).when(plcMock).setTarget(1, 2);
+        writer.setTarget(1, 2);
+        drain();
+
+        assertEquals(List.of(exception), failures);
+        assertEquals(1, writer.getDroppedCount());
+        assertEquals(0, writer.getWrittenCount());
+    }
+
+    /**
+     * Test that the commands of a slot rejected by the writer are dropped instead of waiting for the next command.
+     */
+    @Test
+    public void testRejected() throws RemoteException {
+        writer = new PlcCommandWriter(3, () -> plcMock, task -> {
+            throw new RejectedExecutionException("Writer stopped");
+        }, failures::add);
+        writer.setCommittedDirection(0, IElevator.ELEVATOR_DIRECTION_UP);
+        writer.setTarget(0, 2);
+
+        // the second command queued the slot again
+        assertEquals(2, writer.getDroppedCount());
+        assertEquals(0, writer.getCoalescedCount());
+        assertTrue(failures.isEmpty());
+        verifyNoInteractions(plcMock);
+    }
+
+    /**
+     * Test the validation of the commands.
+     */
+    @Test
+    public void testInvalidCommands() {
+        assertThrows(IllegalArgumentException.class, () -> writer.setTarget(3, 0));
+        assertThrows(IllegalArgumentException.class, () -> writer.setTarget(0, -1));
+        assertThrows(IllegalArgumentException.class, () -> writer.setCommittedDirection(-1, 0));
+        assertTrue(tasks.isEmpty());
+        assertEquals(3, writer.getNumOfElevators());
+    }
+
+    /**
+     * Test that commands matching the polled state are suppressed once suppression is enabled.
+     */
+    @Test
+    public void testSuppressPolledState() throws RemoteException {
+        writer.observe(0, 3, IElevator.ELEVATOR_DIRECTION_UP);
+        writer.setTarget(0, 3);
+        assertEquals(1, tasks.size());
+        drain();
+        verify(plcMock).setTarget(0, 3);
+
+        writer.setSuppression(true);
+        writer.setTarget(0, 3);
+        writer.setCommittedDirection(0, IElevator.ELEVATOR_DIRECTION_UP);
+        assertTrue(tasks.isEmpty());
+        assertEquals(2, writer.getSuppressedCount());
+
+        writer.setTarget(0, 4);
+        drain();
+        verify(plcMock).setTarget(0, 4);
+        assertEquals(2, writer.getWrittenCount());
+        verifyNoMoreInteractions(plcMock);
+    }
+
+    /**
+     * Test that a command matching a write in flight is suppressed until the ledger entry expires.
+     */
+    @Test
+    public void testSuppressInFlight() throws RemoteException {
+        writer.setSuppression(true);
+        writer.observe(1, 0, IElevator.ELEVATOR_DIRECTION_UNCOMMITTED);
+        writer.setTarget(1, 5);
+        drain();
+
+        // the poll has not seen the write yet, the written value counts
+        writer.observe(1, 0, IElevator.ELEVATOR_DIRECTION_UNCOMMITTED);
+        writer.setTarget(1, 5);
+        assertTrue(tasks.isEmpty());
+
+        // the latest command wins, a repeated old value cancels the pending one
+        writer.setTarget(1, 6);
+        writer.setTarget(1, 5);
+        drain();
+        verify(plcMock, times(1)).setTarget(1, 5);
+        verify(plcMock, never()).setTarget(1, 6);
+
+        // the PLC did not take the target, the entry expires and the command is written again
+        writer.observe(1, 0, IElevator.ELEVATOR_DIRECTION_UNCOMMITTED);
+        writer.setTarget(1, 5);
+        drain();
+        verify(plcMock, times(2)).setTarget(1, 5);
+        assertEquals(2, writer.getSuppressedCount());
+        assertEquals(1, writer.getCoalescedCount());
+    }
+
+    /**
+     * Test that a command repeated while the same write is blocked on the PLC is suppressed.
+     */
+    @Test
+    public void testSuppressDuringWrite() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return null;
+        }).when(plcMock).setTarget(0, 5);
+
+        ExecutorService thread = Executors.newSingleThreadExecutor();
+        try {
+            writer = new PlcCommandWriter(3, () -> plcMock, thread, failures::add);
+            writer.setSuppression(true);
+            writer.setTarget(0, 5);
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            // the write is on the wire, the repeated command must not queue a second one
+            writer.setTarget(0, 5);
+            assertEquals(1, writer.getSuppressedCount());
+            release.countDown();
+        } finally {
+            thread.shutdown();
+            assertTrue(thread.awaitTermination(5, TimeUnit.SECONDS));
+        }
+
+        verify(plcMock, times(1)).setTarget(0, 5);
+        assertEquals(1, writer.getWrittenCount());
+        assertTrue(failures.isEmpty());
+    }
+
+    /**
+     * Test that a failed write leaves the ledger, so the repeated command is written again.
+     */
+    @Test
+    public void testFailureRollsBackLedger() throws RemoteException {
+        writer.setSuppression(true);
+        doThrow(new RemoteException("PLC unreachable")).doNothing().when(plcMock).setTarget(0, 2);
+        writer.setTarget(0, 2);
+        drain();
+        assertEquals(1, writer.getDroppedCount());
+
+        writer.setTarget(0, 2);
+        assertEquals(1, tasks.size());
+        drain();
+        verify(plcMock, times(2)).setTarget(0, 2);
+        assertEquals(0, writer.getSuppressedCount());
+        assertEquals(1, writer.getWrittenCount());
+    }
+
+    /**
+     * Test that clearing the ledger lets the next commands through.
+     */
+    @Test
+    public void testClearLedger() throws RemoteException {
+        writer.setSuppression(true);
+        writer.observe(2, 1, IElevator.ELEVATOR_DIRECTION_DOWN);
+        writer.setTarget(2, 1);
+        assertEquals(1, writer.getSuppressedCount());
+
+        writer.clearLedger();
+        writer.setTarget(2, 1);
+        drain();
+        verify(plcMock).setTarget(2, 1);
+    }
+}
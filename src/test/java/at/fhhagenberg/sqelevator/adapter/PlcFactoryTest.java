@@ -0,0 +1,103 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import at.fhhagenberg.sqelevator.simulator.SimulatedElevator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sqelevator.IElevator;
+
+import java.nio.file.Path;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Test class for testing the PlcFactory.
+ */
+public class PlcFactoryTest {
+    /** The directory of the journal. */
+    @TempDir
+    Path directory;
+
+    /**
+     * Test that the PLC is looked up via RMI without an in-process backend.
+     */
+    @Test
+    public void testRmi() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("plc.url", "rmi://localhost/ElevatorSim");
+
+        PlcFactory factory = PlcFactory.fromProperties(properties);
+        assertEquals(PlcFactory.Backend.RMI, factory.getBackend());
+        assertEquals("rmi://localhost/ElevatorSim", factory.getPlcUrl());
+        assertNull(PlcFactory.rmi(null).getPlcUrl());
+    }
+
+    /**
+     * Test that a replayed journal is created once and reattached on every connect.
+     */
+    @Test
+    public void testReplay() throws Exception {
+        Path base = directory.resolve("plc");
+        try (SnapshotJournal journal = new SnapshotJournal(base, SnapshotJournal.DEFAULT_SEGMENT_SIZE, 1)) {
+            journal.begin(4, 3, new int[]{5});
+            journal.append(new PlcSnapshot(1, 4), 1, 0);
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("plc.url", "rmi://localhost/ElevatorSim");
+        properties.setProperty("plc.replay", base.toString());
+
+        PlcFactory factory = PlcFactory.fromProperties(properties);
+        assertEquals(PlcFactory.Backend.REPLAY, factory.getBackend());
+        IElevator plc = factory.connect();
+        assertInstanceOf(JournalReplayElevator.class, plc);
+        assertSame(plc, factory.connect());
+        assertNull(factory.getPlcUrl());
+    }
+
+    /**
+     * Test that a simulated building is created once and reattached on every connect.
+     */
+    @Test
+    public void testSimulation() throws Exception {
+        Properties properties = new Properties();
+        properties.setProperty("plc.simulate", "3x12");
+
+        PlcFactory factory = PlcFactory.fromProperties(properties);
+        assertEquals(PlcFactory.Backend.SIMULATION, factory.getBackend());
+        IElevator plc = factory.connect();
+        assertInstanceOf(SimulatedElevator.class, plc);
+        assertEquals(3, plc.getElevatorNum());
+        assertEquals(12, plc.getFloorNum());
+        assertEquals(SimulatedElevator.DEFAULT_FLOOR_HEIGHT, plc.getFloorHeight());
+        assertEquals(SimulatedElevator.DEFAULT_CAPACITY, plc.getElevatorCapacity(0));
+        assertSame(plc, factory.connect());
+
+        properties.setProperty("plc.simulate.floorHeight", "12");
+        properties.setProperty("plc.simulate.capacity", "8");
+        properties.setProperty("plc.simulate.maxSpeed", "15");
+        properties.setProperty("plc.simulate.acceleration", "3");
+        plc = PlcFactory.fromProperties(properties).connect();
+        assertEquals(12, plc.getFloorHeight());
+        assertEquals(8, plc.getElevatorCapacity(0));
+
+        properties.setProperty("plc.simulate.maxSpeed", "0");
+        assertThrows(IllegalArgumentException.class, () -> PlcFactory.fromProperties(properties));
+        properties.setProperty("plc.simulate.maxSpeed", "15");
+
+        properties.setProperty("plc.simulate", "3");
+        assertThrows(IllegalArgumentException.class, () -> PlcFactory.fromProperties(properties));
+    }
+
+    /**
+     * Test the validation of an in-process backend.
+     */
+    @Test
+    public void testInvalidInProcess() throws Exception {
+        IElevator plc = mock(IElevator.class);
+        assertThrows(IllegalArgumentException.class, () -> PlcFactory.inProcess(PlcFactory.Backend.RMI, plc));
+        assertThrows(IllegalArgumentException.class, () -> PlcFactory.inProcess(PlcFactory.Backend.REPLAY, null));
+        assertSame(plc, PlcFactory.inProcess(PlcFactory.Backend.REPLAY, plc).connect());
+    }
+}
@@ -0,0 +1,303 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import sqelevator.IElevator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.rmi.RemoteException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static sqelevator.IElevator.*;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for testing the PlcSnapshotReader backends.
+ */
+@ExtendWith(MockitoExtension.class)
+public class PlcSnapshotReaderTest {
+    /** The mock for a PLC without bulk support. */
+    @Mock
+    IElevator plcMock;
+
+    /** The stand-in for a PLC with bulk support. */
+    InMemoryBulkElevator bulkPlc;
+
+    /** The snapshot to fill. */
+    PlcSnapshot snapshot;
+
+    /**
+     * Set up the test environment.
+     */
+    @BeforeEach
+    public void setUp() {
+        bulkPlc = new InMemoryBulkElevator(2, 3);
+        snapshot = new PlcSnapshot(2, 3);
+    }
+
+    /**
+     * Test that the fitting backend is chosen for the PLC.
+     */
+    @Test
+    public void testForPlc() {
+        assertInstanceOf(GetterPlcSnapshotReader.class, PlcSnapshotReader.forPlc(plcMock));
+        assertInstanceOf(BulkPlcSnapshotReader.class, PlcSnapshotReader.forPlc(bulkPlc));
+    }
+
+    /**
+     * Test that the getter backend reads every value exactly once.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testGetterReadElevator() throws Exception {
+        when(plcMock.getCommittedDirection(0)).thenReturn(ELEVATOR_DIRECTION_DOWN);
+        when(plcMock.getElevatorAccel(0)).thenReturn(3);
+        when(plcMock.getElevatorSpeed(0)).thenReturn(7);
+        when(plcMock.getElevatorDoorStatus(0)).thenReturn(ELEVATOR_DOORS_CLOSING);
+        when(plcMock.getElevatorFloor(0)).thenReturn(2);
+        when(plcMock.getTarget(0)).thenReturn(1);
+        when(plcMock.getElevatorWeight(0)).thenReturn(80);
+        when(plcMock.getElevatorPosition(0)).thenReturn(21);
+        when(plcMock.getElevatorButton(0, 0)).thenReturn(false);
+        when(plcMock.getElevatorButton(0, 1)).thenReturn(true);
+        when(plcMock.getElevatorButton(0, 2)).thenReturn(false);
+        when(plcMock.getServicesFloors(0, 1)).thenReturn(false);
+        when(plcMock.getServicesFloors(0, 2)).thenReturn(true);
+
+        new GetterPlcSnapshotReader(plcMock).readElevator(snapshot, 0, PollFieldClass.ALL, false);
+
+        assertEquals(ELEVATOR_DIRECTION_DOWN, snapshot.getDirection(0));
+        assertEquals(3, snapshot.getAcceleration(0));
+        assertEquals(7, snapshot.getSpeed(0));
+        assertEquals(ELEVATOR_DOORS_CLOSING, snapshot.getDoorStatus(0));
+        assertEquals(2, snapshot.getCurrentFloor(0));
+        assertEquals(1, snapshot.getTargetFloor(0));
+        assertEquals(80, snapshot.getWeight(0));
+        assertEquals(21, snapshot.getPosition(0));
+        assertTrue(snapshot.getElevatorButton(0, 1));
+        assertTrue(snapshot.getServicesFloor(0, 2));
+
+        // 7 elevator values + position of the moving car + 3 buttons + 2 serviced floors (ground floor is skipped)
+        assertEquals(13, snapshot.getRmiCallCount());
+        verify(plcMock, times(1)).getCommittedDirection(0);
+        verify(plcMock, never()).getServicesFloors(0, 0);
+    }
+
+    /**
+     * Test that the getter backend reads the ground floor service flag on the initial read.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testGetterReadElevatorInitial() throws Exception {
+        when(plcMock.getServicesFloors(0, 0)).thenReturn(true);
+
+        new GetterPlcSnapshotReader(plcMock).readElevator(snapshot, 0, PollFieldClass.ALL, true);
+
+        assertTrue(snapshot.getServicesFloor(0, 0));
+        // the position is read initially even though the car is parked
+        assertEquals(14, snapshot.getRmiCallCount());
+    }
+
+    /**
+     * Test that the position of a parked car is not read.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testGetterReadPosition() throws Exception {
+        GetterPlcSnapshotReader reader = new GetterPlcSnapshotReader(plcMock);
+        int fieldClasses = PollFieldClass.MOTION.mask() | PollFieldClass.POSITION.mask();
+
+        // parked
+        reader.readElevator(snapshot, 0, fieldClasses, false);
+        verify(plcMock, never()).getElevatorPosition(0);
+
+        // moving
+        when(plcMock.getElevatorSpeed(0)).thenReturn(5);
+        when(plcMock.getElevatorPosition(0)).thenReturn(12);
+        reader.readElevator(snapshot, 0, fieldClasses, false);
+        assertEquals(12, snapshot.getPosition(0));
+
+        // the final position is read in the cycle the car stops
+        when(plcMock.getElevatorSpeed(0)).thenReturn(0);
+        when(plcMock.getElevatorPosition(0)).thenReturn(14);
+        reader.readElevator(snapshot, 0, fieldClasses, false);
+        assertEquals(14, snapshot.getPosition(0));
+
+        reader.readElevator(snapshot, 0, fieldClasses, false);
+        verify(plcMock, times(2)).getElevatorPosition(0);
+    }
+
+    /**
+     * Test that the getter backend reads a range of floors.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testGetterReadFloors() throws Exception {
+        when(plcMock.getFloorButtonUp(1)).thenReturn(true);
+        when(plcMock.getFloorButtonUp(2)).thenReturn(false);
+        when(plcMock.getFloorButtonDown(1)).thenReturn(false);
+        when(plcMock.getFloorButtonDown(2)).thenReturn(true);
+
+        new GetterPlcSnapshotReader(plcMock).readFloors(snapshot, 1, 3);
+
+        assertTrue(snapshot.getFloorButtonUp(1));
+        assertTrue(snapshot.getFloorButtonDown(2));
+        assertEquals(4, snapshot.getRmiCallCount());
+        verify(plcMock, never()).getFloorButtonUp(0);
+    }
+
+    /**
+     * Test that the getter backend only reads the requested field classes.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testGetterReadFieldClasses() throws Exception {
+        GetterPlcSnapshotReader reader = new GetterPlcSnapshotReader(plcMock);
+
+        reader.readElevator(snapshot, 0, PollFieldClass.MOTION.mask(), false);
+        assertEquals(7, snapshot.getRmiCallCount());
+        verify(plcMock, never()).getElevatorButton(anyInt(), anyInt());
+        verify(plcMock, never()).getServicesFloors(anyInt(), anyInt());
+
+        snapshot.resetRmiCallCount();
+        reader.readElevator(snapshot, 0, PollFieldClass.CONFIGURATION.mask(), false);
+        assertEquals(2, snapshot.getRmiCallCount());
+        verify(plcMock, times(1)).getCommittedDirection(0);
+
+        snapshot.resetRmiCallCount();
+        reader.readBuilding(snapshot, PollFieldClass.MOTION.mask() | PollFieldClass.CONFIGURATION.mask(), false);
+        assertEquals(2 * (7 + 2), snapshot.getRmiCallCount());
+        verify(plcMock, never()).getFloorButtonUp(anyInt());
+    }
+
+    /**
+     * Test that the bulk backend reads the whole building with one call.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testBulkReadBuilding() throws Exception {
+        bulkPlc.speed[1] = 12;
+        bulkPlc.target[1] = 2;
+        bulkPlc.buttons[0][2] = true;
+        bulkPlc.servicesFloors[1][1] = false;
+        bulkPlc.floorButtonDown[2] = true;
+
+        new BulkPlcSnapshotReader(bulkPlc).readBuilding(snapshot, PollFieldClass.ALL, false);
+
+        assertEquals(1, bulkPlc.calls);
+        assertEquals(1, snapshot.getRmiCallCount());
+        assertEquals(12, snapshot.getSpeed(1));
+        assertEquals(2, snapshot.getTargetFloor(1));
+        assertEquals(ELEVATOR_DOORS_CLOSED, snapshot.getDoorStatus(0));
+        assertTrue(snapshot.getElevatorButton(0, 2));
+        assertFalse(snapshot.getServicesFloor(1, 1));
+        assertTrue(snapshot.getServicesFloor(1, 0));
+        assertTrue(snapshot.getFloorButtonDown(2));
+        assertFalse(snapshot.getFloorButtonUp(2));
+    }
+
+    /**
+     * Test that the bulk backend reads an elevator with one call.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testBulkReadElevator() throws Exception {
+        bulkPlc.weight[1] = 300;
+
+        new BulkPlcSnapshotReader(bulkPlc).readElevator(snapshot, 1, PollFieldClass.ALL, false);
+
+        assertEquals(1, bulkPlc.calls);
+        assertEquals(300, snapshot.getWeight(1));
+    }
+
+    /**
+     * Test that the bulk backend rejects snapshots with unexpected dimensions.
+     */
+    @Test
+    public void testBulkDimensionMismatch() {
+        PlcSnapshot smaller = new PlcSnapshot(1, 3);
+        BulkPlcSnapshotReader reader = new BulkPlcSnapshotReader(bulkPlc);
+
+        assertThrows(RemoteException.class, () -> reader.readBuilding(smaller, PollFieldClass.ALL, false));
+        assertThrows(RemoteException.class, () -> reader.readElevator(new PlcSnapshot(2, 4), 0, PollFieldClass.ALL, false));
+    }
+
+    /**
+     * Test the ElevatorControlSystem with a bulk PLC.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testControlSystemWithBulkPlc() throws Exception {
+        ElevatorControlSystem ecs = new ElevatorControlSystem(bulkPlc);
+        ecs.initializeElevatorsViaPLC();
+
+        ecs.initialUpdateDataViaPLC();
+        assertEquals(1, ecs.getLastCycleRmiCalls());
+        assertEquals(2 * (7 + 2 * 3) + 3 * 2, ecs.getUpdateTopics().size());
+
+        bulkPlc.floor[0] = 2;
+        ecs.updateDataViaPLC();
+        assertEquals(1, ecs.getLastCycleRmiCalls());
+        assertEquals(1, ecs.getUpdateTopics().size());
+        assertEquals(2, ecs.getElevators()[0].getCurrentFloor());
+    }
+
+    /**
+     * Test that the async backend reads the same values as the getters and issues the same calls.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testAsyncReadBuilding() throws Exception {
+        bulkPlc.speed[1] = 12;
+        bulkPlc.position[1] = 40;
+        bulkPlc.target[1] = 2;
+        bulkPlc.buttons[0][2] = true;
+        bulkPlc.servicesFloors[1][1] = false;
+        bulkPlc.floorButtonDown[2] = true;
+
+        // one worker, as the stand-in counts its calls without synchronization
+        ExecutorService workers = Executors.newSingleThreadExecutor();
+        try {
+            AsyncPlcSnapshotReader reader = new AsyncPlcSnapshotReader(new AsyncElevator(bulkPlc, workers, 4));
+            assertTrue(reader.readsConcurrently());
+            reader.readBuilding(snapshot, PollFieldClass.ALL, false);
+
+            // the position of the car which started moving is read in the second wave
+            assertEquals(2 * (7 + 3 + 2) + 1 + 2 * 3, bulkPlc.calls);
+            assertEquals(bulkPlc.calls, snapshot.getRmiCallCount());
+            assertEquals(12, snapshot.getSpeed(1));
+            assertEquals(40, snapshot.getPosition(1));
+            assertEquals(2, snapshot.getTargetFloor(1));
+            assertEquals(ELEVATOR_DOORS_CLOSED, snapshot.getDoorStatus(0));
+            assertTrue(snapshot.getElevatorButton(0, 2));
+            assertFalse(snapshot.getServicesFloor(1, 1));
+            assertTrue(snapshot.getFloorButtonDown(2));
+            assertFalse(snapshot.getFloorButtonUp(2));
+        } finally {
+            workers.shutdown();
+        }
+    }
+
+    /**
+     * Test that the async backend reports a failed call as RemoteException.
+     * @throws Exception if PLC call fails
+     */
+    @Test
+    public void testAsyncReadFailure() throws Exception {
+        lenient().when(plcMock.getElevatorSpeed(0)).thenThrow(new RemoteException("lost"));
+
+        ExecutorService workers = Executors.newFixedThreadPool(2);
+        try {
+            AsyncPlcSnapshotReader reader = new AsyncPlcSnapshotReader(new AsyncElevator(plcMock, workers, 8));
+            RemoteException e = assertThrows(RemoteException.class,
+                    () -> reader.readElevator(snapshot, 0, PollFieldClass.MOTION.mask(), false));
+            assertTrue(e.getMessage().contains("lost"));
+        } finally {
+            workers.shutdown();
+        }
+    }
+}
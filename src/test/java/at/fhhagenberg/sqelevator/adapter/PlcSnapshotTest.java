@@ -0,0 +1,89 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static sqelevator.IElevator.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for testing the PlcSnapshot.
+ */
+public class PlcSnapshotTest {
+    /** The PlcSnapshot to test. */
+    PlcSnapshot snapshot;
+
+    /**
+     * Set up the test environment.
+     */
+    @BeforeEach
+    public void setUp() {
+        snapshot = new PlcSnapshot(1, 3);
+    }
+
+    /**
+     * Test the construction with invalid arguments.
+     */
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new PlcSnapshot(-1, 3));
+        assertThrows(IllegalArgumentException.class, () -> new PlcSnapshot(1, -3));
+    }
+
+    /**
+     * Test the dimensions of the snapshot.
+     */
+    @Test
+    public void testDimensions() {
+        assertEquals(1, snapshot.getNumOfElevators());
+        assertEquals(3, snapshot.getNumOfFloors());
+    }
+
+    /**
+     * Test setting and getting the elevator values.
+     */
+    @Test
+    public void testElevatorValues() {
+        snapshot.setElevator(0, ELEVATOR_DIRECTION_DOWN, 3, 7, ELEVATOR_DOORS_CLOSING, 2, 1, 80);
+        snapshot.setElevatorButton(0, 1, true);
+        snapshot.setServicesFloor(0, 2, true);
+
+        assertEquals(ELEVATOR_DIRECTION_DOWN, snapshot.getDirection(0));
+        assertEquals(3, snapshot.getAcceleration(0));
+        assertEquals(7, snapshot.getSpeed(0));
+        assertEquals(ELEVATOR_DOORS_CLOSING, snapshot.getDoorStatus(0));
+        assertEquals(2, snapshot.getCurrentFloor(0));
+        assertEquals(1, snapshot.getTargetFloor(0));
+        assertEquals(80, snapshot.getWeight(0));
+        assertFalse(snapshot.getElevatorButton(0, 0));
+        assertTrue(snapshot.getElevatorButton(0, 1));
+        assertFalse(snapshot.getServicesFloor(0, 1));
+        assertTrue(snapshot.getServicesFloor(0, 2));
+    }
+
+    /**
+     * Test setting and getting the floor values.
+     */
+    @Test
+    public void testFloorValues() {
+        snapshot.setFloor(1, true, false);
+
+        assertTrue(snapshot.getFloorButtonUp(1));
+        assertFalse(snapshot.getFloorButtonDown(1));
+        assertFalse(snapshot.getFloorButtonUp(0));
+    }
+
+    /**
+     * Test the RMI call counter.
+     */
+    @Test
+    public void testRmiCallCounter() {
+        assertEquals(0, snapshot.getRmiCallCount());
+        snapshot.addRmiCalls(3);
+        snapshot.addRmiCalls(2);
+        assertEquals(5, snapshot.getRmiCallCount());
+
+        snapshot.resetRmiCallCount();
+        assertEquals(0, snapshot.getRmiCallCount());
+    }
+}
@@ -0,0 +1,45 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for testing the PollExecutors.
+ */
+public class PollExecutorsTest {
+    /**
+     * Test that the created executor runs tasks.
+     * @throws Exception if the task fails
+     */
+    @Test
+    public void testCreate() throws Exception {
+        ExecutorService executor = PollExecutors.create(2);
+        try {
+            Future<String> future = executor.submit(() -> Thread.currentThread().getName());
+            assertTrue(future.get().startsWith("plc-poll-"));
+        }
+        finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test the creation with an invalid number of threads.
+     */
+    @Test
+    public void testCreateInvalid() {
+        assertThrows(IllegalArgumentException.class, () -> PollExecutors.create(0));
+    }
+
+    /**
+     * Test that virtual threads are detected according to the running JVM.
+     */
+    @Test
+    public void testVirtualThreadsAvailable() {
+        assertEquals(Runtime.version().feature() >= 21, PollExecutors.virtualThreadsAvailable());
+    }
+}
@@ -0,0 +1,105 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for testing the PollScheduler.
+ */
+public class PollSchedulerTest {
+    /**
+     * Test the construction with invalid parameters.
+     */
+    @Test
+    public void testInvalidParameters() {
+        assertThrows(IllegalArgumentException.class, () -> new PollScheduler(null));
+        assertThrows(IllegalArgumentException.class, () -> new PollScheduler(OverrunPolicy.SKIP, -1));
+
+        PollScheduler scheduler = new PollScheduler(OverrunPolicy.SKIP);
+        assertThrows(IllegalArgumentException.class, () -> scheduler.cycleFinished(0, 0));
+    }
+
+    /**
+     * Test that cycles within their interval keep the schedule.
+     */
+    @Test
+    public void testOnTime() {
+        PollScheduler scheduler = new PollScheduler(OverrunPolicy.SKIP);
+        scheduler.start(1000);
+
+        assertEquals(0, scheduler.cycleStarted(1000));
+        assertEquals(70, scheduler.cycleFinished(1030, 100));
+
+        // started 5 ms late, the schedule is not shifted
+        assertEquals(5, scheduler.cycleStarted(1105));
+        assertEquals(80, scheduler.cycleFinished(1120, 100));
+
+        assertEquals(2, scheduler.getCycleCount());
+        assertEquals(0, scheduler.getOverrunCount());
+        assertEquals(0, scheduler.getSkippedTicks());
+        assertEquals(15, scheduler.getLastCycleDuration());
+        assertEquals(30, scheduler.getMaxCycleDuration());
+        assertEquals(22.5, scheduler.getAverageCycleDuration());
+        assertEquals(5, scheduler.getMaxLateness());
+        assertEquals(1200, scheduler.getNextDeadline());
+    }
+
+    /**
+     * Test that the skip policy drops the missed ticks.
+     */
+    @Test
+    public void testSkip() {
+        PollScheduler scheduler = new PollScheduler(OverrunPolicy.SKIP);
+        scheduler.start(0);
+
+        scheduler.cycleStarted(0);
+        // the ticks at 100, 200 and 300 are missed
+        assertEquals(50, scheduler.cycleFinished(350, 100));
+        assertEquals(1, scheduler.getOverrunCount());
+        assertEquals(3, scheduler.getSkippedTicks());
+        assertEquals(400, scheduler.getNextDeadline());
+
+        assertEquals(0, scheduler.cycleStarted(400));
+    }
+
+    /**
+     * Test that the catch up policy runs the missed ticks back to back up to the backlog.
+     */
+    @Test
+    public void testCatchUp() {
+        PollScheduler scheduler = new PollScheduler(OverrunPolicy.CATCH_UP, 1);
+        scheduler.start(0);
+
+        scheduler.cycleStarted(0);
+        // the ticks at 100, 200 and 300 are missed, only one of them beyond the next is kept
+        assertEquals(0, scheduler.cycleFinished(350, 100));
+        assertEquals(1, scheduler.getSkippedTicks());
+        assertEquals(200, scheduler.getNextDeadline());
+
+        assertEquals(150, scheduler.cycleStarted(350));
+        assertEquals(0, scheduler.cycleFinished(355, 100));
+        assertEquals(95, scheduler.cycleStarted(395));
+        assertEquals(5, scheduler.cycleFinished(395, 100));
+        assertEquals(1, scheduler.getSkippedTicks());
+        assertEquals(150, scheduler.getMaxLateness());
+    }
+
+    /**
+     * Test that the stretch policy shifts the schedule.
+     */
+    @Test
+    public void testStretch() {
+        PollScheduler scheduler = new PollScheduler(OverrunPolicy.STRETCH);
+        scheduler.start(0);
+
+        scheduler.cycleStarted(0);
+        assertEquals(0, scheduler.cycleFinished(350, 100));
+        assertEquals(0, scheduler.getSkippedTicks());
+        assertEquals(1, scheduler.getOverrunCount());
+        assertEquals(350, scheduler.getNextDeadline());
+
+        assertEquals(0, scheduler.cycleStarted(350));
+        assertEquals(90, scheduler.cycleFinished(360, 100));
+    }
+}
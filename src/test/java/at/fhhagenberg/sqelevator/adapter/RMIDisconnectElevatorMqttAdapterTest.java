@@ -14,16 +14,12 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import org.testcontainers.utility.DockerImageName;
 import sqelevator.IElevator;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.rmi.RemoteException;
 import java.util.UUID;
 import java.util.concurrent.*;
-import java.util.logging.ConsoleHandler;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.*;
 
 /**
@@ -49,9 +45,6 @@ public class RMIDisconnectElevatorMqttAdapterTest {
     /** The test thread */
     private Thread testThread;
 
-    /** The logger for the test */
-    private final Logger logger = Logger.getLogger(ElevatorMqttAdapter.class.getName());
-
     /**
      * Set up the test environment before all tests
      */
@@ -144,11 +137,6 @@ public class RMIDisconnectElevatorMqttAdapterTest {
     public void testRemoteExceptionOnUpdateECS() throws Exception {
         when(plc.getElevatorButton(0, 1)).thenThrow(new RemoteException("RemoteException thrown!"));
 
-        ByteArrayOutputStream logStream = new ByteArrayOutputStream();
-        ConsoleHandler consoleHandler = new CaptureLoggingConsoleHandler(logStream);
-        consoleHandler.setLevel(Level.ALL);
-        logger.addHandler(consoleHandler);
-
         testThread = new Thread(() -> {
             try {
                 client.run(250);
@@ -157,8 +145,9 @@ public class RMIDisconnectElevatorMqttAdapterTest {
             }
         });
         testThread.start();
-        await().atMost(15, TimeUnit.SECONDS).until(() -> logStream.toString().contains("Failed to reconnect to RMI!"));
-        logger.removeHandler(consoleHandler);
+        // the PLC stays unreachable, so the reconnect attempts keep failing
+        await().atMost(15, TimeUnit.SECONDS).until(() -> client.getReconnector().getAttemptCount() > 0);
+        assertEquals(RmiConnectionState.RECONNECTING, client.getReconnector().getState());
 
         testThread.interrupt();
         testThread.join();
@@ -173,11 +162,6 @@ public class RMIDisconnectElevatorMqttAdapterTest {
         when(plc.getElevatorButton(0, 1)).thenReturn(false);
         doThrow(new RemoteException("RemoteException thrown!")).when(plc).setCommittedDirection(0, 0);
 
-        ByteArrayOutputStream logStream = new ByteArrayOutputStream();
-        ConsoleHandler consoleHandler = new CaptureLoggingConsoleHandler(logStream);
-        consoleHandler.setLevel(Level.ALL);
-        logger.addHandler(consoleHandler);
-
         testThread = new Thread(() -> {
             try {
                 client.run(250);
@@ -190,8 +174,9 @@ public class RMIDisconnectElevatorMqttAdapterTest {
                 .payload("0".getBytes())
                 .send();
         testThread.start();
-        await().atMost(15, TimeUnit.SECONDS).until(() -> logStream.toString().contains("Failed to reconnect to RMI!"));
-        logger.removeHandler(consoleHandler);
+        // the PLC stays unreachable, so the reconnect attempts keep failing
+        await().atMost(15, TimeUnit.SECONDS).until(() -> client.getReconnector().getAttemptCount() > 0);
+        assertEquals(RmiConnectionState.RECONNECTING, client.getReconnector().getState());
 
         testThread.interrupt();
         testThread.join();
@@ -206,11 +191,6 @@ public class RMIDisconnectElevatorMqttAdapterTest {
         when(plc.getElevatorButton(0, 1)).thenReturn(false);
         doThrow(new RemoteException("RemoteException thrown!")).when(plc).setTarget(0, 0);
 
-        ByteArrayOutputStream logStream = new ByteArrayOutputStream();
-        ConsoleHandler consoleHandler = new CaptureLoggingConsoleHandler(logStream);
-        consoleHandler.setLevel(Level.ALL);
-        logger.addHandler(consoleHandler);
-
         testThread = new Thread(() -> {
             try {
                 client.run(250);
@@ -224,55 +204,11 @@ public class RMIDisconnectElevatorMqttAdapterTest {
                 .payload("0".getBytes())
                 .send();
         testThread.start();
-        await().atMost(15, TimeUnit.SECONDS).until(() -> logStream.toString().contains("Failed to reconnect to RMI!"));
-        logger.removeHandler(consoleHandler);
+        // the PLC stays unreachable, so the reconnect attempts keep failing
+        await().atMost(15, TimeUnit.SECONDS).until(() -> client.getReconnector().getAttemptCount() > 0);
+        assertEquals(RmiConnectionState.RECONNECTING, client.getReconnector().getState());
 
         testThread.interrupt();
         testThread.join();
     }
-
-    /** Console handler for capturing logs */
-    private static class CaptureLoggingConsoleHandler extends ConsoleHandler {
-        /** The byte array output stream */
-        private final ByteArrayOutputStream byteArrayOutputStream;
-
-        /**
-         * Constructor for the console handler
-         * @param byteArrayOutputStream the byte array output stream
-         */
-        public CaptureLoggingConsoleHandler(ByteArrayOutputStream byteArrayOutputStream) {
-            this.byteArrayOutputStream = byteArrayOutputStream;
-        }
-
-        /**
-         * Publish the log record
-         * @param logRecord  description of the log event. A null record is
-         *                 silently ignored and is not published
-         */
-        @Override
-        public void publish(java.util.logging.LogRecord logRecord) {
-            try {
-                byteArrayOutputStream.write(getFormatter().format(logRecord).getBytes());
-            } catch (IOException e) {
-                // no-op
-            }
-        }
-
-        /**
-         * Flush the console handler
-         */
-        @Override
-        public void flush() {
-            // no-op
-        }
-
-        /**
-         * Close the console handler
-         * @throws SecurityException if closing the handler fails (in this case never)
-         */
-        @Override
-        public void close() throws SecurityException {
-            // no-op
-        }
-    }
 }
\ No newline at end of file
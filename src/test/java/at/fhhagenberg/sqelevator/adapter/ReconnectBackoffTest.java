@@ -0,0 +1,61 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for testing the ReconnectBackoff.
+ */
+public class ReconnectBackoffTest {
+    /**
+     * Test that the delay doubles up to the maximum without jitter.
+     */
+    @Test
+    public void testExponentialDelay() {
+        ReconnectBackoff backoff = new ReconnectBackoff(100, 1000, 0, new Random(1));
+        assertEquals(100, backoff.nextDelay());
+        assertEquals(200, backoff.nextDelay());
+        assertEquals(400, backoff.nextDelay());
+        assertEquals(800, backoff.nextDelay());
+        assertEquals(1000, backoff.nextDelay());
+        assertEquals(5, backoff.getAttempts());
+
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(1000, backoff.nextDelay());
+        }
+
+        backoff.reset();
+        assertEquals(0, backoff.getAttempts());
+        assertEquals(100, backoff.nextDelay());
+    }
+
+    /**
+     * Test that the jitter only shortens the delay by up to its share.
+     */
+    @Test
+    public void testJitter() {
+        ReconnectBackoff backoff = new ReconnectBackoff(1000, 1000, 0.5, new Random(7));
+        boolean varied = false;
+        long first = backoff.nextDelay();
+        for (int i = 0; i < 100; ++i) {
+            long delay = backoff.nextDelay();
+            assertTrue(delay > 500 && delay <= 1000);
+            varied |= delay != first;
+        }
+        assertTrue(varied);
+    }
+
+    /**
+     * Test the validation of the parameters.
+     */
+    @Test
+    public void testInvalidParameters() {
+        Random random = new Random();
+        assertThrows(IllegalArgumentException.class, () -> new ReconnectBackoff(0, 1000, 0, random));
+        assertThrows(IllegalArgumentException.class, () -> new ReconnectBackoff(1000, 100, 0, random));
+        assertThrows(IllegalArgumentException.class, () -> new ReconnectBackoff(100, 1000, 1.5, random));
+    }
+}
@@ -0,0 +1,146 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.rmi.RemoteException;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for testing the RmiReconnector.
+ */
+public class RmiReconnectorTest {
+    /** The worker of the reconnect attempts. */
+    private ScheduledExecutorService worker;
+    /** The number of attempts which fail before the PLC is reachable again. */
+    private AtomicInteger failures;
+    /** The number of attempts. */
+    private AtomicInteger attempts;
+    /** The clock in milliseconds, advanced by 10 ms per attempt. */
+    private AtomicLong clock;
+
+    /**
+     * Set up the worker.
+     */
+    @BeforeEach
+    public void setUp() {
+        worker = Executors.newSingleThreadScheduledExecutor();
+        failures = new AtomicInteger();
+        attempts = new AtomicInteger();
+        clock = new AtomicLong();
+    }
+
+    /**
+     * Stop the worker.
+     */
+    @AfterEach
+    public void tearDown() {
+        worker.shutdownNow();
+    }
+
+    /**
+     * Creates a reconnector whose attempts fail as often as configured.
+     * @param maxAttempts The maximum number of attempts per outage, 0 for no limit.
+     * @return The reconnector.
+     */
+    private RmiReconnector createReconnector(int maxAttempts) {
+        return new RmiReconnector(() -> {
+            attempts.incrementAndGet();
+            clock.addAndGet(10);
+            if (failures.getAndDecrement() > 0) {
+                throw new RemoteException("PLC unreachable");
+            }
+        }, worker, new ReconnectBackoff(1, 8, 0.5, new Random(3)), maxAttempts, clock::get);
+    }
+
+    /**
+     * Test that a lost connection is restored after failed attempts.
+     */
+    @Test
+    public void testReconnect() {
+        RmiReconnector reconnector = createReconnector(0);
+        assertEquals(RmiConnectionState.CONNECTED, reconnector.getState());
+        assertEquals(0, reconnector.getCurrentDowntime());
+
+        failures.set(3);
+        assertTrue(reconnector.connectionLost());
+        assertFalse(reconnector.isConnected());
+
+        await().atMost(5, TimeUnit.SECONDS).until(reconnector::isConnected);
+        assertEquals(4, attempts.get());
+        assertEquals(4, reconnector.getAttemptCount());
+        assertEquals(1, reconnector.getReconnectCount());
+        assertEquals(1, reconnector.getDowntime().getCount());
+        // 4 attempts of 10 ms, recorded in microseconds
+        assertEquals(40000, reconnector.getDowntime().getMax());
+
+        // the next outage starts over with the initial delay
+        failures.set(0);
+        assertTrue(reconnector.connectionLost());
+        await().atMost(5, TimeUnit.SECONDS).until(reconnector::isConnected);
+        assertEquals(2, reconnector.getReconnectCount());
+    }
+
+    /**
+     * Test that only the first of concurrent reports starts the reconnect worker.
+     */
+    @Test
+    public void testSingleFlight() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        RmiReconnector reconnector = new RmiReconnector(() -> {
+            attempts.incrementAndGet();
+            release.await();
+        }, worker, new ReconnectBackoff(1, 8, 0, new Random()), 0, System::currentTimeMillis);
+
+        Thread[] threads = new Thread[8];
+        AtomicInteger started = new AtomicInteger();
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread(() -> {
+                if (reconnector.connectionLost()) {
+                    started.incrementAndGet();
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, started.get());
+        assertEquals(RmiConnectionState.RECONNECTING, reconnector.getState());
+        release.countDown();
+        await().atMost(5, TimeUnit.SECONDS).until(reconnector::isConnected);
+        assertEquals(1, attempts.get());
+    }
+
+    /**
+     * Test that the state moves to failed and the failure handler runs once the attempts are exhausted.
+     */
+    @Test
+    public void testFailed() {
+        RmiReconnector reconnector = createReconnector(3);
+        AtomicInteger failed = new AtomicInteger();
+        reconnector.setFailureHandler(failed::incrementAndGet);
+        failures.set(Integer.MAX_VALUE);
+        reconnector.connectionLost();
+
+        await().atMost(5, TimeUnit.SECONDS).until(() -> failed.get() == 1);
+        assertEquals(RmiConnectionState.FAILED, reconnector.getState());
+        assertEquals(3, attempts.get());
+        assertEquals(0, reconnector.getReconnectCount());
+        assertFalse(reconnector.connectionLost());
+        assertEquals(1, failed.get());
+
+        assertThrows(IllegalArgumentException.class, () -> createReconnector(-1));
+    }
+}
@@ -0,0 +1,143 @@
+package at.fhhagenberg.sqelevator.adapter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static sqelevator.IElevator.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for testing the SnapshotJournal and the JournalReplayElevator.
+ */
+public class SnapshotJournalTest {
+    /** The directory of the journal. */
+    @TempDir
+    Path directory;
+
+    /**
+     * Creates a snapshot whose values depend on a cycle number.
+     * @param cycle The cycle number.
+     * @return The snapshot.
+     */
+    private static PlcSnapshot snapshotOf(int cycle) {
+        PlcSnapshot snapshot = new PlcSnapshot(2, 10);
+        snapshot.setElevator(1, ELEVATOR_DIRECTION_UP, 2, cycle, ELEVATOR_DOORS_CLOSING, 3, 9, 150);
+        snapshot.setPosition(1, 10 * cycle);
+        snapshot.setElevatorButton(0, 9, true);
+        snapshot.setServicesFloor(1, 4, false);
+        snapshot.setFloor(cycle % 10, true, false);
+        snapshot.setFloor(8, false, true);
+        return snapshot;
+    }
+
+    /**
+     * Test the constructor with invalid parameters.
+     */
+    @Test
+    public void testInvalid() {
+        Path base = directory.resolve("plc");
+        assertThrows(IllegalArgumentException.class, () -> new SnapshotJournal(base, 0, 1));
+        assertThrows(IllegalArgumentException.class, () -> new SnapshotJournal(base, 1024, 0));
+        assertThrows(IllegalArgumentException.class, () -> new SnapshotJournal(base, 16, 1).begin(10, 3, new int[]{5, 5}));
+        assertThrows(IllegalStateException.class, () -> new SnapshotJournal(base, 1024, 1).append(snapshotOf(0), 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new JournalReplayElevator(List.of(), 1));
+    }
+
+    /**
+     * Test that the recorded values are replayed along their wall time.
+     * @throws Exception if the journal cannot be written or read
+     */
+    @Test
+    public void testRecordAndReplay() throws Exception {
+        Path base = directory.resolve("plc");
+        try (SnapshotJournal journal = new SnapshotJournal(base, SnapshotJournal.DEFAULT_SEGMENT_SIZE, 2)) {
+            journal.begin(10, 3, new int[]{5, 8});
+            for (int cycle = 0; cycle < 5; ++cycle) {
+                journal.append(snapshotOf(cycle), 100 + cycle, 1000 + 100L * cycle);
+            }
+            assertEquals(5, journal.getRecordCount());
+        }
+
+        AtomicLong clock = new AtomicLong(0);
+        JournalReplayElevator replay = new JournalReplayElevator(SnapshotJournal.listSegments(base), 2, clock::get);
+        assertEquals(5, replay.getRecordCount());
+        assertEquals(2, replay.getElevatorNum());
+        assertEquals(10, replay.getFloorNum());
+        assertEquals(3, replay.getFloorHeight());
+        assertEquals(8, replay.getElevatorCapacity(1));
+
+        assertEquals(0, replay.getCurrentRecord());
+        assertEquals(100, replay.getClockTick());
+        assertEquals(ELEVATOR_DIRECTION_UP, replay.getCommittedDirection(1));
+        assertEquals(2, replay.getElevatorAccel(1));
+        assertEquals(ELEVATOR_DOORS_CLOSING, replay.getElevatorDoorStatus(1));
+        assertEquals(3, replay.getElevatorFloor(1));
+        assertEquals(9, replay.getTarget(1));
+        assertEquals(150, replay.getElevatorWeight(1));
+        assertTrue(replay.getElevatorButton(0, 9));
+        assertFalse(replay.getElevatorButton(0, 8));
+        assertFalse(replay.getServicesFloors(1, 4));
+        assertTrue(replay.getFloorButtonUp(0));
+        assertTrue(replay.getFloorButtonDown(8));
+
+        // twice the original speed, 100 ms of the recording pass in 50 ms
+        clock.set(149);
+        assertEquals(2, replay.getCurrentRecord());
+        assertEquals(2, replay.getElevatorSpeed(1));
+        assertEquals(20, replay.getElevatorPosition(1));
+        assertTrue(replay.getFloorButtonUp(2));
+        assertFalse(replay.getFloorButtonUp(0));
+
+        // the last record is held
+        clock.set(10000);
+        assertTrue(replay.isFinished());
+        assertEquals(104, replay.getClockTick());
+
+        replay.setTarget(1, 0);
+        assertEquals(9, replay.getTarget(1));
+    }
+
+    /**
+     * Test the rotation of full segments.
+     * @throws Exception if the journal cannot be written or read
+     */
+    @Test
+    public void testRotation() throws Exception {
+        Path base = directory.resolve("plc");
+        int recordSize = SnapshotJournal.recordSize(2, 10);
+        long segmentSize = SnapshotJournal.headerSize(2) + 3L * recordSize;
+
+        try (SnapshotJournal journal = new SnapshotJournal(base, segmentSize, 2)) {
+            journal.begin(10, 3, new int[]{5, 8});
+            for (int cycle = 0; cycle < 10; ++cycle) {
+                journal.append(snapshotOf(cycle), cycle, cycle);
+            }
+            assertTrue(journal.getCurrentSegment().getFileName().toString().endsWith("000004.journal"));
+        }
+
+        // four segments were written, the two oldest were deleted
+        List<Path> segments = SnapshotJournal.listSegments(base);
+        assertEquals(2, segments.size());
+
+        JournalReplayElevator replay = new JournalReplayElevator(segments, 1, () -> 0);
+        assertEquals(4, replay.getRecordCount());
+        assertEquals(6, replay.getClockTick());
+    }
+
+    /**
+     * Test that a file which is not a journal is rejected.
+     * @throws Exception if the file cannot be written
+     */
+    @Test
+    public void testNotAJournal() throws Exception {
+        Path file = directory.resolve("plc-000001.journal");
+        Files.write(file, new byte[64]);
+        assertThrows(IOException.class, () -> new JournalReplayElevator(List.of(file), 1));
+    }
+}
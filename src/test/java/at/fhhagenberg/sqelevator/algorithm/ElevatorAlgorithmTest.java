@@ -1,5 +1,6 @@
 package at.fhhagenberg.sqelevator.algorithm;
 
+import at.fhhagenberg.sqelevator.ElevatorStateFrame;
 import com.hivemq.client.mqtt.mqtt5.Mqtt5AsyncClient;
 import com.hivemq.client.mqtt.mqtt5.Mqtt5Client;
 import org.junit.jupiter.api.*;
@@ -1229,6 +1230,91 @@ public class ElevatorAlgorithmTest {
         latch.get().await();
         assertEquals(expectedMessages.get(), receivedMessages.get()); // Compare contents
 
+        subscriber.disconnect();
+    }
+    /**
+     * Test uncommited -> up -> uncommited with the fields of the elevator in state frames
+     * @throws Exception if algorithm encounters an error
+     */
+    @Test
+    public void testStateFrames() throws Exception {
+        assertTrue(connected);
+
+        final AtomicReference<Map<String, String>> expectedMessages = new AtomicReference<>(Map.of(
+                "elevator_control/0/direction", "2"
+        ));
+        final AtomicReference<Map<String, String>> receivedMessages = new AtomicReference<>(new ConcurrentHashMap<>());
+        final AtomicReference<CountDownLatch> latch = new AtomicReference<>(new CountDownLatch(1));
+
+        Mqtt5AsyncClient subscriber = Mqtt5Client.builder()
+                .identifier(UUID.randomUUID().toString())
+                .serverHost(hivemqCe.getHost())
+                .serverPort(hivemqCe.getMqttPort())
+                .buildAsync();
+
+        subscriber.connect();
+        subscriber.subscribeWith()
+                .addSubscription()
+                .topicFilter("elevator_control/+/direction")
+                .applySubscription()
+                .addSubscription()
+                .topicFilter("elevator_control/+/target_floor")
+                .applySubscription()
+                .callback(message -> {
+                    String payload = new String(message.getPayloadAsBytes());
+                    String topic = message.getTopic().toString();
+                    if (expectedMessages.get().containsKey(topic) && payload.equals(expectedMessages.get().get(topic)) && !receivedMessages.get().containsKey(topic)) {
+                        receivedMessages.get().put(topic, payload);
+                        latch.get().countDown();
+                    }
+                })
+                .send();
+
+        ElevatorStateFrame frame = new ElevatorStateFrame(5);
+        for (int floor = 0; floor < 5; floor++) {
+            frame.setServicesFloor(floor, true);
+        }
+        frame.setScalars(2, 0, 0, 1, 0, 0, 0, 0);
+        publisher.publishWith()
+                .topic("elevator/0/state")
+                .payload(frame.encode())
+                .send();
+
+        latch.get().await();
+        assertEquals(expectedMessages.get(), receivedMessages.get()); // Compare contents
+
+        expectedMessages.set(Map.of(
+                "elevator_control/0/direction", "0",
+                "elevator_control/0/target_floor", "1"
+        ));
+        receivedMessages.set(new ConcurrentHashMap<>());
+        latch.set(new CountDownLatch(2));
+
+        frame.setElevatorButton(1, true);
+        publisher.publishWith()
+                .topic("elevator/0/state")
+                .payload(frame.encode())
+                .send();
+
+        latch.get().await();
+        assertEquals(expectedMessages.get(), receivedMessages.get()); // Compare contents
+
+        expectedMessages.set(Map.of(
+                "elevator_control/0/direction", "2"
+        ));
+        receivedMessages.set(new ConcurrentHashMap<>());
+        latch.set(new CountDownLatch(1));
+
+        frame.setScalars(0, 0, 0, 1, 1, 1, 0, 3);
+        frame.setElevatorButton(1, false);
+        publisher.publishWith()
+                .topic("elevator/0/state")
+                .payload(frame.encode())
+                .send();
+
+        latch.get().await();
+        assertEquals(expectedMessages.get(), receivedMessages.get()); // Compare contents
+
         subscriber.disconnect();
     }
 }
@@ -33,5 +33,8 @@ public class ElevatorStateTest {
 
         Floor[] floors = elevatorState.getFloors();
         assertEquals(4, floors.length);
+
+        assertEquals(2, elevatorState.getTopicRegistry().getNumOfElevators());
+        assertEquals(4, elevatorState.getTopicRegistry().getNumOfFloors());
     }
 }
@@ -0,0 +1,184 @@
+package at.fhhagenberg.sqelevator.simulator;
+
+import at.fhhagenberg.sqelevator.adapter.ElevatorControlSystem;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sqelevator.IElevator;
+
+import java.rmi.RemoteException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for testing the SimulatedElevator.
+ */
+public class SimulatedElevatorTest {
+    /**< The test clock in milliseconds. */
+    private long now;
+    /**< The simulator under test. */
+    private SimulatedElevator simulator;
+
+    /**
+     * Set up a small building driven by the test clock.
+     */
+    @BeforeEach
+    public void setup() {
+        now = 0;
+        simulator = new SimulatedElevator(2, 10, 10, 5, () -> now);
+    }
+
+    /**
+     * Test the dimensions and the initial state.
+     */
+    @Test
+    public void testInitialState() throws RemoteException {
+        assertEquals(2, simulator.getElevatorNum());
+        assertEquals(10, simulator.getFloorNum());
+        assertEquals(10, simulator.getFloorHeight());
+        assertEquals(5, simulator.getElevatorCapacity(1));
+        assertEquals(0, simulator.getElevatorFloor(0));
+        assertEquals(IElevator.ELEVATOR_DOORS_CLOSED, simulator.getElevatorDoorStatus(0));
+        assertEquals(IElevator.ELEVATOR_DIRECTION_UNCOMMITTED, simulator.getCommittedDirection(0));
+        assertTrue(simulator.getServicesFloors(0, 9));
+        assertEquals(0, simulator.getClockTick());
+
+        assertThrows(IllegalArgumentException.class, () -> simulator.getElevatorFloor(2));
+        assertThrows(IllegalArgumentException.class, () -> simulator.setTarget(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new SimulatedElevator(0, 10, 10, 5));
+    }
+
+    /**
+     * Test a car accelerating, cruising and stopping at its target, then cycling its doors.
+     */
+    @Test
+    public void testTravel() throws RemoteException {
+        simulator.setTarget(0, 5);
+
+        now = 1000;
+        assertEquals(100, simulator.getClockTick());
+        assertEquals(5, simulator.getElevatorSpeed(0));
+        assertEquals(5, simulator.getElevatorAccel(0));
+        assertTrue(simulator.getElevatorPosition(0) > 0);
+        assertEquals(IElevator.ELEVATOR_DOORS_CLOSED, simulator.getElevatorDoorStatus(0));
+
+        int maxSpeed = 0;
+        while (simulator.getElevatorDoorStatus(0) == IElevator.ELEVATOR_DOORS_CLOSED) {
+            maxSpeed = Math.max(maxSpeed, simulator.getElevatorSpeed(0));
+            now += 10;
+        }
+        assertTrue(maxSpeed <= SimulatedElevator.DEFAULT_MAX_SPEED);
+        assertEquals(50, simulator.getElevatorPosition(0));
+        assertEquals(5, simulator.getElevatorFloor(0));
+        assertEquals(0, simulator.getElevatorSpeed(0));
+        assertEquals(IElevator.ELEVATOR_DOORS_OPENING, simulator.getElevatorDoorStatus(0));
+
+        now += SimulatedElevator.DOOR_TIME;
+        assertEquals(IElevator.ELEVATOR_DOORS_OPEN, simulator.getElevatorDoorStatus(0));
+        now += SimulatedElevator.DWELL_TIME;
+        assertEquals(IElevator.ELEVATOR_DOORS_CLOSING, simulator.getElevatorDoorStatus(0));
+        now += SimulatedElevator.DOOR_TIME;
+        assertEquals(IElevator.ELEVATOR_DOORS_CLOSED, simulator.getElevatorDoorStatus(0));
+
+        // the other car did not move
+        assertEquals(0, simulator.getElevatorPosition(1));
+    }
+
+    /**
+     * Test a passenger pressing the hall button, boarding, pressing the elevator button and alighting.
+     */
+    @Test
+    public void testPassenger() throws RemoteException {
+        simulator.addPassenger(3, 1);
+        assertTrue(simulator.getFloorButtonDown(3));
+        assertFalse(simulator.getFloorButtonUp(3));
+
+        simulator.setCommittedDirection(0, IElevator.ELEVATOR_DIRECTION_UP);
+        simulator.setTarget(0, 3);
+        now += 20000;
+        // a car committed upwards leaves the passenger waiting to go down
+        assertTrue(simulator.getFloorButtonDown(3));
+        assertEquals(0, simulator.getElevatorWeight(0));
+
+        simulator.setCommittedDirection(0, IElevator.ELEVATOR_DIRECTION_DOWN);
+        simulator.setTarget(0, 3);
+        now += 20000;
+        assertFalse(simulator.getFloorButtonDown(3));
+        assertTrue(simulator.getElevatorButton(0, 1));
+        assertEquals(SimulatedElevator.PASSENGER_WEIGHT, simulator.getElevatorWeight(0));
+        assertEquals(0, simulator.getWaitingPassengers());
+
+        simulator.setTarget(0, 1);
+        now += 20000;
+        assertFalse(simulator.getElevatorButton(0, 1));
+        assertEquals(0, simulator.getElevatorWeight(0));
+        assertEquals(1, simulator.getDeliveredPassengers());
+    }
+
+    /**
+     * Test that a car does not board more passengers than its capacity.
+     */
+    @Test
+    public void testCapacity() throws RemoteException {
+        for (int i = 0; i < 7; ++i) {
+            simulator.addPassenger(0, 4);
+        }
+        simulator.setTarget(0, 0);
+        now += 5000;
+
+        assertEquals(5 * SimulatedElevator.PASSENGER_WEIGHT, simulator.getElevatorWeight(0));
+        assertEquals(2, simulator.getWaitingPassengers());
+        assertTrue(simulator.getFloorButtonUp(0));
+    }
+
+    /**
+     * Test the passenger generator with a fixed seed.
+     */
+    @Test
+    public void testPassengerGenerator() {
+        PassengerGenerator passengers = new PassengerGenerator(10, 100, 1, 42);
+        int arrivals = 0;
+        for (int i = 0; i < 1000; ++i) {
+            arrivals += passengers.arrivals(10);
+        }
+        // 100 passengers per second for 10 seconds, jittered
+        assertTrue(arrivals > 900 && arrivals < 1100);
+        assertEquals(0, passengers.nextOrigin());
+        for (int i = 0; i < 100; ++i) {
+            int destination = passengers.nextDestination(4);
+            assertTrue(destination >= 0 && destination < 10 && destination != 4);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> new PassengerGenerator(1, 1, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new PassengerGenerator(10, 1, 2, 0));
+    }
+
+    /**
+     * Test polling a building of 50 elevators and 200 floors with arriving passengers.
+     */
+    @Test
+    public void testLoad() throws RemoteException {
+        SimulatedElevator building = new SimulatedElevator(50, 200, 10, 20, () -> now);
+        building.setPassengerGenerator(new PassengerGenerator(200, 20, 0.5, 7));
+        ElevatorControlSystem ecs = new ElevatorControlSystem(building);
+        ecs.initializeElevatorsViaPLC();
+
+        for (int cycle = 0; cycle < 100; ++cycle) {
+            now += 250;
+            ecs.updateDataViaPLC();
+            // send every idle car to the floor of the first pending hall call
+            for (int floor = 0; floor < 200; ++floor) {
+                if (building.getFloorButtonUp(floor) || building.getFloorButtonDown(floor)) {
+                    int elevator = floor % 50;
+                    if (building.getElevatorDoorStatus(elevator) == IElevator.ELEVATOR_DOORS_CLOSED) {
+                        building.setTarget(elevator, floor);
+                    }
+                }
+            }
+        }
+
+        assertEquals(2500, building.getClockTick());
+        assertTrue(building.getWaitingPassengers() + building.getDeliveredPassengers() > 0);
+        assertEquals(50, ecs.getElevators().length);
+        assertEquals(200, ecs.getFloors().length);
+    }
+}